@@ -0,0 +1,186 @@
+package de.dhbw.geofencinglbs.data.local;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import android.content.Context;
+import android.database.Cursor;
+import android.util.Log;
+
+import androidx.room.Room;
+import androidx.sqlite.db.SupportSQLiteDatabase;
+import androidx.sqlite.db.SupportSQLiteStatement;
+import androidx.test.ext.junit.runners.AndroidJUnit4;
+import androidx.test.platform.app.InstrumentationRegistry;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+import de.dhbw.geofencinglbs.model.DailyDwellTime;
+import de.dhbw.geofencinglbs.model.GeofenceEvent;
+
+/**
+ * Benchmark für Aufenthaltszeiten mit einer Million Ereignissen:
+ * Backfill der Aufenthalte sowie Abfragen über Tageswerte im Vergleich zum früheren Self-Join.
+ */
+@RunWith(AndroidJUnit4.class)
+public class DwellTimeBenchmarkTest {
+    private static final String TAG = "DwellTimeBenchmark";
+
+    private static final int EVENT_COUNT = 1_000_000;
+    private static final int GEOFENCE_COUNT = 50;
+    private static final long HOUR = 60 * 60 * 1000L;
+
+    // Bisherige Abfrage aus GeofenceEventDao.calculateTotalDwellTime
+    private static final String LEGACY_SELF_JOIN = "SELECT SUM(exit.timestamp - enter.timestamp) " +
+            "FROM geofence_events enter JOIN geofence_events exit " +
+            "ON enter.geofenceId = exit.geofenceId " +
+            "WHERE enter.geofenceId = ? " +
+            "AND enter.eventType = 1 AND exit.eventType = 2 " +
+            "AND enter.timestamp < exit.timestamp " +
+            "AND enter.timestamp BETWEEN ? AND ? " +
+            "AND exit.timestamp BETWEEN ? AND ?";
+
+    private AppDatabase database;
+    private SupportSQLiteDatabase db;
+    // Pro Geofence: {Eintritt, Austritt} aller erzeugten Aufenthalte
+    private final List<List<long[]>> visits = new ArrayList<>();
+    private long lastTimestamp;
+
+    @Before
+    public void setUp() {
+        Context context = InstrumentationRegistry.getInstrumentation().getTargetContext();
+        database = Room.inMemoryDatabaseBuilder(context, AppDatabase.class).build();
+        db = database.getOpenHelper().getWritableDatabase();
+        insertEvents();
+    }
+
+    @After
+    public void tearDown() {
+        database.close();
+    }
+
+    @Test
+    public void benchmark_backfillAndQueries() {
+        long backfillStart = System.nanoTime();
+        db.beginTransaction();
+        try {
+            AppDatabase.backfillVisits(db);
+            db.setTransactionSuccessful();
+        } finally {
+            db.endTransaction();
+        }
+        long backfillMs = (System.nanoTime() - backfillStart) / 1_000_000;
+        assertEquals(EVENT_COUNT / 2, count("SELECT COUNT(*) FROM geofence_visits"));
+
+        GeofenceVisitDao visitDao = database.geofenceVisitDao();
+        Random random = new Random(7);
+        int queryCount = 200;
+        long queryNanos = 0;
+        for (int i = 0; i < queryCount; i++) {
+            int geofence = 1 + random.nextInt(GEOFENCE_COUNT);
+            long start = (long) (random.nextDouble() * lastTimestamp);
+            long end = start + (long) (random.nextDouble() * (lastTimestamp - start));
+
+            long queryStart = System.nanoTime();
+            long dwellTime = visitDao.calculateTotalDwellTime(geofence, start, end);
+            queryNanos += System.nanoTime() - queryStart;
+
+            assertEquals(expectedDwellTime(geofence, start, end), dwellTime);
+        }
+        double queryMs = queryNanos / 1e6 / queryCount;
+
+        // Der Self-Join ist quadratisch, daher nur eine Abfrage über eine Woche
+        long weekStart = lastTimestamp / 2;
+        long weekEnd = weekStart + 7 * DailyDwellTime.DAY_MS;
+        long legacyStart = System.nanoTime();
+        count(LEGACY_SELF_JOIN, 1L, weekStart, weekEnd, weekStart, weekEnd);
+        double legacyMs = (System.nanoTime() - legacyStart) / 1e6;
+        long newStart = System.nanoTime();
+        visitDao.calculateTotalDwellTime(1, weekStart, weekEnd);
+        double weekMs = (System.nanoTime() - newStart) / 1e6;
+
+        Log.i(TAG, String.format("%d events: backfill %d ms, range query %.3f ms avg, " +
+                        "week query %.3f ms (self-join %.1f ms)",
+                EVENT_COUNT, backfillMs, queryMs, weekMs, legacyMs));
+        assertTrue(weekMs < legacyMs);
+    }
+
+    @Test
+    public void applyEvent_splitsVisitsAcrossDays() {
+        GeofenceVisitDao visitDao = database.geofenceVisitDao();
+        long base = lastTimestamp + DailyDwellTime.DAY_MS;
+        visitDao.applyEvent(1, GeofenceEvent.TYPE_ENTER, base + 22 * HOUR);
+        visitDao.applyEvent(1, GeofenceEvent.TYPE_ENTER, base + 23 * HOUR); // Doppeltes ENTER
+        visitDao.applyEvent(1, GeofenceEvent.TYPE_EXIT, base + 26 * HOUR);
+
+        assertEquals(4 * HOUR, visitDao.calculateTotalDwellTime(1, base, base + 3 * DailyDwellTime.DAY_MS));
+        assertEquals(HOUR, visitDao.calculateTotalDwellTime(1, base + 23 * HOUR, base + 24 * HOUR));
+        assertEquals(2 * HOUR, visitDao.calculateTotalDwellTime(1, base + 24 * HOUR, base + 30 * HOUR));
+    }
+
+    /**
+     * Erzeugt abwechselnd ENTER- und EXIT-Ereignisse für alle Geofences.
+     */
+    private void insertEvents() {
+        Random random = new Random(3);
+        db.beginTransaction();
+        try {
+            SupportSQLiteStatement insertGeofence = db.compileStatement("INSERT INTO geofences " +
+                    "(id, name, latitude, longitude, radius, createdAt, isActive, lastEntryTime, lastExitTime, " +
+                    "totalDwellTime) VALUES (?, ?, 49.48, 8.46, 100, 0, 1, 0, 0, 0)");
+            SupportSQLiteStatement insertEvent = db.compileStatement("INSERT INTO geofence_events " +
+                    "(geofenceId, eventType, timestamp, latitude, longitude, accuracy, provider, batteryLevel, " +
+                    "isCharging, networkConnectionType) VALUES (?, ?, ?, 49.48, 8.46, 10, 'fused', 80, 0, 'WIFI')");
+
+            for (int geofence = 1; geofence <= GEOFENCE_COUNT; geofence++) {
+                insertGeofence.bindLong(1, geofence);
+                insertGeofence.bindString(2, "Zone " + geofence);
+                insertGeofence.executeInsert();
+
+                List<long[]> geofenceVisits = new ArrayList<>();
+                long timestamp = 0;
+                for (int i = 0; i < EVENT_COUNT / GEOFENCE_COUNT / 2; i++) {
+                    timestamp += HOUR + random.nextInt((int) (6 * HOUR));
+                    long exit = timestamp + 1 + random.nextInt((int) (3 * HOUR));
+                    insertEvent(insertEvent, geofence, GeofenceEvent.TYPE_ENTER, timestamp);
+                    insertEvent(insertEvent, geofence, GeofenceEvent.TYPE_EXIT, exit);
+                    geofenceVisits.add(new long[]{timestamp, exit});
+                    timestamp = exit;
+                }
+                visits.add(geofenceVisits);
+                lastTimestamp = Math.max(lastTimestamp, timestamp);
+            }
+            db.setTransactionSuccessful();
+        } finally {
+            db.endTransaction();
+        }
+    }
+
+    private static void insertEvent(SupportSQLiteStatement statement, long geofenceId, int type, long timestamp) {
+        statement.bindLong(1, geofenceId);
+        statement.bindLong(2, type);
+        statement.bindLong(3, timestamp);
+        statement.executeInsert();
+    }
+
+    private long expectedDwellTime(int geofence, long start, long end) {
+        long total = 0;
+        for (long[] visit : visits.get(geofence - 1)) {
+            total += Math.max(0, Math.min(visit[1], end) - Math.max(visit[0], start));
+        }
+        return total;
+    }
+
+    private long count(String sql, Object... args) {
+        try (Cursor cursor = db.query(sql, args)) {
+            return cursor.moveToFirst() ? cursor.getLong(0) : 0;
+        }
+    }
+}
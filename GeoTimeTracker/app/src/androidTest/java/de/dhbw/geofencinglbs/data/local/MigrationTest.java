@@ -0,0 +1,152 @@
+package de.dhbw.geofencinglbs.data.local;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import android.content.Context;
+import android.database.Cursor;
+import android.util.Log;
+
+import androidx.room.Room;
+import androidx.room.migration.Migration;
+import androidx.room.testing.MigrationTestHelper;
+import androidx.sqlite.db.SupportSQLiteDatabase;
+import androidx.sqlite.db.SupportSQLiteStatement;
+import androidx.test.ext.junit.runners.AndroidJUnit4;
+import androidx.test.platform.app.InstrumentationRegistry;
+
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+
+import java.io.IOException;
+
+import de.dhbw.geofencinglbs.model.GeofenceEvent;
+
+/**
+ * Testet die Migrationen von AppDatabase anhand der exportierten Schemas (app/schemas).
+ * Die Datenbanken werden in der alten Version angelegt, befüllt und anschließend
+ * direkt migriert; Room prüft danach das Schema gegen die aktuelle Version.
+ */
+@RunWith(AndroidJUnit4.class)
+public class MigrationTest {
+    private static final String TAG = "MigrationTest";
+    private static final String TEST_DB = "migration-test";
+
+    private static final int FIRST_VERSION = 1;
+    private static final int LARGE_EVENT_COUNT = 1_000_000;
+    private static final int GEOFENCE_COUNT = 20;
+    private static final long MAX_MIGRATION_MS = 120_000;
+
+    @Rule
+    public MigrationTestHelper helper = new MigrationTestHelper(
+            InstrumentationRegistry.getInstrumentation(), AppDatabase.class);
+
+    /**
+     * Jede Migration einzeln: Daten bleiben erhalten, Schema entspricht der Zielversion.
+     */
+    @Test
+    public void migrateEachVersion() throws IOException {
+        for (int version = FIRST_VERSION; version < AppDatabase.VERSION; version++) {
+            String name = TEST_DB + "-" + version;
+            SupportSQLiteDatabase db = helper.createDatabase(name, version);
+            insertData(db, 3, 100);
+            db.close();
+
+            db = helper.runMigrationsAndValidate(name, version + 1, true, migrationFrom(version));
+            assertEquals(3, count(db, "SELECT COUNT(*) FROM geofences"));
+            assertEquals(300, count(db, "SELECT COUNT(*) FROM geofence_events"));
+            db.close();
+        }
+    }
+
+    /**
+     * Alle Migrationen hintereinander auf einer Datenbank mit einer Million Ereignissen.
+     */
+    @Test
+    public void migrateAll_withMillionEvents() throws IOException {
+        SupportSQLiteDatabase db = helper.createDatabase(TEST_DB, FIRST_VERSION);
+        insertData(db, GEOFENCE_COUNT, LARGE_EVENT_COUNT / GEOFENCE_COUNT);
+        db.close();
+
+        long start = System.nanoTime();
+        db = helper.runMigrationsAndValidate(TEST_DB, AppDatabase.VERSION, true, AppDatabase.MIGRATIONS);
+        long migrationMs = (System.nanoTime() - start) / 1_000_000;
+
+        assertEquals(GEOFENCE_COUNT, count(db, "SELECT COUNT(*) FROM geofences"));
+        assertEquals(LARGE_EVENT_COUNT, count(db, "SELECT COUNT(*) FROM geofence_events"));
+        // Abwechselnd ENTER und EXIT: jedes Paar ergibt einen abgeschlossenen Aufenthalt
+        assertEquals(LARGE_EVENT_COUNT / 2, count(db, "SELECT COUNT(*) FROM geofence_visits WHERE exitTime > 0"));
+        db.close();
+
+        Log.i(TAG, "Migrated " + LARGE_EVENT_COUNT + " events from version " + FIRST_VERSION
+                + " to " + AppDatabase.VERSION + " in " + migrationMs + " ms");
+        assertTrue("Migration took " + migrationMs + " ms", migrationMs < MAX_MIGRATION_MS);
+    }
+
+    /**
+     * Die App-Datenbank lässt sich nach der Migration mit den registrierten Migrationen öffnen.
+     */
+    @Test
+    public void openMigratedDatabaseWithRoom() throws IOException {
+        SupportSQLiteDatabase db = helper.createDatabase(TEST_DB, FIRST_VERSION);
+        insertData(db, 2, 10);
+        db.close();
+
+        Context context = InstrumentationRegistry.getInstrumentation().getTargetContext();
+        AppDatabase database = Room.databaseBuilder(context, AppDatabase.class, TEST_DB)
+                .addMigrations(AppDatabase.MIGRATIONS)
+                .build();
+        try {
+            assertEquals(2, database.geofenceDao().getActiveGeofencesSync().size());
+            assertEquals(10, database.geofenceVisitDao().getVisitsStartedBetween(1, 0, Long.MAX_VALUE).size()
+                    + database.geofenceVisitDao().getVisitsStartedBetween(2, 0, Long.MAX_VALUE).size());
+        } finally {
+            database.close();
+        }
+    }
+
+    private static Migration migrationFrom(int version) {
+        for (Migration migration : AppDatabase.MIGRATIONS) {
+            if (migration.startVersion == version) {
+                return migration;
+            }
+        }
+        throw new IllegalStateException("No migration from version " + version);
+    }
+
+    /**
+     * Legt Geofences und abwechselnd ENTER/EXIT-Ereignisse an (Spalten seit Version 1 unverändert).
+     */
+    private static void insertData(SupportSQLiteDatabase db, int geofenceCount, int eventsPerGeofence) {
+        db.beginTransaction();
+        try {
+            SupportSQLiteStatement insertGeofence = db.compileStatement("INSERT INTO geofences " +
+                    "(id, name, latitude, longitude, radius, createdAt, isActive, lastEntryTime, lastExitTime, " +
+                    "totalDwellTime) VALUES (?, ?, 49.48, 8.46, 100, 0, 1, 0, 0, 0)");
+            SupportSQLiteStatement insertEvent = db.compileStatement("INSERT INTO geofence_events " +
+                    "(geofenceId, eventType, timestamp, latitude, longitude, accuracy, provider, batteryLevel, " +
+                    "isCharging, networkConnectionType) VALUES (?, ?, ?, 49.48, 8.46, 10, 'fused', 80, 0, 'WIFI')");
+            for (int geofence = 1; geofence <= geofenceCount; geofence++) {
+                insertGeofence.bindLong(1, geofence);
+                insertGeofence.bindString(2, "Zone " + geofence);
+                insertGeofence.executeInsert();
+                for (int i = 0; i < eventsPerGeofence; i++) {
+                    insertEvent.bindLong(1, geofence);
+                    insertEvent.bindLong(2, i % 2 == 0 ? GeofenceEvent.TYPE_ENTER : GeofenceEvent.TYPE_EXIT);
+                    insertEvent.bindLong(3, 1_000_000L + i * 60_000L);
+                    insertEvent.executeInsert();
+                }
+            }
+            db.setTransactionSuccessful();
+        } finally {
+            db.endTransaction();
+        }
+    }
+
+    private static long count(SupportSQLiteDatabase db, String sql) {
+        try (Cursor cursor = db.query(sql)) {
+            return cursor.moveToFirst() ? cursor.getLong(0) : 0;
+        }
+    }
+}
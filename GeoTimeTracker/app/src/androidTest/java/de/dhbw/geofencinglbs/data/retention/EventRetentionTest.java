@@ -0,0 +1,118 @@
+package de.dhbw.geofencinglbs.data.retention;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import android.content.Context;
+import android.database.Cursor;
+
+import androidx.room.Room;
+import androidx.sqlite.db.SupportSQLiteDatabase;
+import androidx.sqlite.db.SupportSQLiteStatement;
+import androidx.test.ext.junit.runners.AndroidJUnit4;
+import androidx.test.platform.app.InstrumentationRegistry;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+
+import de.dhbw.geofencinglbs.data.local.AppDatabase;
+import de.dhbw.geofencinglbs.model.DailyDwellTime;
+
+/**
+ * Tests für die Bereinigung alter Rohereignisse.
+ */
+@RunWith(AndroidJUnit4.class)
+public class EventRetentionTest {
+
+    private static final int DAYS = 200;
+    private static final int EVENTS_PER_DAY = 12;
+    private static final int HORIZON_DAYS = 90;
+    // Mittag des letzten Testtages
+    private static final long NOW = DailyDwellTime.startOfDay(20000 + DAYS) + DailyDwellTime.DAY_MS / 2;
+
+    private AppDatabase database;
+    private SupportSQLiteDatabase db;
+
+    @Before
+    public void setUp() {
+        Context context = InstrumentationRegistry.getInstrumentation().getTargetContext();
+        database = Room.inMemoryDatabaseBuilder(context, AppDatabase.class).build();
+        db = database.getOpenHelper().getWritableDatabase();
+        insertEvents();
+    }
+
+    @After
+    public void tearDown() {
+        database.close();
+    }
+
+    @Test
+    public void run_downsamplesAndDeletesExpiredEvents() {
+        long cutoff = DailyDwellTime.startOfDay(DailyDwellTime.dayOf(NOW) - HORIZON_DAYS);
+        long expired = count("SELECT COUNT(*) FROM geofence_events WHERE timestamp < " + cutoff);
+        long kept = count("SELECT COUNT(*) FROM geofence_events WHERE timestamp >= " + cutoff);
+        assertTrue(expired > EventRetention.BATCH_SIZE);
+
+        EventRetention.Result result = new EventRetention(database).run(NOW, HORIZON_DAYS, () -> false);
+
+        assertEquals(expired, result.getDeletedRows());
+        assertEquals(0, count("SELECT COUNT(*) FROM geofence_events WHERE timestamp < " + cutoff));
+        assertEquals(kept, count("SELECT COUNT(*) FROM geofence_events"));
+        // Jedes gelöschte Ereignis ist genau einmal in den Tageszusammenfassungen enthalten
+        assertEquals(expired, count("SELECT SUM(enterCount + exitCount + dwellCount) FROM daily_event_summaries"));
+        assertEquals(expired / 3, count("SELECT SUM(enterCount) FROM daily_event_summaries"));
+        assertEquals(0, count("SELECT COUNT(*) FROM daily_event_summaries WHERE day >= " + cutoff / DailyDwellTime.DAY_MS));
+        assertTrue(result.getReclaimedBytes() >= 0);
+
+        // Ein zweiter Lauf findet nichts mehr
+        assertEquals(0, new EventRetention(database).run(NOW, HORIZON_DAYS, () -> false).getDeletedRows());
+    }
+
+    @Test
+    public void run_stopsBetweenBatches() {
+        long before = count("SELECT COUNT(*) FROM geofence_events");
+        int[] checks = {0};
+        EventRetention.Result result = new EventRetention(database).run(NOW, HORIZON_DAYS, () -> ++checks[0] > 2);
+
+        assertTrue(result.isStopped());
+        assertEquals(2 * EventRetention.BATCH_SIZE, result.getDeletedRows());
+        assertEquals(before - result.getDeletedRows(), count("SELECT COUNT(*) FROM geofence_events"));
+        assertEquals(result.getDeletedRows(),
+                count("SELECT SUM(enterCount + exitCount + dwellCount) FROM daily_event_summaries"));
+    }
+
+    /**
+     * Zwei Geofences mit je {@link #EVENTS_PER_DAY} Ereignissen pro Tag (ENTER, DWELL, EXIT im Wechsel).
+     */
+    private void insertEvents() {
+        db.beginTransaction();
+        try {
+            SupportSQLiteStatement insertEvent = db.compileStatement("INSERT INTO geofence_events " +
+                    "(geofenceId, eventType, timestamp, latitude, longitude, accuracy, provider, batteryLevel, " +
+                    "isCharging, networkConnectionType) VALUES (?, ?, ?, 49.48, 8.46, 10, 'fused', 80, 0, 'WIFI')");
+            for (int geofence = 1; geofence <= 2; geofence++) {
+                db.execSQL("INSERT INTO geofences (id, name, latitude, longitude, radius, createdAt, isActive, " +
+                        "lastEntryTime, lastExitTime, totalDwellTime) VALUES (" + geofence + ", 'Zone', " +
+                        "49.48, 8.46, 100, 0, 1, 0, 0, 0)");
+                long firstDayStart = DailyDwellTime.startOfDay(DailyDwellTime.dayOf(NOW) - DAYS);
+                for (int i = 0; i < DAYS * EVENTS_PER_DAY; i++) {
+                    insertEvent.bindLong(1, geofence);
+                    insertEvent.bindLong(2, 1 + i % 3);
+                    insertEvent.bindLong(3, firstDayStart + i * (DailyDwellTime.DAY_MS / EVENTS_PER_DAY));
+                    insertEvent.executeInsert();
+                }
+            }
+            db.setTransactionSuccessful();
+        } finally {
+            db.endTransaction();
+        }
+    }
+
+    private long count(String sql) {
+        try (Cursor cursor = db.query(sql)) {
+            return cursor.moveToFirst() ? cursor.getLong(0) : 0;
+        }
+    }
+}
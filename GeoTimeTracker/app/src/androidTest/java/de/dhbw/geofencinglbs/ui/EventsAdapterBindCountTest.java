@@ -0,0 +1,214 @@
+package de.dhbw.geofencinglbs.ui;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import android.app.Instrumentation;
+import android.content.Context;
+import android.util.Log;
+import android.view.ContextThemeWrapper;
+import android.view.View;
+
+import androidx.annotation.NonNull;
+import androidx.lifecycle.Lifecycle;
+import androidx.lifecycle.LifecycleOwner;
+import androidx.lifecycle.LifecycleRegistry;
+import androidx.paging.PagingData;
+import androidx.recyclerview.widget.LinearLayoutManager;
+import androidx.recyclerview.widget.RecyclerView;
+import androidx.test.ext.junit.runners.AndroidJUnit4;
+import androidx.test.platform.app.InstrumentationRegistry;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import de.dhbw.geofencinglbs.R;
+import de.dhbw.geofencinglbs.model.GeofenceEvent;
+import kotlin.Unit;
+import kotlin.jvm.functions.Function0;
+
+/**
+ * Zählt die gebundenen Zeilen des {@link EventsAdapter} in einer echten {@link RecyclerView}:
+ * bisheriges {@code notifyDataSetChanged()} bei jedem Standort-Update gegenüber der aktuellen
+ * Aktualisierung, bei der Standort-Updates nur die Statusanzeige ändern und neue Ereignisse
+ * als {@link PagingData}-Diff eintreffen.
+ */
+@RunWith(AndroidJUnit4.class)
+public class EventsAdapterBindCountTest {
+    private static final String TAG = "EventsAdapterBenchmark";
+
+    // Eine Stunde Standort-Updates im 5-Sekunden-Intervall
+    private static final int FIXES = 720;
+    private static final int EVENTS = 200;
+    private static final int WIDTH = 1080;
+    private static final int HEIGHT = 1920;
+    private static final long TIMEOUT_SECONDS = 10;
+
+    private Instrumentation instrumentation;
+    private TestLifecycleOwner lifecycleOwner;
+    private RecyclerView recyclerView;
+    private EventsAdapter adapter;
+
+    @Before
+    public void setUp() {
+        instrumentation = InstrumentationRegistry.getInstrumentation();
+        Context context = new ContextThemeWrapper(instrumentation.getTargetContext(), R.style.Theme_GeofencingLBS);
+        instrumentation.runOnMainSync(() -> {
+            lifecycleOwner = new TestLifecycleOwner();
+            adapter = new EventsAdapter();
+            recyclerView = new RecyclerView(context);
+            recyclerView.setLayoutManager(new LinearLayoutManager(context));
+            // Animationen würden gebundene Zeilen zeitversetzt austauschen
+            recyclerView.setItemAnimator(null);
+            recyclerView.setAdapter(adapter);
+        });
+    }
+
+    @After
+    public void tearDown() {
+        instrumentation.runOnMainSync(() -> lifecycleOwner.destroy());
+    }
+
+    @Test
+    public void locationFixes_legacyRebindsAllVisibleRows() throws InterruptedException {
+        List<GeofenceEvent> events = events(EVENTS);
+        submitAndAwait(events);
+        int visibleRows = recyclerView.getChildCount();
+        long initialBinds = adapter.getBindCount();
+
+        // Bisheriges Verhalten: notifyDataSetChanged() bei jedem Standort-Update
+        instrumentation.runOnMainSync(() -> {
+            for (int i = 0; i < FIXES; i++) {
+                adapter.notifyDataSetChanged();
+                layout();
+            }
+        });
+        long fixBinds = adapter.getBindCount() - initialBinds;
+
+        events.add(0, event(EVENTS + 1));
+        submitAndAwait(events);
+        showNewestEvent();
+        long totalBinds = adapter.getBindCount() - initialBinds;
+
+        Log.i(TAG, String.format("Legacy: %d visible rows, %d binds for %d fixes, %d binds incl. new event",
+                visibleRows, fixBinds, FIXES, totalBinds));
+
+        assertTrue("Rows should be visible", visibleRows > 0);
+        assertTrue("Every fix should rebind all visible rows", fixBinds >= (long) FIXES * visibleRows);
+    }
+
+    @Test
+    public void locationFixes_pagingDiffBindsOnlyNewEvent() throws InterruptedException {
+        List<GeofenceEvent> events = events(EVENTS);
+        submitAndAwait(events);
+        int visibleRows = recyclerView.getChildCount();
+        long initialBinds = adapter.getBindCount();
+
+        // Aktuelles Verhalten: die Statusanzeige ändert sich, die Liste wird nur neu ausgelegt
+        instrumentation.runOnMainSync(() -> {
+            for (int i = 0; i < FIXES; i++) {
+                recyclerView.requestLayout();
+                layout();
+            }
+        });
+        long fixBinds = adapter.getBindCount() - initialBinds;
+
+        events.add(0, event(EVENTS + 1));
+        submitAndAwait(events);
+        showNewestEvent();
+        long totalBinds = adapter.getBindCount() - initialBinds;
+
+        Log.i(TAG, String.format("Paging diff: %d visible rows, %d binds for %d fixes, %d binds incl. new event "
+                        + "(legacy would bind %d)",
+                visibleRows, fixBinds, FIXES, totalBinds, (long) FIXES * visibleRows));
+
+        assertTrue("Rows should be visible", visibleRows > 1);
+        assertEquals(0, fixBinds);
+        // Nur die neue Zeile wird gebunden
+        assertEquals(1, totalBinds);
+    }
+
+    /**
+     * Übergibt die Ereignisse als neue {@link PagingData}, wartet auf die Darstellung
+     * und legt die Liste anschließend aus.
+     */
+    private void submitAndAwait(List<GeofenceEvent> events) throws InterruptedException {
+        CountDownLatch updated = new CountDownLatch(1);
+        List<GeofenceEvent> snapshot = new ArrayList<>(events);
+        instrumentation.runOnMainSync(() -> {
+            adapter.addOnPagesUpdatedListener(new Function0<Unit>() {
+                @Override
+                public Unit invoke() {
+                    adapter.removeOnPagesUpdatedListener(this);
+                    updated.countDown();
+                    return Unit.INSTANCE;
+                }
+            });
+            adapter.submitData(lifecycleOwner.getLifecycle(), PagingData.from(snapshot));
+        });
+        assertTrue("PagingData not presented", updated.await(TIMEOUT_SECONDS, TimeUnit.SECONDS));
+        instrumentation.runOnMainSync(this::layout);
+    }
+
+    /**
+     * Oben eingefügte Zeilen erscheinen erst nach dem Scrollen an den Listenanfang.
+     */
+    private void showNewestEvent() {
+        instrumentation.runOnMainSync(() -> {
+            recyclerView.scrollToPosition(0);
+            layout();
+        });
+    }
+
+    private void layout() {
+        recyclerView.measure(
+                View.MeasureSpec.makeMeasureSpec(WIDTH, View.MeasureSpec.EXACTLY),
+                View.MeasureSpec.makeMeasureSpec(HEIGHT, View.MeasureSpec.EXACTLY));
+        recyclerView.layout(0, 0, WIDTH, HEIGHT);
+    }
+
+    private static List<GeofenceEvent> events(int count) {
+        List<GeofenceEvent> events = new ArrayList<>();
+        // Neueste zuerst, wie in der Ereignisliste
+        for (int id = count; id >= 1; id--) {
+            events.add(event(id));
+        }
+        return events;
+    }
+
+    private static GeofenceEvent event(long id) {
+        GeofenceEvent event = new GeofenceEvent(id % 5 + 1,
+                id % 2 == 0 ? GeofenceEvent.TYPE_ENTER : GeofenceEvent.TYPE_EXIT,
+                1700000000000L + id * 60000, 49.4875, 8.4660, 12.5f, "gps", 80f, false, "WIFI");
+        event.setId(id);
+        return event;
+    }
+
+    /**
+     * Lebenszyklus für {@link EventsAdapter#submitData}, ohne Activity.
+     */
+    private static class TestLifecycleOwner implements LifecycleOwner {
+        private final LifecycleRegistry registry = new LifecycleRegistry(this);
+
+        TestLifecycleOwner() {
+            registry.setCurrentState(Lifecycle.State.RESUMED);
+        }
+
+        void destroy() {
+            registry.setCurrentState(Lifecycle.State.DESTROYED);
+        }
+
+        @NonNull
+        @Override
+        public Lifecycle getLifecycle() {
+            return registry;
+        }
+    }
+}
@@ -0,0 +1,88 @@
+package de.dhbw.geofencinglbs.util;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import android.content.Context;
+import android.util.Log;
+
+import androidx.test.ext.junit.runners.AndroidJUnit4;
+import androidx.test.platform.app.InstrumentationRegistry;
+
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+
+/**
+ * Vergleicht die Kosten für die Gerätestatus-Abfrage pro Standort-Update:
+ * direkte Systemabfragen über {@link DeviceInfoUtil} gegenüber dem Snapshot des {@link DeviceStateMonitor}.
+ */
+@RunWith(AndroidJUnit4.class)
+public class DeviceStateMonitorBenchmarkTest {
+    private static final String TAG = "DeviceStateBenchmark";
+
+    private static final int FIXES = 2000;
+
+    private Context context;
+    private DeviceStateMonitor monitor;
+
+    @Before
+    public void setUp() {
+        context = InstrumentationRegistry.getInstrumentation().getTargetContext();
+        monitor = DeviceStateMonitor.getInstance(context);
+    }
+
+    @Test
+    public void snapshot_matchesSystemState() {
+        DeviceStateMonitor.Snapshot snapshot = monitor.getSnapshot();
+
+        assertEquals(DeviceInfoUtil.getBatteryLevel(context), snapshot.getBatteryLevel(), 1f);
+        assertEquals(DeviceInfoUtil.isDeviceCharging(context), snapshot.isCharging());
+        assertEquals(DeviceInfoUtil.getNetworkConnectionType(context), snapshot.getNetworkType());
+    }
+
+    @Test
+    public void benchmark_costPerFix() {
+        // Aufwärmen
+        legacyFix();
+        snapshotFix();
+
+        long legacyStart = System.nanoTime();
+        float checksum = 0;
+        for (int i = 0; i < FIXES; i++) {
+            checksum += legacyFix();
+        }
+        long legacyNanos = System.nanoTime() - legacyStart;
+
+        long snapshotStart = System.nanoTime();
+        for (int i = 0; i < FIXES; i++) {
+            checksum += snapshotFix();
+        }
+        long snapshotNanos = System.nanoTime() - snapshotStart;
+
+        double legacyMicros = legacyNanos / 1000.0 / FIXES;
+        double snapshotMicros = snapshotNanos / 1000.0 / FIXES;
+        Log.i(TAG, String.format("Device state per fix: DeviceInfoUtil %.1f µs, snapshot %.3f µs (checksum %.0f)",
+                legacyMicros, snapshotMicros, checksum));
+
+        assertTrue("Snapshot should be cheaper than binder calls", snapshotMicros < legacyMicros);
+    }
+
+    /**
+     * Bisherige Abfragen pro Standort-Update: zwei Sticky-Broadcasts für den Akku und
+     * zwei Abfragen des Netzwerks (Metadaten und Provider-Analyse für Netzwerk-Fixes).
+     */
+    private float legacyFix() {
+        float batteryLevel = DeviceInfoUtil.getBatteryLevel(context);
+        boolean isCharging = DeviceInfoUtil.isDeviceCharging(context);
+        String networkType = DeviceInfoUtil.getNetworkConnectionType(context);
+        String providerNetworkType = DeviceInfoUtil.getNetworkConnectionType(context);
+        return batteryLevel + (isCharging ? 1 : 0) + networkType.length() + providerNetworkType.length();
+    }
+
+    private float snapshotFix() {
+        DeviceStateMonitor.Snapshot snapshot = monitor.getSnapshot();
+        return snapshot.getBatteryLevel() + (snapshot.isCharging() ? 1 : 0)
+                + snapshot.getNetworkType().length() * 2;
+    }
+}
@@ -1,26 +1,151 @@
 package de.dhbw.geofencinglbs.data.local;
 
 import android.content.Context;
+import android.database.Cursor;
 
 import androidx.room.Database;
 import androidx.room.Room;
 import androidx.room.RoomDatabase;
+import androidx.room.migration.Migration;
+import androidx.sqlite.db.SupportSQLiteDatabase;
+import androidx.sqlite.db.SupportSQLiteStatement;
 
+import de.dhbw.geofencinglbs.model.DailyDwellTime;
+import de.dhbw.geofencinglbs.model.DailyEventSummary;
 import de.dhbw.geofencinglbs.model.GeofenceEvent;
 import de.dhbw.geofencinglbs.model.GeofenceModel;
+import de.dhbw.geofencinglbs.model.GeofenceVisit;
 
 /**
  * Room-Datenbankklasse für die gesamte Anwendung.
  * Implementiert das Singleton-Muster.
+ *
+ * Bei jeder Schemaänderung muss {@link #VERSION} erhöht und eine Migration zu
+ * {@link #MIGRATIONS} hinzugefügt werden. Das exportierte Schema (app/schemas)
+ * wird mit eingecheckt und vom MigrationTest verwendet.
  */
-@Database(entities = {GeofenceModel.class, GeofenceEvent.class}, version = 1, exportSchema = false)
+@Database(entities = {GeofenceModel.class, GeofenceEvent.class, GeofenceVisit.class, DailyDwellTime.class,
+        DailyEventSummary.class},
+        version = AppDatabase.VERSION)
 public abstract class AppDatabase extends RoomDatabase {
 
+    static final int VERSION = 5;
+
     private static final String DATABASE_NAME = "geofencing_db";
     private static AppDatabase instance;
 
+    /**
+     * Version 2: Index auf (latitude, longitude) für Umkreisabfragen.
+     */
+    static final Migration MIGRATION_1_2 = new Migration(1, 2) {
+        @Override
+        public void migrate(SupportSQLiteDatabase database) {
+            database.execSQL("CREATE INDEX IF NOT EXISTS `index_geofences_latitude_longitude` " +
+                    "ON `geofences` (`latitude`, `longitude`)");
+        }
+    };
+
+    /**
+     * Version 3: Aufenthalte und tägliche Aufenthaltszeiten, befüllt aus den vorhandenen Ereignissen.
+     */
+    static final Migration MIGRATION_2_3 = new Migration(2, 3) {
+        @Override
+        public void migrate(SupportSQLiteDatabase database) {
+            database.execSQL("CREATE TABLE IF NOT EXISTS `geofence_visits` (" +
+                    "`id` INTEGER PRIMARY KEY AUTOINCREMENT NOT NULL, `geofenceId` INTEGER NOT NULL, " +
+                    "`entryTime` INTEGER NOT NULL, `exitTime` INTEGER NOT NULL, " +
+                    "FOREIGN KEY(`geofenceId`) REFERENCES `geofences`(`id`) ON UPDATE NO ACTION ON DELETE CASCADE )");
+            database.execSQL("CREATE INDEX IF NOT EXISTS `index_geofence_visits_geofenceId_entryTime` " +
+                    "ON `geofence_visits` (`geofenceId`, `entryTime`)");
+            database.execSQL("CREATE INDEX IF NOT EXISTS `index_geofence_visits_geofenceId_exitTime` " +
+                    "ON `geofence_visits` (`geofenceId`, `exitTime`)");
+            database.execSQL("CREATE TABLE IF NOT EXISTS `daily_dwell_times` (" +
+                    "`geofenceId` INTEGER NOT NULL, `day` INTEGER NOT NULL, " +
+                    "`dwellTime` INTEGER NOT NULL, `visitCount` INTEGER NOT NULL, " +
+                    "PRIMARY KEY(`geofenceId`, `day`), " +
+                    "FOREIGN KEY(`geofenceId`) REFERENCES `geofences`(`id`) ON UPDATE NO ACTION ON DELETE CASCADE )");
+            backfillVisits(database);
+        }
+    };
+
+    /**
+     * Version 4: Zusammengesetzte Indizes für die Abfragen auf geofence_events.
+     * Der einfache Index auf geofenceId wird durch (geofenceId, timestamp) abgedeckt.
+     */
+    static final Migration MIGRATION_3_4 = new Migration(3, 4) {
+        @Override
+        public void migrate(SupportSQLiteDatabase database) {
+            database.execSQL("DROP INDEX IF EXISTS `index_geofence_events_geofenceId`");
+            database.execSQL("CREATE INDEX IF NOT EXISTS `index_geofence_events_timestamp` " +
+                    "ON `geofence_events` (`timestamp`)");
+            database.execSQL("CREATE INDEX IF NOT EXISTS `index_geofence_events_geofenceId_timestamp` " +
+                    "ON `geofence_events` (`geofenceId`, `timestamp`)");
+            database.execSQL("CREATE INDEX IF NOT EXISTS `index_geofence_events_geofenceId_eventType_timestamp` " +
+                    "ON `geofence_events` (`geofenceId`, `eventType`, `timestamp`)");
+        }
+    };
+
+    /**
+     * Version 5: Tageszusammenfassungen für gelöschte Rohereignisse.
+     */
+    static final Migration MIGRATION_4_5 = new Migration(4, 5) {
+        @Override
+        public void migrate(SupportSQLiteDatabase database) {
+            database.execSQL("CREATE TABLE IF NOT EXISTS `daily_event_summaries` (" +
+                    "`geofenceId` INTEGER NOT NULL, `day` INTEGER NOT NULL, `enterCount` INTEGER NOT NULL, " +
+                    "`exitCount` INTEGER NOT NULL, `dwellCount` INTEGER NOT NULL, `accuracySum` REAL NOT NULL, " +
+                    "PRIMARY KEY(`geofenceId`, `day`), " +
+                    "FOREIGN KEY(`geofenceId`) REFERENCES `geofences`(`id`) ON UPDATE NO ACTION ON DELETE CASCADE )");
+        }
+    };
+
+    /**
+     * Alle Migrationen in aufsteigender Reihenfolge.
+     */
+    static final Migration[] MIGRATIONS = {MIGRATION_1_2, MIGRATION_2_3, MIGRATION_3_4, MIGRATION_4_5};
+
+    /**
+     * Erzeugt Aufenthalte und Tageswerte aus allen vorhandenen ENTER- und EXIT-Ereignissen.
+     */
+    static void backfillVisits(SupportSQLiteDatabase database) {
+        SupportSQLiteStatement insertVisit = database.compileStatement(
+                "INSERT INTO geofence_visits (geofenceId, entryTime, exitTime) VALUES (?, ?, ?)");
+        SupportSQLiteStatement insertDaily = database.compileStatement(
+                "INSERT INTO daily_dwell_times (geofenceId, day, dwellTime, visitCount) VALUES (?, ?, ?, ?)");
+
+        VisitReplay replay = new VisitReplay(new VisitReplay.Listener() {
+            @Override
+            public void onVisit(long geofenceId, long entryTime, long exitTime) {
+                insertVisit.bindLong(1, geofenceId);
+                insertVisit.bindLong(2, entryTime);
+                insertVisit.bindLong(3, exitTime);
+                insertVisit.executeInsert();
+            }
+
+            @Override
+            public void onDailyDwellTime(long geofenceId, long day, long dwellTime, int visitCount) {
+                insertDaily.bindLong(1, geofenceId);
+                insertDaily.bindLong(2, day);
+                insertDaily.bindLong(3, dwellTime);
+                insertDaily.bindLong(4, visitCount);
+                insertDaily.executeInsert();
+            }
+        });
+
+        try (Cursor cursor = database.query("SELECT geofenceId, eventType, timestamp FROM geofence_events " +
+                "WHERE eventType IN (" + GeofenceEvent.TYPE_ENTER + ", " + GeofenceEvent.TYPE_EXIT + ") " +
+                "ORDER BY geofenceId, timestamp, id")) {
+            while (cursor.moveToNext()) {
+                replay.apply(cursor.getLong(0), cursor.getInt(1), cursor.getLong(2));
+            }
+        }
+        replay.finish();
+    }
+
     public abstract GeofenceDao geofenceDao();
     public abstract GeofenceEventDao geofenceEventDao();
+    public abstract GeofenceVisitDao geofenceVisitDao();
+    public abstract EventRetentionDao eventRetentionDao();
 
     public static synchronized AppDatabase getInstance(Context context) {
         if (instance == null) {
@@ -28,7 +153,7 @@ public abstract class AppDatabase extends RoomDatabase {
                             context.getApplicationContext(),
                             AppDatabase.class,
                             DATABASE_NAME)
-                    .fallbackToDestructiveMigration() // Bei Schema-Änderungen Datenbank neu erstellen
+                    .addMigrations(MIGRATIONS)
                     .build();
         }
         return instance;
@@ -0,0 +1,66 @@
+package de.dhbw.geofencinglbs.data.local;
+
+import androidx.room.Dao;
+import androidx.room.Query;
+import androidx.room.Transaction;
+
+import java.util.List;
+
+import de.dhbw.geofencinglbs.model.DailyEventSummary;
+
+/**
+ * Data Access Object für die Aufbewahrung der Rohereignisse.
+ * Abgelaufene Ereignisse werden in Tageszusammenfassungen übernommen und anschließend gelöscht.
+ */
+@Dao
+public interface EventRetentionDao {
+
+    @Query("SELECT id FROM geofence_events WHERE timestamp < :cutoff ORDER BY timestamp ASC LIMIT :limit")
+    List<Long> getExpiredEventIds(long cutoff, int limit);
+
+    // 86400000 = DailyDwellTime.DAY_MS (Tage in UTC)
+    @Query("SELECT geofenceId, timestamp / 86400000 AS day, " +
+            "SUM(eventType = 1) AS enterCount, SUM(eventType = 2) AS exitCount, " +
+            "SUM(eventType = 3) AS dwellCount, SUM(accuracy) AS accuracySum " +
+            "FROM geofence_events WHERE id IN (:eventIds) GROUP BY geofenceId, day")
+    List<DailyEventSummary> summarizeEvents(List<Long> eventIds);
+
+    @Query("INSERT OR IGNORE INTO daily_event_summaries " +
+            "(geofenceId, day, enterCount, exitCount, dwellCount, accuracySum) " +
+            "VALUES (:geofenceId, :day, 0, 0, 0, 0)")
+    void ensureSummary(long geofenceId, long day);
+
+    @Query("UPDATE daily_event_summaries SET enterCount = enterCount + :enterCount, " +
+            "exitCount = exitCount + :exitCount, dwellCount = dwellCount + :dwellCount, " +
+            "accuracySum = accuracySum + :accuracySum WHERE geofenceId = :geofenceId AND day = :day")
+    void addToSummary(long geofenceId, long day, int enterCount, int exitCount, int dwellCount,
+                      double accuracySum);
+
+    @Query("DELETE FROM geofence_events WHERE id IN (:eventIds)")
+    int deleteEvents(List<Long> eventIds);
+
+    /**
+     * Fasst die ältesten {@code batchSize} Ereignisse vor {@code cutoff} zusammen und löscht sie.
+     * Zusammenfassen und Löschen passieren in einer Transaktion, ein Abbruch zwischen zwei
+     * Batches hinterlässt daher keine doppelt oder gar nicht gezählten Ereignisse.
+     *
+     * @return Anzahl der gelöschten Ereignisse (0, wenn nichts mehr abgelaufen ist)
+     */
+    @Transaction
+    default int downsampleBatch(long cutoff, int batchSize) {
+        List<Long> eventIds = getExpiredEventIds(cutoff, batchSize);
+        if (eventIds.isEmpty()) {
+            return 0;
+        }
+        for (DailyEventSummary summary : summarizeEvents(eventIds)) {
+            ensureSummary(summary.getGeofenceId(), summary.getDay());
+            addToSummary(summary.getGeofenceId(), summary.getDay(), summary.getEnterCount(),
+                    summary.getExitCount(), summary.getDwellCount(), summary.getAccuracySum());
+        }
+        return deleteEvents(eventIds);
+    }
+
+    @Query("SELECT * FROM daily_event_summaries WHERE geofenceId = :geofenceId " +
+            "AND day BETWEEN :fromDay AND :toDay ORDER BY day ASC")
+    List<DailyEventSummary> getDailyEventSummaries(long geofenceId, long fromDay, long toDay);
+}
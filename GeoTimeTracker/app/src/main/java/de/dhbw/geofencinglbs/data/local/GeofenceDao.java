@@ -45,4 +45,29 @@ public interface GeofenceDao {
 
     @Query("SELECT * FROM geofences WHERE id = :geofenceId LIMIT 1")
     GeofenceModel getGeofenceByIdSync(long geofenceId);
+
+    /**
+     * Gibt alle aktiven Geofences zurück, deren Mittelpunkt in der Bounding-Box liegt.
+     * Nutzt den Index auf (latitude, longitude), statt die ganze Tabelle zu laden.
+     */
+    @Query("SELECT * FROM geofences WHERE isActive = 1 " +
+            "AND latitude BETWEEN :minLatitude AND :maxLatitude " +
+            "AND longitude BETWEEN :minLongitude AND :maxLongitude")
+    List<GeofenceModel> getActiveGeofencesInBounds(double minLatitude, double maxLatitude,
+                                                   double minLongitude, double maxLongitude);
+
+    /**
+     * Gibt Anzahl und größten Radius der aktiven Geofences zurück.
+     * Durchsucht die ganze Tabelle, das Ergebnis wird daher im Repository zwischengespeichert.
+     */
+    @Query("SELECT COUNT(*) AS count, MAX(radius) AS maxRadius FROM geofences WHERE isActive = 1")
+    ActiveGeofenceStats getActiveGeofenceStats();
+
+    /**
+     * Anzahl und größter Radius (in Metern) der aktiven Geofences.
+     */
+    class ActiveGeofenceStats {
+        public int count;
+        public float maxRadius;
+    }
 }
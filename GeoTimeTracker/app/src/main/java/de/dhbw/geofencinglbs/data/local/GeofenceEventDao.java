@@ -4,6 +4,7 @@ import androidx.lifecycle.LiveData;
 import androidx.room.Dao;
 import androidx.room.Insert;
 import androidx.room.Query;
+import androidx.room.Transaction;
 
 import java.util.List;
 
@@ -18,29 +19,76 @@ public interface GeofenceEventDao {
     @Insert
     long insert(GeofenceEvent event);
 
+    @Insert
+    void insertAll(List<GeofenceEvent> events);
+
+    @Query("UPDATE geofences SET lastEntryTime = :timestamp WHERE id = :geofenceId")
+    void applyEntry(long geofenceId, long timestamp);
+
+    /**
+     * Setzt den Austrittszeitpunkt und addiert die Aufenthaltszeit seit dem letzten Eintritt
+     * (entspricht {@link de.dhbw.geofencinglbs.model.GeofenceModel#setLastExitTime(long)}).
+     */
+    @Query("UPDATE geofences SET " +
+            "totalDwellTime = totalDwellTime + CASE WHEN lastEntryTime > 0 THEN :timestamp - lastEntryTime ELSE 0 END, " +
+            "lastExitTime = :timestamp " +
+            "WHERE id = :geofenceId")
+    void applyExit(long geofenceId, long timestamp);
+
+    /**
+     * Speichert mehrere Ereignisse und aktualisiert die zugehörigen Geofences
+     * in einer einzigen Transaktion. Die Ereignisse müssen zeitlich sortiert sein.
+     */
+    @Transaction
+    default void insertEventsAndUpdateGeofences(List<GeofenceEvent> events) {
+        insertAll(events);
+        for (GeofenceEvent event : events) {
+            switch (event.getEventType()) {
+                case GeofenceEvent.TYPE_ENTER:
+                    applyEntry(event.getGeofenceId(), event.getTimestamp());
+                    break;
+                case GeofenceEvent.TYPE_EXIT:
+                    applyExit(event.getGeofenceId(), event.getTimestamp());
+                    break;
+            }
+        }
+    }
+
     @Query("SELECT * FROM geofence_events WHERE geofenceId = :geofenceId ORDER BY timestamp DESC")
     LiveData<List<GeofenceEvent>> getEventsForGeofence(long geofenceId);
 
-    @Query("SELECT * FROM geofence_events ORDER BY timestamp DESC LIMIT :limit")
-    LiveData<List<GeofenceEvent>> getRecentEvents(int limit);
+    /**
+     * Neueste Ereignisse (erste Seite der Ereignisliste).
+     * Sortierung nach (timestamp, id), damit Seiten eindeutig aneinander anschließen.
+     */
+    @Query("SELECT * FROM geofence_events ORDER BY timestamp DESC, id DESC LIMIT :limit")
+    List<GeofenceEvent> getNewestEvents(int limit);
+
+    /**
+     * Ereignisse, die in der Sortierung (timestamp, id) vor dem Schlüssel liegen (ältere Seite).
+     * Die Bedingung auf timestamp allein begrenzt den Index-Bereich, id ist im Index enthalten.
+     */
+    @Query("SELECT * FROM geofence_events WHERE timestamp <= :timestamp " +
+            "AND (timestamp < :timestamp OR id < :id) ORDER BY timestamp DESC, id DESC LIMIT :limit")
+    List<GeofenceEvent> getEventsBefore(long timestamp, long id, int limit);
+
+    /**
+     * Ereignisse bis einschließlich des Schlüssels (Neuladen ab einer Position).
+     */
+    @Query("SELECT * FROM geofence_events WHERE timestamp <= :timestamp " +
+            "AND (timestamp < :timestamp OR id <= :id) ORDER BY timestamp DESC, id DESC LIMIT :limit")
+    List<GeofenceEvent> getEventsAtOrBefore(long timestamp, long id, int limit);
+
+    /**
+     * Ereignisse, die in der Sortierung nach dem Schlüssel liegen (neuere Seite), aufsteigend sortiert.
+     */
+    @Query("SELECT * FROM geofence_events WHERE timestamp >= :timestamp " +
+            "AND (timestamp > :timestamp OR id > :id) ORDER BY timestamp ASC, id ASC LIMIT :limit")
+    List<GeofenceEvent> getEventsAfter(long timestamp, long id, int limit);
 
     @Query("SELECT * FROM geofence_events WHERE timestamp BETWEEN :startTime AND :endTime ORDER BY timestamp ASC")
     List<GeofenceEvent> getEventsBetweenTimestamps(long startTime, long endTime);
 
     @Query("SELECT * FROM geofence_events WHERE geofenceId = :geofenceId AND eventType = :eventType ORDER BY timestamp DESC LIMIT 1")
     GeofenceEvent getLatestEventByType(long geofenceId, int eventType);
-
-    /**
-     * Berechnet die Gesamtaufenthaltszeit für einen bestimmten Geofence
-     * Dies wird durch die Paarung von Eintritts- und Austrittsereignissen erreicht
-     */
-    @Query("SELECT SUM(exit.timestamp - enter.timestamp) " +
-            "FROM geofence_events enter JOIN geofence_events exit " +
-            "ON enter.geofenceId = exit.geofenceId " +
-            "WHERE enter.geofenceId = :geofenceId " +
-            "AND enter.eventType = 1 AND exit.eventType = 2 " +
-            "AND enter.timestamp < exit.timestamp " +
-            "AND enter.timestamp BETWEEN :startTime AND :endTime " +
-            "AND exit.timestamp BETWEEN :startTime AND :endTime")
-    long calculateTotalDwellTime(long geofenceId, long startTime, long endTime);
 }
\ No newline at end of file
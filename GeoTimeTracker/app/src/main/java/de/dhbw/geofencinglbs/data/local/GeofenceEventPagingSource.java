@@ -0,0 +1,131 @@
+package de.dhbw.geofencinglbs.data.local;
+
+import androidx.annotation.NonNull;
+import androidx.annotation.Nullable;
+import androidx.paging.ListenableFuturePagingSource;
+import androidx.paging.PagingState;
+import androidx.room.InvalidationTracker;
+
+import com.google.common.util.concurrent.ListenableFuture;
+import com.google.common.util.concurrent.ListenableFutureTask;
+
+import java.util.Collections;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.Executor;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+import de.dhbw.geofencinglbs.model.GeofenceEvent;
+
+/**
+ * PagingSource für die Ereignisliste, absteigend nach (timestamp, id) sortiert.
+ * Seiten werden über den Schlüssel des ersten bzw. letzten Ereignisses geladen (Keyset-Paging),
+ * dadurch bleibt jede Abfrage ein Index-Bereichszugriff, unabhängig davon, wie weit
+ * zurückgeblättert wurde. Bei Änderungen an geofence_events wird die Quelle invalidiert
+ * und ab der aktuellen Scroll-Position neu geladen.
+ */
+public class GeofenceEventPagingSource extends ListenableFuturePagingSource<GeofenceEventPagingSource.Key, GeofenceEvent> {
+
+    private final AppDatabase database;
+    private final GeofenceEventDao eventDao;
+    private final Executor executor;
+
+    private final AtomicBoolean observerRegistered = new AtomicBoolean(false);
+    private final InvalidationTracker.Observer observer = new InvalidationTracker.Observer("geofence_events") {
+        @Override
+        public void onInvalidated(@NonNull Set<String> tables) {
+            invalidate();
+        }
+    };
+
+    public GeofenceEventPagingSource(AppDatabase database, Executor executor) {
+        this.database = database;
+        this.eventDao = database.geofenceEventDao();
+        this.executor = executor;
+        registerInvalidatedCallback(() -> {
+            database.getInvalidationTracker().removeObserver(observer);
+            return kotlin.Unit.INSTANCE;
+        });
+    }
+
+    @NonNull
+    @Override
+    public ListenableFuture<LoadResult<Key, GeofenceEvent>> loadFuture(@NonNull LoadParams<Key> params) {
+        ListenableFutureTask<LoadResult<Key, GeofenceEvent>> task = ListenableFutureTask.create(() -> {
+            // Beobachter erst im Hintergrund registrieren (greift auf die Datenbank zu)
+            if (observerRegistered.compareAndSet(false, true)) {
+                database.getInvalidationTracker().addObserver(observer);
+            }
+            try {
+                return load(params);
+            } catch (RuntimeException e) {
+                return new LoadResult.Error<>(e);
+            }
+        });
+        executor.execute(task);
+        return task;
+    }
+
+    private LoadResult<Key, GeofenceEvent> load(LoadParams<Key> params) {
+        Key key = params.getKey();
+        int loadSize = params.getLoadSize();
+
+        if (params instanceof LoadParams.Prepend) {
+            // Neuere Ereignisse werden aufsteigend geladen und umgedreht
+            List<GeofenceEvent> events = eventDao.getEventsAfter(key.timestamp, key.id, loadSize);
+            Collections.reverse(events);
+            Key prevKey = events.size() < loadSize ? null : Key.of(events.get(0));
+            return new LoadResult.Page<>(events, prevKey, events.isEmpty() ? null : key);
+        }
+
+        List<GeofenceEvent> events;
+        Key prevKey;
+        if (params instanceof LoadParams.Append) {
+            events = eventDao.getEventsBefore(key.timestamp, key.id, loadSize);
+            prevKey = key;
+        } else if (key == null) {
+            // Erstes Laden: neueste Ereignisse, darüber gibt es nichts
+            events = eventDao.getNewestEvents(loadSize);
+            prevKey = null;
+        } else {
+            // Neuladen ab der letzten Scroll-Position, neuere Ereignisse folgen per Prepend
+            events = eventDao.getEventsAtOrBefore(key.timestamp, key.id, loadSize);
+            prevKey = events.isEmpty() ? null : Key.of(events.get(0));
+        }
+        Key nextKey = events.size() < loadSize ? null : Key.of(events.get(events.size() - 1));
+        return new LoadResult.Page<>(events, prevKey, nextKey);
+    }
+
+    /**
+     * Schlüssel zum Neuladen nach einer Invalidierung: etwas oberhalb der aktuellen Position,
+     * damit der sichtbare Bereich mit der ersten Seite abgedeckt wird.
+     */
+    @Nullable
+    @Override
+    public Key getRefreshKey(@NonNull PagingState<Key, GeofenceEvent> state) {
+        Integer anchorPosition = state.getAnchorPosition();
+        if (anchorPosition == null) {
+            return null;
+        }
+        GeofenceEvent event = state.closestItemToPosition(
+                Math.max(0, anchorPosition - state.getConfig().pageSize / 2));
+        return event != null ? Key.of(event) : null;
+    }
+
+    /**
+     * Position in der Sortierung (timestamp, id).
+     */
+    public static final class Key {
+        final long timestamp;
+        final long id;
+
+        Key(long timestamp, long id) {
+            this.timestamp = timestamp;
+            this.id = id;
+        }
+
+        static Key of(GeofenceEvent event) {
+            return new Key(event.getTimestamp(), event.getId());
+        }
+    }
+}
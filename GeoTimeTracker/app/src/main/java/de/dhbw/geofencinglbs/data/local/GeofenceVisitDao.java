@@ -0,0 +1,130 @@
+package de.dhbw.geofencinglbs.data.local;
+
+import androidx.room.Dao;
+import androidx.room.Insert;
+import androidx.room.Query;
+import androidx.room.Transaction;
+
+import java.util.List;
+
+import de.dhbw.geofencinglbs.model.DailyDwellTime;
+import de.dhbw.geofencinglbs.model.GeofenceEvent;
+import de.dhbw.geofencinglbs.model.GeofenceVisit;
+
+/**
+ * Data Access Object für Aufenthalte und die täglichen Aufenthaltszeiten.
+ * Aufenthalte werden beim Speichern der Ereignisse fortgeschrieben (ENTER öffnet,
+ * EXIT schließt einen Aufenthalt), dadurch sind Aufenthaltszeiten für beliebige
+ * Zeiträume mit wenigen Index-Zugriffen abrufbar.
+ */
+@Dao
+public interface GeofenceVisitDao {
+
+    @Insert
+    long insert(GeofenceVisit visit);
+
+    // Pro Geofence ist höchstens ein Aufenthalt offen (siehe applyEvent)
+    @Query("SELECT * FROM geofence_visits WHERE geofenceId = :geofenceId AND exitTime = 0 LIMIT 1")
+    GeofenceVisit getOpenVisit(long geofenceId);
+
+    @Query("UPDATE geofence_visits SET exitTime = :exitTime WHERE id = :visitId")
+    void closeVisit(long visitId, long exitTime);
+
+    @Query("INSERT OR IGNORE INTO daily_dwell_times (geofenceId, day, dwellTime, visitCount) " +
+            "VALUES (:geofenceId, :day, 0, 0)")
+    void ensureDailyDwellTime(long geofenceId, long day);
+
+    @Query("UPDATE daily_dwell_times SET dwellTime = dwellTime + :dwellTime, visitCount = visitCount + :visits " +
+            "WHERE geofenceId = :geofenceId AND day = :day")
+    void addDailyDwellTime(long geofenceId, long day, long dwellTime, int visits);
+
+    /**
+     * Schreibt Aufenthalte und Tageswerte für ein neues Ereignis fort.
+     * Ein ENTER bei bereits offenem Aufenthalt und ein EXIT ohne offenen Aufenthalt werden ignoriert.
+     */
+    @Transaction
+    default void applyEvent(long geofenceId, int eventType, long timestamp) {
+        if (eventType == GeofenceEvent.TYPE_ENTER) {
+            if (getOpenVisit(geofenceId) == null) {
+                insert(new GeofenceVisit(geofenceId, timestamp, GeofenceVisit.OPEN));
+            }
+        } else if (eventType == GeofenceEvent.TYPE_EXIT) {
+            GeofenceVisit visit = getOpenVisit(geofenceId);
+            if (visit == null) {
+                return;
+            }
+            long exitTime = Math.max(timestamp, visit.getEntryTime());
+            closeVisit(visit.getId(), exitTime);
+            addToDailyDwellTimes(geofenceId, visit.getEntryTime(), exitTime);
+        }
+    }
+
+    /**
+     * Verteilt einen abgeschlossenen Aufenthalt auf die Tageswerte.
+     */
+    default void addToDailyDwellTimes(long geofenceId, long entryTime, long exitTime) {
+        long entryDay = DailyDwellTime.dayOf(entryTime);
+        ensureDailyDwellTime(geofenceId, entryDay);
+        addDailyDwellTime(geofenceId, entryDay, 0, 1);
+        DailyDwellTime.splitByDay(entryTime, exitTime, (day, dwellTime) -> {
+            ensureDailyDwellTime(geofenceId, day);
+            addDailyDwellTime(geofenceId, day, dwellTime, 0);
+        });
+    }
+
+    @Query("SELECT COALESCE(SUM(dwellTime), 0) FROM daily_dwell_times " +
+            "WHERE geofenceId = :geofenceId AND day >= :fromDay AND day < :toDay")
+    long sumDailyDwellTime(long geofenceId, long fromDay, long toDay);
+
+    @Query("SELECT * FROM daily_dwell_times WHERE geofenceId = :geofenceId " +
+            "AND day BETWEEN :fromDay AND :toDay ORDER BY day ASC")
+    List<DailyDwellTime> getDailyDwellTimes(long geofenceId, long fromDay, long toDay);
+
+    @Query("SELECT * FROM geofence_visits WHERE geofenceId = :geofenceId AND entryTime < :before " +
+            "ORDER BY entryTime DESC LIMIT 1")
+    GeofenceVisit getLastVisitBefore(long geofenceId, long before);
+
+    @Query("SELECT * FROM geofence_visits WHERE geofenceId = :geofenceId " +
+            "AND entryTime >= :startTime AND entryTime < :endTime ORDER BY entryTime ASC")
+    List<GeofenceVisit> getVisitsStartedBetween(long geofenceId, long startTime, long endTime);
+
+    /**
+     * Berechnet die Gesamtaufenthaltszeit für einen Geofence im Zeitraum [startTime, endTime).
+     * Vollständige Tage werden aus den Tageswerten summiert, nur die angeschnittenen
+     * Randtage aus den einzelnen Aufenthalten. Offene Aufenthalte werden nicht gezählt.
+     */
+    @Transaction
+    default long calculateTotalDwellTime(long geofenceId, long startTime, long endTime) {
+        if (endTime <= startTime) {
+            return 0;
+        }
+        long firstFullDay = DailyDwellTime.dayOf(startTime + DailyDwellTime.DAY_MS - 1);
+        long endDay = DailyDwellTime.dayOf(endTime);
+        if (firstFullDay >= endDay) {
+            return sumVisitOverlap(geofenceId, startTime, endTime);
+        }
+        return sumVisitOverlap(geofenceId, startTime, DailyDwellTime.startOfDay(firstFullDay))
+                + sumDailyDwellTime(geofenceId, firstFullDay, endDay)
+                + sumVisitOverlap(geofenceId, DailyDwellTime.startOfDay(endDay), endTime);
+    }
+
+    /**
+     * Summiert die Anteile der Aufenthalte am Zeitraum [startTime, endTime).
+     * Da sich Aufenthalte eines Geofence nicht überschneiden, kann höchstens der letzte
+     * vor dem Zeitraum begonnene Aufenthalt in den Zeitraum hineinreichen.
+     */
+    default long sumVisitOverlap(long geofenceId, long startTime, long endTime) {
+        if (endTime <= startTime) {
+            return 0;
+        }
+        long total = 0;
+        GeofenceVisit previous = getLastVisitBefore(geofenceId, startTime);
+        if (previous != null) {
+            total += previous.getOverlap(startTime, endTime);
+        }
+        for (GeofenceVisit visit : getVisitsStartedBetween(geofenceId, startTime, endTime)) {
+            total += visit.getOverlap(startTime, endTime);
+        }
+        return total;
+    }
+}
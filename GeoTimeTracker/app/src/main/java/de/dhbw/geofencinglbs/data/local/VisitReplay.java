@@ -0,0 +1,90 @@
+package de.dhbw.geofencinglbs.data.local;
+
+import java.util.Map;
+import java.util.TreeMap;
+
+import de.dhbw.geofencinglbs.model.DailyDwellTime;
+import de.dhbw.geofencinglbs.model.GeofenceEvent;
+import de.dhbw.geofencinglbs.model.GeofenceVisit;
+
+/**
+ * Rekonstruiert Aufenthalte und Tageswerte aus vorhandenen Ereignissen
+ * (nach den gleichen Regeln wie {@link GeofenceVisitDao#applyEvent}).
+ * Die Ereignisse müssen nach Geofence und Zeitstempel sortiert übergeben werden,
+ * dadurch muss nur der Zustand eines Geofence im Speicher gehalten werden.
+ */
+final class VisitReplay {
+
+    /**
+     * Empfänger der rekonstruierten Daten.
+     */
+    interface Listener {
+        void onVisit(long geofenceId, long entryTime, long exitTime);
+
+        void onDailyDwellTime(long geofenceId, long day, long dwellTime, int visitCount);
+    }
+
+    private final Listener listener;
+
+    private long currentGeofenceId = -1;
+    private long openEntryTime = -1;
+    // Tag -> {Aufenthaltszeit, Anzahl Aufenthalte} des aktuellen Geofence
+    private final TreeMap<Long, long[]> dailyTotals = new TreeMap<>();
+
+    VisitReplay(Listener listener) {
+        this.listener = listener;
+    }
+
+    void apply(long geofenceId, int eventType, long timestamp) {
+        if (geofenceId != currentGeofenceId) {
+            flushGeofence();
+            currentGeofenceId = geofenceId;
+        }
+
+        if (eventType == GeofenceEvent.TYPE_ENTER) {
+            if (openEntryTime < 0) {
+                openEntryTime = timestamp;
+            }
+        } else if (eventType == GeofenceEvent.TYPE_EXIT && openEntryTime >= 0) {
+            long entryTime = openEntryTime;
+            long exitTime = Math.max(timestamp, entryTime);
+            openEntryTime = -1;
+
+            listener.onVisit(geofenceId, entryTime, exitTime);
+            totalsFor(DailyDwellTime.dayOf(entryTime))[1]++;
+            DailyDwellTime.splitByDay(entryTime, exitTime, (day, dwellTime) -> totalsFor(day)[0] += dwellTime);
+        }
+    }
+
+    /**
+     * Muss nach dem letzten Ereignis aufgerufen werden.
+     */
+    void finish() {
+        flushGeofence();
+        currentGeofenceId = -1;
+    }
+
+    private long[] totalsFor(long day) {
+        long[] totals = dailyTotals.get(day);
+        if (totals == null) {
+            totals = new long[2];
+            dailyTotals.put(day, totals);
+        }
+        return totals;
+    }
+
+    private void flushGeofence() {
+        if (currentGeofenceId < 0) {
+            return;
+        }
+        if (openEntryTime >= 0) {
+            listener.onVisit(currentGeofenceId, openEntryTime, GeofenceVisit.OPEN);
+            openEntryTime = -1;
+        }
+        for (Map.Entry<Long, long[]> entry : dailyTotals.entrySet()) {
+            listener.onDailyDwellTime(currentGeofenceId, entry.getKey(),
+                    entry.getValue()[0], (int) entry.getValue()[1]);
+        }
+        dailyTotals.clear();
+    }
+}
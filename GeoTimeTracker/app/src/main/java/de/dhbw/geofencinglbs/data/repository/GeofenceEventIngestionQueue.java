@@ -0,0 +1,183 @@
+package de.dhbw.geofencinglbs.data.repository;
+
+import android.util.Log;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.List;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+import de.dhbw.geofencinglbs.data.local.AppDatabase;
+import de.dhbw.geofencinglbs.data.local.GeofenceEventDao;
+import de.dhbw.geofencinglbs.data.local.GeofenceVisitDao;
+import de.dhbw.geofencinglbs.model.GeofenceEvent;
+
+/**
+ * App-weite Warteschlange für Geofence-Ereignisse.
+ * Ereignisse, die innerhalb eines kurzen Zeitfensters eintreffen, werden zusammengefasst
+ * und in einer einzigen Transaktion gespeichert (Bulk-Insert plus Aktualisierung der Geofences
+ * und der Aufenthalte).
+ * Alle Schreibvorgänge laufen auf einem einzigen Thread, dadurch gibt es keine Konkurrenz
+ * zwischen gleichzeitigen Ereignissen.
+ */
+public class GeofenceEventIngestionQueue {
+    private static final String TAG = "EventIngestionQueue";
+
+    // Zeitfenster, in dem eintreffende Ereignisse zusammengefasst werden
+    static final long COALESCE_WINDOW_MS = 200;
+
+    private final AppDatabase database;
+    private final GeofenceEventDao eventDao;
+    private final GeofenceVisitDao visitDao;
+    private final ScheduledExecutorService executor = Executors.newSingleThreadScheduledExecutor();
+
+    private final Object lock = new Object();
+    private List<PendingBatch> pending = new ArrayList<>();
+    private boolean flushScheduled = false;
+
+    // Metriken
+    private final AtomicInteger queueDepth = new AtomicInteger();
+    private final AtomicLong flushCount = new AtomicLong();
+    private final AtomicLong ingestedEventCount = new AtomicLong();
+    private volatile long lastFlushLatencyMs;
+    private volatile long maxFlushLatencyMs;
+    private volatile long lastTransactionDurationMs;
+    private volatile int lastBatchSize;
+
+    public GeofenceEventIngestionQueue(AppDatabase database) {
+        this.database = database;
+        this.eventDao = database.geofenceEventDao();
+        this.visitDao = database.geofenceVisitDao();
+    }
+
+    /**
+     * Reiht Ereignisse zur Speicherung ein.
+     *
+     * @param onCommitted Wird nach dem Commit (oder Fehlschlag) der Transaktion aufgerufen, darf null sein
+     */
+    public void enqueue(List<GeofenceEvent> events, Runnable onCommitted) {
+        if (events.isEmpty()) {
+            if (onCommitted != null) {
+                onCommitted.run();
+            }
+            return;
+        }
+
+        synchronized (lock) {
+            pending.add(new PendingBatch(events, onCommitted, System.nanoTime()));
+            queueDepth.addAndGet(events.size());
+            if (!flushScheduled) {
+                flushScheduled = true;
+                executor.schedule(this::flush, COALESCE_WINDOW_MS, TimeUnit.MILLISECONDS);
+            }
+        }
+    }
+
+    /**
+     * Speichert alle bis jetzt eingereihten Ereignisse in einer Transaktion.
+     */
+    private void flush() {
+        List<PendingBatch> batches;
+        synchronized (lock) {
+            batches = pending;
+            pending = new ArrayList<>();
+            flushScheduled = false;
+        }
+
+        List<GeofenceEvent> events = new ArrayList<>();
+        long oldestEnqueueNanos = Long.MAX_VALUE;
+        for (PendingBatch batch : batches) {
+            events.addAll(batch.events);
+            oldestEnqueueNanos = Math.min(oldestEnqueueNanos, batch.enqueuedAtNanos);
+        }
+        // Ein- und Austritte müssen in zeitlicher Reihenfolge angewendet werden
+        Collections.sort(events, Comparator.comparingLong(GeofenceEvent::getTimestamp));
+
+        long transactionStart = System.nanoTime();
+        try {
+            database.runInTransaction(() -> {
+                eventDao.insertEventsAndUpdateGeofences(events);
+                for (GeofenceEvent event : events) {
+                    visitDao.applyEvent(event.getGeofenceId(), event.getEventType(), event.getTimestamp());
+                }
+            });
+            ingestedEventCount.addAndGet(events.size());
+        } catch (RuntimeException e) {
+            Log.e(TAG, "Failed to store " + events.size() + " geofence events: " + e.getMessage(), e);
+        } finally {
+            long now = System.nanoTime();
+            lastTransactionDurationMs = TimeUnit.NANOSECONDS.toMillis(now - transactionStart);
+            lastFlushLatencyMs = TimeUnit.NANOSECONDS.toMillis(now - oldestEnqueueNanos);
+            maxFlushLatencyMs = Math.max(maxFlushLatencyMs, lastFlushLatencyMs);
+            lastBatchSize = events.size();
+            flushCount.incrementAndGet();
+            queueDepth.addAndGet(-events.size());
+
+            for (PendingBatch batch : batches) {
+                if (batch.onCommitted != null) {
+                    batch.onCommitted.run();
+                }
+            }
+        }
+
+        Log.d(TAG, "Flushed " + events.size() + " events in " + lastTransactionDurationMs
+                + " ms (latency " + lastFlushLatencyMs + " ms, queue depth " + queueDepth.get() + ")");
+    }
+
+    /**
+     * Anzahl der eingereihten, noch nicht gespeicherten Ereignisse.
+     */
+    public int getQueueDepth() {
+        return queueDepth.get();
+    }
+
+    /**
+     * Zeit vom Einreihen des ältesten Ereignisses bis zum Commit der letzten Transaktion.
+     */
+    public long getLastFlushLatencyMs() {
+        return lastFlushLatencyMs;
+    }
+
+    public long getMaxFlushLatencyMs() {
+        return maxFlushLatencyMs;
+    }
+
+    /**
+     * Dauer der letzten Datenbank-Transaktion.
+     */
+    public long getLastTransactionDurationMs() {
+        return lastTransactionDurationMs;
+    }
+
+    public int getLastBatchSize() {
+        return lastBatchSize;
+    }
+
+    public long getFlushCount() {
+        return flushCount.get();
+    }
+
+    public long getIngestedEventCount() {
+        return ingestedEventCount.get();
+    }
+
+    /**
+     * Eingereihte Ereignisse eines Aufrufers.
+     */
+    private static final class PendingBatch {
+        final List<GeofenceEvent> events;
+        final Runnable onCommitted;
+        final long enqueuedAtNanos;
+
+        PendingBatch(List<GeofenceEvent> events, Runnable onCommitted, long enqueuedAtNanos) {
+            this.events = events;
+            this.onCommitted = onCommitted;
+            this.enqueuedAtNanos = enqueuedAtNanos;
+        }
+    }
+}
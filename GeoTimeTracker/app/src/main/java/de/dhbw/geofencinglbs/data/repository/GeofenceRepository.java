@@ -3,35 +3,78 @@ package de.dhbw.geofencinglbs.data.repository;
 import android.app.Application;
 import android.os.AsyncTask;
 
+import androidx.annotation.NonNull;
 import androidx.lifecycle.LiveData;
+import androidx.room.InvalidationTracker;
 
+import java.util.ArrayList;
+import java.util.Collections;
 import java.util.List;
+import java.util.Set;
 import java.util.concurrent.ExecutorService;
 import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicBoolean;
 
 import de.dhbw.geofencinglbs.data.local.GeofenceDao;
 import de.dhbw.geofencinglbs.data.local.GeofenceEventDao;
+import de.dhbw.geofencinglbs.data.local.GeofenceEventPagingSource;
+import de.dhbw.geofencinglbs.data.local.GeofenceVisitDao;
 import de.dhbw.geofencinglbs.data.local.AppDatabase;
 import de.dhbw.geofencinglbs.model.GeofenceEvent;
 import de.dhbw.geofencinglbs.model.GeofenceModel;
+import de.dhbw.geofencinglbs.util.GeoMath;
 
 /**
  * Repository-Klasse als Single Source of Truth für Geofence-Daten.
  * Abstrahiert den Datenzugriff und stellt eine saubere API für den Zugriff auf Daten aus verschiedenen Quellen bereit.
  */
 public class GeofenceRepository {
+    // Start- und Maximalradius für die Umkreissuche
+    private static final double INITIAL_SEARCH_RADIUS_METERS = 5000;
+    private static final double MAX_SEARCH_RADIUS_METERS = 500000;
+
+    private static GeofenceRepository instance;
+
+    private final AppDatabase database;
     private final GeofenceDao geofenceDao;
     private final GeofenceEventDao eventDao;
+    private final GeofenceVisitDao visitDao;
     private final ExecutorService executorService;
+    private final GeofenceEventIngestionQueue ingestionQueue;
+
+    // Anzahl und größter Radius der aktiven Geofences; wird bei Änderungen an geofences verworfen
+    private final Object activeStatsLock = new Object();
+    private GeofenceDao.ActiveGeofenceStats activeStats;
+    private long activeStatsVersion;
+
+    private final AtomicBoolean observerRegistered = new AtomicBoolean(false);
+    private final InvalidationTracker.Observer geofenceObserver = new InvalidationTracker.Observer("geofences") {
+        @Override
+        public void onInvalidated(@NonNull Set<String> tables) {
+            invalidateActiveStats();
+        }
+    };
 
     /**
      * Konstruktor für das Repository.
      */
-    public GeofenceRepository(Application application) {
-        AppDatabase database = AppDatabase.getInstance(application);
+    private GeofenceRepository(Application application) {
+        database = AppDatabase.getInstance(application);
         geofenceDao = database.geofenceDao();
         eventDao = database.geofenceEventDao();
         executorService = Executors.newFixedThreadPool(4);
+        visitDao = database.geofenceVisitDao();
+        ingestionQueue = new GeofenceEventIngestionQueue(database);
+    }
+
+    /**
+     * Gibt die app-weite Instanz des Repository zurück.
+     */
+    public static synchronized GeofenceRepository getInstance(Application application) {
+        if (instance == null) {
+            instance = new GeofenceRepository(application);
+        }
+        return instance;
     }
 
     /**
@@ -52,10 +95,79 @@ public class GeofenceRepository {
     }
 
     /**
-     * Gibt die letzten N Ereignisse zurück.
+     * Lädt mindestens {@code minCount} aktive Geofences um den angegebenen Punkt.
+     * Der Suchradius wird so lange verdoppelt, bis genug Geofences gefunden wurden.
+     * Enthält die Tabelle insgesamt nicht mehr Geofences, werden alle geladen.
+     * Die Bounding-Box wird um den größten aktiven Radius erweitert, damit auch Geofences
+     * geladen werden, deren Mittelpunkt außerhalb, deren Grenze aber innerhalb des Suchradius liegt.
+     */
+    public void getActiveGeofencesNear(double latitude, double longitude, int minCount,
+                                       NearbyGeofencesCallback callback) {
+        executorService.execute(() -> {
+            GeofenceDao.ActiveGeofenceStats stats = getActiveStats();
+            if (stats.count <= minCount) {
+                callback.onGeofencesLoaded(geofenceDao.getActiveGeofencesSync(), Double.POSITIVE_INFINITY);
+                return;
+            }
+
+            double radius = INITIAL_SEARCH_RADIUS_METERS;
+            while (true) {
+                // Am 180. Längengrad wird die Box in zwei Abfragen aufgeteilt
+                List<GeofenceModel> geofences = new ArrayList<>();
+                for (double[] box : GeoMath.boundingBoxes(latitude, longitude, radius + stats.maxRadius)) {
+                    geofences.addAll(geofenceDao.getActiveGeofencesInBounds(box[0], box[1], box[2], box[3]));
+                }
+                if (geofences.size() >= minCount || radius >= MAX_SEARCH_RADIUS_METERS) {
+                    callback.onGeofencesLoaded(geofences, radius);
+                    return;
+                }
+                radius *= 2;
+            }
+        });
+    }
+
+    /**
+     * Gibt Anzahl und größten Radius der aktiven Geofences zurück (zwischengespeichert,
+     * da die Abfrage die ganze Tabelle durchsucht). Nur im Hintergrund aufrufen.
+     */
+    private GeofenceDao.ActiveGeofenceStats getActiveStats() {
+        // Beobachter erst im Hintergrund registrieren (greift auf die Datenbank zu)
+        if (observerRegistered.compareAndSet(false, true)) {
+            database.getInvalidationTracker().addObserver(geofenceObserver);
+        }
+        long version;
+        synchronized (activeStatsLock) {
+            if (activeStats != null) {
+                return activeStats;
+            }
+            version = activeStatsVersion;
+        }
+        GeofenceDao.ActiveGeofenceStats stats = geofenceDao.getActiveGeofenceStats();
+        synchronized (activeStatsLock) {
+            // Während der Abfrage geänderte Tabelle: Ergebnis nicht zwischenspeichern
+            if (activeStatsVersion == version) {
+                activeStats = stats;
+            }
+        }
+        return stats;
+    }
+
+    /**
+     * Verwirft Anzahl und größten Radius der aktiven Geofences. Wird nach eigenen Schreibzugriffen
+     * direkt aufgerufen, da der InvalidationTracker erst verzögert benachrichtigt.
      */
-    public LiveData<List<GeofenceEvent>> getRecentEvents(int limit) {
-        return eventDao.getRecentEvents(limit);
+    private void invalidateActiveStats() {
+        synchronized (activeStatsLock) {
+            activeStats = null;
+            activeStatsVersion++;
+        }
+    }
+
+    /**
+     * Erstellt eine neue PagingSource über die gesamte Ereignishistorie (neueste zuerst).
+     */
+    public GeofenceEventPagingSource createEventPagingSource() {
+        return new GeofenceEventPagingSource(database, executorService);
     }
 
     /**
@@ -64,6 +176,7 @@ public class GeofenceRepository {
     public void insert(GeofenceModel geofence) {
         executorService.execute(() -> {
             geofenceDao.insert(geofence);
+            invalidateActiveStats();
         });
     }
 
@@ -73,6 +186,7 @@ public class GeofenceRepository {
     public void update(GeofenceModel geofence) {
         executorService.execute(() -> {
             geofenceDao.update(geofence);
+            invalidateActiveStats();
         });
     }
 
@@ -82,34 +196,32 @@ public class GeofenceRepository {
     public void delete(GeofenceModel geofence) {
         executorService.execute(() -> {
             geofenceDao.delete(geofence);
+            invalidateActiveStats();
         });
     }
 
     /**
      * Fügt ein neues Ereignis hinzu und aktualisiert den zugehörigen Geofence.
-     * Diese optimierte Methode führt beide Operationen in einer Transaktion aus..
+     * Das Ereignis wird über die Ingestion-Warteschlange gebündelt in einer Transaktion gespeichert.
      */
     public void insertEventAndUpdateGeofence(GeofenceEvent event) {
-        executorService.execute(() -> {
-            // Füge das Ereignis ein
-            eventDao.insert(event);
-
-            // Hole den zugehörigen Geofence und aktualisiere ihn
-            GeofenceModel geofence = geofenceDao.getGeofenceByIdSync(event.getGeofenceId());
-            if (geofence != null) {
-                // Aktualisiere den Geofence basierend auf dem Ereignistyp
-                switch (event.getEventType()) {
-                    case GeofenceEvent.TYPE_ENTER:
-                        geofence.setLastEntryTime(event.getTimestamp());
-                        break;
-                    case GeofenceEvent.TYPE_EXIT:
-                        geofence.setLastExitTime(event.getTimestamp());
-                        break;
-                }
-                // Speichere den aktualisierten Geofence
-                geofenceDao.update(geofence);
-            }
-        });
+        ingestionQueue.enqueue(Collections.singletonList(event), null);
+    }
+
+    /**
+     * Fügt mehrere Ereignisse hinzu und aktualisiert die zugehörigen Geofences.
+     *
+     * @param onCommitted Wird aufgerufen, sobald die Transaktion abgeschlossen ist, darf null sein
+     */
+    public void insertEventsAndUpdateGeofences(List<GeofenceEvent> events, Runnable onCommitted) {
+        ingestionQueue.enqueue(events, onCommitted);
+    }
+
+    /**
+     * Gibt die Warteschlange für Ereignisse zurück (z.B. für Metriken).
+     */
+    public GeofenceEventIngestionQueue getIngestionQueue() {
+        return ingestionQueue;
     }
 
     public void refreshGeofences() {
@@ -123,10 +235,38 @@ public class GeofenceRepository {
 
     }
 
+    /**
+     * Berechnet die Aufenthaltszeit eines Geofence im Zeitraum [startTime, endTime).
+     */
+    public void getTotalDwellTime(long geofenceId, long startTime, long endTime, DwellTimeCallback callback) {
+        executorService.execute(() -> {
+            long dwellTime = visitDao.calculateTotalDwellTime(geofenceId, startTime, endTime);
+            callback.onDwellTimeLoaded(dwellTime);
+        });
+    }
+
     /**
      * Callback-Interface für die asynchrone Datenabfrage.
      */
     public interface GeofenceDataCallback {
         void onGeofencesLoaded(List<GeofenceModel> geofences);
     }
+
+    /**
+     * Callback-Interface für die Umkreissuche.
+     */
+    public interface NearbyGeofencesCallback {
+        /**
+         * @param searchRadiusMeters Alle Geofences, deren Grenze näher als dieser Radius liegt,
+         *                           wurden geladen ({@link Double#POSITIVE_INFINITY} für die ganze Tabelle)
+         */
+        void onGeofencesLoaded(List<GeofenceModel> geofences, double searchRadiusMeters);
+    }
+
+    /**
+     * Callback-Interface für die Abfrage von Aufenthaltszeiten.
+     */
+    public interface DwellTimeCallback {
+        void onDwellTimeLoaded(long dwellTimeMs);
+    }
 }
\ No newline at end of file
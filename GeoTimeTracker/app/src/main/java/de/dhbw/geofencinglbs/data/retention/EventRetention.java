@@ -0,0 +1,152 @@
+package de.dhbw.geofencinglbs.data.retention;
+
+import android.database.Cursor;
+import android.util.Log;
+
+import androidx.sqlite.db.SupportSQLiteDatabase;
+
+import java.util.function.BooleanSupplier;
+
+import de.dhbw.geofencinglbs.data.local.AppDatabase;
+import de.dhbw.geofencinglbs.data.local.EventRetentionDao;
+import de.dhbw.geofencinglbs.model.DailyDwellTime;
+
+/**
+ * Bereinigt alte Rohereignisse: Ereignisse vor dem Aufbewahrungszeitraum werden in
+ * Tageszusammenfassungen übernommen und in kleinen Batches gelöscht, danach wird
+ * freier Speicher per inkrementellem VACUUM an das Dateisystem zurückgegeben.
+ * Aufenthalte und tägliche Aufenthaltszeiten bleiben unverändert erhalten.
+ */
+public class EventRetention {
+    private static final String TAG = "EventRetention";
+
+    public static final int DEFAULT_HORIZON_DAYS = 90;
+
+    // Kleine Batches halten die Schreibsperre kurz, damit neue Ereignisse nicht warten müssen
+    static final int BATCH_SIZE = 500;
+
+    // SQLite-Wert für PRAGMA auto_vacuum = INCREMENTAL
+    private static final int AUTO_VACUUM_INCREMENTAL = 2;
+
+    private final AppDatabase database;
+    private final EventRetentionDao retentionDao;
+
+    public EventRetention(AppDatabase database) {
+        this.database = database;
+        this.retentionDao = database.eventRetentionDao();
+    }
+
+    /**
+     * Führt die Bereinigung aus. Darf nicht auf dem Main-Thread aufgerufen werden.
+     *
+     * @param horizonDays Rohereignisse älter als so viele (vollständige) Tage werden zusammengefasst
+     * @param stopSignal  Wird zwischen den Batches abgefragt; bei true wird abgebrochen
+     */
+    public Result run(long now, int horizonDays, BooleanSupplier stopSignal) {
+        long start = System.currentTimeMillis();
+        // Nur vollständige Tage zusammenfassen
+        long cutoff = DailyDwellTime.startOfDay(DailyDwellTime.dayOf(now) - horizonDays);
+
+        int deletedRows = 0;
+        int batches = 0;
+        boolean stopped = false;
+        while (true) {
+            if (stopSignal.getAsBoolean()) {
+                stopped = true;
+                break;
+            }
+            int deleted = retentionDao.downsampleBatch(cutoff, BATCH_SIZE);
+            if (deleted == 0) {
+                break;
+            }
+            deletedRows += deleted;
+            batches++;
+        }
+
+        long reclaimedBytes = stopped ? 0 : vacuum();
+        Result result = new Result(deletedRows, batches, reclaimedBytes,
+                System.currentTimeMillis() - start, stopped);
+        Log.i(TAG, "Retention finished: " + result);
+        return result;
+    }
+
+    /**
+     * Gibt freie Seiten an das Dateisystem zurück.
+     * Bestehende Datenbanken werden einmalig auf auto_vacuum = INCREMENTAL umgestellt,
+     * was ein vollständiges VACUUM erfordert.
+     *
+     * @return Anzahl der freigegebenen Bytes
+     */
+    private long vacuum() {
+        SupportSQLiteDatabase db = database.getOpenHelper().getWritableDatabase();
+        long pageSize = queryLong(db, "PRAGMA page_size");
+        long pagesBefore = queryLong(db, "PRAGMA page_count");
+
+        if (queryLong(db, "PRAGMA auto_vacuum") != AUTO_VACUUM_INCREMENTAL) {
+            Log.i(TAG, "Switching database to incremental auto_vacuum");
+            db.execSQL("PRAGMA auto_vacuum = INCREMENTAL");
+            db.execSQL("VACUUM");
+        } else {
+            // incremental_vacuum liefert Zeilen und muss daher vollständig durchlaufen werden
+            try (Cursor cursor = db.query("PRAGMA incremental_vacuum")) {
+                while (cursor.moveToNext()) {
+                    // Jede Zeile entspricht einer freigegebenen Seite
+                }
+            }
+        }
+
+        long pagesAfter = queryLong(db, "PRAGMA page_count");
+        return Math.max(0, pagesBefore - pagesAfter) * pageSize;
+    }
+
+    private static long queryLong(SupportSQLiteDatabase db, String sql) {
+        try (Cursor cursor = db.query(sql)) {
+            return cursor.moveToFirst() ? cursor.getLong(0) : 0;
+        }
+    }
+
+    /**
+     * Ergebnis eines Bereinigungslaufs.
+     */
+    public static final class Result {
+        private final int deletedRows;
+        private final int batches;
+        private final long reclaimedBytes;
+        private final long durationMs;
+        private final boolean stopped;
+
+        Result(int deletedRows, int batches, long reclaimedBytes, long durationMs, boolean stopped) {
+            this.deletedRows = deletedRows;
+            this.batches = batches;
+            this.reclaimedBytes = reclaimedBytes;
+            this.durationMs = durationMs;
+            this.stopped = stopped;
+        }
+
+        public int getDeletedRows() {
+            return deletedRows;
+        }
+
+        public int getBatches() {
+            return batches;
+        }
+
+        public long getReclaimedBytes() {
+            return reclaimedBytes;
+        }
+
+        public long getDurationMs() {
+            return durationMs;
+        }
+
+        public boolean isStopped() {
+            return stopped;
+        }
+
+        @Override
+        public String toString() {
+            return deletedRows + " rows in " + batches + " batches, " + reclaimedBytes + " bytes reclaimed, "
+                    + durationMs + " ms" + (stopped ? " (stopped)" : "");
+        }
+    }
+}
@@ -0,0 +1,116 @@
+package de.dhbw.geofencinglbs.data.retention;
+
+import android.content.Context;
+import android.content.SharedPreferences;
+import android.util.Log;
+
+import androidx.annotation.NonNull;
+import androidx.work.Constraints;
+import androidx.work.Data;
+import androidx.work.ExistingPeriodicWorkPolicy;
+import androidx.work.PeriodicWorkRequest;
+import androidx.work.WorkManager;
+import androidx.work.Worker;
+import androidx.work.WorkerParameters;
+
+import java.util.concurrent.TimeUnit;
+
+import de.dhbw.geofencinglbs.data.local.AppDatabase;
+
+/**
+ * Periodischer Hintergrundjob für die Bereinigung alter Rohereignisse.
+ * Läuft einmal täglich, nur während das Gerät lädt und nicht benutzt wird.
+ * Aufbewahrungszeitraum und kumulierte Metriken liegen in den SharedPreferences.
+ */
+public class EventRetentionWorker extends Worker {
+    private static final String TAG = "EventRetentionWorker";
+
+    private static final String WORK_NAME = "event_retention";
+    private static final String PREFS_NAME = "event_retention";
+    private static final String KEY_HORIZON_DAYS = "horizon_days";
+    private static final String KEY_TOTAL_DELETED_ROWS = "total_deleted_rows";
+    private static final String KEY_TOTAL_RECLAIMED_BYTES = "total_reclaimed_bytes";
+    private static final String KEY_LAST_RUN = "last_run";
+
+    public static final String OUTPUT_DELETED_ROWS = "deleted_rows";
+    public static final String OUTPUT_RECLAIMED_BYTES = "reclaimed_bytes";
+
+    public EventRetentionWorker(@NonNull Context context, @NonNull WorkerParameters params) {
+        super(context, params);
+    }
+
+    /**
+     * Plant den täglichen Bereinigungsjob ein (ein bereits geplanter Job bleibt bestehen).
+     */
+    public static void schedule(Context context) {
+        Constraints constraints = new Constraints.Builder()
+                .setRequiresCharging(true)
+                .setRequiresDeviceIdle(true)
+                .build();
+        PeriodicWorkRequest request = new PeriodicWorkRequest.Builder(
+                EventRetentionWorker.class, 1, TimeUnit.DAYS)
+                .setConstraints(constraints)
+                .build();
+        WorkManager.getInstance(context)
+                .enqueueUniquePeriodicWork(WORK_NAME, ExistingPeriodicWorkPolicy.KEEP, request);
+    }
+
+    @NonNull
+    @Override
+    public Result doWork() {
+        Context context = getApplicationContext();
+        EventRetention retention = new EventRetention(AppDatabase.getInstance(context));
+        EventRetention.Result result = retention.run(System.currentTimeMillis(), getHorizonDays(context),
+                this::isStopped);
+
+        SharedPreferences prefs = getPrefs(context);
+        prefs.edit()
+                .putLong(KEY_TOTAL_DELETED_ROWS, prefs.getLong(KEY_TOTAL_DELETED_ROWS, 0) + result.getDeletedRows())
+                .putLong(KEY_TOTAL_RECLAIMED_BYTES,
+                        prefs.getLong(KEY_TOTAL_RECLAIMED_BYTES, 0) + result.getReclaimedBytes())
+                .putLong(KEY_LAST_RUN, System.currentTimeMillis())
+                .apply();
+        Log.d(TAG, "Total: " + getTotalDeletedRows(context) + " rows, "
+                + getTotalReclaimedBytes(context) + " bytes reclaimed");
+
+        Data output = new Data.Builder()
+                .putInt(OUTPUT_DELETED_ROWS, result.getDeletedRows())
+                .putLong(OUTPUT_RECLAIMED_BYTES, result.getReclaimedBytes())
+                .build();
+        // Abgebrochene Läufe werden beim nächsten Mal fortgesetzt
+        return result.isStopped() ? Result.retry() : Result.success(output);
+    }
+
+    /**
+     * Aufbewahrungszeitraum der Rohereignisse in Tagen.
+     */
+    public static int getHorizonDays(Context context) {
+        return getPrefs(context).getInt(KEY_HORIZON_DAYS, EventRetention.DEFAULT_HORIZON_DAYS);
+    }
+
+    public static void setHorizonDays(Context context, int horizonDays) {
+        getPrefs(context).edit().putInt(KEY_HORIZON_DAYS, Math.max(1, horizonDays)).apply();
+    }
+
+    /**
+     * Insgesamt gelöschte Rohereignisse.
+     */
+    public static long getTotalDeletedRows(Context context) {
+        return getPrefs(context).getLong(KEY_TOTAL_DELETED_ROWS, 0);
+    }
+
+    /**
+     * Insgesamt an das Dateisystem zurückgegebene Bytes.
+     */
+    public static long getTotalReclaimedBytes(Context context) {
+        return getPrefs(context).getLong(KEY_TOTAL_RECLAIMED_BYTES, 0);
+    }
+
+    public static long getLastRun(Context context) {
+        return getPrefs(context).getLong(KEY_LAST_RUN, 0);
+    }
+
+    private static SharedPreferences getPrefs(Context context) {
+        return context.getApplicationContext().getSharedPreferences(PREFS_NAME, Context.MODE_PRIVATE);
+    }
+}
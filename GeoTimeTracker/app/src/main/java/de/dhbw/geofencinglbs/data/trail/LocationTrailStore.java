@@ -0,0 +1,587 @@
+package de.dhbw.geofencinglbs.data.trail;
+
+import android.content.Context;
+import android.util.Log;
+
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.ByteOrder;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Locale;
+
+/**
+ * Speichert jeden empfangenen Standort-Fix im Standortverlauf, um Übergänge nachvollziehen
+ * und Tage erneut abspielen zu können. Room-Zeilen pro Fix wären bei 5 s Abtastung zu teuer;
+ * stattdessen werden Fixes als Datensätze fester Breite in speicherabgebildete Segmentdateien
+ * geschrieben.
+ * <p>
+ * Aufbau eines Segments: ein Header mit Basiszeit und Basiskoordinaten, danach
+ * {@link #RECORD_SIZE}-Byte-Datensätze mit Zeit und Koordinaten als Differenz zur Basis
+ * (Koordinaten skaliert auf 1e-7 Grad), Genauigkeit in 0,1 m und Geschwindigkeit in 0,01 m/s.
+ * Die Anzahl der Datensätze im Header wird erst nach dem Datensatz geschrieben, sodass ein
+ * abgebrochener Schreibvorgang nicht gezählt wird. Ist ein Segment voll, wird ein neues
+ * angelegt und das älteste gelöscht, sobald mehr als {@code maxSegments} vorhanden sind.
+ * <p>
+ * Jeder angehängte Fix durchläuft sofort den {@link TrajectorySimplifier} des aktiven Segments;
+ * die behaltenen Punkte werden im Speicher gesammelt und beim Abschluss des Segments mit dem
+ * {@link PolylineCodec} als Archiv ({@link #ARCHIVE_SUFFIX}) gespeichert. Die Rohdaten bleiben
+ * daneben erhalten, damit Übergänge exakt nachvollzogen werden können. Nach dem Wiederöffnen
+ * wird der Vereinfacher einmalig mit den Fixes des aktiven Segments aufgefüllt. Archive
+ * bleiben nach dem Löschen des Rohsegments erhalten (bis {@code maxArchives}) und werden für
+ * Zeitbereiche gelesen, für die keine Rohdaten mehr vorliegen.
+ * <p>
+ * Fixes werden in zeitlicher Reihenfolge erwartet; ältere als der zuletzt gespeicherte werden
+ * verworfen. Dadurch sind die Datensätze sortiert und Zeitbereiche per Binärsuche lesbar.
+ * Alle Methoden arbeiten synchron auf Dateien und dürfen nicht auf dem Hauptthread laufen.
+ */
+public class LocationTrailStore {
+    private static final String TAG = "LocationTrailStore";
+
+    static final String DIRECTORY = "trail";
+    static final String SUFFIX = ".trail";
+    static final String ARCHIVE_SUFFIX = ".trailz";
+
+    /** Ein Segment fasst bei 5 s Abtastung knapp vier Tage (1 MiB). */
+    static final int DEFAULT_SEGMENT_RECORDS = 65536;
+    /** Anzahl der aufbewahrten Segmente (etwa ein Monat). */
+    static final int DEFAULT_MAX_SEGMENTS = 8;
+    /** Anzahl der aufbewahrten Archive (etwa ein Jahr). */
+    static final int DEFAULT_MAX_ARCHIVES = 96;
+
+    static final int MAGIC = 0x54524C31; // "TRL1"
+    static final int HEADER_SIZE = 32;
+    static final int RECORD_SIZE = 16;
+
+    static final int ARCHIVE_MAGIC = 0x54525A31; // "TRZ1"
+    // Magic, Zeit des ersten und des letzten Fixes
+    static final int ARCHIVE_HEADER_SIZE = 20;
+
+    private static final int OFFSET_MAGIC = 0;
+    private static final int OFFSET_BASE_TIME = 4;
+    private static final int OFFSET_BASE_LAT = 12;
+    private static final int OFFSET_BASE_LON = 16;
+    private static final int OFFSET_CAPACITY = 20;
+    private static final int OFFSET_COUNT = 24;
+
+    private static final double COORDINATE_SCALE = 1e7;
+    private static final int MAX_UNSIGNED_SHORT = 0xFFFE;
+    private static final int UNKNOWN_SPEED = 0xFFFF;
+
+    private static LocationTrailStore instance;
+
+    private final File directory;
+    private final int segmentRecords;
+    private final int maxSegments;
+    private final int maxArchives;
+    private final double toleranceMeters;
+    // Segmente in zeitlicher Reihenfolge; das letzte nimmt neue Fixes auf
+    private final List<Segment> segments = new ArrayList<>();
+    // Archive abgeschlossener Segmente in zeitlicher Reihenfolge
+    private final List<Archive> archives = new ArrayList<>();
+    private int nextSequence;
+    private long lastTime = Long.MIN_VALUE;
+    // Vereinfachung des aktiven Segments, während die Fixes eintreffen
+    private TrajectorySimplifier activeSimplifier;
+    private List<TrailFix> activeSignificant = new ArrayList<>();
+    private final Visitor activeFeed = (time, latitude, longitude, accuracy, speed) ->
+            activeSimplifier.add(new TrailFix(time, latitude, longitude, accuracy, speed));
+
+    /**
+     * Besucher für das Lesen eines Zeitbereichs ohne Objekt pro Fix.
+     */
+    public interface Visitor {
+        void onFix(long time, double latitude, double longitude, float accuracy, float speed);
+    }
+
+    LocationTrailStore(File directory, int segmentRecords, int maxSegments, int maxArchives,
+                       double toleranceMeters) {
+        this.directory = directory;
+        this.segmentRecords = segmentRecords;
+        this.maxSegments = maxSegments;
+        this.maxArchives = maxArchives;
+        this.toleranceMeters = toleranceMeters;
+        open();
+    }
+
+    LocationTrailStore(File directory, int segmentRecords, int maxSegments) {
+        this(directory, segmentRecords, maxSegments, DEFAULT_MAX_ARCHIVES,
+                TrajectorySimplifier.DEFAULT_TOLERANCE_METERS);
+    }
+
+    /**
+     * Gibt die app-weite Instanz zurück.
+     */
+    public static synchronized LocationTrailStore getInstance(Context context) {
+        if (instance == null) {
+            File directory = new File(context.getApplicationContext().getFilesDir(), DIRECTORY);
+            instance = new LocationTrailStore(directory, DEFAULT_SEGMENT_RECORDS, DEFAULT_MAX_SEGMENTS);
+        }
+        return instance;
+    }
+
+    /**
+     * Öffnet die vorhandenen Segmente und Archive. Beschädigte Dateien werden übersprungen;
+     * fehlt das Archiv eines abgeschlossenen Segments (Abbruch beim Rotieren), wird es erstellt.
+     */
+    private void open() {
+        if (!directory.isDirectory() && !directory.mkdirs()) {
+            Log.e(TAG, "Could not create trail directory " + directory);
+            return;
+        }
+        for (File file : listSorted(ARCHIVE_SUFFIX)) {
+            nextSequence = Math.max(nextSequence, sequenceOf(file) + 1);
+            try {
+                Archive archive = Archive.open(file, sequenceOf(file));
+                if (archive == null) {
+                    Log.w(TAG, "Skipping invalid trail archive " + file.getName());
+                    continue;
+                }
+                archives.add(archive);
+                lastTime = Math.max(lastTime, archive.lastTime);
+            } catch (IOException e) {
+                Log.e(TAG, "Could not open trail archive " + file.getName() + ": " + e.getMessage());
+            }
+        }
+        for (File file : listSorted(SUFFIX)) {
+            nextSequence = Math.max(nextSequence, sequenceOf(file) + 1);
+            try {
+                Segment segment = Segment.open(file, sequenceOf(file));
+                if (segment == null) {
+                    Log.w(TAG, "Skipping invalid trail segment " + file.getName());
+                    continue;
+                }
+                segments.add(segment);
+                if (segment.count > 0) {
+                    lastTime = Math.max(lastTime, segment.timeAt(segment.count - 1));
+                }
+            } catch (IOException e) {
+                Log.e(TAG, "Could not open trail segment " + file.getName() + ": " + e.getMessage());
+            }
+        }
+        for (int i = 0; i < segments.size() - 1; i++) {
+            if (findArchive(segments.get(i).sequence) == null) {
+                archive(segments.get(i), simplify(segments.get(i)));
+            }
+        }
+        if (!segments.isEmpty()) {
+            startSimplifier(segments.get(segments.size() - 1));
+        }
+    }
+
+    /**
+     * Dateien mit der Endung, sortiert nach ihrer fortlaufenden Nummer.
+     */
+    private File[] listSorted(String suffix) {
+        File[] files = directory.listFiles((dir, name) -> name.endsWith(suffix));
+        if (files == null) {
+            return new File[0];
+        }
+        Arrays.sort(files, (a, b) -> Integer.compare(sequenceOf(a), sequenceOf(b)));
+        return files;
+    }
+
+    private static int sequenceOf(File file) {
+        String name = file.getName();
+        try {
+            return Integer.parseInt(name.substring(0, name.indexOf('.')));
+        } catch (NumberFormatException | IndexOutOfBoundsException e) {
+            return -1;
+        }
+    }
+
+    private Archive findArchive(int sequence) {
+        for (Archive archive : archives) {
+            if (archive.sequence == sequence) {
+                return archive;
+            }
+        }
+        return null;
+    }
+
+    /**
+     * Hängt einen Fix an den Verlauf an.
+     *
+     * @param speed Geschwindigkeit in m/s ({@link Float#NaN}, wenn nicht gemessen)
+     * @return false, wenn der Fix älter als der zuletzt gespeicherte ist oder nicht geschrieben werden konnte
+     */
+    public synchronized boolean append(long time, double latitude, double longitude, float accuracy, float speed) {
+        if (time < lastTime) {
+            return false;
+        }
+        int latE7 = (int) Math.round(latitude * COORDINATE_SCALE);
+        int lonE7 = (int) Math.round(longitude * COORDINATE_SCALE);
+
+        Segment active = segments.isEmpty() ? null : segments.get(segments.size() - 1);
+        if (active == null || !active.accepts(time, latE7, lonE7)) {
+            try {
+                active = rotate(time, latE7, lonE7);
+            } catch (IOException e) {
+                Log.e(TAG, "Could not create trail segment: " + e.getMessage());
+                return false;
+            }
+        }
+
+        int accuracyDm = (int) Math.min(MAX_UNSIGNED_SHORT, Math.max(0, Math.round(accuracy * 10)));
+        int speedCms = Float.isNaN(speed) ? UNKNOWN_SPEED
+                : (int) Math.min(MAX_UNSIGNED_SHORT, Math.max(0, Math.round(speed * 100)));
+        active.append(time, latE7, lonE7, accuracyDm, speedCms);
+        lastTime = time;
+        // Mit den gespeicherten (gerundeten) Werten vereinfachen, wie beim Auffüllen nach dem Öffnen
+        active.visit(active.count - 1, time, activeFeed);
+        return true;
+    }
+
+    /**
+     * Archiviert das bisherige Segment, legt ein neues mit dem Fix als Basis an und löscht
+     * überzählige alte Segmente und Archive.
+     */
+    private Segment rotate(long baseTime, int baseLat, int baseLon) throws IOException {
+        if (!segments.isEmpty()) {
+            activeSimplifier.finish();
+            archive(segments.get(segments.size() - 1), activeSignificant);
+        }
+        int sequence = nextSequence++;
+        File file = new File(directory, String.format(Locale.ROOT, "%08d%s", sequence, SUFFIX));
+        Segment segment = Segment.create(file, sequence, baseTime, baseLat, baseLon, segmentRecords);
+        segments.add(segment);
+        startSimplifier(segment);
+        while (segments.size() > maxSegments) {
+            delete(segments.remove(0).file);
+        }
+        while (archives.size() > maxArchives) {
+            delete(archives.remove(0).file);
+        }
+        return segment;
+    }
+
+    private static void delete(File file) {
+        if (!file.delete()) {
+            Log.w(TAG, "Could not delete trail file " + file.getName());
+        }
+    }
+
+    /**
+     * Beginnt die Vereinfachung für das aktive Segment und nimmt dessen vorhandene Fixes auf.
+     */
+    private void startSimplifier(Segment segment) {
+        activeSignificant = new ArrayList<>();
+        activeSimplifier = new TrajectorySimplifier(toleranceMeters,
+                TrajectorySimplifier.DEFAULT_MAX_WINDOW, activeSignificant::add);
+        for (int i = 0; i < segment.count; i++) {
+            segment.visit(i, segment.timeAt(i), activeFeed);
+        }
+    }
+
+    /**
+     * Vereinfacht ein vollständiges Segment (nur beim Öffnen für Segmente ohne Archiv).
+     */
+    private List<TrailFix> simplify(Segment segment) {
+        List<TrailFix> significant = new ArrayList<>();
+        TrajectorySimplifier simplifier = new TrajectorySimplifier(toleranceMeters,
+                TrajectorySimplifier.DEFAULT_MAX_WINDOW, significant::add);
+        for (int i = 0; i < segment.count; i++) {
+            segment.visit(i, segment.timeAt(i), (time, latitude, longitude, accuracy, speed) ->
+                    simplifier.add(new TrailFix(time, latitude, longitude, accuracy, speed)));
+        }
+        simplifier.finish();
+        return significant;
+    }
+
+    /**
+     * Schreibt die vereinfachten Punkte eines abgeschlossenen Segments als Archiv. Die Datei wird
+     * zunächst unter einem temporären Namen geschrieben und dann umbenannt.
+     */
+    private void archive(Segment segment, List<TrailFix> significant) {
+        if (segment.count == 0) {
+            return;
+        }
+
+        File file = new File(directory, String.format(Locale.ROOT, "%08d%s", segment.sequence, ARCHIVE_SUFFIX));
+        File temp = new File(directory, file.getName() + ".tmp");
+        byte[] encoded = PolylineCodec.encode(significant);
+        long firstTime = segment.baseTime;
+        long lastTime = segment.timeAt(segment.count - 1);
+        try (DataOutputStream out = new DataOutputStream(new FileOutputStream(temp))) {
+            out.writeInt(ARCHIVE_MAGIC);
+            out.writeLong(firstTime);
+            out.writeLong(lastTime);
+            out.write(encoded);
+        } catch (IOException e) {
+            Log.e(TAG, "Could not write trail archive " + file.getName() + ": " + e.getMessage());
+            delete(temp);
+            return;
+        }
+        if (!temp.renameTo(file)) {
+            Log.e(TAG, "Could not rename trail archive " + temp.getName());
+            delete(temp);
+            return;
+        }
+        archives.add(new Archive(file, segment.sequence, firstTime, lastTime));
+        Log.d(TAG, "Archived segment " + segment.sequence + ": " + segment.count + " fixes -> "
+                + significant.size() + " points, " + encoded.length + " bytes");
+    }
+
+    /**
+     * Liest alle Fixes mit {@code fromTime <= time < toTime} in zeitlicher Reihenfolge.
+     * Wo keine Rohdaten mehr vorliegen, werden die vereinfachten Punkte der Archive geliefert.
+     *
+     * @return Anzahl der gelesenen Fixes
+     */
+    public synchronized int scan(long fromTime, long toTime, Visitor visitor) {
+        int visited = 0;
+        int firstRawSequence = segments.isEmpty() ? Integer.MAX_VALUE : segments.get(0).sequence;
+        for (Archive archive : archives) {
+            if (archive.sequence >= firstRawSequence) {
+                break;
+            }
+            if (archive.lastTime < fromTime || archive.firstTime >= toTime) {
+                continue;
+            }
+            visited += archive.scan(fromTime, toTime, visitor);
+        }
+        for (int s = 0; s < segments.size(); s++) {
+            Segment segment = segments.get(s);
+            if (segment.count == 0 || segment.timeAt(segment.count - 1) < fromTime) {
+                continue;
+            }
+            if (segment.baseTime >= toTime) {
+                break;
+            }
+            for (int i = segment.lowerBound(fromTime); i < segment.count; i++) {
+                long time = segment.timeAt(i);
+                if (time >= toTime) {
+                    break;
+                }
+                segment.visit(i, time, visitor);
+                visited++;
+            }
+        }
+        return visited;
+    }
+
+    /**
+     * Liest alle Fixes mit {@code fromTime <= time < toTime} als Liste.
+     */
+    public List<TrailFix> read(long fromTime, long toTime) {
+        List<TrailFix> fixes = new ArrayList<>();
+        scan(fromTime, toTime, (time, latitude, longitude, accuracy, speed) ->
+                fixes.add(new TrailFix(time, latitude, longitude, accuracy, speed)));
+        return fixes;
+    }
+
+    /**
+     * Schreibt das aktive Segment auf den Datenträger. Ohne Aufruf bleiben die Daten bei
+     * einem Absturz der App erhalten (Page-Cache), aber nicht zwingend bei Stromausfall.
+     */
+    public synchronized void flush() {
+        if (!segments.isEmpty()) {
+            segments.get(segments.size() - 1).buffer.force();
+        }
+    }
+
+    /**
+     * Anzahl der gespeicherten Fixes über alle Rohsegmente.
+     */
+    public synchronized long getFixCount() {
+        long count = 0;
+        for (Segment segment : segments) {
+            count += segment.count;
+        }
+        return count;
+    }
+
+    public synchronized int getSegmentCount() {
+        return segments.size();
+    }
+
+    public synchronized int getArchiveCount() {
+        return archives.size();
+    }
+
+    /**
+     * Ein archiviertes, vereinfachtes Segment. Die Punkte werden erst beim Lesen dekodiert.
+     */
+    private static final class Archive {
+        final File file;
+        final int sequence;
+        final long firstTime;
+        final long lastTime;
+
+        Archive(File file, int sequence, long firstTime, long lastTime) {
+            this.file = file;
+            this.sequence = sequence;
+            this.firstTime = firstTime;
+            this.lastTime = lastTime;
+        }
+
+        static Archive open(File file, int sequence) throws IOException {
+            if (file.length() < ARCHIVE_HEADER_SIZE) {
+                return null;
+            }
+            try (DataInputStream in = new DataInputStream(new FileInputStream(file))) {
+                if (in.readInt() != ARCHIVE_MAGIC) {
+                    return null;
+                }
+                return new Archive(file, sequence, in.readLong(), in.readLong());
+            }
+        }
+
+        int scan(long fromTime, long toTime, Visitor visitor) {
+            List<TrailFix> fixes;
+            try {
+                byte[] data = new byte[(int) file.length()];
+                try (DataInputStream in = new DataInputStream(new FileInputStream(file))) {
+                    in.readFully(data);
+                }
+                fixes = PolylineCodec.decode(Arrays.copyOfRange(data, ARCHIVE_HEADER_SIZE, data.length));
+            } catch (IOException | IllegalArgumentException e) {
+                Log.e(TAG, "Could not read trail archive " + file.getName() + ": " + e.getMessage());
+                return 0;
+            }
+            int visited = 0;
+            for (TrailFix fix : fixes) {
+                if (fix.getTime() >= fromTime && fix.getTime() < toTime) {
+                    visitor.onFix(fix.getTime(), fix.getLatitude(), fix.getLongitude(),
+                            fix.getAccuracy(), fix.getSpeed());
+                    visited++;
+                }
+            }
+            return visited;
+        }
+    }
+
+    /**
+     * Eine speicherabgebildete Segmentdatei.
+     */
+    private static final class Segment {
+        final File file;
+        final int sequence;
+        final MappedByteBuffer buffer;
+        final long baseTime;
+        final int baseLat;
+        final int baseLon;
+        final int capacity;
+        int count;
+
+        private Segment(File file, int sequence, MappedByteBuffer buffer) {
+            this.file = file;
+            this.sequence = sequence;
+            this.buffer = buffer;
+            this.baseTime = buffer.getLong(OFFSET_BASE_TIME);
+            this.baseLat = buffer.getInt(OFFSET_BASE_LAT);
+            this.baseLon = buffer.getInt(OFFSET_BASE_LON);
+            this.capacity = buffer.getInt(OFFSET_CAPACITY);
+            this.count = buffer.getInt(OFFSET_COUNT);
+        }
+
+        static Segment create(File file, int sequence, long baseTime, int baseLat, int baseLon,
+                              int capacity) throws IOException {
+            MappedByteBuffer buffer = map(file, HEADER_SIZE + (long) capacity * RECORD_SIZE);
+            buffer.putLong(OFFSET_BASE_TIME, baseTime);
+            buffer.putInt(OFFSET_BASE_LAT, baseLat);
+            buffer.putInt(OFFSET_BASE_LON, baseLon);
+            buffer.putInt(OFFSET_CAPACITY, capacity);
+            buffer.putInt(OFFSET_COUNT, 0);
+            // Magic zuletzt: ein halb angelegtes Segment wird beim Öffnen übersprungen
+            buffer.putInt(OFFSET_MAGIC, MAGIC);
+            return new Segment(file, sequence, buffer);
+        }
+
+        static Segment open(File file, int sequence) throws IOException {
+            long length = file.length();
+            if (length < HEADER_SIZE) {
+                return null;
+            }
+            MappedByteBuffer buffer = map(file, length);
+            if (buffer.getInt(OFFSET_MAGIC) != MAGIC) {
+                return null;
+            }
+            Segment segment = new Segment(file, sequence, buffer);
+            long expectedLength = HEADER_SIZE + (long) segment.capacity * RECORD_SIZE;
+            if (segment.capacity <= 0 || expectedLength != length
+                    || segment.count < 0 || segment.count > segment.capacity) {
+                return null;
+            }
+            return segment;
+        }
+
+        private static MappedByteBuffer map(File file, long length) throws IOException {
+            // Die Abbildung bleibt nach dem Schließen des Kanals gültig
+            try (RandomAccessFile raf = new RandomAccessFile(file, "rw");
+                 FileChannel channel = raf.getChannel()) {
+                MappedByteBuffer buffer = channel.map(FileChannel.MapMode.READ_WRITE, 0, length);
+                buffer.order(ByteOrder.LITTLE_ENDIAN);
+                return buffer;
+            }
+        }
+
+        /**
+         * Prüft, ob der Fix in dieses Segment passt (Platz frei, Differenzen im int-Bereich).
+         */
+        boolean accepts(long time, int latE7, int lonE7) {
+            return count < capacity
+                    && time >= baseTime
+                    && time - baseTime <= Integer.MAX_VALUE
+                    && fitsInt((long) latE7 - baseLat)
+                    && fitsInt((long) lonE7 - baseLon);
+        }
+
+        private static boolean fitsInt(long value) {
+            return value >= Integer.MIN_VALUE && value <= Integer.MAX_VALUE;
+        }
+
+        void append(long time, int latE7, int lonE7, int accuracyDm, int speedCms) {
+            int offset = HEADER_SIZE + count * RECORD_SIZE;
+            buffer.putInt(offset, (int) (time - baseTime));
+            buffer.putInt(offset + 4, latE7 - baseLat);
+            buffer.putInt(offset + 8, lonE7 - baseLon);
+            buffer.putShort(offset + 12, (short) accuracyDm);
+            buffer.putShort(offset + 14, (short) speedCms);
+            count++;
+            buffer.putInt(OFFSET_COUNT, count);
+        }
+
+        long timeAt(int index) {
+            return baseTime + buffer.getInt(HEADER_SIZE + index * RECORD_SIZE);
+        }
+
+        /**
+         * Index des ersten Datensatzes mit Zeit >= {@code time}.
+         */
+        int lowerBound(long time) {
+            int low = 0;
+            int high = count;
+            while (low < high) {
+                int mid = (low + high) >>> 1;
+                if (timeAt(mid) < time) {
+                    low = mid + 1;
+                } else {
+                    high = mid;
+                }
+            }
+            return low;
+        }
+
+        void visit(int index, long time, Visitor visitor) {
+            int offset = HEADER_SIZE + index * RECORD_SIZE;
+            int latE7 = baseLat + buffer.getInt(offset + 4);
+            int lonE7 = baseLon + buffer.getInt(offset + 8);
+            int accuracyDm = buffer.getShort(offset + 12) & 0xFFFF;
+            int speedCms = buffer.getShort(offset + 14) & 0xFFFF;
+            visitor.onFix(time,
+                    latE7 / COORDINATE_SCALE,
+                    lonE7 / COORDINATE_SCALE,
+                    accuracyDm / 10f,
+                    speedCms == UNKNOWN_SPEED ? Float.NaN : speedCms / 100f);
+        }
+    }
+}
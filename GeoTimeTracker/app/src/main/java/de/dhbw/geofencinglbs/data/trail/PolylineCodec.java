@@ -0,0 +1,102 @@
+package de.dhbw.geofencinglbs.data.trail;
+
+import java.io.ByteArrayOutputStream;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Kompakte Kodierung archivierter Verläufe nach dem Vorbild des Polyline-Formats:
+ * Zeit und Koordinaten werden als Differenz zum vorherigen Fix gespeichert, mit ZigZag
+ * vorzeichenlos gemacht und als Varint (7 Bit pro Byte) geschrieben. Benachbarte Fixes
+ * benötigen so meist nur ein bis zwei Byte pro Feld.
+ * <p>
+ * Format: Anzahl, danach pro Fix Zeit (ms), Breite und Länge (1e-6 Grad, ca. 0,1 m),
+ * Genauigkeit (0,1 m) und Geschwindigkeit (0,01 m/s, um eins verschoben; 0 = unbekannt).
+ */
+public final class PolylineCodec {
+
+    static final double COORDINATE_SCALE = 1e6;
+
+    private PolylineCodec() {
+        // Keine Instanzen
+    }
+
+    public static byte[] encode(List<TrailFix> fixes) {
+        ByteArrayOutputStream out = new ByteArrayOutputStream(fixes.size() * 8 + 5);
+        writeVarint(out, fixes.size());
+        long previousTime = 0;
+        long previousLat = 0;
+        long previousLon = 0;
+        for (TrailFix fix : fixes) {
+            long lat = Math.round(fix.getLatitude() * COORDINATE_SCALE);
+            long lon = Math.round(fix.getLongitude() * COORDINATE_SCALE);
+            writeVarint(out, zigZag(fix.getTime() - previousTime));
+            writeVarint(out, zigZag(lat - previousLat));
+            writeVarint(out, zigZag(lon - previousLon));
+            writeVarint(out, Math.max(0, Math.round(fix.getAccuracy() * 10)));
+            writeVarint(out, Float.isNaN(fix.getSpeed()) ? 0 : Math.max(0, Math.round(fix.getSpeed() * 100)) + 1);
+            previousTime = fix.getTime();
+            previousLat = lat;
+            previousLon = lon;
+        }
+        return out.toByteArray();
+    }
+
+    /**
+     * Dekodiert die mit {@link #encode(List)} erzeugten Bytes.
+     *
+     * @throws IllegalArgumentException bei abgeschnittenen oder ungültigen Daten
+     */
+    public static List<TrailFix> decode(byte[] data) {
+        int[] position = {0};
+        long count = readVarint(data, position);
+        if (count < 0 || count > data.length) {
+            throw new IllegalArgumentException("Invalid fix count: " + count);
+        }
+        List<TrailFix> fixes = new ArrayList<>((int) count);
+        long time = 0;
+        long lat = 0;
+        long lon = 0;
+        for (int i = 0; i < count; i++) {
+            time += unZigZag(readVarint(data, position));
+            lat += unZigZag(readVarint(data, position));
+            lon += unZigZag(readVarint(data, position));
+            float accuracy = readVarint(data, position) / 10f;
+            long speed = readVarint(data, position);
+            fixes.add(new TrailFix(time, lat / COORDINATE_SCALE, lon / COORDINATE_SCALE, accuracy,
+                    speed == 0 ? Float.NaN : (speed - 1) / 100f));
+        }
+        return fixes;
+    }
+
+    static long zigZag(long value) {
+        return (value << 1) ^ (value >> 63);
+    }
+
+    static long unZigZag(long value) {
+        return (value >>> 1) ^ -(value & 1);
+    }
+
+    static void writeVarint(ByteArrayOutputStream out, long value) {
+        while ((value & ~0x7FL) != 0) {
+            out.write((int) ((value & 0x7F) | 0x80));
+            value >>>= 7;
+        }
+        out.write((int) value);
+    }
+
+    static long readVarint(byte[] data, int[] position) {
+        long result = 0;
+        for (int shift = 0; shift < 64; shift += 7) {
+            if (position[0] >= data.length) {
+                throw new IllegalArgumentException("Truncated varint at " + position[0]);
+            }
+            byte b = data[position[0]++];
+            result |= (long) (b & 0x7F) << shift;
+            if ((b & 0x80) == 0) {
+                return result;
+            }
+        }
+        throw new IllegalArgumentException("Varint too long at " + position[0]);
+    }
+}
@@ -0,0 +1,44 @@
+package de.dhbw.geofencinglbs.data.trail;
+
+/**
+ * Ein gespeicherter Standort-Fix aus dem Standortverlauf.
+ * Koordinaten sind auf 1e-7 Grad, Genauigkeit auf 0,1 m und Geschwindigkeit auf 0,01 m/s gerundet.
+ */
+public final class TrailFix {
+    private final long time;
+    private final double latitude;
+    private final double longitude;
+    private final float accuracy;
+    private final float speed;
+
+    public TrailFix(long time, double latitude, double longitude, float accuracy, float speed) {
+        this.time = time;
+        this.latitude = latitude;
+        this.longitude = longitude;
+        this.accuracy = accuracy;
+        this.speed = speed;
+    }
+
+    public long getTime() {
+        return time;
+    }
+
+    public double getLatitude() {
+        return latitude;
+    }
+
+    public double getLongitude() {
+        return longitude;
+    }
+
+    public float getAccuracy() {
+        return accuracy;
+    }
+
+    /**
+     * Geschwindigkeit in m/s ({@link Float#NaN}, wenn nicht gemessen).
+     */
+    public float getSpeed() {
+        return speed;
+    }
+}
@@ -0,0 +1,135 @@
+package de.dhbw.geofencinglbs.data.trail;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import de.dhbw.geofencinglbs.util.GeoMath;
+
+/**
+ * Vereinfacht einen Standortverlauf, während die Fixes eintreffen (Opening-Window-Verfahren).
+ * Ausgehend vom zuletzt behaltenen Punkt (Anker) wird das Fenster so lange erweitert, wie alle
+ * Punkte im Fenster höchstens {@code toleranceMeters} von der Strecke Anker → neuester Fix
+ * entfernt liegen. Verletzt ein neuer Fix diese Schranke, wird der vorherige Fix behalten und
+ * zum neuen Anker. Jeder verworfene Punkt liegt damit innerhalb der Toleranz der Strecke
+ * zwischen den beiden behaltenen Punkten, die ihn umgeben.
+ * <p>
+ * Die Fenstergröße ist begrenzt, damit der Aufwand pro Fix konstant bleibt und auch lange
+ * Aufenthalte an einem Ort regelmäßig einen Punkt liefern.
+ */
+public class TrajectorySimplifier {
+
+    /** Standardtoleranz, etwa die Genauigkeit eines guten GPS-Fixes. */
+    public static final double DEFAULT_TOLERANCE_METERS = 10;
+    /** Höchstzahl verworfener Fixes zwischen zwei behaltenen Punkten. */
+    public static final int DEFAULT_MAX_WINDOW = 256;
+
+    /**
+     * Empfänger der behaltenen Punkte.
+     */
+    public interface Sink {
+        void onSignificantFix(TrailFix fix);
+    }
+
+    private final double toleranceMeters;
+    private final int maxWindow;
+    private final Sink sink;
+
+    private TrailFix anchor;
+    // Fixes seit dem Anker; der letzte ist der Kandidat für den nächsten behaltenen Punkt
+    private final List<TrailFix> window = new ArrayList<>();
+    private int inputCount;
+    private int outputCount;
+
+    public TrajectorySimplifier(double toleranceMeters, int maxWindow, Sink sink) {
+        this.toleranceMeters = toleranceMeters;
+        this.maxWindow = maxWindow;
+        this.sink = sink;
+    }
+
+    public TrajectorySimplifier(Sink sink) {
+        this(DEFAULT_TOLERANCE_METERS, DEFAULT_MAX_WINDOW, sink);
+    }
+
+    /**
+     * Nimmt den nächsten Fix (in zeitlicher Reihenfolge) auf.
+     */
+    public void add(TrailFix fix) {
+        inputCount++;
+        if (anchor == null) {
+            anchor = fix;
+            emit(fix);
+            return;
+        }
+        if (!window.isEmpty() && (window.size() >= maxWindow || !fitsSegment(fix))) {
+            TrailFix last = window.get(window.size() - 1);
+            emit(last);
+            anchor = last;
+            window.clear();
+        }
+        window.add(fix);
+    }
+
+    /**
+     * Schließt den Verlauf ab und gibt den letzten Fix aus.
+     */
+    public void finish() {
+        if (!window.isEmpty()) {
+            TrailFix last = window.get(window.size() - 1);
+            emit(last);
+            anchor = last;
+            window.clear();
+        }
+    }
+
+    private void emit(TrailFix fix) {
+        outputCount++;
+        sink.onSignificantFix(fix);
+    }
+
+    /**
+     * Prüft, ob alle Fixes im Fenster innerhalb der Toleranz der Strecke Anker → {@code end} liegen.
+     * Gerechnet wird in einer lokalen ebenen Projektion um den Anker.
+     */
+    private boolean fitsSegment(TrailFix end) {
+        double metersPerLon = GeoMath.metersPerDegreeLon(anchor.getLatitude());
+        double endX = (end.getLongitude() - anchor.getLongitude()) * metersPerLon;
+        double endY = (end.getLatitude() - anchor.getLatitude()) * GeoMath.METERS_PER_DEGREE_LAT;
+        double lengthSquared = endX * endX + endY * endY;
+        double toleranceSquared = toleranceMeters * toleranceMeters;
+
+        for (int i = 0; i < window.size(); i++) {
+            TrailFix point = window.get(i);
+            double x = (point.getLongitude() - anchor.getLongitude()) * metersPerLon;
+            double y = (point.getLatitude() - anchor.getLatitude()) * GeoMath.METERS_PER_DEGREE_LAT;
+            // Projektion auf die Strecke, begrenzt auf deren Endpunkte
+            double t = lengthSquared > 0 ? Math.max(0, Math.min(1, (x * endX + y * endY) / lengthSquared)) : 0;
+            double dx = x - t * endX;
+            double dy = y - t * endY;
+            if (dx * dx + dy * dy > toleranceSquared) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    public int getInputCount() {
+        return inputCount;
+    }
+
+    public int getOutputCount() {
+        return outputCount;
+    }
+
+    /**
+     * Vereinfacht eine vollständige Liste von Fixes.
+     */
+    public static List<TrailFix> simplify(List<TrailFix> fixes, double toleranceMeters) {
+        List<TrailFix> result = new ArrayList<>();
+        TrajectorySimplifier simplifier = new TrajectorySimplifier(toleranceMeters, DEFAULT_MAX_WINDOW, result::add);
+        for (TrailFix fix : fixes) {
+            simplifier.add(fix);
+        }
+        simplifier.finish();
+        return result;
+    }
+}
@@ -5,11 +5,7 @@ import android.content.Context;
 import android.content.Intent;
 import android.util.Log;
 
-import java.util.List;
-
-import de.dhbw.geofencinglbs.data.repository.GeofenceRepository;
 import de.dhbw.geofencinglbs.location.LocationService;
-import de.dhbw.geofencinglbs.model.GeofenceModel;
 
 /**
  * BroadcastReceiver, der nach dem Geräteneustart ausgeführt wird und
@@ -27,21 +23,16 @@ public class BootCompletedReceiver extends BroadcastReceiver {
             Intent serviceIntent = new Intent(context, LocationService.class);
             context.startService(serviceIntent);
 
-            // Geofences registrieren
-            GeofenceRepository repository = new GeofenceRepository((android.app.Application) context.getApplicationContext());
-            repository.getActiveGeofences(geofences -> {
-                if (geofences != null && !geofences.isEmpty()) {
-                    GeofenceManager.getInstance(context).registerGeofences(geofences, new GeofenceManager.GeofenceCallback() {
-                        @Override
-                        public void onSuccess() {
-                            Log.d(TAG, "Successfully re-registered " + geofences.size() + " geofences after boot");
-                        }
+            // Fenster der nächstgelegenen Geofences registrieren
+            GeofenceManager.getInstance(context).refreshWindow(new GeofenceManager.GeofenceCallback() {
+                @Override
+                public void onSuccess() {
+                    Log.d(TAG, "Successfully re-registered geofences after boot");
+                }
 
-                        @Override
-                        public void onError(String errorMessage) {
-                            Log.e(TAG, "Failed to re-register geofences after boot: " + errorMessage);
-                        }
-                    });
+                @Override
+                public void onError(String errorMessage) {
+                    Log.e(TAG, "Failed to re-register geofences after boot: " + errorMessage);
                 }
             });
         }
@@ -0,0 +1,97 @@
+package de.dhbw.geofencinglbs.geofencing;
+
+import android.app.Application;
+import android.content.Context;
+import android.content.Intent;
+import android.util.Log;
+
+import androidx.annotation.NonNull;
+import androidx.work.ExistingWorkPolicy;
+import androidx.work.OneTimeWorkRequest;
+import androidx.work.WorkManager;
+import androidx.work.Worker;
+import androidx.work.WorkerParameters;
+
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import de.dhbw.geofencinglbs.data.repository.GeofenceRepository;
+import de.dhbw.geofencinglbs.model.GeofenceEvent;
+import de.dhbw.geofencinglbs.util.NotificationHelper;
+
+/**
+ * Bestätigt zurückgehaltene EXIT-Ereignisse des {@link TransitionDebouncer}, wenn nach einem EXIT
+ * keine Standorte oder Geofence-Ereignisse mehr eintreffen (z.B. ohne laufenden LocationService
+ * oder nach einem Prozess-Neustart). Wird auf den frühesten Bestätigungszeitpunkt geplant und
+ * plant sich neu, solange noch EXIT-Ereignisse zurückgehalten werden.
+ */
+public class ExitConfirmationWorker extends Worker {
+    private static final String TAG = "ExitConfirmationWorker";
+
+    private static final String WORK_NAME = "exit_confirmation";
+    // Höchstens so lange auf das Speichern der bestätigten Ereignisse warten
+    private static final long COMMIT_TIMEOUT_MS = 10000;
+
+    public ExitConfirmationWorker(@NonNull Context context, @NonNull WorkerParameters params) {
+        super(context, params);
+    }
+
+    /**
+     * Plant die Bestätigung auf den frühesten Zeitpunkt, falls der Entpreller EXIT-Ereignisse
+     * zurückhält. Ein bereits geplanter Lauf wird ersetzt.
+     */
+    public static void scheduleIfPending(Context context, TransitionDebouncer debouncer) {
+        scheduleIfPending(context, debouncer, ExistingWorkPolicy.REPLACE);
+    }
+
+    private static void scheduleIfPending(Context context, TransitionDebouncer debouncer, ExistingWorkPolicy policy) {
+        long confirmAt = debouncer.getNextConfirmationTime();
+        if (confirmAt == Long.MAX_VALUE) {
+            return;
+        }
+        long delay = Math.max(0, confirmAt - System.currentTimeMillis());
+        OneTimeWorkRequest request = new OneTimeWorkRequest.Builder(ExitConfirmationWorker.class)
+                .setInitialDelay(delay, TimeUnit.MILLISECONDS)
+                .build();
+        WorkManager.getInstance(context)
+                .enqueueUniqueWork(WORK_NAME, policy, request);
+        Log.d(TAG, "Exit confirmation scheduled in " + delay + " ms");
+    }
+
+    @NonNull
+    @Override
+    public Result doWork() {
+        Context context = getApplicationContext();
+        // Nach einem Neustart stellt GeofenceManager die zurückgehaltenen EXIT-Ereignisse wieder her
+        TransitionDebouncer debouncer = GeofenceManager.getInstance(context).getTransitionDebouncer();
+        List<GeofenceEvent> confirmed = debouncer.poll(System.currentTimeMillis());
+        if (!confirmed.isEmpty()) {
+            CountDownLatch committed = new CountDownLatch(1);
+            GeofenceRepository.getInstance((Application) context)
+                    .insertEventsAndUpdateGeofences(confirmed, committed::countDown);
+            for (GeofenceEvent event : confirmed) {
+                NotificationHelper.showGeofenceNotification(context, event);
+                Log.d(TAG, "Exit confirmed: " + event.getGeofenceId());
+            }
+
+            Intent broadcastIntent = new Intent("de.dhbw.geofencinglbs.GEOFENCE_TRANSITION");
+            broadcastIntent.putExtra("transition_type",
+                    NotificationHelper.toPlatformTransition(GeofenceEvent.TYPE_EXIT));
+            context.sendBroadcast(broadcastIntent);
+
+            try {
+                if (!committed.await(COMMIT_TIMEOUT_MS, TimeUnit.MILLISECONDS)) {
+                    Log.w(TAG, "Confirmed exits not committed within " + COMMIT_TIMEOUT_MS + " ms");
+                }
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        }
+
+        // EXIT-Ereignisse im Hysteresebereich werden erst später bestätigt; anhängen statt ersetzen,
+        // damit dieser laufende Auftrag nicht abgebrochen wird
+        scheduleIfPending(context, debouncer, ExistingWorkPolicy.APPEND_OR_REPLACE);
+        return Result.success();
+    }
+}
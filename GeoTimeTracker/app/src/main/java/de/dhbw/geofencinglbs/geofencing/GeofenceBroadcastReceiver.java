@@ -4,18 +4,19 @@ import android.content.BroadcastReceiver;
 import android.content.Context;
 import android.content.Intent;
 import android.location.Location;
-import android.os.BatteryManager;
 import android.util.Log;
 
 import com.google.android.gms.location.Geofence;
 import com.google.android.gms.location.GeofenceStatusCodes;
 import com.google.android.gms.location.GeofencingEvent;
 
+import java.util.ArrayList;
 import java.util.List;
 
 import de.dhbw.geofencinglbs.data.repository.GeofenceRepository;
+import de.dhbw.geofencinglbs.location.LocationFilter;
 import de.dhbw.geofencinglbs.model.GeofenceEvent;
-import de.dhbw.geofencinglbs.util.DeviceInfoUtil;
+import de.dhbw.geofencinglbs.util.DeviceStateMonitor;
 import de.dhbw.geofencinglbs.util.NotificationHelper;
 
 /**
@@ -53,13 +54,55 @@ public class GeofenceBroadcastReceiver extends BroadcastReceiver {
                 Log.w(TAG, "No triggering geofences found");
                 return;
             }
-            // Für jeden ausgelösten Geofence ein Event erstellen
+            // Gerätestatus einmal pro Broadcast abfragen
+            Location location = filterTriggeringLocation(context, geofencingEvent.getTriggeringLocation());
+            DeviceStateMonitor.Snapshot deviceState = DeviceStateMonitor.getInstance(context).getSnapshot();
+            float batteryLevel = deviceState.getBatteryLevel();
+            boolean isCharging = deviceState.isCharging();
+            String networkType = deviceState.getNetworkType();
+            long timestamp = System.currentTimeMillis();
+
+            // Für jeden ausgelösten Geofence ein Event erstellen; der Entpreller hält EXIT-Ereignisse
+            // zurück und verwirft kurze Austritte. Abgelaufene EXIT-Ereignisse werden mitgespeichert.
+            GeofenceManager geofenceManager = GeofenceManager.getInstance(context);
+            TransitionDebouncer debouncer = geofenceManager.getTransitionDebouncer();
+            List<GeofenceEvent> events = new ArrayList<>(debouncer.poll(timestamp));
             for (Geofence geofence : triggeringGeofences) {
-                processGeofenceTransition(context, geofence, geofenceTransition, geofencingEvent.getTriggeringLocation());
+                // Refresh-Geofence verlassen: Fenster der nächstgelegenen Geofences neu berechnen
+                if (GeofenceManager.REFRESH_BOUNDARY_ID.equals(geofence.getRequestId())) {
+                    Log.d(TAG, "Refresh boundary exited, recomputing geofence window");
+                    geofenceManager.onRefreshBoundaryExited(location);
+                    continue;
+                }
+                GeofenceEvent event = createEvent(geofence, geofenceTransition, location, timestamp,
+                        batteryLevel, isCharging, networkType);
+                if (event != null && debouncer.submit(event, geofenceManager.findGeofence(event.getGeofenceId())) != null) {
+                    events.add(event);
+                }
             }
+            // Zurückgehaltene EXIT-Ereignisse auch ohne weitere Standorte rechtzeitig bestätigen
+            ExitConfirmationWorker.scheduleIfPending(context, debouncer);
+            if (events.isEmpty()) {
+                Log.d(TAG, "Transition held back or suppressed (suppressed total: "
+                        + debouncer.getSuppressedCount() + ")");
+                return;
+            }
+
+            // Alle Events gemeinsam in einer Transaktion speichern; der Receiver bleibt aktiv,
+            // bis die Transaktion abgeschlossen ist
+            PendingResult pendingResult = goAsync();
+            GeofenceRepository.getInstance((android.app.Application) context.getApplicationContext())
+                    .insertEventsAndUpdateGeofences(events, pendingResult::finish);
+
+            for (GeofenceEvent event : events) {
+                // Benachrichtigung erstellen
+                NotificationHelper.showGeofenceNotification(context, event);
+            }
+
             // Broadcast senden für Live-Updates in der UI
             Intent broadcastIntent = new Intent("de.dhbw.geofencinglbs.GEOFENCE_TRANSITION");
-            broadcastIntent.putExtra("transition_type", geofenceTransition);
+            broadcastIntent.putExtra("transition_type",
+                    NotificationHelper.toPlatformTransition(events.get(events.size() - 1).getEventType()));
             context.sendBroadcast(broadcastIntent);
         } else {
             Log.e(TAG, "Unknown geofence transition type: " + geofenceTransition);
@@ -67,16 +110,42 @@ public class GeofenceBroadcastReceiver extends BroadcastReceiver {
     }
 
     /**
-     * Verarbeitet einen einzelnen Geofence-Übergang.
+     * Ersetzt einen als Ausreißer erkannten auslösenden Standort durch die geglättete Schätzung
+     * des LocationService. Der Übergang selbst stammt von Play Services und wird nicht verworfen;
+     * gespeichert werden aber keine Sprungkoordinaten, und das Fenster wird nicht um einen
+     * Ausreißer herum neu berechnet.
+     */
+    private Location filterTriggeringLocation(Context context, Location location) {
+        if (location == null) {
+            return null;
+        }
+        LocationFilter filter = GeofenceManager.getInstance(context).getLocationFilter();
+        if (!filter.isOutlier(location.getTime(), location.getLatitude(), location.getLongitude(),
+                location.hasAccuracy() ? location.getAccuracy() : 0)) {
+            return location;
+        }
+        Log.d(TAG, "Triggering location is an outlier, using filtered estimate");
+        Location filtered = new Location(location);
+        filtered.setLatitude(filter.getLatitude());
+        filtered.setLongitude(filter.getLongitude());
+        filtered.setAccuracy(filter.getAccuracy());
+        return filtered;
+    }
+
+    /**
+     * Erstellt das Datenbank-Event für einen einzelnen Geofence-Übergang.
+     *
+     * @return Das Event oder null, wenn der Übergang nicht verarbeitet werden kann
      */
-    private void processGeofenceTransition(Context context, Geofence geofence, int transitionType, Location location) {
+    private GeofenceEvent createEvent(Geofence geofence, int transitionType, Location location, long timestamp,
+                                      float batteryLevel, boolean isCharging, String networkType) {
         // Geofence-ID (String) in eine Long-ID für die Datenbank umwandeln
         long geofenceId;
         try {
             geofenceId = Long.parseLong(geofence.getRequestId());
         } catch (NumberFormatException e) {
             Log.e(TAG, "Error parsing geofence ID: " + e.getMessage());
-            return;
+            return null;
         }
 
         // Event-Typ für unsere Datenbank bestimmen
@@ -98,19 +167,17 @@ public class GeofenceBroadcastReceiver extends BroadcastReceiver {
                 break;
             default:
                 Log.e(TAG, "Unknown transition type: " + transitionType);
-                return;
+                return null;
         }
 
-        // Batteriestatus abrufen
-        float batteryLevel = DeviceInfoUtil.getBatteryLevel(context);
-        boolean isCharging = DeviceInfoUtil.isDeviceCharging(context);
-        String networkType = DeviceInfoUtil.getNetworkConnectionType(context);
+        // Debugging-Informationen
+        Log.d(TAG, String.format("Geofence ID %d: %s (Accuracy: %.2fm, Provider: %s, Battery: %.1f%%)",
+                geofenceId, transitionName, location.getAccuracy(), location.getProvider(), batteryLevel));
 
-        // Geofence-Event erstellen
-        GeofenceEvent event = new GeofenceEvent(
+        return new GeofenceEvent(
                 geofenceId,
                 eventType,
-                System.currentTimeMillis(),
+                timestamp,
                 location.getLatitude(),
                 location.getLongitude(),
                 location.getAccuracy(),
@@ -119,18 +186,5 @@ public class GeofenceBroadcastReceiver extends BroadcastReceiver {
                 isCharging,
                 networkType
         );
-
-        // Event in der Datenbank speichern und Geofence in einer Operation aktualisieren
-        GeofenceRepository repository = new GeofenceRepository(
-                (android.app.Application) context.getApplicationContext());
-        repository.insertEventAndUpdateGeofence(event);
-
-        // Debugging-Informationen
-        Log.d(TAG, String.format("Geofence ID %d: %s (Accuracy: %.2fm, Provider: %s, Battery: %.1f%%)",
-                geofenceId, transitionName, location.getAccuracy(), location.getProvider(), batteryLevel));
-
-        // Benachrichtigung erstellen
-        NotificationHelper.showGeofenceNotification(context, geofenceId, transitionType, location);
-
     }
-}
\ No newline at end of file
+}
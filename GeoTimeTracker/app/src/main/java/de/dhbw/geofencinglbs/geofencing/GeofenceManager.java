@@ -3,6 +3,7 @@ package de.dhbw.geofencinglbs.geofencing;
 import android.app.PendingIntent;
 import android.content.Context;
 import android.content.Intent;
+import android.location.Location;
 import android.os.Build;
 import android.util.Log;
 
@@ -10,10 +11,18 @@ import com.google.android.gms.location.Geofence;
 import com.google.android.gms.location.GeofencingClient;
 import com.google.android.gms.location.GeofencingRequest;
 import com.google.android.gms.location.LocationServices;
+import com.google.android.gms.tasks.Task;
 
 import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
 import java.util.List;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
 
+import de.dhbw.geofencinglbs.data.repository.GeofenceRepository;
+import de.dhbw.geofencinglbs.location.LocationFilter;
 import de.dhbw.geofencinglbs.model.GeofenceModel;
 
 /**
@@ -24,13 +33,47 @@ public class GeofenceManager {
     private static final String TAG = "GeofenceManager";
     private static GeofenceManager instance;
 
+    // Maximale Anzahl an Geofences, die Play Services pro App überwacht
+    public static final int MAX_PLATFORM_GEOFENCES = 100;
+    // Anzahl der nächstgelegenen Geofences, die registriert werden (Rest: Refresh-Geofence und Reserve)
+    public static final int WINDOW_SIZE = 90;
+    // Request-ID des Refresh-Geofence um das aktuelle Fenster
+    public static final String REFRESH_BOUNDARY_ID = "window_refresh_boundary";
+    // Verweildauer für DWELL-Events (in Millisekunden)
+    public static final long LOITERING_DELAY_MS = 60000; // 1 Minute
+
     private final Context context;
     private final GeofencingClient geofencingClient;
     private PendingIntent geofencePendingIntent;
+    private final GeofenceRepository repository;
+
+    // Geladene, aber nicht registrierte Geofences werden in der App selbst ausgewertet
+    private final GeofenceSpatialIndex localIndex = new GeofenceSpatialIndex();
+    private final LocalGeofenceEvaluator localEvaluator = new LocalGeofenceEvaluator(localIndex, LOITERING_DELAY_MS);
+    // Geglätteter Standort für die Geofence-Auswertung (Service und BroadcastReceiver)
+    private final LocationFilter locationFilter = new LocationFilter();
+    // Entprellt ENTER/EXIT-Übergänge beider Quellen, bevor sie gespeichert werden;
+    // zurückgehaltene EXIT-Ereignisse überdauern einen Prozess-Neustart
+    private final TransitionDebouncer transitionDebouncer;
+
+    // Aktuell registriertes Fenster der nächstgelegenen Geofences
+    private volatile GeofenceWindow currentWindow;
+    private final AtomicBoolean windowRefreshPending = new AtomicBoolean(false);
+
+    // Beim GeofencingClient registrierte Geofences nach Request-ID
+    private final Map<String, GeofenceRegistrationDiff.Entry> registeredGeofences = new HashMap<>();
+    private boolean registrationStateKnown = false;
+
+    // Zähler für addGeofences/removeGeofences-Aufrufe
+    private final AtomicInteger platformCallCount = new AtomicInteger();
+    private volatile int lastUpdatePlatformCalls;
 
     private GeofenceManager(Context context) {
         this.context = context.getApplicationContext();
         this.geofencingClient = LocationServices.getGeofencingClient(context);
+        this.repository = GeofenceRepository.getInstance((android.app.Application) this.context);
+        this.transitionDebouncer = new TransitionDebouncer(TransitionDebouncer.DEFAULT_CONFIRMATION_MS,
+                TransitionDebouncer.DEFAULT_HYSTERESIS_FRACTION, new PendingExitPreferences(this.context));
     }
 
     public static synchronized GeofenceManager getInstance(Context context) {
@@ -41,61 +84,209 @@ public class GeofenceManager {
     }
 
     /**
-     * Wandelt ein GeofenceModel in ein Geofence-Objekt um.
+     * Wandelt ein GeofenceModel in die Beschreibung eines registrierten Geofence um.
      */
-    private Geofence createGeofence(GeofenceModel model) {
-        return new Geofence.Builder()
+    private static GeofenceRegistrationDiff.Entry createEntry(GeofenceModel model) {
+        return new GeofenceRegistrationDiff.Entry(
                 // Verwende die ID als String für die Google-API
-                .setRequestId(String.valueOf(model.getId()))
+                String.valueOf(model.getId()),
+                model.getLatitude(), model.getLongitude(), model.getRadius(),
+                // Transitionen, die überwacht werden sollen
+                Geofence.GEOFENCE_TRANSITION_ENTER |
+                        Geofence.GEOFENCE_TRANSITION_EXIT |
+                        Geofence.GEOFENCE_TRANSITION_DWELL);
+    }
+
+    /**
+     * Beschreibt den Refresh-Geofence um den Mittelpunkt des aktuellen Fensters.
+     * Beim Verlassen wird das Fenster der nächstgelegenen Geofences neu berechnet.
+     */
+    private static GeofenceRegistrationDiff.Entry createRefreshBoundaryEntry(GeofenceWindow window) {
+        return new GeofenceRegistrationDiff.Entry(REFRESH_BOUNDARY_ID,
+                window.getCenterLatitude(), window.getCenterLongitude(), window.getRefreshRadius(),
+                Geofence.GEOFENCE_TRANSITION_EXIT);
+    }
+
+    /**
+     * Wandelt eine Geofence-Beschreibung in ein Geofence-Objekt um.
+     */
+    private Geofence createGeofence(GeofenceRegistrationDiff.Entry entry) {
+        Geofence.Builder builder = new Geofence.Builder()
+                .setRequestId(entry.requestId)
                 // Setze Koordinaten und Radius
-                .setCircularRegion(model.getLatitude(), model.getLongitude(), model.getRadius())
+                .setCircularRegion(entry.latitude, entry.longitude, entry.radius)
                 // Der Geofence soll unbegrenzt gültig sein (oder kann auch begrenzt werden)
                 .setExpirationDuration(Geofence.NEVER_EXPIRE)
-                // Transitionen, die überwacht werden sollen
-                .setTransitionTypes(Geofence.GEOFENCE_TRANSITION_ENTER |
-                        Geofence.GEOFENCE_TRANSITION_EXIT |
-                        Geofence.GEOFENCE_TRANSITION_DWELL)
-                // Verweildauer für DWELL-Events festlegen (in Millisekunden)
-                .setLoiteringDelay(60000) // 1 Minute Verweildauer
-                .build();
+                .setTransitionTypes(entry.transitionTypes);
+        if ((entry.transitionTypes & Geofence.GEOFENCE_TRANSITION_DWELL) != 0) {
+            // Verweildauer für DWELL-Events festlegen (in Millisekunden)
+            builder.setLoiteringDelay((int) LOITERING_DELAY_MS);
+        }
+        return builder.build();
     }
 
     /**
-     * Erstellt eine GeofencingRequest mit den übergebenen Geofence-Modellen.
+     * Wählt das Fenster für eine vollständig geladene Geofence-Liste aus.
+     * Ohne bekannten Standort werden die Geofences nach ID ausgewählt.
      */
-    private GeofencingRequest createGeofencingRequest(List<GeofenceModel> geofenceModels) {
-        List<Geofence> geofenceList = new ArrayList<>();
+    private GeofenceWindow selectWindow(List<GeofenceModel> geofenceModels) {
+        GeofenceWindow window = currentWindow;
+        if (window != null && window.hasCenter()) {
+            return GeofenceWindow.select(window.getCenterLatitude(), window.getCenterLongitude(),
+                    geofenceModels, WINDOW_SIZE, Double.POSITIVE_INFINITY);
+        }
+        return GeofenceWindow.selectById(geofenceModels, WINDOW_SIZE);
+    }
+
+    /**
+     * Gibt den Evaluator für lokal überwachte Geofences zurück.
+     */
+    public LocalGeofenceEvaluator getLocalEvaluator() {
+        return localEvaluator;
+    }
+
+    /**
+     * Gibt den gemeinsamen Filter zurück, der Standorte vor der Geofence-Auswertung
+     * glättet und Ausreißer verwirft.
+     */
+    public LocationFilter getLocationFilter() {
+        return locationFilter;
+    }
+
+    /**
+     * Gibt den gemeinsamen Entpreller für Geofence-Übergänge zurück.
+     */
+    public TransitionDebouncer getTransitionDebouncer() {
+        return transitionDebouncer;
+    }
 
-        for (GeofenceModel model : geofenceModels) {
-            if (model.isActive()) {
-                geofenceList.add(createGeofence(model));
+    /**
+     * Sucht einen geladenen Geofence (registriert oder lokal ausgewertet) anhand seiner ID.
+     *
+     * @return Der Geofence oder null, solange kein Fenster berechnet wurde oder er nicht geladen ist
+     */
+    public GeofenceModel findGeofence(long geofenceId) {
+        GeofenceWindow window = currentWindow;
+        if (window == null) {
+            return null;
+        }
+        for (GeofenceModel model : window.getPlatformGeofences()) {
+            if (model.getId() == geofenceId) {
+                return model;
+            }
+        }
+        for (GeofenceModel model : window.getLocalGeofences()) {
+            if (model.getId() == geofenceId) {
+                return model;
             }
         }
+        return null;
+    }
+
+    /**
+     * Erstellt eine GeofencingRequest für die übergebenen Geofences.
+     */
+    private GeofencingRequest createGeofencingRequest(List<GeofenceRegistrationDiff.Entry> entries) {
+        List<Geofence> geofenceList = new ArrayList<>();
+
+        for (GeofenceRegistrationDiff.Entry entry : entries) {
+            geofenceList.add(createGeofence(entry));
+        }
 
         Log.d(TAG, "Creating geofencing request with " + geofenceList.size() + " geofences");
 
         return new GeofencingRequest.Builder()
-                // Auslösen beim Hinzufügen, wenn sich das Gerät bereits in der Zone befindet
+                // Auslösen beim Hinzufügen, wenn sich das Gerät bereits in der Zone befindet.
+                // Betrifft nur neu hinzugefügte oder geänderte Geofences.
                 .setInitialTrigger(GeofencingRequest.INITIAL_TRIGGER_ENTER)
                 .addGeofences(geofenceList)
                 .build();
     }
 
     /**
-     * Registriert die übergebenen Geofences beim Fused Location Provider.
+     * Registriert die nächstgelegenen der übergebenen Geofences beim Fused Location Provider.
      */
     public void registerGeofences(List<GeofenceModel> geofenceModels, GeofenceCallback callback) {
-        if (geofenceModels.isEmpty()) {
+        applyWindow(selectWindow(geofenceModels), callback);
+    }
+
+    /**
+     * Gleicht die registrierten Geofences mit dem übergebenen Fenster ab. Es werden nur
+     * entfernte Geofences abgemeldet und neue oder geänderte Geofences hinzugefügt.
+     * Die übrigen geladenen Geofences werden lokal ausgewertet.
+     */
+    private void applyWindow(GeofenceWindow window, GeofenceCallback callback) {
+        currentWindow = window;
+        localIndex.rebuild(window.getLocalGeofences());
+
+        Map<String, GeofenceRegistrationDiff.Entry> target = new HashMap<>();
+        for (GeofenceModel model : window.getPlatformGeofences()) {
+            target.put(String.valueOf(model.getId()), createEntry(model));
+        }
+        if (window.hasRefreshBoundary()) {
+            target.put(REFRESH_BOUNDARY_ID, createRefreshBoundaryEntry(window));
+        }
+
+        boolean fullReset;
+        GeofenceRegistrationDiff diff;
+        synchronized (registeredGeofences) {
+            // Ohne bekannten Stand (z.B. nach einem Prozess-Neustart) alles ersetzen
+            fullReset = !registrationStateKnown;
+            diff = GeofenceRegistrationDiff.compute(
+                    fullReset ? Collections.emptyMap() : registeredGeofences, target);
+            registeredGeofences.clear();
+            registeredGeofences.putAll(target);
+            registrationStateKnown = true;
+        }
+
+        boolean removes = fullReset || !diff.getToRemove().isEmpty();
+        int calls = (removes ? 1 : 0) + (diff.getToAdd().isEmpty() ? 0 : 1);
+        lastUpdatePlatformCalls = calls;
+        int total = platformCallCount.addAndGet(calls);
+        Log.d(TAG, "Geofence update: -" + (fullReset ? "all" : diff.getToRemove().size())
+                + " +" + diff.getToAdd().size() + ", platform calls: " + calls + " (total " + total + ")");
+
+        if (!removes) {
+            addGeofences(diff.getToAdd(), window, callback);
+            return;
+        }
+
+        Task<Void> removal = fullReset
+                ? geofencingClient.removeGeofences(getGeofencePendingIntent())
+                : geofencingClient.removeGeofences(diff.getToRemove());
+        removal.addOnCompleteListener(task -> {
+            if (!task.isSuccessful()) {
+                Log.e(TAG, "Failed to remove geofences: " + task.getException());
+                invalidateRegistrationState();
+            }
+            // Unabhängig vom Ergebnis versuchen wir, die neuen Geofences zu registrieren
+            addGeofences(diff.getToAdd(), window, callback);
+        });
+    }
+
+    /**
+     * Fügt neue oder geänderte Geofences beim GeofencingClient hinzu.
+     */
+    private void addGeofences(List<GeofenceRegistrationDiff.Entry> entries, GeofenceWindow window,
+                              GeofenceCallback callback) {
+        if (window.getPlatformGeofences().isEmpty()) {
             if (callback != null) {
                 callback.onError("Keine aktiven Geofences zum Registrieren");
             }
             return;
         }
+        if (entries.isEmpty()) {
+            Log.d(TAG, "Geofences already up to date");
+            if (callback != null) {
+                callback.onSuccess();
+            }
+            return;
+        }
 
         try {
             // Geofences beim Client registrieren
             geofencingClient.addGeofences(
-                    createGeofencingRequest(geofenceModels),
+                    createGeofencingRequest(entries),
                     getGeofencePendingIntent()
             ).addOnSuccessListener(aVoid -> {
                 Log.d(TAG, "Geofences successfully registered");
@@ -104,22 +295,154 @@ public class GeofenceManager {
                 }
             }).addOnFailureListener(e -> {
                 Log.e(TAG, "Failed to register geofences: " + e.getMessage());
+                invalidateRegistrationState();
                 if (callback != null) {
                     callback.onError(e.getMessage());
                 }
             });
         } catch (SecurityException e) {
             Log.e(TAG, "Security exception: " + e.getMessage());
+            invalidateRegistrationState();
             if (callback != null) {
                 callback.onError("Fehlende Standortberechtigungen: " + e.getMessage());
             }
         }
     }
 
+    /**
+     * Markiert den bekannten Registrierungsstand als ungültig, damit die nächste
+     * Aktualisierung alle Geofences ersetzt.
+     */
+    private void invalidateRegistrationState() {
+        synchronized (registeredGeofences) {
+            registrationStateKnown = false;
+            registeredGeofences.clear();
+        }
+    }
+
+    /**
+     * Gesamtzahl der Aufrufe von addGeofences/removeGeofences seit dem Start.
+     */
+    public int getPlatformCallCount() {
+        return platformCallCount.get();
+    }
+
+    /**
+     * Anzahl der Plattform-Aufrufe, die die letzte Aktualisierung benötigt hat.
+     */
+    public int getLastUpdatePlatformCalls() {
+        return lastUpdatePlatformCalls;
+    }
+
+    /**
+     * Berechnet das Fenster der nächstgelegenen Geofences um den angegebenen Punkt neu.
+     * Es werden nur Geofences aus der Umgebung geladen, nicht die ganze Tabelle.
+     */
+    public void refreshWindow(double latitude, double longitude, GeofenceCallback callback) {
+        repository.getActiveGeofencesNear(latitude, longitude, WINDOW_SIZE * 2, (geofences, searchRadius) -> {
+            GeofenceWindow window = GeofenceWindow.select(latitude, longitude, geofences, WINDOW_SIZE, searchRadius);
+            Log.d(TAG, "Window refreshed: " + window.getPlatformGeofences().size() + " registered, "
+                    + window.getLocalGeofences().size() + " local, boundary " + window.getRefreshRadius() + "m");
+            applyWindow(window, callback);
+        });
+    }
+
+    /**
+     * Berechnet das Fenster um den zuletzt bekannten Standort neu
+     * (z.B. nachdem Geofences hinzugefügt, geändert oder gelöscht wurden).
+     */
+    public void refreshWindow(GeofenceCallback callback) {
+        GeofenceWindow window = currentWindow;
+        if (window != null && window.hasCenter()) {
+            refreshWindow(window.getCenterLatitude(), window.getCenterLongitude(), callback);
+            return;
+        }
+
+        try {
+            LocationServices.getFusedLocationProviderClient(context).getLastLocation()
+                    .addOnCompleteListener(task -> {
+                        Location location = task.isSuccessful() ? task.getResult() : null;
+                        if (location != null) {
+                            refreshWindow(location.getLatitude(), location.getLongitude(), callback);
+                        } else {
+                            refreshWindowWithoutLocation(callback);
+                        }
+                    });
+        } catch (SecurityException e) {
+            Log.e(TAG, "Security exception: " + e.getMessage());
+            refreshWindowWithoutLocation(callback);
+        }
+    }
+
+    /**
+     * Fallback ohne Standort: Geofences werden nach ID ausgewählt.
+     */
+    private void refreshWindowWithoutLocation(GeofenceCallback callback) {
+        repository.getActiveGeofences(geofences ->
+                applyWindow(GeofenceWindow.selectById(geofences, WINDOW_SIZE), callback));
+    }
+
+    /**
+     * Wird bei jedem neuen Standort aufgerufen. Verlässt der Standort den Refresh-Bereich,
+     * wird das Fenster neu berechnet, ohne auf das EXIT-Ereignis der Plattform zu warten.
+     */
+    public void onLocationChanged(Location location) {
+        GeofenceWindow window = currentWindow;
+        if (window != null && !window.isOutside(location.getLatitude(), location.getLongitude())) {
+            return;
+        }
+        requestWindowRefresh(location);
+    }
+
+    /**
+     * Abstand vom Punkt zur nächsten Grenze eines registrierten Geofence in Metern
+     * ({@link Double#POSITIVE_INFINITY}, solange kein Fenster berechnet wurde).
+     */
+    public double getNearestGeofenceDistance(double latitude, double longitude) {
+        GeofenceWindow window = currentWindow;
+        return window != null ? window.nearestEdgeDistance(latitude, longitude) : Double.POSITIVE_INFINITY;
+    }
+
+    /**
+     * Wird aufgerufen, wenn die Plattform das Verlassen des Refresh-Geofence meldet.
+     */
+    public void onRefreshBoundaryExited(Location location) {
+        if (location == null) {
+            refreshWindow(null);
+            return;
+        }
+        requestWindowRefresh(location);
+    }
+
+    private void requestWindowRefresh(Location location) {
+        // Nur eine Neuberechnung gleichzeitig
+        if (!windowRefreshPending.compareAndSet(false, true)) {
+            return;
+        }
+        refreshWindow(location.getLatitude(), location.getLongitude(), new GeofenceCallback() {
+            @Override
+            public void onSuccess() {
+                windowRefreshPending.set(false);
+            }
+
+            @Override
+            public void onError(String errorMessage) {
+                windowRefreshPending.set(false);
+                Log.w(TAG, "Window refresh failed: " + errorMessage);
+            }
+        });
+    }
+
     /**
      * Entfernt alle registrierten Geofences.
      */
     public void removeGeofences(GeofenceCallback callback) {
+        synchronized (registeredGeofences) {
+            registeredGeofences.clear();
+            registrationStateKnown = true;
+        }
+        lastUpdatePlatformCalls = 1;
+        platformCallCount.incrementAndGet();
         geofencingClient.removeGeofences(getGeofencePendingIntent())
                 .addOnSuccessListener(aVoid -> {
                     Log.d(TAG, "Geofences successfully removed");
@@ -129,6 +452,7 @@ public class GeofenceManager {
                 })
                 .addOnFailureListener(e -> {
                     Log.e(TAG, "Failed to remove geofences: " + e.getMessage());
+                    invalidateRegistrationState();
                     if (callback != null) {
                         callback.onError(e.getMessage());
                     }
@@ -158,16 +482,13 @@ public class GeofenceManager {
      * Aktualisiert die registrierten Geofences nach Änderungen.
      */
     public void updateGeofences(List<GeofenceModel> geofenceModels, GeofenceCallback callback) {
-        // Zuerst alle Geofences entfernen und dann neu registrieren
-        geofencingClient.removeGeofences(getGeofencePendingIntent())
-                .addOnCompleteListener(task -> {
-                    // Unabhängig vom Ergebnis versuchen wir, die neuen Geofences zu registrieren
-                    registerGeofences(geofenceModels, callback);
-                });
+        // Nur die Unterschiede zum registrierten Stand übertragen
+        applyWindow(selectWindow(geofenceModels), callback);
     }
 
     /**
-     * Aktualisiert einen einzelnen Geofence, indem alle Geofences aktualisiert werden.
+     * Aktualisiert einen einzelnen Geofence. Durch den Abgleich mit dem registrierten
+     * Stand wird nur der geänderte Geofence neu übertragen.
      */
     public void updateSingleGeofence(GeofenceModel updatedGeofence, List<GeofenceModel> allGeofences, GeofenceCallback callback) {
         // Finde den alten Geofence und ersetze ihn durch den aktualisierten
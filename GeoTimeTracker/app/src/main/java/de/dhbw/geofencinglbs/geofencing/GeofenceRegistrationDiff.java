@@ -0,0 +1,102 @@
+package de.dhbw.geofencinglbs.geofencing;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Unterschied zwischen den aktuell beim GeofencingClient registrierten Geofences
+ * und dem gewünschten Stand. Geänderte Geofences müssen nur neu hinzugefügt werden,
+ * da die Plattform Geofences mit gleicher Request-ID ersetzt.
+ */
+final class GeofenceRegistrationDiff {
+
+    private final List<String> toRemove;
+    private final List<Entry> toAdd;
+
+    private GeofenceRegistrationDiff(List<String> toRemove, List<Entry> toAdd) {
+        this.toRemove = toRemove;
+        this.toAdd = toAdd;
+    }
+
+    /**
+     * Berechnet die nötigen Änderungen, um von {@code registered} zu {@code target} zu gelangen.
+     * Beide Maps sind nach Request-ID indiziert.
+     */
+    static GeofenceRegistrationDiff compute(Map<String, Entry> registered, Map<String, Entry> target) {
+        List<String> toRemove = new ArrayList<>();
+        for (String requestId : registered.keySet()) {
+            if (!target.containsKey(requestId)) {
+                toRemove.add(requestId);
+            }
+        }
+
+        List<Entry> toAdd = new ArrayList<>();
+        for (Entry entry : target.values()) {
+            if (!entry.equals(registered.get(entry.requestId))) {
+                toAdd.add(entry);
+            }
+        }
+
+        Collections.sort(toRemove);
+        return new GeofenceRegistrationDiff(toRemove, toAdd);
+    }
+
+    List<String> getToRemove() {
+        return toRemove;
+    }
+
+    List<Entry> getToAdd() {
+        return toAdd;
+    }
+
+    boolean isEmpty() {
+        return toRemove.isEmpty() && toAdd.isEmpty();
+    }
+
+    /**
+     * Unveränderliche Beschreibung eines registrierten Geofence.
+     */
+    static final class Entry {
+        final String requestId;
+        final double latitude;
+        final double longitude;
+        final float radius;
+        final int transitionTypes;
+
+        Entry(String requestId, double latitude, double longitude, float radius, int transitionTypes) {
+            this.requestId = requestId;
+            this.latitude = latitude;
+            this.longitude = longitude;
+            this.radius = radius;
+            this.transitionTypes = transitionTypes;
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            if (this == o) {
+                return true;
+            }
+            if (!(o instanceof Entry)) {
+                return false;
+            }
+            Entry other = (Entry) o;
+            return requestId.equals(other.requestId) &&
+                    Double.compare(latitude, other.latitude) == 0 &&
+                    Double.compare(longitude, other.longitude) == 0 &&
+                    Float.compare(radius, other.radius) == 0 &&
+                    transitionTypes == other.transitionTypes;
+        }
+
+        @Override
+        public int hashCode() {
+            int result = requestId.hashCode();
+            result = 31 * result + Double.hashCode(latitude);
+            result = 31 * result + Double.hashCode(longitude);
+            result = 31 * result + Float.hashCode(radius);
+            result = 31 * result + transitionTypes;
+            return result;
+        }
+    }
+}
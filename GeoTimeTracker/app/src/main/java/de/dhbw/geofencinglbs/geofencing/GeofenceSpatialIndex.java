@@ -0,0 +1,157 @@
+package de.dhbw.geofencinglbs.geofencing;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+import de.dhbw.geofencinglbs.model.GeofenceModel;
+import de.dhbw.geofencinglbs.util.GeoMath;
+
+/**
+ * In-Memory-Raumindex über Geofences auf Basis eines festen Lat/Lon-Rasters.
+ * Jeder Geofence wird in alle Rasterzellen eingetragen, die seine Bounding-Box berührt.
+ * Eine Abfrage prüft damit nur die Kandidaten einer einzigen Zelle statt aller Geofences.
+ *
+ * Der Index ist unveränderlich pro Stand: {@link #rebuild(List)} erzeugt einen neuen
+ * Snapshot, der atomar ausgetauscht wird. Abfragen benötigen daher keine Sperren.
+ */
+public class GeofenceSpatialIndex {
+
+    /** Kantenlänge einer Rasterzelle in Grad (ca. 1,1 km in Nord-Süd-Richtung). */
+    static final double CELL_SIZE_DEGREES = 0.01;
+
+    /** Geofences, die mehr Zellen belegen würden, werden separat linear geprüft. */
+    private static final int MAX_CELLS_PER_GEOFENCE = 64;
+
+    private static final int LAT_CELLS = (int) Math.ceil(180.0 / CELL_SIZE_DEGREES);
+    private static final int LON_CELLS = (int) Math.ceil(360.0 / CELL_SIZE_DEGREES);
+
+    private volatile Snapshot snapshot = Snapshot.EMPTY;
+
+    /**
+     * Baut den Index für die übergebenen Geofences neu auf.
+     * Inaktive Geofences werden nicht aufgenommen.
+     */
+    public void rebuild(List<GeofenceModel> geofences) {
+        Map<Long, List<GeofenceModel>> cellLists = new HashMap<>();
+        List<GeofenceModel> large = new ArrayList<>();
+        Set<Long> ids = new HashSet<>();
+
+        for (GeofenceModel geofence : geofences) {
+            if (!geofence.isActive()) {
+                continue;
+            }
+            ids.add(geofence.getId());
+
+            double dLat = geofence.getRadius() / GeoMath.METERS_PER_DEGREE_LAT;
+            double dLon = geofence.getRadius() / GeoMath.metersPerDegreeLon(geofence.getLatitude());
+            int minLat = latIndex(geofence.getLatitude() - dLat);
+            int maxLat = latIndex(geofence.getLatitude() + dLat);
+            int minLon = rawLonIndex(geofence.getLongitude() - dLon);
+            int maxLon = rawLonIndex(geofence.getLongitude() + dLon);
+
+            long cellCount = (long) (maxLat - minLat + 1) * (maxLon - minLon + 1);
+            if (cellCount > MAX_CELLS_PER_GEOFENCE) {
+                large.add(geofence);
+                continue;
+            }
+
+            for (int latIdx = minLat; latIdx <= maxLat; latIdx++) {
+                for (int lonIdx = minLon; lonIdx <= maxLon; lonIdx++) {
+                    long key = cellKey(latIdx, Math.floorMod(lonIdx, LON_CELLS));
+                    List<GeofenceModel> cell = cellLists.get(key);
+                    if (cell == null) {
+                        cell = new ArrayList<>(2);
+                        cellLists.put(key, cell);
+                    }
+                    cell.add(geofence);
+                }
+            }
+        }
+
+        Map<Long, GeofenceModel[]> cells = new HashMap<>(cellLists.size() * 2);
+        for (Map.Entry<Long, List<GeofenceModel>> entry : cellLists.entrySet()) {
+            cells.put(entry.getKey(), entry.getValue().toArray(new GeofenceModel[0]));
+        }
+
+        snapshot = new Snapshot(cells, large.toArray(new GeofenceModel[0]), ids);
+    }
+
+    /**
+     * Gibt alle Geofences zurück, in deren Radius der angegebene Punkt liegt.
+     */
+    public List<GeofenceModel> findContaining(double latitude, double longitude) {
+        Snapshot current = snapshot;
+        List<GeofenceModel> result = new ArrayList<>();
+
+        GeofenceModel[] cell = current.cells.get(cellKey(latIndex(latitude),
+                Math.floorMod(rawLonIndex(longitude), LON_CELLS)));
+        if (cell != null) {
+            for (GeofenceModel geofence : cell) {
+                if (contains(geofence, latitude, longitude)) {
+                    result.add(geofence);
+                }
+            }
+        }
+        for (GeofenceModel geofence : current.large) {
+            if (contains(geofence, latitude, longitude)) {
+                result.add(geofence);
+            }
+        }
+        return result;
+    }
+
+    /**
+     * Prüft, ob ein Geofence mit der angegebenen ID im aktuellen Index enthalten ist.
+     */
+    public boolean contains(long geofenceId) {
+        return snapshot.ids.contains(geofenceId);
+    }
+
+    /**
+     * Anzahl der indizierten Geofences.
+     */
+    public int size() {
+        return snapshot.ids.size();
+    }
+
+    private static boolean contains(GeofenceModel geofence, double latitude, double longitude) {
+        return GeoMath.distanceMeters(latitude, longitude,
+                geofence.getLatitude(), geofence.getLongitude()) <= geofence.getRadius();
+    }
+
+    private static int latIndex(double latitude) {
+        int idx = (int) Math.floor((latitude + 90.0) / CELL_SIZE_DEGREES);
+        return Math.max(0, Math.min(LAT_CELLS - 1, idx));
+    }
+
+    private static int rawLonIndex(double longitude) {
+        return (int) Math.floor((longitude + 180.0) / CELL_SIZE_DEGREES);
+    }
+
+    private static long cellKey(int latIdx, int lonIdx) {
+        return ((long) latIdx << 32) | (lonIdx & 0xffffffffL);
+    }
+
+    /**
+     * Unveränderlicher Stand des Index.
+     */
+    private static final class Snapshot {
+        static final Snapshot EMPTY = new Snapshot(
+                Collections.emptyMap(), new GeofenceModel[0], Collections.emptySet());
+
+        final Map<Long, GeofenceModel[]> cells;
+        final GeofenceModel[] large;
+        final Set<Long> ids;
+
+        Snapshot(Map<Long, GeofenceModel[]> cells, GeofenceModel[] large, Set<Long> ids) {
+            this.cells = cells;
+            this.large = large;
+            this.ids = ids;
+        }
+    }
+}
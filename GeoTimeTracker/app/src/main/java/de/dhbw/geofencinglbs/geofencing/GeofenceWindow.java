@@ -0,0 +1,175 @@
+package de.dhbw.geofencinglbs.geofencing;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.List;
+
+import de.dhbw.geofencinglbs.model.GeofenceModel;
+import de.dhbw.geofencinglbs.util.GeoMath;
+
+/**
+ * "Sliding Window" der beim GeofencingClient registrierten Geofences.
+ * Enthält die N nächstgelegenen Geofences um einen Mittelpunkt sowie den Radius
+ * eines Refresh-Geofence, bei dessen Verlassen das Fenster neu berechnet wird.
+ */
+public final class GeofenceWindow {
+
+    /** Mindestradius des Refresh-Geofence (kleinere Radien löst die Plattform unzuverlässig aus). */
+    static final float MIN_REFRESH_RADIUS = 200f;
+
+    private final boolean hasCenter;
+    private final double centerLatitude;
+    private final double centerLongitude;
+    private final List<GeofenceModel> platformGeofences;
+    private final List<GeofenceModel> localGeofences;
+    private final float refreshRadius;
+
+    private GeofenceWindow(boolean hasCenter, double centerLatitude, double centerLongitude,
+                           List<GeofenceModel> platformGeofences, List<GeofenceModel> localGeofences,
+                           float refreshRadius) {
+        this.hasCenter = hasCenter;
+        this.centerLatitude = centerLatitude;
+        this.centerLongitude = centerLongitude;
+        this.platformGeofences = platformGeofences;
+        this.localGeofences = localGeofences;
+        this.refreshRadius = refreshRadius;
+    }
+
+    /**
+     * Wählt die {@code windowSize} Geofences mit dem geringsten Abstand zur Geofence-Grenze aus.
+     *
+     * @param candidates         Aktive Geofences im Suchgebiet um den Mittelpunkt
+     * @param searchRadiusMeters Alle Geofences, deren Grenze näher als dieser Radius liegt, wurden geladen
+     *                           ({@link Double#POSITIVE_INFINITY}, wenn die ganze Tabelle geladen wurde)
+     */
+    public static GeofenceWindow select(double latitude, double longitude, List<GeofenceModel> candidates,
+                                        int windowSize, double searchRadiusMeters) {
+        List<Ranked> ranked = new ArrayList<>(candidates.size());
+        for (GeofenceModel geofence : candidates) {
+            if (geofence.isActive()) {
+                ranked.add(new Ranked(geofence, edgeDistance(latitude, longitude, geofence)));
+            }
+        }
+        Collections.sort(ranked, Comparator.comparingDouble(r -> r.edgeDistance));
+
+        int platformCount = Math.min(ranked.size(), windowSize);
+        List<GeofenceModel> platform = new ArrayList<>(platformCount);
+        List<GeofenceModel> local = new ArrayList<>(ranked.size() - platformCount);
+        for (int i = 0; i < ranked.size(); i++) {
+            (i < platformCount ? platform : local).add(ranked.get(i).geofence);
+        }
+
+        // Kein Refresh nötig, wenn alle Geofences registriert sind und nichts außerhalb liegt
+        if (local.isEmpty() && Double.isInfinite(searchRadiusMeters)) {
+            return new GeofenceWindow(true, latitude, longitude, platform, local, 0f);
+        }
+
+        // Das Fenster muss neu berechnet werden, bevor der nächste nicht registrierte
+        // Geofence erreicht wird oder das geladene Suchgebiet verlassen wird
+        double limit = searchRadiusMeters / 2;
+        if (!local.isEmpty()) {
+            limit = Math.min(limit, ranked.get(platformCount).edgeDistance);
+        }
+        float refreshRadius = (float) Math.max(MIN_REFRESH_RADIUS, limit);
+        return new GeofenceWindow(true, latitude, longitude, platform, local, refreshRadius);
+    }
+
+    /**
+     * Fallback ohne bekannten Standort: Die ersten {@code windowSize} Geofences nach ID
+     * werden registriert, alle weiteren lokal ausgewertet. Es gibt keinen Refresh-Geofence.
+     */
+    public static GeofenceWindow selectById(List<GeofenceModel> candidates, int windowSize) {
+        List<GeofenceModel> active = new ArrayList<>();
+        for (GeofenceModel geofence : candidates) {
+            if (geofence.isActive()) {
+                active.add(geofence);
+            }
+        }
+        Collections.sort(active, Comparator.comparingLong(GeofenceModel::getId));
+
+        int platformCount = Math.min(active.size(), windowSize);
+        return new GeofenceWindow(false, 0, 0,
+                new ArrayList<>(active.subList(0, platformCount)),
+                new ArrayList<>(active.subList(platformCount, active.size())),
+                0f);
+    }
+
+    /**
+     * Abstand vom Punkt zur Grenze des Geofence in Metern (negativ, wenn der Punkt innerhalb liegt).
+     */
+    static double edgeDistance(double latitude, double longitude, GeofenceModel geofence) {
+        return GeoMath.distanceMeters(latitude, longitude, geofence.getLatitude(), geofence.getLongitude())
+                - geofence.getRadius();
+    }
+
+    /**
+     * Kleinster Abstand vom Punkt zur Grenze eines registrierten Geofence in Metern
+     * (negativ, wenn der Punkt innerhalb liegt; {@link Double#POSITIVE_INFINITY} ohne Geofences).
+     * Lokal ausgewertete Geofences liegen weiter entfernt und werden nicht betrachtet.
+     */
+    public double nearestEdgeDistance(double latitude, double longitude) {
+        double nearest = Double.POSITIVE_INFINITY;
+        for (GeofenceModel geofence : platformGeofences) {
+            nearest = Math.min(nearest, edgeDistance(latitude, longitude, geofence));
+        }
+        return nearest;
+    }
+
+    /**
+     * Gibt an, ob sich der angegebene Punkt außerhalb des Refresh-Bereichs befindet.
+     */
+    public boolean isOutside(double latitude, double longitude) {
+        if (!hasCenter) {
+            return true;
+        }
+        if (!hasRefreshBoundary()) {
+            return false;
+        }
+        return GeoMath.distanceMeters(latitude, longitude, centerLatitude, centerLongitude) > refreshRadius;
+    }
+
+    public boolean hasCenter() {
+        return hasCenter;
+    }
+
+    public boolean hasRefreshBoundary() {
+        return refreshRadius > 0;
+    }
+
+    public double getCenterLatitude() {
+        return centerLatitude;
+    }
+
+    public double getCenterLongitude() {
+        return centerLongitude;
+    }
+
+    /**
+     * Geofences, die beim GeofencingClient registriert werden.
+     */
+    public List<GeofenceModel> getPlatformGeofences() {
+        return platformGeofences;
+    }
+
+    /**
+     * Geofences, die geladen, aber nicht registriert sind (werden lokal ausgewertet).
+     */
+    public List<GeofenceModel> getLocalGeofences() {
+        return localGeofences;
+    }
+
+    public float getRefreshRadius() {
+        return refreshRadius;
+    }
+
+    private static final class Ranked {
+        final GeofenceModel geofence;
+        final double edgeDistance;
+
+        Ranked(GeofenceModel geofence, double edgeDistance) {
+            this.geofence = geofence;
+            this.edgeDistance = edgeDistance;
+        }
+    }
+}
@@ -0,0 +1,125 @@
+package de.dhbw.geofencinglbs.geofencing;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+import de.dhbw.geofencinglbs.model.GeofenceEvent;
+import de.dhbw.geofencinglbs.model.GeofenceModel;
+
+/**
+ * Wertet Geofence-Übergänge (ENTER, EXIT, DWELL) innerhalb der App aus.
+ * Wird für Geofences verwendet, die nicht beim GeofencingClient registriert sind,
+ * z.B. weil das Limit von 100 Geofences pro App überschritten ist.
+ */
+public class LocalGeofenceEvaluator {
+
+    private final GeofenceSpatialIndex index;
+    private final long loiteringDelayMs;
+
+    // Geofences, in denen sich das Gerät aktuell befindet
+    private final Map<Long, InsideState> insideStates = new HashMap<>();
+
+    public LocalGeofenceEvaluator(GeofenceSpatialIndex index, long loiteringDelayMs) {
+        this.index = index;
+        this.loiteringDelayMs = loiteringDelayMs;
+    }
+
+    /**
+     * Wertet einen neuen Standort aus und gibt die daraus resultierenden Übergänge zurück.
+     * Geofences, die zwischenzeitlich aus dem Index entfernt wurden, werden ohne EXIT verworfen.
+     */
+    public synchronized List<Transition> evaluate(double latitude, double longitude, long timestamp) {
+        List<Transition> transitions = new ArrayList<>();
+        List<GeofenceModel> containing = index.findContaining(latitude, longitude);
+
+        // Eintritte und Verweilen
+        Set<Long> current = new HashSet<>();
+        for (GeofenceModel geofence : containing) {
+            current.add(geofence.getId());
+            InsideState state = insideStates.get(geofence.getId());
+            if (state == null) {
+                insideStates.put(geofence.getId(), new InsideState(geofence, timestamp));
+                transitions.add(new Transition(geofence, GeofenceEvent.TYPE_ENTER, timestamp));
+                continue;
+            }
+            // Referenz auf das aktuelle Modell halten (für spätere EXIT-Ereignisse)
+            state.geofence = geofence;
+            if (!state.dwellReported && timestamp - state.enterTime >= loiteringDelayMs) {
+                state.dwellReported = true;
+                transitions.add(new Transition(geofence, GeofenceEvent.TYPE_DWELL, timestamp));
+            }
+        }
+
+        // Austritte
+        Iterator<Map.Entry<Long, InsideState>> iterator = insideStates.entrySet().iterator();
+        while (iterator.hasNext()) {
+            Map.Entry<Long, InsideState> entry = iterator.next();
+            if (current.contains(entry.getKey())) {
+                continue;
+            }
+            iterator.remove();
+            if (index.contains(entry.getKey())) {
+                transitions.add(new Transition(entry.getValue().geofence, GeofenceEvent.TYPE_EXIT, timestamp));
+            }
+        }
+
+        return transitions;
+    }
+
+    /**
+     * Setzt den internen Zustand zurück (z.B. nach einem Neustart des Service).
+     */
+    public synchronized void reset() {
+        insideStates.clear();
+    }
+
+    /**
+     * Zustand eines Geofence, in dem sich das Gerät befindet.
+     */
+    private static final class InsideState {
+        final long enterTime;
+        boolean dwellReported;
+        GeofenceModel geofence;
+
+        InsideState(GeofenceModel geofence, long enterTime) {
+            this.geofence = geofence;
+            this.enterTime = enterTime;
+        }
+    }
+
+    /**
+     * Ein lokal erkannter Geofence-Übergang.
+     */
+    public static final class Transition {
+        private final GeofenceModel geofence;
+        private final int eventType;
+        private final long timestamp;
+
+        public Transition(GeofenceModel geofence, int eventType, long timestamp) {
+            this.geofence = geofence;
+            this.eventType = eventType;
+            this.timestamp = timestamp;
+        }
+
+        public GeofenceModel getGeofence() {
+            return geofence;
+        }
+
+        /**
+         * Ereignistyp gemäß {@link GeofenceEvent#TYPE_ENTER}, {@link GeofenceEvent#TYPE_EXIT}
+         * oder {@link GeofenceEvent#TYPE_DWELL}.
+         */
+        public int getEventType() {
+            return eventType;
+        }
+
+        public long getTimestamp() {
+            return timestamp;
+        }
+    }
+}
@@ -0,0 +1,106 @@
+package de.dhbw.geofencinglbs.geofencing;
+
+import android.content.Context;
+import android.content.SharedPreferences;
+import android.util.Log;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+
+import de.dhbw.geofencinglbs.model.GeofenceEvent;
+
+/**
+ * Sichert zurückgehaltene EXIT-Ereignisse des {@link TransitionDebouncer} in den SharedPreferences,
+ * damit ein Prozess-Neustart vor der Bestätigung kein Verlassen verliert.
+ * <p>
+ * Je Geofence ein Eintrag ({@code exit_<id>}) mit den Feldern des Ereignisses, getrennt durch
+ * {@code |}; der Netzwerktyp steht zuletzt und darf daher beliebige Zeichen enthalten.
+ */
+public class PendingExitPreferences implements TransitionDebouncer.PendingExitStore {
+    private static final String TAG = "PendingExitPreferences";
+
+    private static final String PREFS_NAME = "pending_exits";
+    private static final String KEY_PREFIX = "exit_";
+    private static final String SEPARATOR = "|";
+    private static final int FIELD_COUNT = 8;
+
+    private final SharedPreferences prefs;
+
+    public PendingExitPreferences(Context context) {
+        this.prefs = context.getApplicationContext().getSharedPreferences(PREFS_NAME, Context.MODE_PRIVATE);
+    }
+
+    @Override
+    public List<GeofenceEvent> load() {
+        List<GeofenceEvent> exits = new ArrayList<>();
+        for (Map.Entry<String, ?> entry : prefs.getAll().entrySet()) {
+            if (!entry.getKey().startsWith(KEY_PREFIX) || !(entry.getValue() instanceof String)) {
+                continue;
+            }
+            try {
+                long geofenceId = Long.parseLong(entry.getKey().substring(KEY_PREFIX.length()));
+                exits.add(decode(geofenceId, (String) entry.getValue()));
+            } catch (IllegalArgumentException e) {
+                Log.w(TAG, "Skipping invalid pending exit " + entry.getKey() + ": " + e.getMessage());
+            }
+        }
+        return exits;
+    }
+
+    @Override
+    public void save(GeofenceEvent exit) {
+        prefs.edit().putString(KEY_PREFIX + exit.getGeofenceId(), encode(exit)).apply();
+    }
+
+    @Override
+    public void remove(long geofenceId) {
+        prefs.edit().remove(KEY_PREFIX + geofenceId).apply();
+    }
+
+    @Override
+    public void clear() {
+        prefs.edit().clear().apply();
+    }
+
+    static String encode(GeofenceEvent exit) {
+        return exit.getTimestamp() + SEPARATOR
+                + exit.getLatitude() + SEPARATOR
+                + exit.getLongitude() + SEPARATOR
+                + exit.getAccuracy() + SEPARATOR
+                + exit.getBatteryLevel() + SEPARATOR
+                + exit.isCharging() + SEPARATOR
+                + nullToEmpty(exit.getProvider()) + SEPARATOR
+                + nullToEmpty(exit.getNetworkConnectionType());
+    }
+
+    /**
+     * @throws IllegalArgumentException bei einem unvollständigen oder beschädigten Eintrag
+     */
+    static GeofenceEvent decode(long geofenceId, String value) {
+        String[] fields = value.split("\\|", FIELD_COUNT);
+        if (fields.length != FIELD_COUNT) {
+            throw new IllegalArgumentException("expected " + FIELD_COUNT + " fields, got " + fields.length);
+        }
+        return new GeofenceEvent(
+                geofenceId,
+                GeofenceEvent.TYPE_EXIT,
+                Long.parseLong(fields[0]),
+                Double.parseDouble(fields[1]),
+                Double.parseDouble(fields[2]),
+                Float.parseFloat(fields[3]),
+                emptyToNull(fields[6]),
+                Float.parseFloat(fields[4]),
+                Boolean.parseBoolean(fields[5]),
+                emptyToNull(fields[7])
+        );
+    }
+
+    private static String nullToEmpty(String value) {
+        return value != null ? value : "";
+    }
+
+    private static String emptyToNull(String value) {
+        return value.isEmpty() ? null : value;
+    }
+}
@@ -0,0 +1,323 @@
+package de.dhbw.geofencinglbs.geofencing;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import de.dhbw.geofencinglbs.model.GeofenceEvent;
+import de.dhbw.geofencinglbs.model.GeofenceModel;
+import de.dhbw.geofencinglbs.util.GeoMath;
+
+/**
+ * Entprellt Geofence-Übergänge, bevor sie gespeichert, benachrichtigt und an die UI gemeldet werden.
+ * <p>
+ * Zustandsautomat je Geofence:
+ * <ul>
+ *     <li>ENTER und DWELL werden sofort weitergegeben; doppelte ENTER/DWELL innerhalb
+ *     desselben Aufenthalts werden unterdrückt.</li>
+ *     <li>EXIT wird zunächst zurückgehalten. Bestätigt wird er erst, wenn seit dem EXIT
+ *     {@code confirmationMs} vergangen sind und der zuletzt bekannte Standort außerhalb von
+ *     Radius + Hysterese ({@code hysteresisFraction} × Radius) liegt. Folgt vorher ein ENTER
+ *     oder DWELL oder liegt ein Standort wieder innerhalb des Radius, werden EXIT und ENTER
+ *     verworfen (der Aufenthalt läuft weiter).</li>
+ *     <li>Ohne eindeutigen Standort wird ein zurückgehaltener EXIT spätestens nach
+ *     {@link #MAX_PENDING_FACTOR} × {@code confirmationMs} bestätigt, damit kein Verlassen verloren geht.</li>
+ * </ul>
+ * Bestätigte EXIT-Ereignisse behalten ihren ursprünglichen Zeitstempel. Zurückgehaltene EXIT-Ereignisse
+ * werden im {@link PendingExitStore} gesichert und nach einem Prozess-Neustart wiederhergestellt; ohne
+ * geladenen Geofence werden sie dann nur zeitlich bestätigt. Wann {@link #poll} frühestens bestätigt,
+ * liefert {@link #getNextConfirmationTime()} (für einen Wecker, falls keine Standorte mehr eintreffen).
+ * Der übrige Zustand liegt nur im Speicher; nach einem Neustart wird das erste Ereignis übernommen.
+ */
+public class TransitionDebouncer {
+
+    /** Standard-Bestätigungszeit für EXIT-Ereignisse. */
+    public static final long DEFAULT_CONFIRMATION_MS = 30000;
+    /** Standard-Hysterese als Anteil des Geofence-Radius. */
+    public static final double DEFAULT_HYSTERESIS_FRACTION = 0.2;
+    /** Spätestens nach diesem Vielfachen der Bestätigungszeit wird ein EXIT bestätigt. */
+    static final int MAX_PENDING_FACTOR = 4;
+
+    /**
+     * Dauerhafte Ablage der zurückgehaltenen EXIT-Ereignisse (höchstens eines je Geofence).
+     */
+    public interface PendingExitStore {
+        List<GeofenceEvent> load();
+
+        void save(GeofenceEvent exit);
+
+        void remove(long geofenceId);
+
+        void clear();
+    }
+
+    private final long confirmationMs;
+    private final double hysteresisFraction;
+    private final PendingExitStore store;
+
+    private final Map<Long, FenceState> states = new HashMap<>();
+    private int suppressedCount;
+    private int bounceCount;
+
+    /**
+     * @param store Ablage für zurückgehaltene EXIT-Ereignisse; null, wenn sie nur im Speicher liegen sollen
+     */
+    public TransitionDebouncer(long confirmationMs, double hysteresisFraction, PendingExitStore store) {
+        this.confirmationMs = confirmationMs;
+        this.hysteresisFraction = hysteresisFraction;
+        this.store = store;
+        if (store != null) {
+            for (GeofenceEvent exit : store.load()) {
+                // Ein zurückgehaltener EXIT setzt einen Aufenthalt voraus
+                FenceState state = new FenceState();
+                state.inside = Boolean.TRUE;
+                state.pendingExit = exit;
+                states.put(exit.getGeofenceId(), state);
+            }
+        }
+    }
+
+    public TransitionDebouncer(long confirmationMs, double hysteresisFraction) {
+        this(confirmationMs, hysteresisFraction, null);
+    }
+
+    public TransitionDebouncer() {
+        this(DEFAULT_CONFIRMATION_MS, DEFAULT_HYSTERESIS_FRACTION);
+    }
+
+    /**
+     * Nimmt ein erkanntes Ereignis entgegen.
+     *
+     * @param geofence Geofence des Ereignisses für die Hysterese; null, wenn nicht bekannt
+     *                 (dann wird ein EXIT nur zeitlich bestätigt)
+     * @return Ereignis zum sofortigen Speichern oder null, wenn es zurückgehalten oder unterdrückt wird
+     */
+    public synchronized GeofenceEvent submit(GeofenceEvent event, GeofenceModel geofence) {
+        FenceState state = states.get(event.getGeofenceId());
+        if (state == null) {
+            state = new FenceState();
+            states.put(event.getGeofenceId(), state);
+        }
+        if (geofence != null) {
+            state.geofence = geofence;
+        }
+
+        switch (event.getEventType()) {
+            case GeofenceEvent.TYPE_EXIT:
+                if (state.pendingExit != null || state.inside == Boolean.FALSE) {
+                    // Doppelter EXIT: der frühere bleibt maßgeblich
+                    suppressedCount++;
+                    return null;
+                }
+                state.pendingExit = event;
+                state.lastOutsideBand = isOutsideBand(state, event.getLatitude(), event.getLongitude());
+                if (store != null) {
+                    store.save(event);
+                }
+                return null;
+
+            case GeofenceEvent.TYPE_ENTER:
+                if (state.pendingExit != null) {
+                    // EXIT -> ENTER vor der Bestätigung: beide verwerfen
+                    cancelPendingExit(state);
+                    suppressedCount++;
+                    return null;
+                }
+                if (state.inside == Boolean.TRUE) {
+                    suppressedCount++;
+                    return null;
+                }
+                state.inside = Boolean.TRUE;
+                state.dwellReported = false;
+                return event;
+
+            case GeofenceEvent.TYPE_DWELL:
+                if (state.pendingExit != null) {
+                    // Verweilen belegt, dass das Gerät nie wirklich draußen war
+                    cancelPendingExit(state);
+                }
+                state.inside = Boolean.TRUE;
+                if (state.dwellReported) {
+                    suppressedCount++;
+                    return null;
+                }
+                state.dwellReported = true;
+                return event;
+
+            default:
+                return event;
+        }
+    }
+
+    /**
+     * Wertet einen neuen (möglichst geglätteten) Standort für alle zurückgehaltenen EXIT-Ereignisse aus.
+     *
+     * @return Die dadurch bestätigten EXIT-Ereignisse in zeitlicher Reihenfolge
+     */
+    public synchronized List<GeofenceEvent> onLocation(double latitude, double longitude, long time) {
+        List<GeofenceEvent> confirmed = null;
+        for (FenceState state : states.values()) {
+            if (state.pendingExit == null) {
+                continue;
+            }
+            if (state.geofence != null) {
+                double distance = GeoMath.distanceMeters(latitude, longitude,
+                        state.geofence.getLatitude(), state.geofence.getLongitude());
+                if (distance <= state.geofence.getRadius()) {
+                    // Zurück im Geofence, bevor der EXIT bestätigt war
+                    cancelPendingExit(state);
+                    continue;
+                }
+                state.lastOutsideBand = distance > state.geofence.getRadius() * (1 + hysteresisFraction);
+            }
+            if (isConfirmed(state, time)) {
+                confirmed = addConfirmed(confirmed, state);
+            }
+        }
+        return sorted(confirmed);
+    }
+
+    /**
+     * Bestätigt zurückgehaltene EXIT-Ereignisse, deren Frist abgelaufen ist, ohne neuen Standort.
+     */
+    public synchronized List<GeofenceEvent> poll(long now) {
+        List<GeofenceEvent> confirmed = null;
+        for (FenceState state : states.values()) {
+            if (state.pendingExit != null && isConfirmed(state, now)) {
+                confirmed = addConfirmed(confirmed, state);
+            }
+        }
+        return sorted(confirmed);
+    }
+
+    /**
+     * Frühester Zeitpunkt, zu dem {@link #poll} ohne weiteren Standort einen zurückgehaltenen
+     * EXIT bestätigt.
+     *
+     * @return Zeitpunkt in Millisekunden oder {@link Long#MAX_VALUE}, wenn kein EXIT zurückgehalten wird
+     */
+    public synchronized long getNextConfirmationTime() {
+        long next = Long.MAX_VALUE;
+        for (FenceState state : states.values()) {
+            if (state.pendingExit != null) {
+                next = Math.min(next, confirmationTime(state));
+            }
+        }
+        return next;
+    }
+
+    private boolean isConfirmed(FenceState state, long now) {
+        return now >= confirmationTime(state);
+    }
+
+    private long confirmationTime(FenceState state) {
+        long timestamp = state.pendingExit.getTimestamp();
+        if (state.geofence == null || state.lastOutsideBand) {
+            return timestamp + confirmationMs;
+        }
+        return timestamp + confirmationMs * MAX_PENDING_FACTOR;
+    }
+
+    private boolean isOutsideBand(FenceState state, double latitude, double longitude) {
+        if (state.geofence == null) {
+            return false;
+        }
+        double distance = GeoMath.distanceMeters(latitude, longitude,
+                state.geofence.getLatitude(), state.geofence.getLongitude());
+        return distance > state.geofence.getRadius() * (1 + hysteresisFraction);
+    }
+
+    private void cancelPendingExit(FenceState state) {
+        removeStored(state.pendingExit);
+        state.pendingExit = null;
+        state.inside = Boolean.TRUE;
+        suppressedCount++;
+        bounceCount++;
+    }
+
+    private List<GeofenceEvent> addConfirmed(List<GeofenceEvent> confirmed, FenceState state) {
+        if (confirmed == null) {
+            confirmed = new ArrayList<>();
+        }
+        removeStored(state.pendingExit);
+        confirmed.add(state.pendingExit);
+        state.pendingExit = null;
+        state.inside = Boolean.FALSE;
+        state.dwellReported = false;
+        return confirmed;
+    }
+
+    private void removeStored(GeofenceEvent exit) {
+        if (store != null) {
+            store.remove(exit.getGeofenceId());
+        }
+    }
+
+    private static List<GeofenceEvent> sorted(List<GeofenceEvent> events) {
+        if (events == null) {
+            return Collections.emptyList();
+        }
+        Collections.sort(events, (a, b) -> Long.compare(a.getTimestamp(), b.getTimestamp()));
+        return events;
+    }
+
+    /**
+     * Vergisst den Zustand eines Geofence (z.B. nach dem Löschen).
+     */
+    public synchronized void forget(long geofenceId) {
+        FenceState state = states.remove(geofenceId);
+        if (state != null && state.pendingExit != null) {
+            removeStored(state.pendingExit);
+        }
+    }
+
+    /**
+     * Setzt den Zustand aller Geofences zurück; zurückgehaltene EXIT-Ereignisse werden verworfen.
+     */
+    public synchronized void reset() {
+        states.clear();
+        if (store != null) {
+            store.clear();
+        }
+    }
+
+    /**
+     * Anzahl unterdrückter Übergänge (verworfene EXIT/ENTER-Paare zählen doppelt, doppelte Ereignisse einfach).
+     */
+    public synchronized int getSuppressedCount() {
+        return suppressedCount;
+    }
+
+    /**
+     * Anzahl verworfener kurzer Austritte (EXIT, auf den vor der Bestätigung ein Eintritt folgte).
+     */
+    public synchronized int getBounceCount() {
+        return bounceCount;
+    }
+
+    /**
+     * Anzahl aktuell zurückgehaltener EXIT-Ereignisse.
+     */
+    public synchronized int getPendingCount() {
+        int count = 0;
+        for (FenceState state : states.values()) {
+            if (state.pendingExit != null) {
+                count++;
+            }
+        }
+        return count;
+    }
+
+    /**
+     * Zustand eines Geofence. {@code inside} ist null, solange noch kein Ereignis bekannt ist.
+     */
+    private static class FenceState {
+        GeofenceModel geofence;
+        Boolean inside;
+        boolean dwellReported;
+        GeofenceEvent pendingExit;
+        boolean lastOutsideBand;
+    }
+}
@@ -0,0 +1,70 @@
+package de.dhbw.geofencinglbs.location;
+
+/**
+ * Policy mit Hysterese-Bändern für Akkustand und Abstand zur nächsten Geofence-Grenze.
+ * Jeder Schwellwert hat getrennte Werte zum Betreten und Verlassen eines Modus, damit ein
+ * um einen Schwellwert schwankender Akkustand oder Standort keinen ständigen Moduswechsel auslöst.
+ * <ul>
+ *     <li>Laden (bis {@link #CHARGER_GRACE_MS} nach dem Trennen): hohe Genauigkeit</li>
+ *     <li>Kritischer Akku: Energiesparmodus (verlassen erst oberhalb von {@link #LOW_POWER_EXIT_BATTERY})</li>
+ *     <li>In Bewegung nahe einer Geofence-Grenze und genug Akku: hohe Genauigkeit</li>
+ *     <li>Stillstand ohne Geofence in Reichweite: Energiesparmodus (verlassen erst bei
+ *     deutlicher Bewegung oder Annäherung)</li>
+ *     <li>Sonst: ausgewogen</li>
+ * </ul>
+ */
+public class HysteresisPowerPolicy implements LocationPowerPolicy {
+
+    static final float LOW_POWER_ENTER_BATTERY = 15f;
+    static final float LOW_POWER_EXIT_BATTERY = 25f;
+    static final float HIGH_ACCURACY_ENTER_BATTERY = 40f;
+    static final float HIGH_ACCURACY_EXIT_BATTERY = 30f;
+
+    static final double NEAR_GEOFENCE_ENTER_DISTANCE = 300;
+    static final double NEAR_GEOFENCE_EXIT_DISTANCE = 600;
+    /** Ab diesem Abstand ist im Stillstand kein Übergang zu erwarten. */
+    static final double FAR_GEOFENCE_ENTER_DISTANCE = 2000;
+    static final double FAR_GEOFENCE_EXIT_DISTANCE = 1500;
+    /** Geschwindigkeit, ab der der Energiesparmodus wegen Bewegung verlassen wird (m/s). */
+    static final float LOW_POWER_EXIT_SPEED = 2f;
+
+    /** Ein kurz getrenntes Ladegerät (Wackelkontakt) gilt in diesem Zeitraum weiter als verbunden. */
+    static final long CHARGER_GRACE_MS = 5 * 60 * 1000;
+
+    private long lastChargingTime = Long.MIN_VALUE;
+
+    @Override
+    public int selectMode(LocationPowerState state, int currentMode) {
+        if (state.isCharging()) {
+            lastChargingTime = state.getTimestamp();
+        }
+        if (lastChargingTime != Long.MIN_VALUE && state.getTimestamp() - lastChargingTime < CHARGER_GRACE_MS) {
+            return MODE_HIGH_ACCURACY;
+        }
+
+        float batteryLevel = state.getBatteryLevel();
+        // Unbekannter Akkustand (-1) schränkt nicht ein
+        boolean batteryKnown = batteryLevel >= 0;
+        float lowPowerLimit = currentMode == MODE_LOW_POWER ? LOW_POWER_EXIT_BATTERY : LOW_POWER_ENTER_BATTERY;
+        if (batteryKnown && batteryLevel < lowPowerLimit) {
+            return MODE_LOW_POWER;
+        }
+
+        boolean high = currentMode == MODE_HIGH_ACCURACY;
+        double distance = state.getNearestGeofenceDistance();
+        boolean nearGeofence = distance < (high ? NEAR_GEOFENCE_EXIT_DISTANCE : NEAR_GEOFENCE_ENTER_DISTANCE);
+        boolean enoughBattery = !batteryKnown
+                || batteryLevel >= (high ? HIGH_ACCURACY_EXIT_BATTERY : HIGH_ACCURACY_ENTER_BATTERY);
+        if (nearGeofence && enoughBattery && state.isMoving()) {
+            return MODE_HIGH_ACCURACY;
+        }
+
+        // Im Energiesparmodus lösen kurze Wege (z.B. im Büro) noch keinen Wechsel aus
+        boolean low = currentMode == MODE_LOW_POWER;
+        boolean moving = low ? state.getSpeed() >= LOW_POWER_EXIT_SPEED : state.isMoving();
+        if (!moving && distance > (low ? FAR_GEOFENCE_EXIT_DISTANCE : FAR_GEOFENCE_ENTER_DISTANCE)) {
+            return MODE_LOW_POWER;
+        }
+        return MODE_BALANCED;
+    }
+}
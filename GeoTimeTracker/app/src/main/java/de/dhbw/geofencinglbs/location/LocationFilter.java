@@ -0,0 +1,218 @@
+package de.dhbw.geofencinglbs.location;
+
+import de.dhbw.geofencinglbs.util.GeoMath;
+
+/**
+ * Filterstufe für Standort-Fixes vor der Geofence-Auswertung.
+ * <ul>
+ *     <li>Ausreißer: Ein Fix, der vom letzten geschätzten Standort aus nur mit mehr als
+ *     {@code maxSpeed} erreichbar wäre (abzüglich der Genauigkeiten), wird verworfen.
+ *     Nach {@link #MAX_CONSECUTIVE_REJECTS} verworfenen Fixes in Folge wird der Filter neu
+ *     gestartet, da dann eher die Schätzung als die Messung falsch ist.</li>
+ *     <li>Glättung: Kalman-Filter mit konstanter Geschwindigkeit je Achse in einer lokalen
+ *     ebenen Projektion. Das Messrauschen ergibt sich aus der gemeldeten Genauigkeit, sodass
+ *     ungenaue Fixes die Schätzung weniger stark verschieben.</li>
+ * </ul>
+ * Da beide Achsen dieselbe Messunsicherheit haben, teilen sie sich eine Kovarianzmatrix.
+ * Pro Fix wird nichts alloziert.
+ */
+public class LocationFilter {
+
+    /** Standardabweichung der Beschleunigung (Prozessrauschen) in m/s². */
+    public static final double DEFAULT_ACCELERATION_NOISE = 1.0;
+    /** Höchste plausible Geschwindigkeit in m/s (ca. 200 km/h). */
+    public static final double DEFAULT_MAX_SPEED = 55.0;
+
+    /** Angenommene Genauigkeit, wenn der Fix keine meldet. */
+    static final float UNKNOWN_ACCURACY = 50f;
+    /** Nach längerer Pause ist die Schätzung wertlos; der Filter startet neu. */
+    static final long MAX_GAP_MS = 5 * 60 * 1000;
+    static final int MAX_CONSECUTIVE_REJECTS = 3;
+    /** Ab diesem Abstand vom Ursprung wird die lokale Projektion neu zentriert. */
+    private static final double RECENTER_DISTANCE = 20000;
+
+    private final double accelerationNoise;
+    private final double maxSpeed;
+
+    // Ursprung der lokalen Projektion
+    private double originLat;
+    private double originLon;
+    private double metersPerLon;
+
+    // Zustand je Achse: Position (m) und Geschwindigkeit (m/s)
+    private double x;
+    private double y;
+    private double vx;
+    private double vy;
+    // Gemeinsame Kovarianz [[p00, p01], [p01, p11]]
+    private double p00;
+    private double p01;
+    private double p11;
+
+    private boolean initialized;
+    private long lastTime;
+    private int consecutiveRejects;
+    private int acceptedCount;
+    private int rejectedCount;
+
+    public LocationFilter(double accelerationNoise, double maxSpeed) {
+        this.accelerationNoise = accelerationNoise;
+        this.maxSpeed = maxSpeed;
+    }
+
+    public LocationFilter() {
+        this(DEFAULT_ACCELERATION_NOISE, DEFAULT_MAX_SPEED);
+    }
+
+    /**
+     * Verarbeitet einen Fix.
+     *
+     * @param accuracy Genauigkeitsradius in Metern (≤ 0, wenn unbekannt)
+     * @return false, wenn der Fix als Ausreißer verworfen wurde; die Schätzung bleibt dann unverändert
+     */
+    public synchronized boolean update(long time, double latitude, double longitude, float accuracy) {
+        float measurementAccuracy = accuracy > 0 ? accuracy : UNKNOWN_ACCURACY;
+        if (!initialized || time - lastTime > MAX_GAP_MS || consecutiveRejects >= MAX_CONSECUTIVE_REJECTS) {
+            start(time, latitude, longitude, measurementAccuracy);
+            acceptedCount++;
+            return true;
+        }
+        if (isOutlierInternal(time, latitude, longitude, measurementAccuracy)) {
+            consecutiveRejects++;
+            rejectedCount++;
+            return false;
+        }
+        consecutiveRejects = 0;
+        acceptedCount++;
+
+        // Vorhersage mit konstanter Geschwindigkeit (ältere Fixes einer Zustellung: dt = 0)
+        double dt = Math.max(0, time - lastTime) / 1000.0;
+        if (dt > 0) {
+            x += vx * dt;
+            y += vy * dt;
+            double q = accelerationNoise * accelerationNoise;
+            double dt2 = dt * dt;
+            double newP00 = p00 + 2 * dt * p01 + dt2 * p11 + q * dt2 * dt2 / 4;
+            double newP01 = p01 + dt * p11 + q * dt2 * dt / 2;
+            p11 = p11 + q * dt2;
+            p00 = newP00;
+            p01 = newP01;
+            lastTime = time;
+        }
+
+        // Korrektur mit der Messung; das Rauschen entspricht der gemeldeten Genauigkeit
+        double r = (double) measurementAccuracy * measurementAccuracy;
+        double s = p00 + r;
+        double k0 = p00 / s;
+        double k1 = p01 / s;
+        double innovationX = (longitude - originLon) * metersPerLon - x;
+        double innovationY = (latitude - originLat) * GeoMath.METERS_PER_DEGREE_LAT - y;
+        x += k0 * innovationX;
+        y += k0 * innovationY;
+        vx += k1 * innovationX;
+        vy += k1 * innovationY;
+        double newP11 = p11 - k1 * p01;
+        p01 = (1 - k0) * p01;
+        p00 = (1 - k0) * p00;
+        p11 = newP11;
+
+        if (Math.abs(x) > RECENTER_DISTANCE || Math.abs(y) > RECENTER_DISTANCE) {
+            recenter();
+        }
+        return true;
+    }
+
+    /**
+     * Prüft, ob ein Fix als Ausreißer gelten würde, ohne den Zustand zu verändern.
+     * Ohne Schätzung ist kein Fix ein Ausreißer.
+     */
+    public synchronized boolean isOutlier(long time, double latitude, double longitude, float accuracy) {
+        if (!initialized || time - lastTime > MAX_GAP_MS) {
+            return false;
+        }
+        return isOutlierInternal(time, latitude, longitude, accuracy > 0 ? accuracy : UNKNOWN_ACCURACY);
+    }
+
+    private boolean isOutlierInternal(long time, double latitude, double longitude, float accuracy) {
+        double dx = (longitude - originLon) * metersPerLon - x;
+        double dy = (latitude - originLat) * GeoMath.METERS_PER_DEGREE_LAT - y;
+        double distance = Math.sqrt(dx * dx + dy * dy);
+        // Mindestens eine Sekunde, damit Fixes mit gleichem Zeitstempel nicht unendlich schnell sind
+        double dt = Math.max(1000, Math.abs(time - lastTime)) / 1000.0;
+        double travelled = Math.max(0, distance - accuracy - Math.sqrt(p00));
+        return travelled / dt > maxSpeed;
+    }
+
+    private void start(long time, double latitude, double longitude, float accuracy) {
+        originLat = latitude;
+        originLon = longitude;
+        metersPerLon = GeoMath.metersPerDegreeLon(latitude);
+        x = 0;
+        y = 0;
+        vx = 0;
+        vy = 0;
+        p00 = (double) accuracy * accuracy;
+        p01 = 0;
+        // Unbekannte Anfangsgeschwindigkeit: Standardabweichung von maxSpeed / 2
+        p11 = maxSpeed * maxSpeed / 4;
+        lastTime = time;
+        consecutiveRejects = 0;
+        initialized = true;
+    }
+
+    private void recenter() {
+        double latitude = getLatitude();
+        double longitude = getLongitude();
+        originLat = latitude;
+        originLon = longitude;
+        metersPerLon = GeoMath.metersPerDegreeLon(latitude);
+        x = 0;
+        y = 0;
+    }
+
+    /**
+     * Setzt den Filter zurück; der nächste Fix wird ungeprüft übernommen.
+     */
+    public synchronized void reset() {
+        initialized = false;
+        consecutiveRejects = 0;
+    }
+
+    public synchronized boolean hasEstimate() {
+        return initialized;
+    }
+
+    public synchronized double getLatitude() {
+        return originLat + y / GeoMath.METERS_PER_DEGREE_LAT;
+    }
+
+    public synchronized double getLongitude() {
+        return originLon + x / metersPerLon;
+    }
+
+    /**
+     * Unsicherheit der geschätzten Position (Standardabweichung je Achse) in Metern.
+     */
+    public synchronized float getAccuracy() {
+        return (float) Math.sqrt(p00);
+    }
+
+    /**
+     * Geschätzte Geschwindigkeit in m/s.
+     */
+    public synchronized float getSpeed() {
+        return (float) Math.hypot(vx, vy);
+    }
+
+    public synchronized long getTime() {
+        return lastTime;
+    }
+
+    public synchronized int getAcceptedCount() {
+        return acceptedCount;
+    }
+
+    public synchronized int getRejectedCount() {
+        return rejectedCount;
+    }
+}
@@ -0,0 +1,91 @@
+package de.dhbw.geofencinglbs.location;
+
+import android.os.Looper;
+import android.os.SystemClock;
+import android.os.Trace;
+
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Misst die Verarbeitungszeit der Standort-Fixes getrennt nach Hauptthread und
+ * Hintergrund-Threads. Jeder Abschnitt erscheint zusätzlich als {@link Trace}-Section
+ * in Systrace/Perfetto. Ein Abschnitt muss auf dem Thread beendet werden, auf dem er
+ * begonnen wurde.
+ */
+public final class LocationFixTracer {
+
+    private final AtomicLong fixCount = new AtomicLong();
+    private final AtomicLong mainThreadNanos = new AtomicLong();
+    private final AtomicLong maxMainThreadNanos = new AtomicLong();
+    private final AtomicLong backgroundNanos = new AtomicLong();
+
+    /**
+     * Beginnt einen Abschnitt.
+     *
+     * @return Startzeit, die an {@link #endSection(long)} übergeben wird
+     */
+    public long beginSection(String name) {
+        Trace.beginSection(name);
+        return SystemClock.elapsedRealtimeNanos();
+    }
+
+    /**
+     * Beendet den zuletzt auf diesem Thread begonnenen Abschnitt und ordnet die Dauer
+     * dem Hauptthread oder dem Hintergrund zu.
+     */
+    public void endSection(long startNanos) {
+        long elapsed = SystemClock.elapsedRealtimeNanos() - startNanos;
+        Trace.endSection();
+        record(elapsed, Looper.myLooper() == Looper.getMainLooper());
+    }
+
+    /**
+     * Zählt die Fixes einer Zustellung.
+     */
+    public void onFixes(int count) {
+        fixCount.addAndGet(count);
+    }
+
+    void record(long elapsedNanos, boolean onMainThread) {
+        if (onMainThread) {
+            mainThreadNanos.addAndGet(elapsedNanos);
+            maxMainThreadNanos.accumulateAndGet(elapsedNanos, Math::max);
+        } else {
+            backgroundNanos.addAndGet(elapsedNanos);
+        }
+    }
+
+    public long getFixCount() {
+        return fixCount.get();
+    }
+
+    /**
+     * Durchschnittliche Zeit auf dem Hauptthread pro Fix in Mikrosekunden.
+     */
+    public long getMainThreadMicrosPerFix() {
+        long fixes = fixCount.get();
+        return fixes == 0 ? 0 : mainThreadNanos.get() / fixes / 1000;
+    }
+
+    /**
+     * Längster einzelner Abschnitt auf dem Hauptthread in Mikrosekunden.
+     */
+    public long getMaxMainThreadMicros() {
+        return maxMainThreadNanos.get() / 1000;
+    }
+
+    /**
+     * Durchschnittliche Zeit auf dem Standort-Thread pro Fix in Mikrosekunden.
+     */
+    public long getBackgroundMicrosPerFix() {
+        long fixes = fixCount.get();
+        return fixes == 0 ? 0 : backgroundNanos.get() / fixes / 1000;
+    }
+
+    @Override
+    public String toString() {
+        return "fixes=" + getFixCount()
+                + ", main=" + getMainThreadMicrosPerFix() + "us/fix (max " + getMaxMainThreadMicros() + "us)"
+                + ", background=" + getBackgroundMicrosPerFix() + "us/fix";
+    }
+}
@@ -0,0 +1,108 @@
+package de.dhbw.geofencinglbs.location;
+
+/**
+ * Entscheidet über Wechsel des Standortmodus. Die Zielmodi liefert eine austauschbare
+ * {@link LocationPowerPolicy}; der Controller erzwingt eine Mindestverweildauer pro Modus
+ * und zählt die daraus resultierenden Neustarts der Standort-Updates.
+ * Wechselt die Policy kurz nach einem Wechsel wieder zurück, verdoppelt sich die
+ * Mindestverweildauer (bis {@link #MAX_DWELL_MS}), damit pendelnde Eingaben die
+ * Standort-Updates nicht ständig neu starten.
+ */
+public class LocationModeController {
+
+    /** Mindestverweildauer in einem Modus, bevor die Policy erneut wechseln darf. */
+    public static final long DEFAULT_MIN_DWELL_MS = 5 * 60 * 1000;
+    static final long MAX_DWELL_MS = 40 * 60 * 1000;
+
+    /** Unterhalb dieses Akkustands darf sofort in einen sparsameren Modus gewechselt werden. */
+    static final float CRITICAL_BATTERY = 10f;
+
+    private final LocationPowerPolicy policy;
+    private final long minDwellMs;
+
+    private int mode;
+    private int previousMode = -1;
+    private long modeSince = Long.MIN_VALUE;
+    private long dwellMs;
+    private int restartCount;
+
+    public LocationModeController(LocationPowerPolicy policy, long minDwellMs, int initialMode) {
+        this.policy = policy;
+        this.minDwellMs = minDwellMs;
+        this.mode = initialMode;
+        this.dwellMs = minDwellMs;
+    }
+
+    /**
+     * Wertet einen neuen Zustand aus.
+     *
+     * @return true, wenn sich der Modus geändert hat und die Standort-Updates neu gestartet werden müssen
+     */
+    public synchronized boolean update(LocationPowerState state) {
+        int target = policy.selectMode(state, mode);
+        if (target == mode) {
+            return false;
+        }
+
+        boolean dwellElapsed = modeSince == Long.MIN_VALUE || state.getTimestamp() - modeSince >= dwellMs;
+        boolean critical = target > mode && state.getBatteryLevel() >= 0
+                && state.getBatteryLevel() < CRITICAL_BATTERY && !state.isCharging();
+        if (!dwellElapsed && !critical) {
+            return false;
+        }
+
+        switchTo(target, state.getTimestamp());
+        return true;
+    }
+
+    /**
+     * Setzt den Modus manuell (z.B. durch den Nutzer). Die Mindestverweildauer gilt ab jetzt.
+     *
+     * @return true, wenn sich der Modus geändert hat
+     */
+    public synchronized boolean setMode(int mode, long timestamp) {
+        if (mode == this.mode) {
+            return false;
+        }
+        switchTo(mode, timestamp);
+        return true;
+    }
+
+    private void switchTo(int mode, long timestamp) {
+        // Rückkehr in den vorherigen Modus kurz nach dem letzten Wechsel: Pendeln
+        boolean reversal = mode == previousMode && modeSince != Long.MIN_VALUE
+                && timestamp - modeSince < 2 * dwellMs;
+        dwellMs = reversal ? Math.min(2 * dwellMs, Math.max(minDwellMs, MAX_DWELL_MS)) : minDwellMs;
+
+        this.previousMode = this.mode;
+        this.mode = mode;
+        this.modeSince = timestamp;
+        restartCount++;
+    }
+
+    public synchronized int getMode() {
+        return mode;
+    }
+
+    /**
+     * Anzahl der Moduswechsel und damit der Neustarts der Standort-Updates.
+     */
+    public synchronized int getRestartCount() {
+        return restartCount;
+    }
+
+    /**
+     * Gibt das Aktualisierungsintervall für einen Modus zurück.
+     */
+    public static long getIntervalForMode(int mode) {
+        switch (mode) {
+            case LocationPowerPolicy.MODE_HIGH_ACCURACY:
+                return 5000; // 5 Sekunden
+            case LocationPowerPolicy.MODE_LOW_POWER:
+                return 60000; // 1 Minute
+            case LocationPowerPolicy.MODE_BALANCED:
+            default:
+                return 15000; // 15 Sekunden
+        }
+    }
+}
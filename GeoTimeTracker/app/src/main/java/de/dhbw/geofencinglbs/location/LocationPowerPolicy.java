@@ -0,0 +1,20 @@
+package de.dhbw.geofencinglbs.location;
+
+/**
+ * Strategie zur Auswahl des Standortmodus anhand des aktuellen Geräte- und Bewegungszustands.
+ * Eine Policy entscheidet nur über den Zielmodus; Mindestverweildauer und das Zählen der
+ * Neustarts übernimmt der {@link LocationModeController}.
+ */
+public interface LocationPowerPolicy {
+
+    int MODE_HIGH_ACCURACY = 0;
+    int MODE_BALANCED = 1;
+    int MODE_LOW_POWER = 2;
+
+    /**
+     * Gibt den gewünschten Modus für den übergebenen Zustand zurück.
+     *
+     * @param currentMode Aktiver Modus (für Hysterese)
+     */
+    int selectMode(LocationPowerState state, int currentMode);
+}
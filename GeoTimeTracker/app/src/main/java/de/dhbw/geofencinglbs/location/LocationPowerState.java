@@ -0,0 +1,60 @@
+package de.dhbw.geofencinglbs.location;
+
+/**
+ * Unveränderliche Eingabe für eine {@link LocationPowerPolicy}.
+ */
+public final class LocationPowerState {
+
+    /** Ab dieser Geschwindigkeit gilt das Gerät als in Bewegung (ca. langsames Gehen). */
+    static final float MOVING_SPEED = 0.8f;
+
+    private final long timestamp;
+    private final float batteryLevel;
+    private final boolean isCharging;
+    private final float speed;
+    private final double nearestGeofenceDistance;
+
+    /**
+     * @param timestamp               Monotoner Zeitstempel in Millisekunden
+     * @param batteryLevel            Batteriestand in Prozent (-1 wenn unbekannt)
+     * @param speed                   Geschwindigkeit in m/s ({@link Float#NaN}, wenn unbekannt)
+     * @param nearestGeofenceDistance Abstand zur nächsten Geofence-Grenze in Metern
+     *                                ({@link Double#POSITIVE_INFINITY}, wenn keine Geofences aktiv sind)
+     */
+    public LocationPowerState(long timestamp, float batteryLevel, boolean isCharging, float speed,
+                              double nearestGeofenceDistance) {
+        this.timestamp = timestamp;
+        this.batteryLevel = batteryLevel;
+        this.isCharging = isCharging;
+        this.speed = speed;
+        this.nearestGeofenceDistance = nearestGeofenceDistance;
+    }
+
+    public long getTimestamp() {
+        return timestamp;
+    }
+
+    public float getBatteryLevel() {
+        return batteryLevel;
+    }
+
+    public boolean isCharging() {
+        return isCharging;
+    }
+
+    public float getSpeed() {
+        return speed;
+    }
+
+    public double getNearestGeofenceDistance() {
+        return nearestGeofenceDistance;
+    }
+
+    /**
+     * Gibt an, ob sich das Gerät bewegt. Ohne Geschwindigkeitsangabe wird Bewegung angenommen,
+     * damit die Genauigkeit nicht auf Verdacht reduziert wird.
+     */
+    public boolean isMoving() {
+        return Float.isNaN(speed) || speed >= MOVING_SPEED;
+    }
+}
@@ -10,8 +10,11 @@ import android.content.Intent;
 import android.location.Location;
 import android.os.Binder;
 import android.os.Build;
+import android.os.Handler;
+import android.os.HandlerThread;
 import android.os.IBinder;
-import android.os.Looper;
+import android.os.Process;
+import android.os.SystemClock;
 import android.util.Log;
 
 import androidx.annotation.Nullable;
@@ -24,13 +27,29 @@ import com.google.android.gms.location.LocationResult;
 import com.google.android.gms.location.LocationServices;
 import com.google.android.gms.location.Priority;
 
+import java.util.ArrayList;
+import java.util.List;
+
 import de.dhbw.geofencinglbs.R;
+import de.dhbw.geofencinglbs.data.repository.GeofenceRepository;
+import de.dhbw.geofencinglbs.data.trail.LocationTrailStore;
+import de.dhbw.geofencinglbs.geofencing.ExitConfirmationWorker;
+import de.dhbw.geofencinglbs.geofencing.GeofenceManager;
+import de.dhbw.geofencinglbs.geofencing.LocalGeofenceEvaluator;
+import de.dhbw.geofencinglbs.geofencing.TransitionDebouncer;
+import de.dhbw.geofencinglbs.model.GeofenceEvent;
 import de.dhbw.geofencinglbs.ui.MainActivity;
-import de.dhbw.geofencinglbs.util.DeviceInfoUtil;
+import de.dhbw.geofencinglbs.util.DeviceStateMonitor;
+import de.dhbw.geofencinglbs.util.NotificationHelper;
 
 /**
  * Hintergrunddienst für kontinuierliche Standortbestimmung.
  * Implementiert verschiedene Energiesparmodi und passt die Abtastraten entsprechend an.
+ * <p>
+ * Standort-Updates werden auf einem eigenen {@link HandlerThread} zugestellt und verarbeitet;
+ * der Hauptthread bleibt frei für die UI. Zustandsänderungen (Modus, Abtastplan, Neustarts)
+ * erfolgen ausschließlich auf diesem Thread. Auch das Beenden läuft über diesen Thread, damit
+ * keine noch eingereihte Aufgabe die Updates nach dem Stoppen wieder startet.
  */
 public class LocationService extends Service {
 
@@ -39,22 +58,42 @@ public class LocationService extends Service {
     private static final int NOTIFICATION_ID = 1001;
 
     // Verschiedene Prioritätsstufen für unterschiedliche Energiemodi
-    public static final int MODE_HIGH_ACCURACY = 0;
-    public static final int MODE_BALANCED = 1;
-    public static final int MODE_LOW_POWER = 2;
-    private static final long UPDATE_INTERVAL_HIGH_ACCURACY = 5000; // 5 Sekunden
-    private static final long UPDATE_INTERVAL_BALANCED = 15000; // 15 Sekunden
-    private static final long UPDATE_INTERVAL_LOW_POWER = 60000; // 1 Minute
+    public static final int MODE_HIGH_ACCURACY = LocationPowerPolicy.MODE_HIGH_ACCURACY;
+    public static final int MODE_BALANCED = LocationPowerPolicy.MODE_BALANCED;
+    public static final int MODE_LOW_POWER = LocationPowerPolicy.MODE_LOW_POWER;
 
     private final IBinder binder = new LocalBinder();
     private FusedLocationProviderClient fusedLocationClient;
     private LocationCallback locationCallback;
     private LocationRequest locationRequest;
-    private Location lastLocation;
-    private int currentMode = MODE_BALANCED; // Standard-Modus
-    private LocationListener locationListener;
-    private String currentProviderDetails = "Initializing...";
-    private long lastUpdateTime = 0;
+    private HandlerThread locationThread;
+    private Handler locationHandler;
+    private final LocationFixTracer fixTracer = new LocationFixTracer();
+
+    // Vom Standort-Thread geschrieben, von der UI gelesen
+    private volatile Location lastLocation;
+    private volatile int currentMode = MODE_BALANCED; // Standard-Modus
+    private volatile LocationListener locationListener;
+    private volatile ProviderInfo currentProviderInfo;
+    private volatile long lastUpdateTime = 0;
+    // Ab onDestroy gesetzt; eingereihte Aufgaben auf dem Standort-Thread brechen dann ab
+    private volatile boolean destroyed;
+    private GeofenceRepository repository;
+    private GeofenceManager geofenceManager;
+    private DeviceStateMonitor deviceStateMonitor;
+    // Wird auf dem Standort-Thread geöffnet (Dateizugriffe); bis dahin null
+    private LocationTrailStore trailStore;
+    private final LocationModeController modeController = new LocationModeController(
+            new HysteresisPowerPolicy(), LocationModeController.DEFAULT_MIN_DWELL_MS, MODE_BALANCED);
+
+    // Abtastung abhängig vom Abstand zur nächsten Geofence-Grenze (null: Standard des Modus)
+    private final ProximitySamplingScheduler samplingScheduler = new ProximitySamplingScheduler();
+    private ProximitySamplingScheduler.Schedule currentSchedule;
+    private volatile int scheduleRestartCount;
+
+    // Geschätzte GPS-Einschaltdauer seit dem Start der Standort-Updates
+    private volatile long gpsOnMs;
+    private volatile long trackingStartTime;
 
     /**
      * Binder-Klasse für die Service-Verbindung.
@@ -69,118 +108,216 @@ public class LocationService extends Service {
     public void onCreate() {
         super.onCreate();
 
+        locationThread = new HandlerThread("LocationService", Process.THREAD_PRIORITY_BACKGROUND);
+        locationThread.start();
+        locationHandler = new Handler(locationThread.getLooper());
+
         fusedLocationClient = LocationServices.getFusedLocationProviderClient(this);
+        repository = GeofenceRepository.getInstance(getApplication());
+        geofenceManager = GeofenceManager.getInstance(this);
+        deviceStateMonitor = DeviceStateMonitor.getInstance(this);
+        // Segmentdateien nicht auf dem Hauptthread öffnen
+        locationHandler.post(() -> trailStore = LocationTrailStore.getInstance(this));
         createLocationCallback();
         createLocationRequest();
         createNotificationChannel();
     }
 
     /**
-     * Erstellt den LocationCallback, der Standortaktualisierungen empfängt.
+     * Erstellt den LocationCallback, der Standortaktualisierungen auf dem Standort-Thread empfängt.
      */
     private void createLocationCallback() {
         locationCallback = new LocationCallback() {
             @Override
             public void onLocationResult(LocationResult locationResult) {
-                if (locationResult == null) {
+                if (destroyed || locationResult == null || locationResult.getLocations().isEmpty()) {
                     return;
                 }
-
-                for (Location location : locationResult.getLocations()) {
-                    // Aktualisiere den letzten bekannten Standort
-                    lastLocation = location;
-                    lastUpdateTime = System.currentTimeMillis();
-
-                    // Analysiere den Provider für mehr Details
-                    currentProviderDetails = analyzeProvider(location);
-
-                    // Erfasse Metadaten für die Analyse
-                    float batteryLevel = DeviceInfoUtil.getBatteryLevel(LocationService.this);
-                    boolean isCharging = DeviceInfoUtil.isDeviceCharging(LocationService.this);
-                    String networkType = DeviceInfoUtil.getNetworkConnectionType(LocationService.this);
-
-                    // Logge Standortinformationen
-                    Log.d(TAG, String.format("Location update: %.6f, %.6f (Accuracy: %.2fm, Provider: %s, Battery: %.1f%%)",
-                            location.getLatitude(), location.getLongitude(),
-                            location.getAccuracy(), currentProviderDetails, batteryLevel));
-
-                    // Benachrichtige Listener (falls vorhanden)
-                    if (locationListener != null) {
-                        locationListener.onLocationChanged(location, batteryLevel, isCharging, networkType, currentProviderDetails);
-                    }
-
-                    // Broadcast zur App-weiten Benachrichtigung
-                    Intent updateIntent = new Intent("de.dhbw.geofencinglbs.LOCATION_UPDATED");
-                    updateIntent.putExtra("accuracy", location.getAccuracy());
-                    updateIntent.putExtra("provider", currentProviderDetails);
-                    sendBroadcast(updateIntent);
-
-                    // Adaptive Anpassung des Standortmodus basierend auf Batteriestatus
-                    adaptLocationUpdateRate(batteryLevel, isCharging);
+                List<Location> locations = locationResult.getLocations();
+                fixTracer.onFixes(locations.size());
+                long start = fixTracer.beginSection("LocationService.onLocationBatch");
+                try {
+                    onLocationBatch(locations);
+                } finally {
+                    fixTracer.endSection(start);
                 }
             }
         };
     }
 
     /**
-     * Analysiert den Provider und gibt detaillierte Informationen zurück
+     * Verarbeitet alle Standorte einer (ggf. gebündelten) Zustellung als Einheit.
+     * Erlaubt der Abtastplan eine Verzögerung (weit entfernt von Geofence-Grenzen), liefert der
+     * FusedLocationProvider mehrere Standorte auf einmal;
+     * UI, Broadcast und Moduswechsel hängen nur vom neuesten Standort ab und werden daher
+     * einmal pro Zustellung ausgeführt. Alle Standorte werden lokal ausgewertet und
+     * die erkannten Übergänge gemeinsam gespeichert.
+     */
+    private void onLocationBatch(List<Location> locations) {
+        Location newest = locations.get(locations.size() - 1);
+
+        // Aktualisiere den letzten bekannten Standort
+        lastLocation = newest;
+        lastUpdateTime = System.currentTimeMillis();
+
+        // Alle Fixes im Standortverlauf festhalten (Nachvollziehen und Replay von Übergängen);
+        // solange der Speicher noch nicht geöffnet ist, wird nichts aufgezeichnet
+        if (trailStore != null) {
+            for (Location location : locations) {
+                trailStore.append(location.getTime(), location.getLatitude(), location.getLongitude(),
+                        location.getAccuracy(), location.hasSpeed() ? location.getSpeed() : Float.NaN);
+            }
+        }
+
+        // Erfasse Metadaten für die Analyse (zwischengespeicherter Gerätestatus, kein Systemaufruf)
+        DeviceStateMonitor.Snapshot deviceState = deviceStateMonitor.getSnapshot();
+        float batteryLevel = deviceState.getBatteryLevel();
+        boolean isCharging = deviceState.isCharging();
+        String networkType = deviceState.getNetworkType();
+
+        // Provider klassifizieren (wiederverwendete Instanz, Text erst bei der Anzeige)
+        ProviderInfo providerInfo = ProviderInfo.of(newest);
+        currentProviderInfo = providerInfo;
+
+        // Logge Standortinformationen (Rohwerte; der Anzeigetext entsteht nur in der UI)
+        Log.d(TAG, String.format("Location update (%d fixes): %.6f, %.6f (Accuracy: %.2fm, Provider: %s/%d, Network: %s, Battery: %.1f%%)",
+                locations.size(), newest.getLatitude(), newest.getLongitude(), newest.getAccuracy(),
+                providerInfo.getSource(), providerInfo.getSatelliteCount(), networkType, batteryLevel));
+
+        // Benachrichtige Listener (falls vorhanden) - auf dem Standort-Thread
+        LocationListener listener = locationListener;
+        if (listener != null) {
+            listener.onLocationChanged(newest, batteryLevel, isCharging, networkType, providerInfo);
+        }
+
+        // Fenster der registrierten Geofences bei Bedarf verschieben
+        geofenceManager.onLocationChanged(newest);
+
+        // Geladene, aber nicht registrierte Geofences lokal auswerten
+        evaluateLocalGeofences(locations, batteryLevel, isCharging, networkType);
+
+        // Broadcast zur App-weiten Benachrichtigung
+        Intent updateIntent = new Intent("de.dhbw.geofencinglbs.LOCATION_UPDATED");
+        updateIntent.putExtra("accuracy", newest.getAccuracy());
+        updateIntent.putExtra("provider", providerInfo.getSource().getProviderName());
+        updateIntent.putExtra("satellites", providerInfo.getSatelliteCount());
+        updateIntent.putExtra("batch_size", locations.size());
+        sendBroadcast(updateIntent);
+
+        // Geschätzte GPS-Zeit der zugestellten Fixes (mit dem bisherigen Plan aufgenommen)
+        gpsOnMs += locations.size() * ProximitySamplingScheduler.estimateGpsOnMs(getEffectiveSchedule());
+
+        // Standortmodus (Akku, Bewegung) und Abtastintervall (Geofence-Nähe) anpassen
+        adaptSampling(newest, batteryLevel, isCharging);
+    }
+
+    /**
+     * Wertet die lokal überwachten Geofences für alle Standorte einer Zustellung in zeitlicher
+     * Reihenfolge aus und speichert erkannte Übergänge wie Ereignisse des GeofencingClient
+     * in einer gemeinsamen Transaktion. Alle Übergänge laufen durch den Entpreller; dabei
+     * werden auch zurückgehaltene EXIT-Ereignisse des GeofencingClient bestätigt.
      */
-    private String analyzeProvider(Location location) {
-        String baseProvider = location.getProvider();
-        StringBuilder details = new StringBuilder(baseProvider);
-
-        // Zusätzliche Informationen je nach Provider-Typ
-        if ("gps".equals(baseProvider)) {
-            if (Build.VERSION.SDK_INT >= Build.VERSION_CODES.O) {
-                details.append(" (Satellites: ").append(location.getExtras() != null &&
-                        location.getExtras().containsKey("satellites") ?
-                        location.getExtras().getInt("satellites") : "unknown").append(")");
+    private void evaluateLocalGeofences(List<Location> locations, float batteryLevel, boolean isCharging,
+                                        String networkType) {
+        LocalGeofenceEvaluator evaluator = geofenceManager.getLocalEvaluator();
+        LocationFilter filter = geofenceManager.getLocationFilter();
+        TransitionDebouncer debouncer = geofenceManager.getTransitionDebouncer();
+        List<GeofenceEvent> events = new ArrayList<>();
+        boolean exitHeld = false;
+        for (Location location : locations) {
+            // Ausreißer verwerfen und mit der geglätteten Position auswerten, damit Rauschen
+            // an der Grenze keine ENTER/EXIT-Folgen auslöst
+            if (!filter.update(location.getTime(), location.getLatitude(), location.getLongitude(),
+                    location.hasAccuracy() ? location.getAccuracy() : 0)) {
+                Log.d(TAG, "Outlier rejected: " + location.getLatitude() + ", " + location.getLongitude()
+                        + " (Accuracy: " + location.getAccuracy() + "m)");
+                continue;
             }
-        } else if ("network".equals(baseProvider)) {
-            details.append(" (").append(DeviceInfoUtil.getNetworkConnectionType(this)).append(")");
-        } else if ("fused".equals(baseProvider)) {
-            // Fused provider kombiniert verschiedene Quellen
-            details.append(" (Hybrid)");
-
-            // Versuche tiefere Sensor-Informationen zu erhalten
-            if (location.getExtras() != null) {
-                for (String key : location.getExtras().keySet()) {
-                    details.append(", ").append(key).append("=").append(location.getExtras().get(key));
+            double latitude = filter.getLatitude();
+            double longitude = filter.getLongitude();
+            events.addAll(debouncer.onLocation(latitude, longitude, location.getTime()));
+
+            List<LocalGeofenceEvaluator.Transition> transitions = evaluator.evaluate(
+                    latitude, longitude, location.getTime());
+            for (LocalGeofenceEvaluator.Transition transition : transitions) {
+                // Bei gebündelten Standorten zählt der Zeitpunkt des Fixes, nicht der Zustellung
+                GeofenceEvent event = new GeofenceEvent(
+                        transition.getGeofence().getId(),
+                        transition.getEventType(),
+                        location.getTime(),
+                        latitude,
+                        longitude,
+                        filter.getAccuracy(),
+                        location.getProvider(),
+                        batteryLevel,
+                        isCharging,
+                        networkType
+                );
+                if (debouncer.submit(event, transition.getGeofence()) != null) {
+                    events.add(event);
+                } else if (event.getEventType() == GeofenceEvent.TYPE_EXIT) {
+                    exitHeld = true;
                 }
             }
         }
+        if (exitHeld) {
+            // Bestätigung auch dann, wenn der Dienst vorher beendet wird
+            ExitConfirmationWorker.scheduleIfPending(this, debouncer);
+        }
+        if (events.isEmpty()) {
+            return;
+        }
+
+        // Alle Übergänge dieser Zustellung in einer Transaktion speichern
+        repository.insertEventsAndUpdateGeofences(events, null);
 
-        // Füge Genauigkeitsklasse hinzu
-        if (location.getAccuracy() < 10) {
-            details.append(" [Hochpräzise]");
-        } else if (location.getAccuracy() < 50) {
-            details.append(" [Gut]");
-        } else if (location.getAccuracy() < 100) {
-            details.append(" [Mittel]");
-        } else {
-            details.append(" [Grob]");
+        for (GeofenceEvent event : events) {
+            NotificationHelper.showGeofenceNotification(this, event);
+            Log.d(TAG, "Geofence transition: " + event.getGeofenceId() + " -> " + event.getEventTypeString());
         }
 
-        return details.toString();
+        // Broadcast für Live-Updates in der UI (wie im GeofenceBroadcastReceiver)
+        Intent broadcastIntent = new Intent("de.dhbw.geofencinglbs.GEOFENCE_TRANSITION");
+        broadcastIntent.putExtra("transition_type",
+                NotificationHelper.toPlatformTransition(events.get(events.size() - 1).getEventType()));
+        sendBroadcast(broadcastIntent);
     }
 
     /**
-     * Erstellt die LocationRequest-Konfiguration basierend auf dem aktuellen Modus.
+     * Erstellt die LocationRequest-Konfiguration basierend auf dem aktuellen Abtastplan.
      */
     private void createLocationRequest() {
-        locationRequest = new LocationRequest.Builder(getPriorityForMode(currentMode), getIntervalForMode(currentMode))
-                .setMinUpdateIntervalMillis(getIntervalForMode(currentMode) / 2)
-                .setMaxUpdateDelayMillis(getIntervalForMode(currentMode) * 2)
+        ProximitySamplingScheduler.Schedule schedule = getEffectiveSchedule();
+        long interval = schedule.getIntervalMs();
+        locationRequest = new LocationRequest.Builder(getPriorityForMode(schedule.getPriorityMode()), interval)
+                .setMinUpdateIntervalMillis(interval / 2)
+                .setMaxUpdateDelayMillis(schedule.getMaxUpdateDelayMs())
                 .build();
     }
 
+    /**
+     * Aktueller Abtastplan; ohne Standort gilt das Intervall des Standortmodus.
+     */
+    private ProximitySamplingScheduler.Schedule getEffectiveSchedule() {
+        if (currentSchedule != null) {
+            return currentSchedule;
+        }
+        return new ProximitySamplingScheduler.Schedule(getIntervalForMode(currentMode), currentMode);
+    }
+
     @SuppressWarnings("MissingPermission") // Die Berechtigungen werden in der Activity überprüft
     private void startLocationUpdates() {
+        if (destroyed) {
+            return;
+        }
         try {
             fusedLocationClient.requestLocationUpdates(locationRequest,
                     locationCallback,
-                    Looper.getMainLooper());
-            Log.d(TAG, "Started location updates with interval: " + getIntervalForMode(currentMode) + "ms");
+                    locationThread.getLooper());
+            if (trackingStartTime == 0) {
+                trackingStartTime = SystemClock.elapsedRealtime();
+            }
+            Log.d(TAG, "Started location updates with interval: " + getEffectiveSchedule().getIntervalMs() + "ms");
         } catch (SecurityException e) {
             Log.e(TAG, "Lost location permission: " + e.getMessage());
         }
@@ -195,10 +332,46 @@ public class LocationService extends Service {
     }
 
     /**
-     * Setzt den Standortmodus und aktualisiert die LocationRequest-Konfiguration.
+     * Setzt den Standortmodus manuell. Die automatische Anpassung hält den Modus
+     * danach mindestens für die Mindestverweildauer bei. Kann von jedem Thread aufgerufen
+     * werden; der Wechsel erfolgt auf dem Standort-Thread.
      */
     public void setLocationMode(int mode) {
+        locationHandler.post(() -> {
+            if (!destroyed && modeController.setMode(mode, SystemClock.elapsedRealtime())) {
+                applyLocationMode(mode);
+            }
+        });
+    }
+
+    /**
+     * Aktualisiert die LocationRequest-Konfiguration für den Modus und startet die Updates neu.
+     */
+    private void applyLocationMode(int mode) {
         this.currentMode = mode;
+        // Abtastplan mit dem neuen Modus als Untergrenze neu berechnen
+        currentSchedule = lastLocation != null ? computeSchedule(lastLocation,
+                geofenceManager.getNearestGeofenceDistance(lastLocation.getLatitude(), lastLocation.getLongitude()))
+                : null;
+        restartLocationUpdates();
+        onLocationModeChanged();
+    }
+
+    private void onLocationModeChanged() {
+        Log.d(TAG, "Location mode changed to: " + getModeString()
+                + " (restarts: " + modeController.getRestartCount() + ")");
+
+        // Aktualisiere die Notification
+        NotificationManager notificationManager = getSystemService(NotificationManager.class);
+        if (notificationManager != null) {
+            notificationManager.notify(NOTIFICATION_ID, createNotification());
+        }
+    }
+
+    /**
+     * Erstellt die LocationRequest-Konfiguration neu und startet die Updates neu, falls aktiv.
+     */
+    private void restartLocationUpdates() {
         createLocationRequest();
 
         // Wenn bereits aktiv, aktualisieren
@@ -206,39 +379,71 @@ public class LocationService extends Service {
             stopLocationUpdates();
             startLocationUpdates();
         }
+    }
 
-        Log.d(TAG, "Location mode changed to: " + getModeString());
+    /**
+     * Passt Standortmodus (Power-Policy) und Abtastplan (Abstand zur nächsten Geofence-Grenze)
+     * an. Die Standort-Updates werden höchstens einmal und nur bei einer Änderung neu gestartet.
+     */
+    private void adaptSampling(Location location, float batteryLevel, boolean isCharging) {
+        double distance = geofenceManager.getNearestGeofenceDistance(location.getLatitude(), location.getLongitude());
+        LocationPowerState state = new LocationPowerState(
+                SystemClock.elapsedRealtime(),
+                batteryLevel,
+                isCharging,
+                location.hasSpeed() ? location.getSpeed() : Float.NaN,
+                distance);
+        boolean modeChanged = modeController.update(state);
+        if (modeChanged) {
+            currentMode = modeController.getMode();
+        }
 
-        // Aktualisiere die Notification
-        NotificationManager notificationManager = getSystemService(NotificationManager.class);
-        if (notificationManager != null) {
-            notificationManager.notify(NOTIFICATION_ID, createNotification());
+        ProximitySamplingScheduler.Schedule next = computeSchedule(location, distance);
+        boolean scheduleChanged = !next.equals(currentSchedule)
+                && (modeChanged || samplingScheduler.shouldApply(currentSchedule, next));
+        if (scheduleChanged) {
+            currentSchedule = next;
+            scheduleRestartCount++;
+            Log.d(TAG, String.format("Sampling schedule: %d ms, priority %d, max delay %d ms (edge distance %.0f m, GPS %d s/h)",
+                    next.getIntervalMs(), next.getPriorityMode(), next.getMaxUpdateDelayMs(), distance,
+                    getGpsOnSecondsPerHour()));
+        }
+        if (modeChanged || scheduleChanged) {
+            restartLocationUpdates();
+        }
+        if (modeChanged) {
+            onLocationModeChanged();
         }
     }
 
+    private ProximitySamplingScheduler.Schedule computeSchedule(Location location, double distance) {
+        return samplingScheduler.schedule(distance,
+                location.hasSpeed() ? location.getSpeed() : Float.NaN, currentMode);
+    }
+
     /**
-     * Passt die Aktualisierungsrate basierend auf Batteriestatus an.
+     * Anzahl der Neustarts der Standort-Updates durch Moduswechsel.
      */
-    private void adaptLocationUpdateRate(float batteryLevel, boolean isCharging) {
-        // Wenn das Gerät geladen wird, verwenden wir immer den hochpräzisen Modus
-        if (isCharging) {
-            if (currentMode != MODE_HIGH_ACCURACY) {
-                setLocationMode(MODE_HIGH_ACCURACY);
-            }
-            return;
-        }
+    public int getModeRestartCount() {
+        return modeController.getRestartCount();
+    }
+
+    /**
+     * Anzahl der Neustarts der Standort-Updates durch Änderungen des Abtastplans.
+     */
+    public int getScheduleRestartCount() {
+        return scheduleRestartCount;
+    }
 
-        // Batterie-basierte Anpassung
-        if (batteryLevel < 15 && currentMode != MODE_LOW_POWER) {
-            // Bei kritischem Batteriestand in den Energiesparmodus wechseln
-            setLocationMode(MODE_LOW_POWER);
-        } else if (batteryLevel < 30 && currentMode == MODE_HIGH_ACCURACY) {
-            // Bei niedrigem Batteriestand in den ausgewogenen Modus wechseln
-            setLocationMode(MODE_BALANCED);
-        } else if (batteryLevel > 50 && currentMode == MODE_LOW_POWER) {
-            // Bei ausreichendem Batteriestand in den ausgewogenen Modus wechseln
-            setLocationMode(MODE_BALANCED);
+    /**
+     * Geschätzte GPS-Einschaltdauer in Sekunden pro Stunde seit dem Start der Standort-Updates.
+     */
+    public long getGpsOnSecondsPerHour() {
+        long elapsedMs = SystemClock.elapsedRealtime() - trackingStartTime;
+        if (trackingStartTime == 0 || elapsedMs <= 0) {
+            return 0;
         }
+        return gpsOnMs * 3600 / elapsedMs;
     }
 
     /**
@@ -261,16 +466,7 @@ public class LocationService extends Service {
      * Gibt das Aktualisierungsintervall basierend auf dem aktuellen Modus zurück.
      */
     private long getIntervalForMode(int mode) {
-        switch (mode) {
-            case MODE_HIGH_ACCURACY:
-                return UPDATE_INTERVAL_HIGH_ACCURACY;
-            case MODE_BALANCED:
-                return UPDATE_INTERVAL_BALANCED;
-            case MODE_LOW_POWER:
-                return UPDATE_INTERVAL_LOW_POWER;
-            default:
-                return UPDATE_INTERVAL_BALANCED;
-        }
+        return LocationModeController.getIntervalForMode(mode);
     }
 
     /**
@@ -339,8 +535,8 @@ public class LocationService extends Service {
         // Als Vordergrunddienst starten (erforderlich für Android 8.0+)
         startForeground(NOTIFICATION_ID, createNotification());
 
-        // Standortaktualisierungen starten
-        startLocationUpdates();
+        // Standortaktualisierungen auf dem Standort-Thread starten
+        locationHandler.post(this::startLocationUpdates);
 
         // Service neu starten, wenn er vom System beendet wird
         return START_STICKY;
@@ -349,7 +545,17 @@ public class LocationService extends Service {
     @Override
     public void onDestroy() {
         Log.d(TAG, "Service onDestroy");
-        stopLocationUpdates();
+        destroyed = true;
+        // Nach allen bereits eingereihten Aufgaben auf dem Standort-Thread stoppen und speichern;
+        // quitSafely arbeitet diese noch ab, bevor der Thread endet
+        locationHandler.post(() -> {
+            stopLocationUpdates();
+            if (trailStore != null) {
+                trailStore.flush();
+            }
+            Log.d(TAG, "Location processing: " + fixTracer);
+        });
+        locationThread.quitSafely();
         super.onDestroy();
     }
 
@@ -360,12 +566,20 @@ public class LocationService extends Service {
     }
 
     /**
-     * Setzt einen Listener für Standortaktualisierungen.
+     * Setzt einen Listener für Standortaktualisierungen ({@code null} entfernt ihn).
      */
     public void setLocationListener(LocationListener listener) {
         this.locationListener = listener;
     }
 
+    /**
+     * Gibt den Tracer für die Verarbeitungszeit pro Fix zurück. Listener können ihre Arbeit
+     * auf dem Hauptthread damit messen.
+     */
+    public LocationFixTracer getFixTracer() {
+        return fixTracer;
+    }
+
     /**
      * Gibt den letzten bekannten Standort zurück.
      */
@@ -381,17 +595,22 @@ public class LocationService extends Service {
     }
 
     /**
-     * Gibt die Details zum aktuellen Provider zurück
+     * Gibt die Klassifizierung des Providers des letzten Standorts zurück
+     * ({@code null} vor dem ersten Standort).
      */
-    public String getCurrentProviderDetails() {
-        return currentProviderDetails;
+    public ProviderInfo getCurrentProviderInfo() {
+        return currentProviderInfo;
     }
 
     /**
      * Interface für Standortaktualisierungen.
+     * <p>
+     * Threading: {@link #onLocationChanged} wird auf dem Standort-Thread des Service aufgerufen,
+     * nie auf dem Hauptthread. Implementierungen müssen schnell zurückkehren und UI-Zugriffe
+     * selbst auf den Hauptthread verlagern.
      */
     public interface LocationListener {
         void onLocationChanged(Location location, float batteryLevel, boolean isCharging,
-                               String networkType, String providerDetails);
+                               String networkType, ProviderInfo providerInfo);
     }
 }
\ No newline at end of file
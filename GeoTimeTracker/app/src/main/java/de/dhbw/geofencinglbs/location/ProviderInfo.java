@@ -0,0 +1,190 @@
+package de.dhbw.geofencinglbs.location;
+
+import android.location.Location;
+import android.os.Bundle;
+
+/**
+ * Kompakte Beschreibung der Quelle eines Standort-Fixes: Provider, Anzahl der Satelliten
+ * und Genauigkeitsklasse. Instanzen sind unveränderlich und werden aus einer vorab
+ * befüllten Tabelle wiederverwendet, sodass die Klassifizierung pro Fix nichts alloziert.
+ * Der Anzeigetext wird erst mit {@link #format(String)} erzeugt, wenn eine View ihn darstellt.
+ */
+public final class ProviderInfo {
+
+    /** Anzahl der Satelliten ist nicht bekannt. */
+    public static final int UNKNOWN_SATELLITES = -1;
+    /** Bis zu dieser Anzahl an Satelliten werden Instanzen wiederverwendet. */
+    static final int MAX_CACHED_SATELLITES = 63;
+
+    private static final String SATELLITES_EXTRA = "satellites";
+
+    /**
+     * Herkunft des Fixes.
+     */
+    public enum Source {
+        GPS("gps"),
+        NETWORK("network"),
+        FUSED("fused"),
+        OTHER("other");
+
+        private final String providerName;
+
+        Source(String providerName) {
+            this.providerName = providerName;
+        }
+
+        public String getProviderName() {
+            return providerName;
+        }
+
+        static Source of(String provider) {
+            if (GPS.providerName.equals(provider)) {
+                return GPS;
+            } else if (NETWORK.providerName.equals(provider)) {
+                return NETWORK;
+            } else if (FUSED.providerName.equals(provider)) {
+                return FUSED;
+            }
+            return OTHER;
+        }
+    }
+
+    /**
+     * Genauigkeitsklasse anhand des Genauigkeitsradius.
+     */
+    public enum AccuracyClass {
+        HIGH("Hochpräzise"),
+        GOOD("Gut"),
+        MEDIUM("Mittel"),
+        COARSE("Grob");
+
+        private final String label;
+
+        AccuracyClass(String label) {
+            this.label = label;
+        }
+
+        public String getLabel() {
+            return label;
+        }
+
+        static AccuracyClass of(float accuracy) {
+            if (accuracy < 10) {
+                return HIGH;
+            } else if (accuracy < 50) {
+                return GOOD;
+            } else if (accuracy < 100) {
+                return MEDIUM;
+            }
+            return COARSE;
+        }
+    }
+
+    // [Source][AccuracyClass][Satelliten + 1]
+    private static final ProviderInfo[][][] CACHE = createCache();
+
+    private final Source source;
+    private final AccuracyClass accuracyClass;
+    private final int satelliteCount;
+
+    private ProviderInfo(Source source, AccuracyClass accuracyClass, int satelliteCount) {
+        this.source = source;
+        this.accuracyClass = accuracyClass;
+        this.satelliteCount = satelliteCount;
+    }
+
+    private static ProviderInfo[][][] createCache() {
+        Source[] sources = Source.values();
+        AccuracyClass[] classes = AccuracyClass.values();
+        ProviderInfo[][][] cache = new ProviderInfo[sources.length][classes.length][MAX_CACHED_SATELLITES + 2];
+        for (Source source : sources) {
+            for (AccuracyClass accuracyClass : classes) {
+                for (int satellites = UNKNOWN_SATELLITES; satellites <= MAX_CACHED_SATELLITES; satellites++) {
+                    cache[source.ordinal()][accuracyClass.ordinal()][satellites + 1] =
+                            new ProviderInfo(source, accuracyClass, satellites);
+                }
+            }
+        }
+        return cache;
+    }
+
+    /**
+     * Klassifiziert einen Standort. Die Extras werden nur nach der Anzahl der Satelliten
+     * gefragt, nicht vollständig durchlaufen.
+     */
+    public static ProviderInfo of(Location location) {
+        Bundle extras = location.getExtras();
+        int satellites = extras != null ? extras.getInt(SATELLITES_EXTRA, UNKNOWN_SATELLITES) : UNKNOWN_SATELLITES;
+        return of(location.getProvider(), location.getAccuracy(), satellites);
+    }
+
+    /**
+     * Gibt die (wiederverwendete) Instanz für Provider, Genauigkeit und Satellitenanzahl zurück.
+     */
+    public static ProviderInfo of(String provider, float accuracy, int satellites) {
+        Source source = Source.of(provider);
+        AccuracyClass accuracyClass = AccuracyClass.of(accuracy);
+        if (satellites < UNKNOWN_SATELLITES) {
+            satellites = UNKNOWN_SATELLITES;
+        }
+        if (satellites > MAX_CACHED_SATELLITES) {
+            return new ProviderInfo(source, accuracyClass, satellites);
+        }
+        return CACHE[source.ordinal()][accuracyClass.ordinal()][satellites + 1];
+    }
+
+    public Source getSource() {
+        return source;
+    }
+
+    public AccuracyClass getAccuracyClass() {
+        return accuracyClass;
+    }
+
+    /**
+     * Anzahl der Satelliten ({@link #UNKNOWN_SATELLITES}, wenn nicht gemeldet).
+     */
+    public int getSatelliteCount() {
+        return satelliteCount;
+    }
+
+    /**
+     * Erzeugt den Anzeigetext, z.B. "gps (Satellites: 8) [Hochpräzise]".
+     *
+     * @param networkType Netzwerktyp, der bei Netzwerk-Fixes angezeigt wird
+     */
+    public String format(String networkType) {
+        StringBuilder details = new StringBuilder(source.providerName);
+        switch (source) {
+            case GPS:
+                details.append(" (Satellites: ");
+                if (satelliteCount == UNKNOWN_SATELLITES) {
+                    details.append("unknown");
+                } else {
+                    details.append(satelliteCount);
+                }
+                details.append(')');
+                break;
+            case NETWORK:
+                details.append(" (").append(networkType).append(')');
+                break;
+            case FUSED:
+                // Fused provider kombiniert verschiedene Quellen
+                details.append(" (Hybrid");
+                if (satelliteCount != UNKNOWN_SATELLITES) {
+                    details.append(", satellites=").append(satelliteCount);
+                }
+                details.append(')');
+                break;
+            default:
+                break;
+        }
+        details.append(" [").append(accuracyClass.label).append(']');
+        return details.toString();
+    }
+
+    @Override
+    public String toString() {
+        return format("-");
+    }
+}
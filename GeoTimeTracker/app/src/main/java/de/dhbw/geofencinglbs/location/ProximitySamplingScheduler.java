@@ -0,0 +1,189 @@
+package de.dhbw.geofencinglbs.location;
+
+/**
+ * Bestimmt Intervall und Priorität des nächsten Standort-Fixes aus dem Abstand zur
+ * nächsten Geofence-Grenze. Aus dem Abstand und einer oberen Schranke der Geschwindigkeit
+ * ergibt sich die früheste Zeit, zu der die Grenze erreicht werden kann; der nächste Fix
+ * erfolgt nach der Hälfte dieser Zeit. Dadurch wird nur in der Nähe von Grenzen dicht abgetastet.
+ * Das Intervall des Standortmodus (Akku) bildet die Untergrenze.
+ * <p>
+ * Gebündelte Zustellung (maximale Verzögerung) wird nur erlaubt, solange die gebündelten Fixes
+ * zugestellt sind, bevor die Grenze frühestens erreicht werden kann; sonst würde der dichtere
+ * Plan erst nach dem Übertritt angewendet und das Ereignis verspätet erkannt.
+ */
+public class ProximitySamplingScheduler {
+
+    /** Längstes Intervall, auch weit entfernt von allen Geofences. */
+    static final long MAX_INTERVAL_MS = 5 * 60 * 1000;
+    /** Anteil der geschätzten Zeit bis zur Grenze, nach der der nächste Fix erfolgt. */
+    static final double SAFETY_FACTOR = 0.5;
+    /** Angenommene Geschwindigkeit ohne Messwert (Stadtverkehr, m/s). */
+    static final float UNKNOWN_SPEED = 15f;
+    /** Mindestgeschwindigkeit der Schranke, damit ein Losfahren nicht übersehen wird (m/s). */
+    static final float MIN_SPEED_BOUND = 3f;
+    /** Aufschlag auf die gemessene Geschwindigkeit (Beschleunigung bis zum nächsten Fix). */
+    static final float SPEED_MARGIN = 1.5f;
+
+    /** Bis zu diesem Intervall wird das GPS benötigt (hohe Genauigkeit). */
+    static final long HIGH_ACCURACY_MAX_INTERVAL_MS = 20 * 1000;
+    /** Bis zu diesem Intervall wird die ausgewogene Priorität verwendet. */
+    static final long BALANCED_MAX_INTERVAL_MS = 2 * 60 * 1000;
+    /** Geschätzte GPS-Einschaltdauer pro Fix bei warmem Empfänger. */
+    static final long GPS_ON_PER_FIX_MS = 5000;
+
+    /** Maximale Verzögerung der Zustellung als Vielfaches des Intervalls (Bündelung von Fixes). */
+    static final int BATCH_FACTOR = 2;
+
+    /** Ein längeres Intervall wird erst übernommen, wenn es das aktuelle um diesen Faktor übersteigt. */
+    static final double LENGTHEN_FACTOR = 1.5;
+
+    /**
+     * Zulässige Intervalle. Berechnete Intervalle werden auf die nächstkleinere Stufe abgerundet,
+     * damit nicht jeder Fix mit leicht verändertem Abstand einen Neustart auslöst.
+     */
+    static final long[] INTERVAL_STEPS_MS = {
+            5000, 10000, 15000, 20000, 30000, 45000, 60000, 90000, 120000, 180000, 240000, 300000
+    };
+
+    /**
+     * Berechnet den Abtastplan für den nächsten Fix.
+     *
+     * @param edgeDistance Abstand zur nächsten Geofence-Grenze in Metern (negativ innerhalb)
+     * @param speed        Gemessene Geschwindigkeit in m/s ({@link Float#NaN}, wenn unbekannt)
+     * @param mode         Standortmodus der Power-Policy (bestimmt Mindestintervall und höchste Priorität)
+     */
+    public Schedule schedule(double edgeDistance, float speed, int mode) {
+        long minInterval = LocationModeController.getIntervalForMode(mode);
+
+        float speedBound = Float.isNaN(speed) ? UNKNOWN_SPEED : Math.max(speed * SPEED_MARGIN, MIN_SPEED_BOUND);
+        double timeToBoundaryMs = Math.abs(edgeDistance) / speedBound * 1000;
+        long interval = Double.isInfinite(timeToBoundaryMs)
+                ? MAX_INTERVAL_MS
+                : (long) Math.min(MAX_INTERVAL_MS, timeToBoundaryMs * SAFETY_FACTOR);
+        interval = Math.max(minInterval, quantize(interval));
+
+        // Priorität höchstens so hoch wie die des Standortmodus
+        return new Schedule(interval, Math.max(mode, priorityForInterval(interval)),
+                maxUpdateDelay(interval, timeToBoundaryMs));
+    }
+
+    /**
+     * Maximale Verzögerung der Zustellung: Bündeln nur, wenn der nächste Fix samt Verzögerung
+     * noch vor der frühesten Ankunft an der Grenze zugestellt wird, sonst sofortige Zustellung.
+     */
+    static long maxUpdateDelay(long intervalMs, double timeToBoundaryMs) {
+        if (intervalMs <= HIGH_ACCURACY_MAX_INTERVAL_MS) {
+            return 0;
+        }
+        long delay = intervalMs * BATCH_FACTOR;
+        return intervalMs + delay <= timeToBoundaryMs ? delay : 0;
+    }
+
+    /**
+     * Gibt an, ob der neue Plan übernommen werden soll. Kürzere Intervalle, höhere
+     * Prioritäten und kürzere Verzögerungen gelten sofort; längere erst, wenn sie sich deutlich unterscheiden, damit
+     * kleine Schwankungen des Abstands die Standort-Updates nicht neu starten.
+     */
+    public boolean shouldApply(Schedule current, Schedule next) {
+        if (current == null) {
+            return true;
+        }
+        if (next.intervalMs < current.intervalMs || next.priorityMode < current.priorityMode
+                || next.maxUpdateDelayMs < current.maxUpdateDelayMs) {
+            return true;
+        }
+        return next.intervalMs >= current.intervalMs * LENGTHEN_FACTOR;
+    }
+
+    /**
+     * Rundet ein Intervall auf die nächstkleinere Stufe ab.
+     */
+    static long quantize(long intervalMs) {
+        long result = INTERVAL_STEPS_MS[0];
+        for (long step : INTERVAL_STEPS_MS) {
+            if (step > intervalMs) {
+                break;
+            }
+            result = step;
+        }
+        return result;
+    }
+
+    static int priorityForInterval(long intervalMs) {
+        if (intervalMs <= HIGH_ACCURACY_MAX_INTERVAL_MS) {
+            return LocationPowerPolicy.MODE_HIGH_ACCURACY;
+        } else if (intervalMs <= BALANCED_MAX_INTERVAL_MS) {
+            return LocationPowerPolicy.MODE_BALANCED;
+        }
+        return LocationPowerPolicy.MODE_LOW_POWER;
+    }
+
+    /**
+     * Geschätzte GPS-Einschaltdauer für einen Fix mit dem übergebenen Plan. Nur die hohe
+     * Genauigkeit nutzt das GPS; bei kurzen Intervallen bleibt es durchgehend eingeschaltet.
+     */
+    public static long estimateGpsOnMs(Schedule schedule) {
+        if (schedule.priorityMode != LocationPowerPolicy.MODE_HIGH_ACCURACY) {
+            return 0;
+        }
+        return Math.min(schedule.intervalMs, GPS_ON_PER_FIX_MS);
+    }
+
+    /**
+     * Intervall, Priorität (als Standortmodus) und maximale Verzögerung für die Standort-Updates.
+     */
+    public static final class Schedule {
+        private final long intervalMs;
+        private final int priorityMode;
+        private final long maxUpdateDelayMs;
+
+        /**
+         * Plan ohne Bündelung (jeder Fix wird sofort zugestellt).
+         */
+        public Schedule(long intervalMs, int priorityMode) {
+            this(intervalMs, priorityMode, 0);
+        }
+
+        public Schedule(long intervalMs, int priorityMode, long maxUpdateDelayMs) {
+            this.intervalMs = intervalMs;
+            this.priorityMode = priorityMode;
+            this.maxUpdateDelayMs = maxUpdateDelayMs;
+        }
+
+        public long getIntervalMs() {
+            return intervalMs;
+        }
+
+        /**
+         * Priorität der Anfrage, ausgedrückt als Standortmodus ({@link LocationPowerPolicy#MODE_HIGH_ACCURACY} usw.).
+         */
+        public int getPriorityMode() {
+            return priorityMode;
+        }
+
+        /**
+         * Maximale Verzögerung der Zustellung ({@code 0}: keine Bündelung).
+         */
+        public long getMaxUpdateDelayMs() {
+            return maxUpdateDelayMs;
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            if (this == o) {
+                return true;
+            }
+            if (!(o instanceof Schedule)) {
+                return false;
+            }
+            Schedule other = (Schedule) o;
+            return intervalMs == other.intervalMs && priorityMode == other.priorityMode
+                    && maxUpdateDelayMs == other.maxUpdateDelayMs;
+        }
+
+        @Override
+        public int hashCode() {
+            return 31 * (31 * Long.hashCode(intervalMs) + priorityMode) + Long.hashCode(maxUpdateDelayMs);
+        }
+    }
+}
@@ -0,0 +1,29 @@
+package de.dhbw.geofencinglbs.location;
+
+/**
+ * Bisherige Policy mit festen Akku-Schwellwerten (15/30/50 %) ohne Hysterese.
+ * Bleibt als Vergleichsbasis für die Simulation erhalten.
+ */
+public class ThresholdPowerPolicy implements LocationPowerPolicy {
+
+    @Override
+    public int selectMode(LocationPowerState state, int currentMode) {
+        // Wenn das Gerät geladen wird, verwenden wir immer den hochpräzisen Modus
+        if (state.isCharging()) {
+            return MODE_HIGH_ACCURACY;
+        }
+
+        float batteryLevel = state.getBatteryLevel();
+        if (batteryLevel < 15) {
+            // Bei kritischem Batteriestand in den Energiesparmodus wechseln
+            return MODE_LOW_POWER;
+        } else if (batteryLevel < 30 && currentMode == MODE_HIGH_ACCURACY) {
+            // Bei niedrigem Batteriestand in den ausgewogenen Modus wechseln
+            return MODE_BALANCED;
+        } else if (batteryLevel > 50 && currentMode == MODE_LOW_POWER) {
+            // Bei ausreichendem Batteriestand in den ausgewogenen Modus wechseln
+            return MODE_BALANCED;
+        }
+        return currentMode;
+    }
+}
@@ -0,0 +1,108 @@
+package de.dhbw.geofencinglbs.model;
+
+import androidx.room.Entity;
+import androidx.room.ForeignKey;
+import androidx.room.Ignore;
+
+/**
+ * Tägliche Aufenthaltszeit pro Geofence (Rollup der abgeschlossenen Aufenthalte).
+ * Tage werden in UTC gezählt ({@code day} = Tage seit 1970-01-01), damit die Werte
+ * unabhängig von Zeitzonenwechseln des Geräts sind. Aufenthalte über Mitternacht
+ * werden auf die betroffenen Tage aufgeteilt.
+ */
+@Entity(tableName = "daily_dwell_times",
+        primaryKeys = {"geofenceId", "day"},
+        foreignKeys = @ForeignKey(
+                entity = GeofenceModel.class,
+                parentColumns = "id",
+                childColumns = "geofenceId",
+                onDelete = ForeignKey.CASCADE))
+public class DailyDwellTime {
+
+    public static final long DAY_MS = 24L * 60 * 60 * 1000;
+
+    private long geofenceId;
+    private long day;
+    private long dwellTime; // Aufenthaltszeit in Millisekunden
+    private int visitCount; // Anzahl der an diesem Tag begonnenen Aufenthalte
+
+    // Standardkonstruktor für Room
+    public DailyDwellTime() {
+        // Room benötigt einen leeren Konstruktor
+    }
+
+    @Ignore
+    public DailyDwellTime(long geofenceId, long day, long dwellTime, int visitCount) {
+        this.geofenceId = geofenceId;
+        this.day = day;
+        this.dwellTime = dwellTime;
+        this.visitCount = visitCount;
+    }
+
+    /**
+     * Tag (UTC) eines Zeitstempels.
+     */
+    public static long dayOf(long timestamp) {
+        return Math.floorDiv(timestamp, DAY_MS);
+    }
+
+    /**
+     * Beginn eines Tages (UTC) in Millisekunden.
+     */
+    public static long startOfDay(long day) {
+        return day * DAY_MS;
+    }
+
+    /**
+     * Teilt den Zeitraum [entryTime, exitTime) auf die einzelnen Tage auf.
+     */
+    public static void splitByDay(long entryTime, long exitTime, DaySliceConsumer consumer) {
+        long start = entryTime;
+        while (start < exitTime) {
+            long day = dayOf(start);
+            long end = Math.min(exitTime, startOfDay(day + 1));
+            consumer.accept(day, end - start);
+            start = end;
+        }
+    }
+
+    /**
+     * Empfänger für den Anteil eines Aufenthalts an einem Tag.
+     */
+    public interface DaySliceConsumer {
+        void accept(long day, long dwellTime);
+    }
+
+    // Getter und Setter
+    public long getGeofenceId() {
+        return geofenceId;
+    }
+
+    public void setGeofenceId(long geofenceId) {
+        this.geofenceId = geofenceId;
+    }
+
+    public long getDay() {
+        return day;
+    }
+
+    public void setDay(long day) {
+        this.day = day;
+    }
+
+    public long getDwellTime() {
+        return dwellTime;
+    }
+
+    public void setDwellTime(long dwellTime) {
+        this.dwellTime = dwellTime;
+    }
+
+    public int getVisitCount() {
+        return visitCount;
+    }
+
+    public void setVisitCount(int visitCount) {
+        this.visitCount = visitCount;
+    }
+}
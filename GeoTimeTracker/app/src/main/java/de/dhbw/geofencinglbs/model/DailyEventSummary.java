@@ -0,0 +1,104 @@
+package de.dhbw.geofencinglbs.model;
+
+import androidx.room.Entity;
+import androidx.room.ForeignKey;
+import androidx.room.Ignore;
+
+/**
+ * Tägliche Zusammenfassung der Rohereignisse eines Geofence.
+ * Ersetzt die einzelnen Ereignisse, sobald diese älter als der Aufbewahrungszeitraum sind.
+ * Tage werden wie bei {@link DailyDwellTime} in UTC gezählt.
+ */
+@Entity(tableName = "daily_event_summaries",
+        primaryKeys = {"geofenceId", "day"},
+        foreignKeys = @ForeignKey(
+                entity = GeofenceModel.class,
+                parentColumns = "id",
+                childColumns = "geofenceId",
+                onDelete = ForeignKey.CASCADE))
+public class DailyEventSummary {
+
+    private long geofenceId;
+    private long day;
+    private int enterCount;
+    private int exitCount;
+    private int dwellCount;
+    private double accuracySum; // Summe der Genauigkeiten, für den Durchschnitt
+
+    // Standardkonstruktor für Room
+    public DailyEventSummary() {
+        // Room benötigt einen leeren Konstruktor
+    }
+
+    @Ignore
+    public DailyEventSummary(long geofenceId, long day, int enterCount, int exitCount, int dwellCount,
+                             double accuracySum) {
+        this.geofenceId = geofenceId;
+        this.day = day;
+        this.enterCount = enterCount;
+        this.exitCount = exitCount;
+        this.dwellCount = dwellCount;
+        this.accuracySum = accuracySum;
+    }
+
+    public int getEventCount() {
+        return enterCount + exitCount + dwellCount;
+    }
+
+    /**
+     * Durchschnittliche Genauigkeit der zusammengefassten Ereignisse in Metern.
+     */
+    public double getAverageAccuracy() {
+        int count = getEventCount();
+        return count > 0 ? accuracySum / count : 0;
+    }
+
+    // Getter und Setter
+    public long getGeofenceId() {
+        return geofenceId;
+    }
+
+    public void setGeofenceId(long geofenceId) {
+        this.geofenceId = geofenceId;
+    }
+
+    public long getDay() {
+        return day;
+    }
+
+    public void setDay(long day) {
+        this.day = day;
+    }
+
+    public int getEnterCount() {
+        return enterCount;
+    }
+
+    public void setEnterCount(int enterCount) {
+        this.enterCount = enterCount;
+    }
+
+    public int getExitCount() {
+        return exitCount;
+    }
+
+    public void setExitCount(int exitCount) {
+        this.exitCount = exitCount;
+    }
+
+    public int getDwellCount() {
+        return dwellCount;
+    }
+
+    public void setDwellCount(int dwellCount) {
+        this.dwellCount = dwellCount;
+    }
+
+    public double getAccuracySum() {
+        return accuracySum;
+    }
+
+    public void setAccuracySum(double accuracySum) {
+        this.accuracySum = accuracySum;
+    }
+}
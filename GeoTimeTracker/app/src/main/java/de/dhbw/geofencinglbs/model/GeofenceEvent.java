@@ -16,7 +16,11 @@ import androidx.room.PrimaryKey;
                 parentColumns = "id",
                 childColumns = "geofenceId",
                 onDelete = ForeignKey.CASCADE),
-        indices = {@Index("geofenceId")})
+        indices = {
+                @Index("timestamp"), // Neueste Ereignisse und Zeitraumabfragen
+                @Index({"geofenceId", "timestamp"}), // Ereignisse eines Geofence (deckt auch den Fremdschlüssel ab)
+                @Index({"geofenceId", "eventType", "timestamp"}) // Letztes Ereignis eines Typs
+        })
 public class GeofenceEvent {
 
     public static final int TYPE_ENTER = 1;
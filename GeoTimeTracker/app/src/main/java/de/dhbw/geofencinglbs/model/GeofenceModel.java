@@ -2,13 +2,15 @@ package de.dhbw.geofencinglbs.model;
 
 import androidx.room.Entity;
 import androidx.room.Ignore;
+import androidx.room.Index;
 import androidx.room.PrimaryKey;
 
 /**
  * Repräsentiert einen Geofence, der in der App überwacht wird.
  * Dieses Modell wird sowohl für die UI als auch für die Datenbank verwendet.
  */
-@Entity(tableName = "geofences")
+@Entity(tableName = "geofences",
+        indices = {@Index({"latitude", "longitude"})}) // Für Umkreisabfragen (Bounding-Box)
 public class GeofenceModel {
 
     @PrimaryKey(autoGenerate = true)
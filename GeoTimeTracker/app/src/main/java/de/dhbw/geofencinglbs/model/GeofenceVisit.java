@@ -0,0 +1,97 @@
+package de.dhbw.geofencinglbs.model;
+
+import androidx.room.Entity;
+import androidx.room.ForeignKey;
+import androidx.room.Ignore;
+import androidx.room.Index;
+import androidx.room.PrimaryKey;
+
+/**
+ * Repräsentiert einen Aufenthalt in einem Geofence (Eintritt bis Austritt).
+ * Wird beim Speichern der Ereignisse fortlaufend gepflegt, damit Aufenthaltszeiten
+ * nicht aus den Rohereignissen berechnet werden müssen.
+ */
+@Entity(tableName = "geofence_visits",
+        foreignKeys = @ForeignKey(
+                entity = GeofenceModel.class,
+                parentColumns = "id",
+                childColumns = "geofenceId",
+                onDelete = ForeignKey.CASCADE),
+        indices = {
+                @Index({"geofenceId", "entryTime"}),
+                @Index({"geofenceId", "exitTime"}) // Für die Suche nach offenen Aufenthalten
+        })
+public class GeofenceVisit {
+
+    /** Austrittszeit eines noch offenen Aufenthalts. */
+    public static final long OPEN = 0;
+
+    @PrimaryKey(autoGenerate = true)
+    private long id;
+
+    private long geofenceId;
+    private long entryTime;
+    private long exitTime; // 0 = Aufenthalt noch nicht beendet
+
+    // Standardkonstruktor für Room
+    public GeofenceVisit() {
+        // Room benötigt einen leeren Konstruktor
+    }
+
+    @Ignore
+    public GeofenceVisit(long geofenceId, long entryTime, long exitTime) {
+        this.geofenceId = geofenceId;
+        this.entryTime = entryTime;
+        this.exitTime = exitTime;
+    }
+
+    // Getter und Setter
+    public long getId() {
+        return id;
+    }
+
+    public void setId(long id) {
+        this.id = id;
+    }
+
+    public long getGeofenceId() {
+        return geofenceId;
+    }
+
+    public void setGeofenceId(long geofenceId) {
+        this.geofenceId = geofenceId;
+    }
+
+    public long getEntryTime() {
+        return entryTime;
+    }
+
+    public void setEntryTime(long entryTime) {
+        this.entryTime = entryTime;
+    }
+
+    public long getExitTime() {
+        return exitTime;
+    }
+
+    public void setExitTime(long exitTime) {
+        this.exitTime = exitTime;
+    }
+
+    public boolean isOpen() {
+        return exitTime == OPEN;
+    }
+
+    /**
+     * Anteil dieses Aufenthalts am Zeitraum [startTime, endTime) in Millisekunden.
+     * Offene Aufenthalte werden nicht gezählt.
+     */
+    public long getOverlap(long startTime, long endTime) {
+        if (isOpen()) {
+            return 0;
+        }
+        long from = Math.max(entryTime, startTime);
+        long to = Math.min(exitTime, endTime);
+        return Math.max(0, to - from);
+    }
+}
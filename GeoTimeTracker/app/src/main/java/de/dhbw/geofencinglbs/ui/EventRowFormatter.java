@@ -0,0 +1,92 @@
+package de.dhbw.geofencinglbs.ui;
+
+import java.text.SimpleDateFormat;
+import java.util.Date;
+import java.util.LinkedHashMap;
+import java.util.Locale;
+import java.util.Map;
+
+import de.dhbw.geofencinglbs.model.GeofenceEvent;
+
+/**
+ * Formatiert die Texte einer Ereigniszeile und merkt sie sich pro Ereignis-ID.
+ * Gespeicherte Ereignisse ändern sich nicht mehr, daher bleiben die Texte gültig.
+ * Beim erneuten Binden einer Zeile entfallen so String.format und SimpleDateFormat.
+ * Nicht threadsicher, wird nur vom Main-Thread verwendet.
+ */
+final class EventRowFormatter {
+
+    /** Anzahl der Zeilen, deren Texte höchstens gespeichert werden. */
+    static final int DEFAULT_CAPACITY = 200;
+
+    private final SimpleDateFormat dateFormat = new SimpleDateFormat("dd.MM.yyyy HH:mm:ss", Locale.getDefault());
+    private final Map<Long, Row> cache;
+
+    // Metriken
+    private long hitCount;
+    private long missCount;
+
+    EventRowFormatter() {
+        this(DEFAULT_CAPACITY);
+    }
+
+    EventRowFormatter(int capacity) {
+        // LRU: Zugriffsreihenfolge, der älteste Eintrag wird verdrängt
+        this.cache = new LinkedHashMap<Long, Row>(16, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<Long, Row> eldest) {
+                return size() > capacity;
+            }
+        };
+    }
+
+    /**
+     * Gibt die formatierten Texte eines Ereignisses zurück.
+     */
+    Row format(GeofenceEvent event) {
+        Row row = cache.get(event.getId());
+        if (row != null) {
+            hitCount++;
+            return row;
+        }
+
+        missCount++;
+        row = new Row(event);
+        cache.put(event.getId(), row);
+        return row;
+    }
+
+    long getHitCount() {
+        return hitCount;
+    }
+
+    long getMissCount() {
+        return missCount;
+    }
+
+    /**
+     * Formatierte Texte einer Ereigniszeile.
+     */
+    final class Row {
+        final String geofenceId;
+        final String eventType;
+        final String timestamp;
+        final String accuracy;
+        final String provider;
+        final String batteryStatus;
+        final String networkStatus;
+
+        private Row(GeofenceEvent event) {
+            geofenceId = "Zone " + event.getGeofenceId();
+            eventType = event.getEventTypeString();
+            timestamp = dateFormat.format(new Date(event.getTimestamp()));
+            accuracy = String.format(Locale.getDefault(), "Genauigkeit: %.1f m", event.getAccuracy());
+            provider = "Provider: " + (event.getProvider() != null ? event.getProvider() : "Unbekannt");
+            batteryStatus = String.format(Locale.getDefault(), "Akku: %.1f%% %s",
+                    event.getBatteryLevel(),
+                    event.isCharging() ? "(lädt)" : "");
+            networkStatus = "Netzwerk: " + (event.getNetworkConnectionType() != null ?
+                    event.getNetworkConnectionType() : "Unbekannt");
+        }
+    }
+}
@@ -4,23 +4,23 @@ import android.view.LayoutInflater;
 import android.view.ViewGroup;
 
 import androidx.annotation.NonNull;
+import androidx.paging.PagingDataAdapter;
 import androidx.recyclerview.widget.DiffUtil;
-import androidx.recyclerview.widget.ListAdapter;
 import androidx.recyclerview.widget.RecyclerView;
 
-import java.text.SimpleDateFormat;
-import java.util.Date;
-import java.util.Locale;
-
 import de.dhbw.geofencinglbs.databinding.ItemEventBinding;
 import de.dhbw.geofencinglbs.model.GeofenceEvent;
 
 /**
  * Adapter für die Anzeige von Geofence-Ereignissen in einer RecyclerView.
+ * Die Ereignisse werden seitenweise aus der Datenbank geladen.
  */
-public class EventsAdapter extends ListAdapter<GeofenceEvent, EventsAdapter.EventViewHolder> {
+public class EventsAdapter extends PagingDataAdapter<GeofenceEvent, EventsAdapter.EventViewHolder> {
+
+    private final EventRowFormatter formatter = new EventRowFormatter();
 
-    private static final SimpleDateFormat dateFormat = new SimpleDateFormat("dd.MM.yyyy HH:mm:ss", Locale.getDefault());
+    // Anzahl der gebundenen Zeilen (Bind-Zählung im Instrumentierungstest)
+    private long bindCount;
 
     public EventsAdapter() {
         super(DIFF_CALLBACK);
@@ -55,7 +55,18 @@ public class EventsAdapter extends ListAdapter<GeofenceEvent, EventsAdapter.Even
     @Override
     public void onBindViewHolder(@NonNull EventViewHolder holder, int position) {
         GeofenceEvent event = getItem(position);
-        holder.bind(event);
+        // Ohne Platzhalter ist das Element immer geladen
+        if (event != null) {
+            holder.bind(formatter.format(event));
+            bindCount++;
+        }
+    }
+
+    /**
+     * Anzahl der bisher gebundenen Zeilen.
+     */
+    long getBindCount() {
+        return bindCount;
     }
 
     /**
@@ -70,33 +81,16 @@ public class EventsAdapter extends ListAdapter<GeofenceEvent, EventsAdapter.Even
         }
 
         /**
-         * Bindet ein Ereignis an den ViewHolder.
+         * Bindet die vorformatierten Texte eines Ereignisses an den ViewHolder.
          */
-        public void bind(GeofenceEvent event) {
-            // Geofence-ID
-            binding.textViewGeofenceId.setText("Zone " + event.getGeofenceId());
-
-            // Ereignistyp
-            binding.textViewEventType.setText(event.getEventTypeString());
-
-            // Zeitstempel
-            binding.textViewTimestamp.setText(dateFormat.format(new Date(event.getTimestamp())));
-
-            // Genauigkeit und Provider
-            String accuracy = String.format(Locale.getDefault(), "Genauigkeit: %.1f m", event.getAccuracy());
-            binding.textViewAccuracy.setText(accuracy);
-            binding.textViewProvider.setText("Provider: " + (event.getProvider() != null ? event.getProvider() : "Unbekannt"));
-
-            // Batteriestatus
-            String batteryStatus = String.format(Locale.getDefault(), "Akku: %.1f%% %s",
-                    event.getBatteryLevel(),
-                    event.isCharging() ? "(lädt)" : "");
-            binding.textViewBatteryStatus.setText(batteryStatus);
-
-            // Netzwerkstatus
-            binding.textViewNetworkStatus.setText(
-                    "Netzwerk: " + (event.getNetworkConnectionType() != null ?
-                            event.getNetworkConnectionType() : "Unbekannt"));
+        public void bind(EventRowFormatter.Row row) {
+            binding.textViewGeofenceId.setText(row.geofenceId);
+            binding.textViewEventType.setText(row.eventType);
+            binding.textViewTimestamp.setText(row.timestamp);
+            binding.textViewAccuracy.setText(row.accuracy);
+            binding.textViewProvider.setText(row.provider);
+            binding.textViewBatteryStatus.setText(row.batteryStatus);
+            binding.textViewNetworkStatus.setText(row.networkStatus);
         }
     }
 }
\ No newline at end of file
@@ -25,6 +25,7 @@ import androidx.appcompat.app.AppCompatActivity;
 import androidx.core.app.ActivityCompat;
 import androidx.core.content.ContextCompat;
 import androidx.lifecycle.ViewModelProvider;
+import androidx.paging.LoadState;
 import androidx.recyclerview.widget.LinearLayoutManager;
 
 import com.google.android.material.dialog.MaterialAlertDialogBuilder;
@@ -34,11 +35,17 @@ import java.text.SimpleDateFormat;
 import java.util.Date;
 import java.util.Locale;
 
+import kotlin.Unit;
+
 import de.dhbw.geofencinglbs.R;
+import de.dhbw.geofencinglbs.data.retention.EventRetentionWorker;
 import de.dhbw.geofencinglbs.databinding.ActivityMainBinding;
 import de.dhbw.geofencinglbs.geofencing.GeofenceManager;
+import de.dhbw.geofencinglbs.location.LocationFixTracer;
 import de.dhbw.geofencinglbs.location.LocationService;
+import de.dhbw.geofencinglbs.location.ProviderInfo;
 import de.dhbw.geofencinglbs.model.GeofenceModel;
+import de.dhbw.geofencinglbs.util.DeviceStateMonitor;
 import de.dhbw.geofencinglbs.util.NotificationHelper;
 
 public class MainActivity extends AppCompatActivity implements AddGeofenceDialogFragment.GeofenceDialogListener {
@@ -67,20 +74,20 @@ public class MainActivity extends AppCompatActivity implements AddGeofenceDialog
             locationService = binder.getService();
             serviceBound = true;
 
-            // Standort-Listener setzen
+            // Standort-Listener setzen (Aufruf auf dem Standort-Thread des Service)
+            LocationFixTracer fixTracer = locationService.getFixTracer();
             locationService.setLocationListener(new LocationService.LocationListener() {
                 @Override
                 public void onLocationChanged(Location location, float batteryLevel, boolean isCharging,
-                                              String networkType, String providerDetails) {
-                    viewModel.setCurrentLocation(location);
-                    viewModel.updateDeviceStatus(batteryLevel, isCharging, networkType, providerDetails);
-                    updateLocationUI(location, providerDetails);
-
-                    // Erzwinge UI-Refresh
+                                              String networkType, ProviderInfo providerInfo) {
                     uiRefreshHandler.post(() -> {
-                        if (eventsAdapter != null) {
-                            eventsAdapter.notifyDataSetChanged();
-                        }
+                        long start = fixTracer.beginSection("MainActivity.onLocationChanged");
+                        viewModel.setCurrentLocation(location);
+                        viewModel.updateDeviceStatus(batteryLevel, isCharging, networkType, providerInfo);
+                        // Nur der Statusbereich hängt vom Standort ab; die Ereignisliste
+                        // wird ausschließlich über Diffs der PagingData aktualisiert
+                        updateLocationUI(location, providerInfo, networkType);
+                        fixTracer.endSection(start);
                     });
                 }
             });
@@ -88,7 +95,8 @@ public class MainActivity extends AppCompatActivity implements AddGeofenceDialog
             // Falls bereits Standortdaten vorhanden sind, sofort anzeigen
             if (locationService.getLastLocation() != null) {
                 updateLocationUI(locationService.getLastLocation(),
-                        locationService.getCurrentProviderDetails());
+                        locationService.getCurrentProviderInfo(),
+                        DeviceStateMonitor.getInstance(MainActivity.this).getSnapshot().getNetworkType());
             }
 
             Log.d(TAG, "Service connected");
@@ -114,6 +122,9 @@ public class MainActivity extends AppCompatActivity implements AddGeofenceDialog
         // Benachrichtigungskanal erstellen
         NotificationHelper.createNotificationChannel(this);
 
+        // Tägliche Bereinigung alter Ereignisse einplanen
+        EventRetentionWorker.schedule(this);
+
         // UI initialisieren
         setupUI();
 
@@ -210,6 +221,8 @@ public class MainActivity extends AppCompatActivity implements AddGeofenceDialog
         super.onStop();
         // Service unbinden, aber weiterlaufen lassen
         if (serviceBound) {
+            locationService.setLocationListener(null);
+            Log.d(TAG, "Location processing: " + locationService.getFixTracer());
             unbindService(serviceConnection);
             serviceBound = false;
         }
@@ -267,11 +280,14 @@ public class MainActivity extends AppCompatActivity implements AddGeofenceDialog
                     geofences != null && !geofences.isEmpty() ? View.GONE : View.VISIBLE);
         });
 
-        // LiveData für Events beobachten
-        viewModel.getRecentEvents().observe(this, events -> {
-            eventsAdapter.submitList(events);
+        // Ereignisse seitenweise beobachten
+        viewModel.getEventPages().observe(this, pagingData ->
+                eventsAdapter.submitData(getLifecycle(), pagingData));
+        eventsAdapter.addLoadStateListener(loadStates -> {
+            boolean loaded = loadStates.getRefresh() instanceof LoadState.NotLoading;
             binding.contentMain.textViewNoEvents.setVisibility(
-                    events != null && !events.isEmpty() ? View.GONE : View.VISIBLE);
+                    loaded && eventsAdapter.getItemCount() == 0 ? View.VISIBLE : View.GONE);
+            return Unit.INSTANCE;
         });
 
         // Status-Meldungen beobachten
@@ -302,14 +318,17 @@ public class MainActivity extends AppCompatActivity implements AddGeofenceDialog
     /**
      * Aktualisiert die Standortanzeige in der UI.
      */
-    private void updateLocationUI(Location location, String providerDetails) {
+    private void updateLocationUI(Location location, ProviderInfo providerInfo, String networkType) {
         if (location != null) {
             String locationText = String.format("%.6f, %.6f (±%.1fm)",
                     location.getLatitude(),
                     location.getLongitude(),
                     location.getAccuracy());
             binding.contentMain.textViewLocation.setText(locationText);
-            binding.contentMain.textViewProvider.setText("Provider: " + providerDetails);
+            // Der Anzeigetext des Providers wird erst hier erzeugt
+            if (providerInfo != null) {
+                binding.contentMain.textViewProvider.setText("Provider: " + providerInfo.format(networkType));
+            }
 
             // Zeitstempel des Updates
             binding.contentMain.textViewLastUpdate.setText("Letztes Update: " +
@@ -8,11 +8,18 @@ import androidx.annotation.NonNull;
 import androidx.lifecycle.AndroidViewModel;
 import androidx.lifecycle.LiveData;
 import androidx.lifecycle.MutableLiveData;
+import androidx.lifecycle.ViewModelKt;
+import androidx.paging.Pager;
+import androidx.paging.PagingConfig;
+import androidx.paging.PagingData;
+import androidx.paging.PagingLiveData;
 
 import java.util.List;
 
+import de.dhbw.geofencinglbs.data.local.GeofenceEventPagingSource;
 import de.dhbw.geofencinglbs.data.repository.GeofenceRepository;
 import de.dhbw.geofencinglbs.geofencing.GeofenceManager;
+import de.dhbw.geofencinglbs.location.ProviderInfo;
 import de.dhbw.geofencinglbs.model.GeofenceEvent;
 import de.dhbw.geofencinglbs.model.GeofenceModel;
 
@@ -23,10 +30,13 @@ import de.dhbw.geofencinglbs.model.GeofenceModel;
 public class MainViewModel extends AndroidViewModel {
     private static final String TAG = "MainViewModel";
 
+    // Seitengröße der Ereignisliste
+    private static final int EVENT_PAGE_SIZE = 30;
+
     private final GeofenceRepository repository;
     private final GeofenceManager geofenceManager;
     private final LiveData<List<GeofenceModel>> allGeofences;
-    private final LiveData<List<GeofenceEvent>> recentEvents;
+    private final LiveData<PagingData<GeofenceEvent>> eventPages;
 
     // LiveData für den aktuellen Standort
     private final MutableLiveData<Location> currentLocation = new MutableLiveData<>();
@@ -36,10 +46,14 @@ public class MainViewModel extends AndroidViewModel {
 
     public MainViewModel(@NonNull Application application) {
         super(application);
-        repository = new GeofenceRepository(application);
+        repository = GeofenceRepository.getInstance(application);
         geofenceManager = GeofenceManager.getInstance(application);
         allGeofences = repository.getAllGeofences();
-        recentEvents = repository.getRecentEvents(50);
+        Pager<GeofenceEventPagingSource.Key, GeofenceEvent> eventPager = new Pager<>(
+                new PagingConfig(EVENT_PAGE_SIZE, EVENT_PAGE_SIZE, false),
+                repository::createEventPagingSource);
+        eventPages = PagingLiveData.cachedIn(PagingLiveData.getLiveData(eventPager),
+                ViewModelKt.getViewModelScope(this));
 
         // Standard-Statusmeldung
         statusMessage.postValue("Bereit");
@@ -53,10 +67,10 @@ public class MainViewModel extends AndroidViewModel {
     }
 
     /**
-     * Gibt die neuesten Geofence-Ereignisse zurück.
+     * Gibt die Geofence-Ereignisse seitenweise zurück (neueste zuerst, gesamte Historie).
      */
-    public LiveData<List<GeofenceEvent>> getRecentEvents() {
-        return recentEvents;
+    public LiveData<PagingData<GeofenceEvent>> getEventPages() {
+        return eventPages;
     }
 
     /**
@@ -111,7 +125,7 @@ public class MainViewModel extends AndroidViewModel {
     /**
      * Erweiterte Version: Aktualisiert den Gerätestatus mit Provider-Details.
      */
-    public void updateDeviceStatus(float batteryLevel, boolean isCharging, String networkType, String providerDetails) {
+    public void updateDeviceStatus(float batteryLevel, boolean isCharging, String networkType, ProviderInfo providerInfo) {
         DeviceStatus status = deviceStatus.getValue();
         if (status == null) {
             status = new DeviceStatus();
@@ -119,7 +133,7 @@ public class MainViewModel extends AndroidViewModel {
         status.setBatteryLevel(batteryLevel);
         status.setCharging(isCharging);
         status.setNetworkType(networkType);
-        status.setProviderDetails(providerDetails);
+        status.setProviderInfo(providerInfo);
         deviceStatus.postValue(status);
     }
 
@@ -145,9 +159,7 @@ public class MainViewModel extends AndroidViewModel {
 
         // Wir müssen warten, bis der Geofence in der Datenbank ist und eine ID hat,
         // bevor wir ihn beim GeofenceManager registrieren
-        repository.getActiveGeofences(geofences -> {
-            registerGeofences(geofences);
-        });
+        registerGeofences();
     }
 
     /**
@@ -159,10 +171,8 @@ public class MainViewModel extends AndroidViewModel {
 
         repository.update(geofence);
 
-        // Alle aktiven Geofences neu laden und registrieren
-        repository.getActiveGeofences(geofences -> {
-            registerGeofences(geofences);
-        });
+        // Fenster der nächstgelegenen Geofences neu laden und registrieren
+        registerGeofences();
     }
 
     /**
@@ -173,11 +183,11 @@ public class MainViewModel extends AndroidViewModel {
         statusMessage.postValue("Lösche Geofence...");
 
         repository.delete(geofence);
+        // Zurückgehaltene EXIT-Ereignisse würden sonst auf einen gelöschten Geofence verweisen
+        geofenceManager.getTransitionDebouncer().forget(geofence.getId());
 
-        // Alle aktiven Geofences neu laden und registrieren
-        repository.getActiveGeofences(geofences -> {
-            registerGeofences(geofences);
-        });
+        // Fenster der nächstgelegenen Geofences neu laden und registrieren
+        registerGeofences();
     }
 
     /**
@@ -189,22 +199,16 @@ public class MainViewModel extends AndroidViewModel {
     }
 
     /**
-     * Registriert alle aktiven Geofences beim GeofenceManager.
+     * Registriert die nächstgelegenen aktiven Geofences beim GeofenceManager.
      */
-    private void registerGeofences(List<GeofenceModel> geofences) {
-        if (geofences.isEmpty()) {
-            // Es gibt keine Geofences zu registrieren
-            isLoading.postValue(false);
-            statusMessage.postValue("Keine aktiven Geofences");
-            return;
-        }
-
-        geofenceManager.updateGeofences(geofences, new GeofenceManager.GeofenceCallback() {
+    private void registerGeofences() {
+        geofenceManager.refreshWindow(new GeofenceManager.GeofenceCallback() {
             @Override
             public void onSuccess() {
                 isLoading.postValue(false);
                 statusMessage.postValue("Geofences erfolgreich aktualisiert");
-                Log.d(TAG, "Geofences successfully registered: " + geofences.size());
+                Log.d(TAG, "Geofences successfully registered (platform calls: "
+                        + geofenceManager.getLastUpdatePlatformCalls() + ")");
             }
 
             @Override
@@ -223,21 +227,19 @@ public class MainViewModel extends AndroidViewModel {
         private float batteryLevel;
         private boolean isCharging;
         private String networkType;
-        private String providerDetails;
+        private ProviderInfo providerInfo;
         private int locationMode = 1; // Standard: Ausgewogen
 
         public DeviceStatus() {
             this.batteryLevel = 0;
             this.isCharging = false;
             this.networkType = "UNKNOWN";
-            this.providerDetails = "Initializing...";
         }
 
         public DeviceStatus(float batteryLevel, boolean isCharging, String networkType) {
             this.batteryLevel = batteryLevel;
             this.isCharging = isCharging;
             this.networkType = networkType;
-            this.providerDetails = "";
         }
 
         public float getBatteryLevel() {
@@ -264,12 +266,19 @@ public class MainViewModel extends AndroidViewModel {
             this.networkType = networkType;
         }
 
-        public String getProviderDetails() {
-            return providerDetails;
+        public ProviderInfo getProviderInfo() {
+            return providerInfo;
         }
 
-        public void setProviderDetails(String providerDetails) {
-            this.providerDetails = providerDetails;
+        public void setProviderInfo(ProviderInfo providerInfo) {
+            this.providerInfo = providerInfo;
+        }
+
+        /**
+         * Anzeigetext des Providers; wird bei jedem Aufruf aus der Klassifizierung erzeugt.
+         */
+        public String getProviderDetails() {
+            return providerInfo != null ? providerInfo.format(networkType) : "Initializing...";
         }
 
         public int getLocationMode() {
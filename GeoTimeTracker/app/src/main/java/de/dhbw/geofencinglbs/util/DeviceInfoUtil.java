@@ -23,6 +23,13 @@ public class DeviceInfoUtil {
             return -1f;
         }
 
+        return getBatteryLevel(batteryStatus);
+    }
+
+    /**
+     * Berechnet den Batteriestand (0-100%) aus einem ACTION_BATTERY_CHANGED-Intent.
+     */
+    public static float getBatteryLevel(Intent batteryStatus) {
         int level = batteryStatus.getIntExtra(BatteryManager.EXTRA_LEVEL, -1);
         int scale = batteryStatus.getIntExtra(BatteryManager.EXTRA_SCALE, -1);
 
@@ -44,6 +51,13 @@ public class DeviceInfoUtil {
             return false;
         }
 
+        return isDeviceCharging(batteryStatus);
+    }
+
+    /**
+     * Prüft anhand eines ACTION_BATTERY_CHANGED-Intents, ob das Gerät geladen wird.
+     */
+    public static boolean isDeviceCharging(Intent batteryStatus) {
         int status = batteryStatus.getIntExtra(BatteryManager.EXTRA_STATUS, -1);
         return status == BatteryManager.BATTERY_STATUS_CHARGING ||
                 status == BatteryManager.BATTERY_STATUS_FULL;
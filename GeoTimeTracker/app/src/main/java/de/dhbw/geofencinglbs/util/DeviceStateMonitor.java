@@ -0,0 +1,158 @@
+package de.dhbw.geofencinglbs.util;
+
+import android.content.BroadcastReceiver;
+import android.content.Context;
+import android.content.Intent;
+import android.content.IntentFilter;
+import android.net.ConnectivityManager;
+import android.net.Network;
+import android.net.NetworkCapabilities;
+import android.util.Log;
+
+import androidx.annotation.NonNull;
+import androidx.core.content.ContextCompat;
+
+import java.util.concurrent.atomic.AtomicReference;
+
+/**
+ * Überwacht Akku- und Netzwerkstatus und stellt ihn als unveränderlichen Snapshot bereit.
+ * Der Monitor registriert sich einmalig für ACTION_BATTERY_CHANGED und den
+ * Default-Network-Callback; das Lesen des Snapshots kommt ohne Binder-Aufruf und ohne Lock aus.
+ * Die Methoden von {@link DeviceInfoUtil} fragen dagegen bei jedem Aufruf das System ab.
+ */
+public class DeviceStateMonitor {
+    private static final String TAG = "DeviceStateMonitor";
+
+    private static DeviceStateMonitor instance;
+
+    private final AtomicReference<Snapshot> snapshot;
+
+    private DeviceStateMonitor(Context context) {
+        snapshot = new AtomicReference<>(
+                new Snapshot(-1f, false, DeviceInfoUtil.getNetworkConnectionType(context)));
+
+        // Liefert den aktuellen (sticky) Akkustatus direkt zurück
+        Intent batteryStatus = ContextCompat.registerReceiver(context, new BroadcastReceiver() {
+            @Override
+            public void onReceive(Context context, Intent intent) {
+                updateBattery(intent);
+            }
+        }, new IntentFilter(Intent.ACTION_BATTERY_CHANGED), ContextCompat.RECEIVER_NOT_EXPORTED);
+        if (batteryStatus != null) {
+            updateBattery(batteryStatus);
+        }
+
+        ConnectivityManager cm = (ConnectivityManager) context.getSystemService(Context.CONNECTIVITY_SERVICE);
+        if (cm != null) {
+            cm.registerDefaultNetworkCallback(new ConnectivityManager.NetworkCallback() {
+                @Override
+                public void onCapabilitiesChanged(@NonNull Network network,
+                                                  @NonNull NetworkCapabilities capabilities) {
+                    String networkType = toNetworkType(capabilities);
+                    snapshot.updateAndGet(current -> current.withNetworkType(networkType));
+                }
+
+                @Override
+                public void onLost(@NonNull Network network) {
+                    snapshot.updateAndGet(current -> current.withNetworkType("NONE"));
+                }
+            });
+        }
+
+        Log.d(TAG, "Monitoring device state: " + snapshot.get());
+    }
+
+    private void updateBattery(Intent batteryStatus) {
+        float batteryLevel = DeviceInfoUtil.getBatteryLevel(batteryStatus);
+        boolean isCharging = DeviceInfoUtil.isDeviceCharging(batteryStatus);
+        snapshot.updateAndGet(current -> current.withBattery(batteryLevel, isCharging));
+    }
+
+    /**
+     * Gibt die Singleton-Instanz des DeviceStateMonitor zurück.
+     */
+    public static synchronized DeviceStateMonitor getInstance(Context context) {
+        if (instance == null) {
+            instance = new DeviceStateMonitor(context.getApplicationContext());
+        }
+        return instance;
+    }
+
+    /**
+     * Gibt den zuletzt bekannten Gerätestatus zurück.
+     */
+    public Snapshot getSnapshot() {
+        return snapshot.get();
+    }
+
+    /**
+     * Bestimmt den Verbindungstyp (WIFI, MOBILE, ...) wie {@link DeviceInfoUtil#getNetworkConnectionType}.
+     */
+    static String toNetworkType(NetworkCapabilities capabilities) {
+        if (capabilities.hasTransport(NetworkCapabilities.TRANSPORT_WIFI)) {
+            return "WIFI";
+        } else if (capabilities.hasTransport(NetworkCapabilities.TRANSPORT_CELLULAR)) {
+            return "MOBILE";
+        } else if (capabilities.hasTransport(NetworkCapabilities.TRANSPORT_ETHERNET)) {
+            return "ETHERNET";
+        } else if (capabilities.hasTransport(NetworkCapabilities.TRANSPORT_BLUETOOTH)) {
+            return "BLUETOOTH";
+        } else if (capabilities.hasTransport(NetworkCapabilities.TRANSPORT_VPN)) {
+            return "VPN";
+        }
+        return "UNKNOWN";
+    }
+
+    /**
+     * Unveränderlicher Gerätestatus zu einem Zeitpunkt.
+     */
+    public static final class Snapshot {
+        private final float batteryLevel;
+        private final boolean isCharging;
+        private final String networkType;
+
+        public Snapshot(float batteryLevel, boolean isCharging, String networkType) {
+            this.batteryLevel = batteryLevel;
+            this.isCharging = isCharging;
+            this.networkType = networkType;
+        }
+
+        /**
+         * Batteriestand in Prozent (0-100, -1 wenn unbekannt).
+         */
+        public float getBatteryLevel() {
+            return batteryLevel;
+        }
+
+        public boolean isCharging() {
+            return isCharging;
+        }
+
+        /**
+         * Verbindungstyp (WIFI, MOBILE, NONE, ...).
+         */
+        public String getNetworkType() {
+            return networkType;
+        }
+
+        Snapshot withBattery(float batteryLevel, boolean isCharging) {
+            if (Float.compare(batteryLevel, this.batteryLevel) == 0 && isCharging == this.isCharging) {
+                return this;
+            }
+            return new Snapshot(batteryLevel, isCharging, networkType);
+        }
+
+        Snapshot withNetworkType(String networkType) {
+            if (networkType.equals(this.networkType)) {
+                return this;
+            }
+            return new Snapshot(batteryLevel, isCharging, networkType);
+        }
+
+        @NonNull
+        @Override
+        public String toString() {
+            return "battery=" + batteryLevel + "%, charging=" + isCharging + ", network=" + networkType;
+        }
+    }
+}
@@ -0,0 +1,77 @@
+package de.dhbw.geofencinglbs.util;
+
+/**
+ * Geometrische Hilfsmethoden für Berechnungen auf der Erdoberfläche.
+ * Bewusst ohne Android-Abhängigkeiten, damit sie auch in JVM-Tests nutzbar sind.
+ */
+public final class GeoMath {
+
+    /** Mittlerer Erdradius in Metern (WGS84). */
+    public static final double EARTH_RADIUS_METERS = 6371008.8;
+
+    /** Meter pro Breitengrad (näherungsweise konstant). */
+    public static final double METERS_PER_DEGREE_LAT = 111320.0;
+
+    private GeoMath() {
+        // Keine Instanzen
+    }
+
+    /**
+     * Berechnet die Großkreisentfernung zwischen zwei Punkten (Haversine-Formel).
+     * @return Entfernung in Metern
+     */
+    public static double distanceMeters(double lat1, double lon1, double lat2, double lon2) {
+        double dLat = Math.toRadians(lat2 - lat1);
+        double dLon = Math.toRadians(lon2 - lon1);
+        double sinLat = Math.sin(dLat / 2);
+        double sinLon = Math.sin(dLon / 2);
+        double a = sinLat * sinLat +
+                Math.cos(Math.toRadians(lat1)) * Math.cos(Math.toRadians(lat2)) * sinLon * sinLon;
+        return 2 * EARTH_RADIUS_METERS * Math.asin(Math.min(1.0, Math.sqrt(a)));
+    }
+
+    /**
+     * Gibt an, wie viele Meter ein Längengrad auf der angegebenen Breite misst.
+     * In Polnähe wird ein Mindestwert verwendet, um Division durch Null zu vermeiden.
+     */
+    public static double metersPerDegreeLon(double latitude) {
+        return Math.max(1.0, METERS_PER_DEGREE_LAT * Math.cos(Math.toRadians(latitude)));
+    }
+
+    /**
+     * Berechnet eine Bounding-Box, die alle Punkte im Umkreis von {@code radiusMeters} enthält.
+     * Über den 180. Längengrad hinweg wird sie in zwei Boxen aufgeteilt.
+     * @return Ein oder zwei Boxen {minLat, maxLat, minLon, maxLon}
+     */
+    public static double[][] boundingBoxes(double latitude, double longitude, double radiusMeters) {
+        double dLat = radiusMeters / METERS_PER_DEGREE_LAT;
+        // Längengrade sind am polnahen Rand der Box am kürzesten
+        double edgeLatitude = Math.min(90, Math.abs(latitude) + dLat);
+        double dLon = radiusMeters / metersPerDegreeLon(edgeLatitude);
+        double[][] ranges = longitudeRanges(longitude, dLon);
+        double[][] boxes = new double[ranges.length][];
+        for (int i = 0; i < ranges.length; i++) {
+            boxes[i] = new double[]{latitude - dLat, latitude + dLat, ranges[i][0], ranges[i][1]};
+        }
+        return boxes;
+    }
+
+    /**
+     * Teilt den Längenbereich [longitude - deltaLon, longitude + deltaLon] am 180. Längengrad auf.
+     * @return Ein oder zwei Bereiche {min, max} innerhalb von [-180, 180]
+     */
+    static double[][] longitudeRanges(double longitude, double deltaLon) {
+        if (deltaLon >= 180) {
+            return new double[][]{{-180, 180}};
+        }
+        double min = longitude - deltaLon;
+        double max = longitude + deltaLon;
+        if (min < -180) {
+            return new double[][]{{min + 360, 180}, {-180, max}};
+        }
+        if (max > 180) {
+            return new double[][]{{min, 180}, {-180, max - 360}};
+        }
+        return new double[][]{{min, max}};
+    }
+}
@@ -13,6 +13,7 @@ import androidx.core.app.NotificationCompat;
 import com.google.android.gms.location.Geofence;
 
 import de.dhbw.geofencinglbs.R;
+import de.dhbw.geofencinglbs.model.GeofenceEvent;
 import de.dhbw.geofencinglbs.ui.MainActivity;
 
 /**
@@ -47,6 +48,18 @@ public class NotificationHelper {
      * Zeigt eine Benachrichtigung für ein Geofence-Ereignis an.
      */
     public static void showGeofenceNotification(Context context, long geofenceId, int transitionType, Location location) {
+        showGeofenceNotification(context, geofenceId, transitionType, location != null ? location.getAccuracy() : 0f);
+    }
+
+    /**
+     * Zeigt eine Benachrichtigung für ein gespeichertes Geofence-Ereignis an.
+     */
+    public static void showGeofenceNotification(Context context, GeofenceEvent event) {
+        showGeofenceNotification(context, event.getGeofenceId(), toPlatformTransition(event.getEventType()),
+                event.getAccuracy());
+    }
+
+    private static void showGeofenceNotification(Context context, long geofenceId, int transitionType, float accuracyMeters) {
         // Intent für den Klick auf die Benachrichtigung
         Intent intent = new Intent(context, MainActivity.class);
         intent.putExtra("geofence_id", geofenceId);
@@ -82,7 +95,7 @@ public class NotificationHelper {
         }
 
         // Zusätzliche Informationen zur Genauigkeit
-        String accuracy = String.format("Genauigkeit: %.1f m", location.getAccuracy());
+        String accuracy = String.format("Genauigkeit: %.1f m", accuracyMeters);
 
         // Benachrichtigung erstellen
         NotificationCompat.Builder builder = new NotificationCompat.Builder(context, CHANNEL_ID)
@@ -105,4 +118,18 @@ public class NotificationHelper {
             notificationManager.notify(notificationId, builder.build());
         }
     }
+
+    /**
+     * Wandelt einen Ereignistyp der Datenbank in den entsprechenden Geofence-Übergang um.
+     */
+    public static int toPlatformTransition(int eventType) {
+        switch (eventType) {
+            case GeofenceEvent.TYPE_ENTER:
+                return Geofence.GEOFENCE_TRANSITION_ENTER;
+            case GeofenceEvent.TYPE_EXIT:
+                return Geofence.GEOFENCE_TRANSITION_EXIT;
+            default:
+                return Geofence.GEOFENCE_TRANSITION_DWELL;
+        }
+    }
 }
\ No newline at end of file
@@ -0,0 +1,185 @@
+package de.dhbw.geofencinglbs.data.local;
+
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.sql.Connection;
+import java.sql.DriverManager;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+import java.util.stream.Stream;
+
+/**
+ * Prüft mit EXPLAIN QUERY PLAN, dass keine DAO-Abfrage die Ereignis- oder Aufenthaltstabellen
+ * vollständig durchsucht oder nachträglich sortiert. Die Tabellen werden aus dem exportierten
+ * Room-Schema erzeugt. Die Abfragen werden direkt aus den
+ * {@code @Query}-Annotationen der DAO-Quelltexte gelesen, neue Abfragen sind damit automatisch abgedeckt.
+ */
+public class QueryPlanTest {
+
+    private static final String DAO_SOURCE_DIR = "src/main/java/de/dhbw/geofencinglbs/data/local/";
+
+    // Von Room exportiertes Schema (neueste Version wird verwendet)
+    private static final String SCHEMA_DIR = "schemas/de.dhbw.geofencinglbs.data.local.AppDatabase/";
+
+    private static final Pattern SCHEMA_TOKEN =
+            Pattern.compile("\"(tableName|createSql)\": \"((?:[^\"\\\\]|\\\\.)*)\"");
+
+    private Connection connection;
+
+    @Before
+    public void setUp() throws SQLException, IOException {
+        connection = DriverManager.getConnection("jdbc:sqlite::memory:");
+        try (Statement statement = connection.createStatement()) {
+            for (String sql : readSchema()) {
+                statement.execute(sql);
+            }
+        }
+    }
+
+    @After
+    public void tearDown() throws SQLException {
+        connection.close();
+    }
+
+    @Test
+    public void geofenceEventDao_usesIndices() throws Exception {
+        assertQueriesUseIndices("GeofenceEventDao.java");
+    }
+
+    @Test
+    public void geofenceVisitDao_usesIndices() throws Exception {
+        assertQueriesUseIndices("GeofenceVisitDao.java");
+    }
+
+    @Test
+    public void planCheck_detectsFullScan() throws SQLException {
+        assertFalse(findProblems(explain("SELECT * FROM geofence_events WHERE provider = 'gps'")).isEmpty());
+        assertFalse(findProblems(explain("SELECT * FROM geofence_events ORDER BY accuracy")).isEmpty());
+        assertTrue(findProblems(explain("SELECT * FROM geofence_events WHERE geofenceId = 1")).isEmpty());
+    }
+
+    private void assertQueriesUseIndices(String daoFile) throws IOException, SQLException {
+        List<String> queries = readQueries(DAO_SOURCE_DIR + daoFile);
+        assertFalse("No @Query found in " + daoFile, queries.isEmpty());
+
+        StringBuilder failures = new StringBuilder();
+        for (String query : queries) {
+            List<String> plan = explain(query);
+            List<String> problems = findProblems(plan);
+            if (!problems.isEmpty()) {
+                failures.append('\n').append(query).append("\n  -> ").append(String.join("; ", plan));
+            }
+        }
+        if (failures.length() > 0) {
+            fail("Queries without index support in " + daoFile + ":" + failures);
+        }
+    }
+
+    /**
+     * Gibt die Zeilen des Abfrageplans zurück. Room-Parameter (:name) werden durch ? ersetzt.
+     */
+    private List<String> explain(String query) throws SQLException {
+        List<String> plan = new ArrayList<>();
+        try (Statement statement = connection.createStatement();
+             ResultSet result = statement.executeQuery("EXPLAIN QUERY PLAN " + query.replaceAll(":\\w+", "NULL"))) {
+            while (result.next()) {
+                plan.add(result.getString("detail"));
+            }
+        }
+        return plan;
+    }
+
+    /**
+     * Vollständige Tabellenscans ohne Index und nachträgliche Sortierungen gelten als Fehler.
+     */
+    private static List<String> findProblems(List<String> plan) {
+        List<String> problems = new ArrayList<>();
+        for (String step : plan) {
+            boolean fullScan = step.startsWith("SCAN ") && !step.contains(" USING ");
+            if (fullScan || step.startsWith("USE TEMP B-TREE")) {
+                problems.add(step);
+            }
+        }
+        return problems;
+    }
+
+    /**
+     * Liest die CREATE-Anweisungen aus dem exportierten Schema der neuesten Datenbankversion.
+     */
+    static List<String> readSchema() throws IOException {
+        Path latest;
+        try (Stream<Path> files = Files.list(Paths.get(SCHEMA_DIR))) {
+            latest = files.max(Comparator.comparingInt(QueryPlanTest::schemaVersion))
+                    .orElseThrow(() -> new IOException("No exported schema in " + SCHEMA_DIR));
+        }
+        String json = new String(Files.readAllBytes(latest), StandardCharsets.UTF_8);
+
+        List<String> statements = new ArrayList<>();
+        String tableName = null;
+        Matcher matcher = SCHEMA_TOKEN.matcher(json);
+        while (matcher.find()) {
+            String value = matcher.group(2).replace("\\\"", "\"");
+            if (matcher.group(1).equals("tableName")) {
+                tableName = value;
+            } else {
+                statements.add(value.replace("${TABLE_NAME}", tableName));
+            }
+        }
+        return statements;
+    }
+
+    private static int schemaVersion(Path file) {
+        return Integer.parseInt(file.getFileName().toString().replace(".json", ""));
+    }
+
+    /**
+     * Liest alle SQL-Abfragen aus den {@code @Query}-Annotationen eines DAO-Quelltexts.
+     * Zusammengesetzte String-Literale ("..." + "...") werden zusammengefügt.
+     */
+    static List<String> readQueries(String path) throws IOException {
+        String source = new String(Files.readAllBytes(Paths.get(path)), StandardCharsets.UTF_8);
+        List<String> queries = new ArrayList<>();
+        int index = 0;
+        while ((index = source.indexOf("@Query(", index)) >= 0) {
+            StringBuilder query = new StringBuilder();
+            int i = index + "@Query(".length();
+            boolean inString = false;
+            for (; i < source.length(); i++) {
+                char c = source.charAt(i);
+                if (inString) {
+                    if (c == '\\') {
+                        query.append(source.charAt(++i));
+                    } else if (c == '"') {
+                        inString = false;
+                    } else {
+                        query.append(c);
+                    }
+                } else if (c == '"') {
+                    inString = true;
+                } else if (c == ')') {
+                    break;
+                }
+            }
+            queries.add(query.toString());
+            index = i;
+        }
+        return queries;
+    }
+}
@@ -0,0 +1,116 @@
+package de.dhbw.geofencinglbs.data.local;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+import de.dhbw.geofencinglbs.model.DailyDwellTime;
+import de.dhbw.geofencinglbs.model.GeofenceEvent;
+import de.dhbw.geofencinglbs.model.GeofenceVisit;
+
+/**
+ * Unit-Tests für die Rekonstruktion von Aufenthalten und Tageswerten aus Ereignissen.
+ */
+public class VisitReplayTest {
+
+    private static final long HOUR = 60 * 60 * 1000L;
+    private static final long DAY = DailyDwellTime.DAY_MS;
+
+    @Test
+    public void replay_ignoresDuplicateEnterAndOrphanExit() {
+        Recorder recorder = new Recorder();
+        VisitReplay replay = new VisitReplay(recorder);
+        replay.apply(1, GeofenceEvent.TYPE_EXIT, 10 * DAY);
+        replay.apply(1, GeofenceEvent.TYPE_ENTER, 10 * DAY + HOUR);
+        replay.apply(1, GeofenceEvent.TYPE_DWELL, 10 * DAY + 2 * HOUR);
+        replay.apply(1, GeofenceEvent.TYPE_ENTER, 10 * DAY + 2 * HOUR);
+        replay.apply(1, GeofenceEvent.TYPE_EXIT, 10 * DAY + 3 * HOUR);
+        replay.apply(2, GeofenceEvent.TYPE_ENTER, 10 * DAY);
+        replay.finish();
+
+        assertEquals(2, recorder.visits.size());
+        assertEquals(10 * DAY + HOUR, recorder.visits.get(0)[1]);
+        assertEquals(10 * DAY + 3 * HOUR, recorder.visits.get(0)[2]);
+        assertEquals(GeofenceVisit.OPEN, recorder.visits.get(1)[2]);
+
+        assertEquals(1, recorder.daily.size());
+        assertEquals(2 * HOUR, recorder.daily.get(0)[2]);
+        assertEquals(1, recorder.daily.get(0)[3]);
+    }
+
+    @Test
+    public void replay_splitsVisitsAtMidnight() {
+        Recorder recorder = new Recorder();
+        VisitReplay replay = new VisitReplay(recorder);
+        replay.apply(1, GeofenceEvent.TYPE_ENTER, 20 * DAY + 22 * HOUR);
+        replay.apply(1, GeofenceEvent.TYPE_EXIT, 22 * DAY + 2 * HOUR);
+        replay.finish();
+
+        assertEquals(3, recorder.daily.size());
+        assertDaily(recorder.daily.get(0), 20, 2 * HOUR, 1);
+        assertDaily(recorder.daily.get(1), 21, 24 * HOUR, 0);
+        assertDaily(recorder.daily.get(2), 22, 2 * HOUR, 0);
+    }
+
+    @Test
+    public void benchmark_replayMillionEvents() {
+        final int eventCount = 1_000_000;
+        final int geofenceCount = 50;
+        Recorder recorder = new Recorder();
+        VisitReplay replay = new VisitReplay(recorder);
+        Random random = new Random(5);
+
+        long expectedDwellTime = 0;
+        long start = System.nanoTime();
+        for (int geofence = 1; geofence <= geofenceCount; geofence++) {
+            long timestamp = 0;
+            for (int i = 0; i < eventCount / geofenceCount / 2; i++) {
+                timestamp += HOUR + random.nextInt((int) (6 * HOUR));
+                long dwellTime = 1 + random.nextInt((int) (3 * HOUR));
+                replay.apply(geofence, GeofenceEvent.TYPE_ENTER, timestamp);
+                replay.apply(geofence, GeofenceEvent.TYPE_EXIT, timestamp + dwellTime);
+                timestamp += dwellTime;
+                expectedDwellTime += dwellTime;
+            }
+        }
+        replay.finish();
+        long elapsedMs = (System.nanoTime() - start) / 1_000_000;
+
+        long dailyTotal = 0;
+        for (long[] daily : recorder.daily) {
+            dailyTotal += daily[2];
+        }
+        System.out.printf("VisitReplay %d events: %d ms, %d visits, %d daily rows%n",
+                eventCount, elapsedMs, recorder.visits.size(), recorder.daily.size());
+
+        assertEquals(eventCount / 2, recorder.visits.size());
+        assertEquals(expectedDwellTime, dailyTotal);
+        assertTrue(recorder.daily.size() < recorder.visits.size());
+    }
+
+    private static void assertDaily(long[] daily, long day, long dwellTime, int visitCount) {
+        assertEquals(day, daily[1]);
+        assertEquals(dwellTime, daily[2]);
+        assertEquals(visitCount, daily[3]);
+    }
+
+    private static final class Recorder implements VisitReplay.Listener {
+        final List<long[]> visits = new ArrayList<>();
+        final List<long[]> daily = new ArrayList<>();
+
+        @Override
+        public void onVisit(long geofenceId, long entryTime, long exitTime) {
+            visits.add(new long[]{geofenceId, entryTime, exitTime});
+        }
+
+        @Override
+        public void onDailyDwellTime(long geofenceId, long day, long dwellTime, int visitCount) {
+            daily.add(new long[]{geofenceId, day, dwellTime, visitCount});
+        }
+    }
+}
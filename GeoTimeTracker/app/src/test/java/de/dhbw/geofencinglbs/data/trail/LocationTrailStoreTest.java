@@ -0,0 +1,213 @@
+package de.dhbw.geofencinglbs.data.trail;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.util.List;
+
+/**
+ * Unit-Tests für den Standortverlauf (Kodierung, Zeitbereiche, Rotation, Wiederöffnen)
+ * sowie ein Benchmark für den Durchsatz beim Anhängen und Lesen.
+ */
+public class LocationTrailStoreTest {
+
+    private static final long START = 1_700_000_000_000L;
+    private static final long INTERVAL_MS = 5000;
+
+    private File directory;
+
+    @Before
+    public void setUp() throws IOException {
+        directory = Files.createTempDirectory("trail").toFile();
+    }
+
+    @After
+    public void tearDown() {
+        File[] files = directory.listFiles();
+        if (files != null) {
+            for (File file : files) {
+                file.delete();
+            }
+        }
+        directory.delete();
+    }
+
+    @Test
+    public void append_roundTripsWithinEncodingPrecision() {
+        LocationTrailStore store = new LocationTrailStore(directory, 100, 4);
+        assertTrue(store.append(START, 25.7616798, -80.1917902, 12.34f, 3.456f));
+        assertTrue(store.append(START + INTERVAL_MS, -33.8688197, 151.2092955, 80000f, Float.NaN));
+
+        List<TrailFix> fixes = store.read(START, START + 2 * INTERVAL_MS);
+        assertEquals(2, fixes.size());
+        TrailFix first = fixes.get(0);
+        assertEquals(START, first.getTime());
+        assertEquals(25.7616798, first.getLatitude(), 1e-7);
+        assertEquals(-80.1917902, first.getLongitude(), 1e-7);
+        assertEquals(12.3f, first.getAccuracy(), 0.001f);
+        assertEquals(3.46f, first.getSpeed(), 0.001f);
+
+        // Großer Sprung in der Länge: neues Segment statt Überlauf der Differenz
+        TrailFix second = fixes.get(1);
+        assertEquals(151.2092955, second.getLongitude(), 1e-7);
+        assertEquals(6553.4f, second.getAccuracy(), 0.001f);
+        assertTrue(Float.isNaN(second.getSpeed()));
+        assertEquals(2, store.getSegmentCount());
+    }
+
+    @Test
+    public void read_returnsHalfOpenTimeRangeAcrossSegments() {
+        LocationTrailStore store = new LocationTrailStore(directory, 10, 100);
+        appendTrack(store, 95);
+        assertEquals(10, store.getSegmentCount());
+
+        List<TrailFix> fixes = store.read(START + 7 * INTERVAL_MS, START + 42 * INTERVAL_MS);
+        assertEquals(35, fixes.size());
+        assertEquals(START + 7 * INTERVAL_MS, fixes.get(0).getTime());
+        assertEquals(START + 41 * INTERVAL_MS, fixes.get(34).getTime());
+
+        assertEquals(0, store.read(START - 10 * INTERVAL_MS, START).size());
+        assertEquals(95, store.read(Long.MIN_VALUE, Long.MAX_VALUE).size());
+    }
+
+    @Test
+    public void append_rotatesAndDropsOldestSegments() {
+        LocationTrailStore store = new LocationTrailStore(directory, 10, 3, 2, 10);
+        appendTrack(store, 45);
+
+        assertEquals(3, store.getSegmentCount());
+        assertEquals(3, directory.listFiles((dir, name) -> name.endsWith(LocationTrailStore.SUFFIX)).length);
+        // Nur die letzten drei Segmente (Fixes 20..44) bleiben als Rohdaten erhalten
+        assertEquals(25, store.getFixCount());
+        // Archive der abgeschlossenen Segmente 2 und 3 (Fixes 10..29)
+        assertEquals(2, store.getArchiveCount());
+        assertEquals(2, directory.listFiles((dir, name) -> name.endsWith(LocationTrailStore.ARCHIVE_SUFFIX)).length);
+    }
+
+    @Test
+    public void read_fallsBackToArchivesForDroppedSegments() {
+        LocationTrailStore store = new LocationTrailStore(directory, 10, 2, 10, 10);
+        appendTrack(store, 45);
+
+        // Fixes 0..29 nur noch als vereinfachte Archive, 30..44 als Rohdaten
+        List<TrailFix> archived = store.read(START, START + 30 * INTERVAL_MS);
+        assertTrue(archived.size() < 30);
+        assertEquals(START, archived.get(0).getTime());
+        assertEquals(15, store.read(START + 30 * INTERVAL_MS, Long.MAX_VALUE).size());
+
+        // Nach dem Wiederöffnen sind die Archive weiterhin lesbar
+        LocationTrailStore reopened = new LocationTrailStore(directory, 10, 2, 10, 10);
+        assertEquals(archived.size(), reopened.read(START, START + 30 * INTERVAL_MS).size());
+    }
+
+    @Test
+    public void reopen_midSegmentArchivesLikeUninterruptedTrail() throws IOException {
+        LocationTrailStore uninterrupted = new LocationTrailStore(directory, 10, 1, 10, 10);
+        appendTrack(uninterrupted, 25, 0);
+
+        // Gleiche Strecke, aber Neustart mitten im zweiten Segment
+        File restartedDirectory = Files.createTempDirectory("trail").toFile();
+        try {
+            LocationTrailStore beforeRestart = new LocationTrailStore(restartedDirectory, 10, 1, 10, 10);
+            appendTrack(beforeRestart, 15, 0);
+            beforeRestart.flush();
+            LocationTrailStore restarted = new LocationTrailStore(restartedDirectory, 10, 1, 10, 10);
+            appendTrack(restarted, 10, 15);
+
+            // Fixes 0..19 liegen nur noch als Archive vor
+            List<TrailFix> expected = uninterrupted.read(START, START + 20 * INTERVAL_MS);
+            List<TrailFix> actual = restarted.read(START, START + 20 * INTERVAL_MS);
+            assertEquals(expected.size(), actual.size());
+            for (int i = 0; i < expected.size(); i++) {
+                assertEquals(expected.get(i).getTime(), actual.get(i).getTime());
+                assertEquals(expected.get(i).getLatitude(), actual.get(i).getLatitude(), 0);
+                assertEquals(expected.get(i).getLongitude(), actual.get(i).getLongitude(), 0);
+            }
+        } finally {
+            File[] files = restartedDirectory.listFiles();
+            if (files != null) {
+                for (File file : files) {
+                    file.delete();
+                }
+            }
+            restartedDirectory.delete();
+        }
+    }
+
+    @Test
+    public void append_rejectsOutOfOrderFixes() {
+        LocationTrailStore store = new LocationTrailStore(directory, 10, 3);
+        assertTrue(store.append(START, 47.0, 9.0, 5f, 1f));
+        assertFalse(store.append(START - 1, 47.0, 9.0, 5f, 1f));
+        assertTrue(store.append(START, 47.0, 9.0, 5f, 1f));
+        assertEquals(2, store.getFixCount());
+    }
+
+    @Test
+    public void reopen_continuesExistingTrail() {
+        LocationTrailStore store = new LocationTrailStore(directory, 10, 100);
+        appendTrack(store, 15);
+        store.flush();
+
+        LocationTrailStore reopened = new LocationTrailStore(directory, 10, 100);
+        assertEquals(15, reopened.getFixCount());
+        assertFalse(reopened.append(START, 47.0, 9.0, 5f, 1f));
+        assertTrue(reopened.append(START + 15 * INTERVAL_MS, 47.0, 9.0, 5f, 1f));
+        assertEquals(2, reopened.getSegmentCount());
+        assertEquals(16, reopened.read(Long.MIN_VALUE, Long.MAX_VALUE).size());
+    }
+
+    @Test
+    public void benchmark_appendAndScanThroughput() {
+        // Etwa 58 Tage bei 5 s Abtastung
+        int fixes = 1_000_000;
+        LocationTrailStore store = new LocationTrailStore(directory,
+                LocationTrailStore.DEFAULT_SEGMENT_RECORDS, 32);
+
+        long appendStart = System.nanoTime();
+        appendTrack(store, fixes);
+        long appendNanos = System.nanoTime() - appendStart;
+
+        // Einen Tag aus der Mitte lesen, ohne Objekt pro Fix
+        long dayMs = 24 * 3600 * 1000L;
+        long from = START + 30 * dayMs;
+        double[] sum = new double[1];
+        store.scan(from, from + dayMs, (time, latitude, longitude, accuracy, speed) -> sum[0] += latitude);
+        long scanStart = System.nanoTime();
+        int dayFixes = store.scan(from, from + dayMs, (time, latitude, longitude, accuracy, speed) -> sum[0] += latitude);
+        long dayScanNanos = System.nanoTime() - scanStart;
+
+        scanStart = System.nanoTime();
+        int allFixes = store.scan(Long.MIN_VALUE, Long.MAX_VALUE, (time, latitude, longitude, accuracy, speed) -> sum[0] += latitude);
+        long fullScanNanos = System.nanoTime() - scanStart;
+
+        System.out.printf("Append: %.0f fixes/s (%d segments, %d bytes/fix) | day scan: %d fixes in %.2f ms | full scan: %.0f fixes/s (%.0f)%n",
+                fixes / (appendNanos / 1e9), store.getSegmentCount(), LocationTrailStore.RECORD_SIZE,
+                dayFixes, dayScanNanos / 1e6, allFixes / (fullScanNanos / 1e9), sum[0] % 1);
+
+        assertEquals(17280, dayFixes);
+        assertEquals(fixes, allFixes);
+    }
+
+    /**
+     * Fahrt nach Nordosten mit 5 s Abtastung.
+     */
+    private static void appendTrack(LocationTrailStore store, int fixes) {
+        appendTrack(store, fixes, 0);
+    }
+
+    private static void appendTrack(LocationTrailStore store, int fixes, int first) {
+        for (int i = first; i < first + fixes; i++) {
+            store.append(START + i * INTERVAL_MS, 47.66 + (i % 10000) * 1e-5, 9.17 + (i % 10000) * 1e-5,
+                    5f + i % 20, i % 3 == 0 ? Float.NaN : 13.9f);
+        }
+    }
+}
@@ -0,0 +1,63 @@
+package de.dhbw.geofencinglbs.data.trail;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * Unit-Tests für die Varint-Kodierung archivierter Verläufe.
+ */
+public class PolylineCodecTest {
+
+    @Test
+    public void zigZag_roundTripsSignedValues() {
+        for (long value : new long[]{0, 1, -1, 63, -64, Integer.MAX_VALUE, Long.MIN_VALUE, Long.MAX_VALUE}) {
+            assertEquals(value, PolylineCodec.unZigZag(PolylineCodec.zigZag(value)));
+        }
+        assertEquals(1, PolylineCodec.zigZag(-1));
+        assertEquals(2, PolylineCodec.zigZag(1));
+    }
+
+    @Test
+    public void encode_roundTripsFixes() {
+        List<TrailFix> fixes = Arrays.asList(
+                new TrailFix(1_700_000_000_000L, 47.661512, 9.175543, 4.2f, 13.57f),
+                new TrailFix(1_700_000_005_000L, 47.661612, 9.175343, 6553.4f, Float.NaN),
+                new TrailFix(1_700_000_010_000L, -33.868820, 151.209296, 0f, 0f));
+
+        List<TrailFix> decoded = PolylineCodec.decode(PolylineCodec.encode(fixes));
+        assertEquals(fixes.size(), decoded.size());
+        for (int i = 0; i < fixes.size(); i++) {
+            TrailFix expected = fixes.get(i);
+            TrailFix actual = decoded.get(i);
+            assertEquals(expected.getTime(), actual.getTime());
+            assertEquals(expected.getLatitude(), actual.getLatitude(), 1e-6);
+            assertEquals(expected.getLongitude(), actual.getLongitude(), 1e-6);
+            assertEquals(expected.getAccuracy(), actual.getAccuracy(), 0.05f);
+            assertEquals(Float.isNaN(expected.getSpeed()), Float.isNaN(actual.getSpeed()));
+        }
+        assertEquals(13.57f, decoded.get(0).getSpeed(), 0.001f);
+    }
+
+    @Test
+    public void encode_usesFewBytesForNeighbouringFixes() {
+        List<TrailFix> fixes = new ArrayList<>();
+        for (int i = 0; i < 1000; i++) {
+            fixes.add(new TrailFix(1_700_000_000_000L + i * 5000L, 47.66 + i * 1e-4, 9.17 + i * 1e-4, 8f, 14f));
+        }
+        byte[] encoded = PolylineCodec.encode(fixes);
+        // Zeit 2 + Breite 2 + Länge 2 + Genauigkeit 1 + Geschwindigkeit 2 Byte
+        assertTrue(encoded.length < fixes.size() * 10);
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void decode_rejectsTruncatedData() {
+        byte[] encoded = PolylineCodec.encode(Arrays.asList(new TrailFix(1, 47.0, 9.0, 5f, 1f)));
+        PolylineCodec.decode(Arrays.copyOf(encoded, encoded.length - 1));
+    }
+}
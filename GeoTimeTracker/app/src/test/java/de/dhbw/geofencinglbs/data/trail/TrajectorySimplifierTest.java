@@ -0,0 +1,182 @@
+package de.dhbw.geofencinglbs.data.trail;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import org.junit.Test;
+
+import java.lang.management.ManagementFactory;
+import java.lang.management.ThreadMXBean;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+import de.dhbw.geofencinglbs.util.GeoMath;
+
+/**
+ * Unit-Tests für die Vereinfachung von Verläufen sowie eine Messung von Kompressionsrate
+ * und CPU-Zeit auf einem abgespielten Arbeitstag.
+ */
+public class TrajectorySimplifierTest {
+
+    private static final long START = 1_700_000_000_000L;
+    private static final long INTERVAL_MS = 5000;
+    private static final double TOLERANCE = TrajectorySimplifier.DEFAULT_TOLERANCE_METERS;
+    private static final double HOME_LAT = 47.6600;
+    private static final double HOME_LON = 9.1700;
+
+    @Test
+    public void straightLine_keepsOnlyEndpoints() {
+        List<TrailFix> fixes = new ArrayList<>();
+        for (int i = 0; i <= 100; i++) {
+            fixes.add(fix(i, i * 14, 0));
+        }
+        List<TrailFix> simplified = TrajectorySimplifier.simplify(fixes, TOLERANCE);
+        assertEquals(2, simplified.size());
+        assertEquals(fixes.get(0).getTime(), simplified.get(0).getTime());
+        assertEquals(fixes.get(100).getTime(), simplified.get(1).getTime());
+    }
+
+    @Test
+    public void corner_isKept() {
+        List<TrailFix> fixes = new ArrayList<>();
+        for (int i = 0; i <= 50; i++) {
+            fixes.add(fix(i, i * 14, 0));
+        }
+        for (int i = 1; i <= 50; i++) {
+            fixes.add(fix(50 + i, 700, i * 14));
+        }
+        List<TrailFix> simplified = TrajectorySimplifier.simplify(fixes, TOLERANCE);
+        assertEquals(3, simplified.size());
+        assertEquals(fixes.get(50).getTime(), simplified.get(1).getTime());
+    }
+
+    @Test
+    public void window_isBounded() {
+        List<TrailFix> fixes = new ArrayList<>();
+        for (int i = 0; i < 1000; i++) {
+            fixes.add(fix(i, 0, 0));
+        }
+        List<TrailFix> simplified = new ArrayList<>();
+        TrajectorySimplifier simplifier = new TrajectorySimplifier(TOLERANCE, 100, simplified::add);
+        for (TrailFix fix : fixes) {
+            simplifier.add(fix);
+        }
+        simplifier.finish();
+        // Ein Punkt mindestens alle 100 Fixes, auch im Stillstand
+        assertEquals(11, simplified.size());
+        assertEquals(1000, simplifier.getInputCount());
+        assertEquals(11, simplifier.getOutputCount());
+    }
+
+    @Test
+    public void replay_commuteDay_reportsCompressionAndCpuTime() {
+        List<TrailFix> trace = commuteDay(new Random(7));
+        ThreadMXBean threads = ManagementFactory.getThreadMXBean();
+
+        // Aufwärmen für den JIT
+        PolylineCodec.encode(TrajectorySimplifier.simplify(trace, TOLERANCE));
+
+        long cpuStart = threads.getCurrentThreadCpuTime();
+        List<TrailFix> simplified = TrajectorySimplifier.simplify(trace, TOLERANCE);
+        long simplifyCpu = threads.getCurrentThreadCpuTime() - cpuStart;
+
+        cpuStart = threads.getCurrentThreadCpuTime();
+        byte[] encoded = PolylineCodec.encode(simplified);
+        long encodeCpu = threads.getCurrentThreadCpuTime() - cpuStart;
+
+        long rawBytes = (long) trace.size() * LocationTrailStore.RECORD_SIZE;
+        byte[] encodedRaw = PolylineCodec.encode(trace);
+        System.out.printf("Replay: %d fixes (%d bytes raw) -> %d points, %d bytes (ratio %.0f:1; codec only %.1f:1) | "
+                        + "simplify %.0f ns/fix, encode %.0f ns/point%n",
+                trace.size(), rawBytes, simplified.size(), encoded.length,
+                rawBytes / (double) encoded.length, rawBytes / (double) encodedRaw.length,
+                simplifyCpu / (double) trace.size(), encodeCpu / (double) simplified.size());
+
+        assertTrue(rawBytes > encoded.length * 20L);
+        assertTrue(encodedRaw.length < rawBytes);
+        assertMaxError(trace, PolylineCodec.decode(encoded), TOLERANCE + 0.5);
+    }
+
+    /**
+     * Prüft für jeden Fix den Abstand zur Strecke zwischen den behaltenen Punkten, die ihn zeitlich umgeben.
+     */
+    private static void assertMaxError(List<TrailFix> trace, List<TrailFix> simplified, double maxError) {
+        int segment = 0;
+        double worst = 0;
+        for (TrailFix fix : trace) {
+            while (segment < simplified.size() - 2 && simplified.get(segment + 1).getTime() < fix.getTime()) {
+                segment++;
+            }
+            worst = Math.max(worst, distanceToSegment(fix, simplified.get(segment), simplified.get(segment + 1)));
+        }
+        System.out.printf("Max error: %.2f m%n", worst);
+        assertTrue(worst <= maxError);
+    }
+
+    private static double distanceToSegment(TrailFix point, TrailFix start, TrailFix end) {
+        double metersPerLon = GeoMath.metersPerDegreeLon(start.getLatitude());
+        double endX = (end.getLongitude() - start.getLongitude()) * metersPerLon;
+        double endY = (end.getLatitude() - start.getLatitude()) * GeoMath.METERS_PER_DEGREE_LAT;
+        double x = (point.getLongitude() - start.getLongitude()) * metersPerLon;
+        double y = (point.getLatitude() - start.getLatitude()) * GeoMath.METERS_PER_DEGREE_LAT;
+        double lengthSquared = endX * endX + endY * endY;
+        double t = lengthSquared > 0 ? Math.max(0, Math.min(1, (x * endX + y * endY) / lengthSquared)) : 0;
+        return Math.hypot(x - t * endX, y - t * endY);
+    }
+
+    /**
+     * Arbeitstag mit 5 s Abtastung und 3 m GPS-Rauschen: Nacht zuhause, Pendeln über
+     * ein Straßenraster (14 m/s), Büro, Rückweg, Abend zuhause.
+     */
+    private static List<TrailFix> commuteDay(Random random) {
+        List<TrailFix> trace = new ArrayList<>();
+        double[][] route = {{0, 0}, {3000, 0}, {3000, 2500}, {7000, 2500}, {7000, 6000}, {9500, 6000}};
+        int step = 0;
+        step = stay(trace, random, step, 0, 0, 7.5);
+        step = drive(trace, random, step, route, false);
+        step = stay(trace, random, step, 9500, 6000, 8.5);
+        step = drive(trace, random, step, route, true);
+        stay(trace, random, step, 0, 0, 24 - (step * INTERVAL_MS) / 3_600_000.0);
+        return trace;
+    }
+
+    private static int stay(List<TrailFix> trace, Random random, int step, double x, double y, double hours) {
+        int steps = (int) (hours * 3600 * 1000 / INTERVAL_MS);
+        for (int i = 0; i < steps; i++) {
+            trace.add(noisy(random, step++, x, y, 0f));
+        }
+        return step;
+    }
+
+    private static int drive(List<TrailFix> trace, Random random, int step, double[][] route, boolean reverse) {
+        double speed = 14;
+        for (int leg = 0; leg < route.length - 1; leg++) {
+            double[] from = route[reverse ? route.length - 1 - leg : leg];
+            double[] to = route[reverse ? route.length - 2 - leg : leg + 1];
+            double length = Math.hypot(to[0] - from[0], to[1] - from[1]);
+            int steps = (int) (length / (speed * INTERVAL_MS / 1000.0));
+            for (int i = 0; i < steps; i++) {
+                double t = i / (double) steps;
+                trace.add(noisy(random, step++, from[0] + t * (to[0] - from[0]), from[1] + t * (to[1] - from[1]),
+                        (float) speed));
+            }
+        }
+        return step;
+    }
+
+    private static TrailFix noisy(Random random, int step, double x, double y, float speed) {
+        return fixAt(step, x + random.nextGaussian() * 3, y + random.nextGaussian() * 3, 6f, speed);
+    }
+
+    private static TrailFix fix(int step, double x, double y) {
+        return fixAt(step, x, y, 5f, 14f);
+    }
+
+    private static TrailFix fixAt(int step, double x, double y, float accuracy, float speed) {
+        return new TrailFix(START + step * INTERVAL_MS,
+                HOME_LAT + y / GeoMath.METERS_PER_DEGREE_LAT,
+                HOME_LON + x / GeoMath.metersPerDegreeLon(HOME_LAT),
+                accuracy, speed);
+    }
+}
@@ -0,0 +1,59 @@
+package de.dhbw.geofencinglbs.geofencing;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import org.junit.Test;
+
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * Unit-Tests für den Abgleich der registrierten Geofences.
+ */
+public class GeofenceRegistrationDiffTest {
+
+    private static final int TRANSITIONS = 7;
+
+    @Test
+    public void unchangedGeofences_produceEmptyDiff() {
+        Map<String, GeofenceRegistrationDiff.Entry> registered = entries(90);
+        GeofenceRegistrationDiff diff = GeofenceRegistrationDiff.compute(registered, entries(90));
+        assertTrue(diff.isEmpty());
+    }
+
+    @Test
+    public void deactivatedGeofence_isOnlyRemoved() {
+        Map<String, GeofenceRegistrationDiff.Entry> registered = entries(90);
+        Map<String, GeofenceRegistrationDiff.Entry> target = entries(90);
+        target.remove("42");
+
+        GeofenceRegistrationDiff diff = GeofenceRegistrationDiff.compute(registered, target);
+
+        assertEquals(Collections.singletonList("42"), diff.getToRemove());
+        assertEquals(0, diff.getToAdd().size());
+    }
+
+    @Test
+    public void changedRadius_isOnlyReAdded() {
+        Map<String, GeofenceRegistrationDiff.Entry> registered = entries(90);
+        Map<String, GeofenceRegistrationDiff.Entry> target = entries(90);
+        target.put("7", new GeofenceRegistrationDiff.Entry("7", 49.0, 8.0, 250f, TRANSITIONS));
+
+        GeofenceRegistrationDiff diff = GeofenceRegistrationDiff.compute(registered, target);
+
+        assertEquals(0, diff.getToRemove().size());
+        assertEquals(1, diff.getToAdd().size());
+        assertEquals("7", diff.getToAdd().get(0).requestId);
+    }
+
+    private static Map<String, GeofenceRegistrationDiff.Entry> entries(int count) {
+        Map<String, GeofenceRegistrationDiff.Entry> entries = new HashMap<>();
+        for (int i = 1; i <= count; i++) {
+            String id = String.valueOf(i);
+            entries.put(id, new GeofenceRegistrationDiff.Entry(id, 49.0, 8.0, 100f, TRANSITIONS));
+        }
+        return entries;
+    }
+}
@@ -0,0 +1,159 @@
+package de.dhbw.geofencinglbs.geofencing;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Random;
+import java.util.Set;
+
+import de.dhbw.geofencinglbs.model.GeofenceEvent;
+import de.dhbw.geofencinglbs.model.GeofenceModel;
+import de.dhbw.geofencinglbs.util.GeoMath;
+
+/**
+ * Unit-Tests und Benchmark für den Raumindex der lokal ausgewerteten Geofences.
+ */
+public class GeofenceSpatialIndexTest {
+
+    // Testgebiet rund um Mannheim (ca. 50 x 50 km)
+    private static final double CENTER_LAT = 49.4875;
+    private static final double CENTER_LON = 8.4660;
+    private static final double SPAN_DEGREES = 0.45;
+
+    private static final int QUERY_COUNT = 20000;
+
+    @Test
+    public void findContaining_matchesLinearScan() {
+        List<GeofenceModel> geofences = createGeofences(5000, 1);
+        GeofenceSpatialIndex index = new GeofenceSpatialIndex();
+        index.rebuild(geofences);
+
+        Random random = new Random(2);
+        for (int i = 0; i < 2000; i++) {
+            double lat = CENTER_LAT + (random.nextDouble() - 0.5) * SPAN_DEGREES;
+            double lon = CENTER_LON + (random.nextDouble() - 0.5) * SPAN_DEGREES;
+            assertEquals(linearScan(geofences, lat, lon), ids(index.findContaining(lat, lon)));
+        }
+    }
+
+    @Test
+    public void findContaining_handlesLargeGeofences() {
+        GeofenceModel large = geofence(1, CENTER_LAT, CENTER_LON, 20000);
+        List<GeofenceModel> geofences = new ArrayList<>();
+        geofences.add(large);
+        GeofenceSpatialIndex index = new GeofenceSpatialIndex();
+        index.rebuild(geofences);
+
+        assertEquals(1, index.findContaining(CENTER_LAT + 0.1, CENTER_LON).size());
+        assertEquals(0, index.findContaining(CENTER_LAT + 0.2, CENTER_LON).size());
+    }
+
+    @Test
+    public void evaluator_reportsEnterDwellExit() {
+        List<GeofenceModel> geofences = new ArrayList<>();
+        geofences.add(geofence(7, CENTER_LAT, CENTER_LON, 100));
+        GeofenceSpatialIndex index = new GeofenceSpatialIndex();
+        index.rebuild(geofences);
+        LocalGeofenceEvaluator evaluator = new LocalGeofenceEvaluator(index, 60000);
+
+        assertEquals(GeofenceEvent.TYPE_ENTER,
+                evaluator.evaluate(CENTER_LAT, CENTER_LON, 0).get(0).getEventType());
+        assertTrue(evaluator.evaluate(CENTER_LAT, CENTER_LON, 30000).isEmpty());
+        assertEquals(GeofenceEvent.TYPE_DWELL,
+                evaluator.evaluate(CENTER_LAT, CENTER_LON, 60000).get(0).getEventType());
+        assertEquals(GeofenceEvent.TYPE_EXIT,
+                evaluator.evaluate(CENTER_LAT + 0.01, CENTER_LON, 90000).get(0).getEventType());
+    }
+
+    @Test
+    public void benchmark_queryLatency() {
+        benchmark(10000);
+        benchmark(100000);
+    }
+
+    private void benchmark(int geofenceCount) {
+        List<GeofenceModel> geofences = createGeofences(geofenceCount, 3);
+        GeofenceSpatialIndex index = new GeofenceSpatialIndex();
+
+        long buildStart = System.nanoTime();
+        index.rebuild(geofences);
+        long buildNanos = System.nanoTime() - buildStart;
+
+        Random random = new Random(4);
+        double[] lats = new double[QUERY_COUNT];
+        double[] lons = new double[QUERY_COUNT];
+        for (int i = 0; i < QUERY_COUNT; i++) {
+            lats[i] = CENTER_LAT + (random.nextDouble() - 0.5) * SPAN_DEGREES;
+            lons[i] = CENTER_LON + (random.nextDouble() - 0.5) * SPAN_DEGREES;
+        }
+
+        // Aufwärmen für den JIT
+        int hits = 0;
+        for (int i = 0; i < QUERY_COUNT; i++) {
+            hits += index.findContaining(lats[i], lons[i]).size();
+        }
+
+        long indexStart = System.nanoTime();
+        for (int i = 0; i < QUERY_COUNT; i++) {
+            hits += index.findContaining(lats[i], lons[i]).size();
+        }
+        long indexNanos = System.nanoTime() - indexStart;
+
+        // Lineare Suche als Vergleich (nur ein Teil der Abfragen, da sehr langsam)
+        int linearQueries = Math.max(100, QUERY_COUNT * 1000 / geofenceCount);
+        long linearStart = System.nanoTime();
+        for (int i = 0; i < linearQueries; i++) {
+            hits += linearScan(geofences, lats[i], lons[i]).size();
+        }
+        long linearNanos = System.nanoTime() - linearStart;
+
+        double indexMicros = indexNanos / 1000.0 / QUERY_COUNT;
+        double linearMicros = linearNanos / 1000.0 / linearQueries;
+        System.out.printf("GeofenceSpatialIndex %d geofences: build %.1f ms, query %.2f µs (linear %.2f µs), hits %d%n",
+                geofenceCount, buildNanos / 1e6, indexMicros, linearMicros, hits);
+
+        assertTrue("Index should be faster than a linear scan", indexMicros < linearMicros);
+    }
+
+    private static List<GeofenceModel> createGeofences(int count, long seed) {
+        Random random = new Random(seed);
+        List<GeofenceModel> geofences = new ArrayList<>(count);
+        for (int i = 0; i < count; i++) {
+            double lat = CENTER_LAT + (random.nextDouble() - 0.5) * SPAN_DEGREES;
+            double lon = CENTER_LON + (random.nextDouble() - 0.5) * SPAN_DEGREES;
+            float radius = 50 + random.nextInt(450);
+            geofences.add(geofence(i + 1, lat, lon, radius));
+        }
+        return geofences;
+    }
+
+    private static GeofenceModel geofence(long id, double lat, double lon, float radius) {
+        GeofenceModel geofence = new GeofenceModel("Zone " + id, lat, lon, radius);
+        geofence.setId(id);
+        return geofence;
+    }
+
+    private static Set<Long> linearScan(List<GeofenceModel> geofences, double lat, double lon) {
+        Set<Long> result = new HashSet<>();
+        for (GeofenceModel geofence : geofences) {
+            if (GeoMath.distanceMeters(lat, lon, geofence.getLatitude(), geofence.getLongitude())
+                    <= geofence.getRadius()) {
+                result.add(geofence.getId());
+            }
+        }
+        return result;
+    }
+
+    private static Set<Long> ids(List<GeofenceModel> geofences) {
+        Set<Long> result = new HashSet<>();
+        for (GeofenceModel geofence : geofences) {
+            result.add(geofence.getId());
+        }
+        return result;
+    }
+}
@@ -0,0 +1,87 @@
+package de.dhbw.geofencinglbs.geofencing;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import de.dhbw.geofencinglbs.model.GeofenceModel;
+
+/**
+ * Unit-Tests für die Auswahl der nächstgelegenen Geofences.
+ */
+public class GeofenceWindowTest {
+
+    private static final double LAT = 49.4875;
+    private static final double LON = 8.4660;
+
+    @Test
+    public void select_keepsNearestAndSetsBoundaryBeforeNextGeofence() {
+        List<GeofenceModel> geofences = new ArrayList<>();
+        // Geofences im Abstand von 1, 2, ..., 10 km nördlich
+        for (int i = 1; i <= 10; i++) {
+            geofences.add(geofence(i, LAT + i * 0.009, LON, 100));
+        }
+
+        GeofenceWindow window = GeofenceWindow.select(LAT, LON, geofences, 4, Double.POSITIVE_INFINITY);
+
+        assertEquals(4, window.getPlatformGeofences().size());
+        assertEquals(6, window.getLocalGeofences().size());
+        for (int i = 0; i < 4; i++) {
+            assertEquals(i + 1, window.getPlatformGeofences().get(i).getId());
+        }
+        // Der 5. Geofence beginnt ca. 5 km - 100 m entfernt
+        assertTrue(window.getRefreshRadius() > 4800 && window.getRefreshRadius() < 4950);
+        assertFalse(window.isOutside(LAT + 0.03, LON));
+        assertTrue(window.isOutside(LAT + 0.045, LON));
+    }
+
+    @Test
+    public void select_withoutRemainingGeofencesHasNoBoundary() {
+        List<GeofenceModel> geofences = new ArrayList<>();
+        geofences.add(geofence(1, LAT, LON, 100));
+
+        GeofenceWindow window = GeofenceWindow.select(LAT, LON, geofences, 90, Double.POSITIVE_INFINITY);
+
+        assertEquals(1, window.getPlatformGeofences().size());
+        assertFalse(window.hasRefreshBoundary());
+        assertFalse(window.isOutside(LAT + 1, LON));
+    }
+
+    @Test
+    public void select_boundaryStaysInsideSearchRadius() {
+        List<GeofenceModel> geofences = new ArrayList<>();
+        geofences.add(geofence(1, LAT, LON, 100));
+
+        GeofenceWindow window = GeofenceWindow.select(LAT, LON, geofences, 90, 5000);
+
+        assertTrue(window.hasRefreshBoundary());
+        assertEquals(2500f, window.getRefreshRadius(), 0.01);
+    }
+
+    @Test
+    public void nearestEdgeDistance_usesPlatformGeofences() {
+        List<GeofenceModel> geofences = new ArrayList<>();
+        geofences.add(geofence(1, LAT + 0.009, LON, 100));
+        geofences.add(geofence(2, LAT + 0.018, LON, 100));
+
+        GeofenceWindow window = GeofenceWindow.select(LAT, LON, geofences, 90, Double.POSITIVE_INFINITY);
+
+        // Ca. 1 km bis zum Mittelpunkt, abzüglich Radius
+        double distance = window.nearestEdgeDistance(LAT, LON);
+        assertTrue(distance > 880 && distance < 920);
+        assertTrue(window.nearestEdgeDistance(LAT + 0.009, LON) < 0);
+        assertEquals(Double.POSITIVE_INFINITY,
+                GeofenceWindow.selectById(new ArrayList<>(), 90).nearestEdgeDistance(LAT, LON), 0);
+    }
+
+    private static GeofenceModel geofence(long id, double lat, double lon, float radius) {
+        GeofenceModel geofence = new GeofenceModel("Zone " + id, lat, lon, radius);
+        geofence.setId(id);
+        return geofence;
+    }
+}
@@ -0,0 +1,49 @@
+package de.dhbw.geofencinglbs.geofencing;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+
+import org.junit.Test;
+
+import de.dhbw.geofencinglbs.model.GeofenceEvent;
+
+/**
+ * Unit-Tests für das Format der gesicherten EXIT-Ereignisse.
+ */
+public class PendingExitPreferencesTest {
+
+    @Test
+    public void encode_roundTripsAllFields() {
+        GeofenceEvent exit = new GeofenceEvent(42, GeofenceEvent.TYPE_EXIT, 1_700_000_000_000L,
+                47.6636123, 9.4745987, 12.5f, "fused", 63.5f, true, "WIFI|5GHz");
+
+        GeofenceEvent decoded = PendingExitPreferences.decode(42, PendingExitPreferences.encode(exit));
+        assertEquals(42, decoded.getGeofenceId());
+        assertEquals(GeofenceEvent.TYPE_EXIT, decoded.getEventType());
+        assertEquals(exit.getTimestamp(), decoded.getTimestamp());
+        assertEquals(exit.getLatitude(), decoded.getLatitude(), 0);
+        assertEquals(exit.getLongitude(), decoded.getLongitude(), 0);
+        assertEquals(exit.getAccuracy(), decoded.getAccuracy(), 0);
+        assertEquals("fused", decoded.getProvider());
+        assertEquals(exit.getBatteryLevel(), decoded.getBatteryLevel(), 0);
+        assertEquals(true, decoded.isCharging());
+        assertEquals("WIFI|5GHz", decoded.getNetworkConnectionType());
+    }
+
+    @Test
+    public void encode_keepsMissingProviderAndNetwork() {
+        GeofenceEvent exit = new GeofenceEvent(7, GeofenceEvent.TYPE_EXIT, 1000, 47.0, 9.0, 5f,
+                null, 80f, false, null);
+
+        GeofenceEvent decoded = PendingExitPreferences.decode(7, PendingExitPreferences.encode(exit));
+        assertNull(decoded.getProvider());
+        assertNull(decoded.getNetworkConnectionType());
+        assertFalse(decoded.isCharging());
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void decode_rejectsTruncatedEntry() {
+        PendingExitPreferences.decode(1, "1000|47.0|9.0");
+    }
+}
@@ -0,0 +1,265 @@
+package de.dhbw.geofencinglbs.geofencing;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+
+import de.dhbw.geofencinglbs.model.GeofenceEvent;
+import de.dhbw.geofencinglbs.model.GeofenceModel;
+import de.dhbw.geofencinglbs.util.GeoMath;
+
+/**
+ * Unit-Tests für den Zustandsautomaten des Entprellers (auch über einen Prozess-Neustart hinweg)
+ * sowie ein Replay an einer Geofence-Grenze, das gespeicherte Übergänge mit und ohne Entprellung vergleicht.
+ */
+public class TransitionDebouncerTest {
+
+    private static final double LAT = 47.6636;
+    private static final double LON = 9.4745;
+    private static final double METERS_PER_LON = GeoMath.metersPerDegreeLon(LAT);
+    private static final long SECOND_MS = 1000;
+
+    private final GeofenceModel fence = createFence();
+    private final TransitionDebouncer debouncer = new TransitionDebouncer(30 * SECOND_MS, 0.2);
+
+    @Test
+    public void submit_dropsQuickExitEnterBounce() {
+        GeofenceEvent enter = event(GeofenceEvent.TYPE_ENTER, 0, 90);
+        assertSame(enter, debouncer.submit(enter, fence));
+
+        assertNull(debouncer.submit(event(GeofenceEvent.TYPE_EXIT, 10 * SECOND_MS, 105), fence));
+        assertEquals(1, debouncer.getPendingCount());
+        assertNull(debouncer.submit(event(GeofenceEvent.TYPE_ENTER, 20 * SECOND_MS, 95), fence));
+
+        assertEquals(0, debouncer.getPendingCount());
+        assertEquals(2, debouncer.getSuppressedCount());
+        assertEquals(1, debouncer.getBounceCount());
+        assertTrue(debouncer.poll(1000 * SECOND_MS).isEmpty());
+    }
+
+    @Test
+    public void onLocation_confirmsExitBeyondHysteresisWithOriginalTimestamp() {
+        debouncer.submit(event(GeofenceEvent.TYPE_ENTER, 0, 90), fence);
+        GeofenceEvent exit = event(GeofenceEvent.TYPE_EXIT, 10 * SECOND_MS, 105);
+        debouncer.submit(exit, fence);
+
+        // Innerhalb des Hysteresebands (100..120 m) wird noch nicht bestätigt
+        assertTrue(debouncer.onLocation(LAT, lon(115), 50 * SECOND_MS).isEmpty());
+        // Außerhalb, aber vor Ablauf der Bestätigungszeit
+        debouncer.submit(event(GeofenceEvent.TYPE_ENTER, 0, 90), fence);
+        GeofenceEvent secondExit = event(GeofenceEvent.TYPE_EXIT, 60 * SECOND_MS, 105);
+        debouncer.submit(secondExit, fence);
+        assertTrue(debouncer.onLocation(LAT, lon(130), 70 * SECOND_MS).isEmpty());
+
+        List<GeofenceEvent> confirmed = debouncer.onLocation(LAT, lon(140), 90 * SECOND_MS);
+        assertEquals(1, confirmed.size());
+        assertSame(secondExit, confirmed.get(0));
+        assertEquals(60 * SECOND_MS, confirmed.get(0).getTimestamp());
+    }
+
+    @Test
+    public void onLocation_cancelsExitWhenBackInside() {
+        debouncer.submit(event(GeofenceEvent.TYPE_ENTER, 0, 90), fence);
+        debouncer.submit(event(GeofenceEvent.TYPE_EXIT, 10 * SECOND_MS, 130), fence);
+
+        assertTrue(debouncer.onLocation(LAT, lon(95), 20 * SECOND_MS).isEmpty());
+        assertEquals(0, debouncer.getPendingCount());
+        assertEquals(1, debouncer.getBounceCount());
+
+        // Der Plattform-ENTER danach ist ein Duplikat
+        assertNull(debouncer.submit(event(GeofenceEvent.TYPE_ENTER, 25 * SECOND_MS, 95), fence));
+        assertEquals(2, debouncer.getSuppressedCount());
+    }
+
+    @Test
+    public void poll_confirmsExitWithoutLocationAfterMaximumDelay() {
+        debouncer.submit(event(GeofenceEvent.TYPE_ENTER, 0, 90), fence);
+        // Auslösender Standort im Hysteresebereich, danach keine Standorte mehr
+        debouncer.submit(event(GeofenceEvent.TYPE_EXIT, 10 * SECOND_MS, 110), fence);
+
+        assertTrue(debouncer.poll(50 * SECOND_MS).isEmpty());
+        long maxDelay = 30 * SECOND_MS * TransitionDebouncer.MAX_PENDING_FACTOR;
+        assertEquals(1, debouncer.poll(10 * SECOND_MS + maxDelay).size());
+    }
+
+    @Test
+    public void submit_confirmsExitOfUnknownGeofenceByTimeOnly() {
+        debouncer.submit(event(GeofenceEvent.TYPE_EXIT, 0, 110), null);
+        assertTrue(debouncer.poll(29 * SECOND_MS).isEmpty());
+        assertEquals(1, debouncer.poll(30 * SECOND_MS).size());
+
+        // Weiterer EXIT ohne ENTER dazwischen ist ein Duplikat
+        assertNull(debouncer.submit(event(GeofenceEvent.TYPE_EXIT, 40 * SECOND_MS, 110), null));
+        assertEquals(1, debouncer.getSuppressedCount());
+    }
+
+    @Test
+    public void submit_reportsDwellOncePerStay() {
+        debouncer.submit(event(GeofenceEvent.TYPE_ENTER, 0, 50), fence);
+        GeofenceEvent dwell = event(GeofenceEvent.TYPE_DWELL, 60 * SECOND_MS, 50);
+        assertSame(dwell, debouncer.submit(dwell, fence));
+
+        // Kurzer Austritt, danach erneutes Verweilen der Plattform
+        debouncer.submit(event(GeofenceEvent.TYPE_EXIT, 70 * SECOND_MS, 105), fence);
+        debouncer.submit(event(GeofenceEvent.TYPE_ENTER, 80 * SECOND_MS, 95), fence);
+        assertNull(debouncer.submit(event(GeofenceEvent.TYPE_DWELL, 140 * SECOND_MS, 95), fence));
+
+        // Nach einem bestätigten Austritt beginnt ein neuer Aufenthalt
+        debouncer.submit(event(GeofenceEvent.TYPE_EXIT, 200 * SECOND_MS, 150), fence);
+        assertEquals(1, debouncer.poll(230 * SECOND_MS).size());
+        assertTrue(debouncer.submit(event(GeofenceEvent.TYPE_ENTER, 300 * SECOND_MS, 50), fence) != null);
+        assertTrue(debouncer.submit(event(GeofenceEvent.TYPE_DWELL, 360 * SECOND_MS, 50), fence) != null);
+    }
+
+    @Test
+    public void restart_restoresPendingExitAndConfirmsOnTime() {
+        InMemoryPendingExitStore store = new InMemoryPendingExitStore();
+        TransitionDebouncer beforeRestart = new TransitionDebouncer(30 * SECOND_MS, 0.2, store);
+        beforeRestart.submit(event(GeofenceEvent.TYPE_ENTER, 0, 90), fence);
+        GeofenceEvent exit = event(GeofenceEvent.TYPE_EXIT, 10 * SECOND_MS, 150);
+        assertNull(beforeRestart.submit(exit, fence));
+        assertEquals(40 * SECOND_MS, beforeRestart.getNextConfirmationTime());
+        assertEquals(1, store.exits.size());
+
+        // Prozess beendet, bevor der EXIT bestätigt wurde; der Geofence ist noch nicht geladen
+        TransitionDebouncer restarted = new TransitionDebouncer(30 * SECOND_MS, 0.2, store);
+        assertEquals(1, restarted.getPendingCount());
+        assertEquals(40 * SECOND_MS, restarted.getNextConfirmationTime());
+        assertTrue(restarted.poll(39 * SECOND_MS).isEmpty());
+
+        List<GeofenceEvent> confirmed = restarted.poll(40 * SECOND_MS);
+        assertEquals(1, confirmed.size());
+        assertEquals(10 * SECOND_MS, confirmed.get(0).getTimestamp());
+        assertTrue(store.exits.isEmpty());
+        assertEquals(Long.MAX_VALUE, restarted.getNextConfirmationTime());
+
+        // Der Aufenthalt ist beendet: ein weiterer EXIT ist ein Duplikat
+        assertNull(restarted.submit(event(GeofenceEvent.TYPE_EXIT, 50 * SECOND_MS, 150), null));
+        assertTrue(store.exits.isEmpty());
+    }
+
+    @Test
+    public void restart_enterAfterRestartCancelsPersistedExit() {
+        InMemoryPendingExitStore store = new InMemoryPendingExitStore();
+        TransitionDebouncer beforeRestart = new TransitionDebouncer(30 * SECOND_MS, 0.2, store);
+        beforeRestart.submit(event(GeofenceEvent.TYPE_ENTER, 0, 90), fence);
+        beforeRestart.submit(event(GeofenceEvent.TYPE_EXIT, 10 * SECOND_MS, 105), fence);
+        // Im Hysteresebereich gilt die längste Frist
+        assertEquals(10 * SECOND_MS + 30 * SECOND_MS * TransitionDebouncer.MAX_PENDING_FACTOR,
+                beforeRestart.getNextConfirmationTime());
+
+        TransitionDebouncer restarted = new TransitionDebouncer(30 * SECOND_MS, 0.2, store);
+        assertNull(restarted.submit(event(GeofenceEvent.TYPE_ENTER, 20 * SECOND_MS, 95), null));
+        assertEquals(1, restarted.getBounceCount());
+        assertEquals(0, restarted.getPendingCount());
+        assertTrue(store.exits.isEmpty());
+        assertTrue(restarted.poll(1000 * SECOND_MS).isEmpty());
+    }
+
+    /**
+     * Replay: 30 Minuten Aufenthalt 5 m innerhalb einer 100-m-Geofence mit σ = 8 m Rauschen,
+     * danach Verlassen mit 1,2 m/s. Ausgewertet werden ungefilterte Fixes wie von der Plattform.
+     */
+    @Test
+    public void replay_suppressesFlappingButKeepsRealExit() {
+        GeofenceSpatialIndex index = new GeofenceSpatialIndex();
+        index.rebuild(Collections.singletonList(fence));
+        LocalGeofenceEvaluator evaluator = new LocalGeofenceEvaluator(index, 60 * SECOND_MS);
+        Random random = new Random(7);
+
+        int rawTransitions = 0;
+        List<GeofenceEvent> stored = new ArrayList<>();
+        long stayEnd = 1800 * SECOND_MS;
+        long end = stayEnd + 300 * SECOND_MS;
+        for (long time = 0; time <= end; time += SECOND_MS) {
+            double trueX = 95 + (time > stayEnd ? 1.2 * (time - stayEnd) / SECOND_MS : 0);
+            double lat = LAT + random.nextGaussian() * 8 / GeoMath.METERS_PER_DEGREE_LAT;
+            double lon = lon(trueX + random.nextGaussian() * 8);
+
+            stored.addAll(debouncer.onLocation(lat, lon, time));
+            for (LocalGeofenceEvaluator.Transition transition : evaluator.evaluate(lat, lon, time)) {
+                if (transition.getEventType() != GeofenceEvent.TYPE_DWELL) {
+                    rawTransitions++;
+                }
+                GeofenceEvent event = new GeofenceEvent(fence.getId(), transition.getEventType(), time,
+                        lat, lon, 8f, "gps", 80f, false, "WIFI");
+                if (debouncer.submit(event, fence) != null) {
+                    stored.add(event);
+                }
+            }
+        }
+
+        int enters = 0;
+        int exits = 0;
+        int dwells = 0;
+        for (GeofenceEvent event : stored) {
+            if (event.getEventType() == GeofenceEvent.TYPE_ENTER) {
+                enters++;
+            } else if (event.getEventType() == GeofenceEvent.TYPE_EXIT) {
+                exits++;
+                assertTrue(event.getTimestamp() > stayEnd && event.getTimestamp() < stayEnd + 60 * SECOND_MS);
+            } else {
+                dwells++;
+            }
+        }
+        System.out.println("Replay transitions: raw " + rawTransitions + ", stored " + stored.size()
+                + " (suppressed " + debouncer.getSuppressedCount() + ", bounces " + debouncer.getBounceCount() + ")");
+        assertTrue("raw " + rawTransitions, rawTransitions >= 100);
+        assertEquals(1, enters);
+        assertEquals(1, exits);
+        // Das Flattern setzt die Verweildauer des Evaluators immer wieder zurück
+        assertTrue(dwells <= 1);
+        assertTrue(debouncer.getBounceCount() >= rawTransitions / 2 - 1);
+    }
+
+    /**
+     * Ablage, die einen Prozess-Neustart überdauert (wie die SharedPreferences).
+     */
+    private static class InMemoryPendingExitStore implements TransitionDebouncer.PendingExitStore {
+        final Map<Long, GeofenceEvent> exits = new HashMap<>();
+
+        @Override
+        public List<GeofenceEvent> load() {
+            return new ArrayList<>(exits.values());
+        }
+
+        @Override
+        public void save(GeofenceEvent exit) {
+            exits.put(exit.getGeofenceId(), exit);
+        }
+
+        @Override
+        public void remove(long geofenceId) {
+            exits.remove(geofenceId);
+        }
+
+        @Override
+        public void clear() {
+            exits.clear();
+        }
+    }
+
+    private static GeofenceModel createFence() {
+        GeofenceModel fence = new GeofenceModel("Büro", LAT, LON, 100);
+        fence.setId(1);
+        return fence;
+    }
+
+    private GeofenceEvent event(int type, long time, double eastMeters) {
+        return new GeofenceEvent(fence.getId(), type, time, LAT, lon(eastMeters), 8f, "gps", 80f, false, "WIFI");
+    }
+
+    private static double lon(double eastMeters) {
+        return LON + eastMeters / METERS_PER_LON;
+    }
+}
@@ -0,0 +1,168 @@
+package de.dhbw.geofencinglbs.location;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import org.junit.Test;
+
+import java.util.Collections;
+import java.util.Random;
+
+import de.dhbw.geofencinglbs.geofencing.GeofenceSpatialIndex;
+import de.dhbw.geofencinglbs.geofencing.LocalGeofenceEvaluator;
+import de.dhbw.geofencinglbs.model.GeofenceEvent;
+import de.dhbw.geofencinglbs.model.GeofenceModel;
+import de.dhbw.geofencinglbs.util.GeoMath;
+
+/**
+ * Unit-Tests für die Filterstufe sowie ein Replay verrauschter Fixes an einer Geofence-Grenze,
+ * das die ENTER/EXIT-Übergänge mit Roh- und gefilterten Standorten vergleicht.
+ */
+public class LocationFilterTest {
+
+    private static final double LAT = 47.6636;
+    private static final double LON = 9.4745;
+    private static final double METERS_PER_LON = GeoMath.metersPerDegreeLon(LAT);
+    private static final long SECOND_MS = 1000;
+
+    @Test
+    public void update_reducesNoiseOfStationaryFixes() {
+        LocationFilter filter = new LocationFilter();
+        Random random = new Random(1);
+        double rawError = 0;
+        double filteredError = 0;
+        for (int i = 0; i < 600; i++) {
+            double x = random.nextGaussian() * 8;
+            double y = random.nextGaussian() * 8;
+            assertTrue(filter.update(i * SECOND_MS, lat(y), lon(x), 8f));
+            if (i >= 60) {
+                rawError += Math.hypot(x, y);
+                filteredError += GeoMath.distanceMeters(LAT, LON, filter.getLatitude(), filter.getLongitude());
+            }
+        }
+        assertTrue("raw " + rawError + ", filtered " + filteredError, filteredError < rawError * 0.7);
+        assertTrue(filter.getAccuracy() < 8f);
+        assertTrue(filter.getSpeed() < 2f);
+    }
+
+    @Test
+    public void update_tracksConstantVelocity() {
+        LocationFilter filter = new LocationFilter();
+        // 15 m/s nach Osten, exakte Messungen
+        for (int i = 0; i <= 60; i++) {
+            filter.update(i * SECOND_MS, LAT, lon(15.0 * i), 5f);
+        }
+        double x = (filter.getLongitude() - LON) * METERS_PER_LON;
+        assertEquals(900, x, 5);
+        assertEquals(15, filter.getSpeed(), 1);
+    }
+
+    @Test
+    public void update_rejectsJumpsAndRestartsAfterPersistentOffset() {
+        LocationFilter filter = new LocationFilter();
+        for (int i = 0; i < 10; i++) {
+            filter.update(i * SECOND_MS, LAT, LON, 5f);
+        }
+        // 500 m in einer Sekunde ist nicht plausibel
+        assertTrue(filter.isOutlier(10 * SECOND_MS, lat(500), LON, 10f));
+        assertFalse(filter.update(10 * SECOND_MS, lat(500), LON, 10f));
+        assertEquals(0, GeoMath.distanceMeters(LAT, LON, filter.getLatitude(), filter.getLongitude()), 1);
+
+        // Bleibt die Messung dort, war die Schätzung falsch: Neustart an der neuen Position
+        assertFalse(filter.update(11 * SECOND_MS, lat(500), LON, 10f));
+        assertFalse(filter.update(12 * SECOND_MS, lat(500), LON, 10f));
+        assertTrue(filter.update(13 * SECOND_MS, lat(500), LON, 10f));
+        assertEquals(500, (filter.getLatitude() - LAT) * GeoMath.METERS_PER_DEGREE_LAT, 1);
+        assertEquals(3, filter.getRejectedCount());
+    }
+
+    @Test
+    public void update_acceptsLargeJumpsAfterLongGap() {
+        LocationFilter filter = new LocationFilter();
+        filter.update(0, LAT, LON, 5f);
+        // 5 km nach 10 Minuten: Lücke, kein Ausreißer
+        assertFalse(filter.isOutlier(600 * SECOND_MS, lat(5000), LON, 5f));
+        assertTrue(filter.update(600 * SECOND_MS, lat(5000), LON, 5f));
+    }
+
+    /**
+     * Replay: 30 Minuten Aufenthalt 10 m innerhalb einer 100-m-Geofence, danach langsames
+     * Verlassen mit 1,2 m/s. Rauschen σ = 8 m, alle 40 s ein Mehrwegesprung um 150 m.
+     * Das Verlassen muss mit beiden Varianten erkannt werden; mit Filter aber mit deutlich
+     * weniger Flattern an der Grenze.
+     */
+    @Test
+    public void replay_reducesSpuriousTransitionsAtBoundary() {
+        GeofenceModel fence = new GeofenceModel("Büro", LAT, LON, 100);
+        fence.setId(1);
+
+        LocalGeofenceEvaluator raw = evaluator(fence);
+        LocalGeofenceEvaluator filtered = evaluator(fence);
+        LocationFilter filter = new LocationFilter();
+        Random random = new Random(42);
+
+        int rawTransitions = 0;
+        int filteredTransitions = 0;
+        int rawExits = 0;
+        int filteredExits = 0;
+        long stayEnd = 1800 * SECOND_MS;
+        long end = stayEnd + 300 * SECOND_MS;
+        for (long time = 0; time <= end; time += SECOND_MS) {
+            double trueX = 90 + (time > stayEnd ? 1.2 * (time - stayEnd) / SECOND_MS : 0);
+            double x = trueX + random.nextGaussian() * 8;
+            double y = random.nextGaussian() * 8;
+            float accuracy = 8f;
+            if (time % (40 * SECOND_MS) == 20 * SECOND_MS) {
+                x += 150;
+                accuracy = 20f;
+            }
+            double lat = lat(y);
+            double lon = lon(x);
+
+            for (LocalGeofenceEvaluator.Transition t : raw.evaluate(lat, lon, time)) {
+                if (t.getEventType() != GeofenceEvent.TYPE_DWELL) {
+                    rawTransitions++;
+                }
+                if (t.getEventType() == GeofenceEvent.TYPE_EXIT && time > stayEnd) {
+                    rawExits++;
+                }
+            }
+            if (filter.update(time, lat, lon, accuracy)) {
+                for (LocalGeofenceEvaluator.Transition t : filtered.evaluate(
+                        filter.getLatitude(), filter.getLongitude(), time)) {
+                    if (t.getEventType() != GeofenceEvent.TYPE_DWELL) {
+                        filteredTransitions++;
+                    }
+                    if (t.getEventType() == GeofenceEvent.TYPE_EXIT && time > stayEnd) {
+                        filteredExits++;
+                    }
+                }
+            }
+        }
+
+        System.out.println("Replay transitions: raw " + rawTransitions + ", filtered " + filteredTransitions
+                + " (rejected " + filter.getRejectedCount() + " of " + (end / SECOND_MS + 1) + " fixes)");
+        assertTrue(rawExits >= 1);
+        assertTrue(filteredExits >= 1);
+        assertTrue("raw " + rawTransitions, rawTransitions >= 50);
+        // Restliches Flattern der geglätteten Position: mindestens Faktor 10 weniger Übergänge
+        assertTrue("raw " + rawTransitions + ", filtered " + filteredTransitions,
+                filteredTransitions * 10 <= rawTransitions);
+        assertTrue(filter.getRejectedCount() >= 40);
+    }
+
+    private static LocalGeofenceEvaluator evaluator(GeofenceModel fence) {
+        GeofenceSpatialIndex index = new GeofenceSpatialIndex();
+        index.rebuild(Collections.singletonList(fence));
+        return new LocalGeofenceEvaluator(index, 60 * SECOND_MS);
+    }
+
+    private static double lat(double northMeters) {
+        return LAT + northMeters / GeoMath.METERS_PER_DEGREE_LAT;
+    }
+
+    private static double lon(double eastMeters) {
+        return LON + eastMeters / METERS_PER_LON;
+    }
+}
@@ -0,0 +1,37 @@
+package de.dhbw.geofencinglbs.location;
+
+import static org.junit.Assert.assertEquals;
+
+import org.junit.Test;
+
+/**
+ * Unit-Tests für die Aufteilung der Verarbeitungszeit pro Fix nach Threads.
+ */
+public class LocationFixTracerTest {
+
+    @Test
+    public void record_separatesMainThreadFromBackground() {
+        LocationFixTracer tracer = new LocationFixTracer();
+        tracer.onFixes(3);
+        tracer.onFixes(1);
+
+        tracer.record(2_000_000, false);
+        tracer.record(300_000, true);
+        tracer.record(100_000, true);
+
+        assertEquals(4, tracer.getFixCount());
+        assertEquals(100, tracer.getMainThreadMicrosPerFix());
+        assertEquals(300, tracer.getMaxMainThreadMicros());
+        assertEquals(500, tracer.getBackgroundMicrosPerFix());
+    }
+
+    @Test
+    public void perFixAverages_areZeroWithoutFixes() {
+        LocationFixTracer tracer = new LocationFixTracer();
+        tracer.record(1_000_000, true);
+
+        assertEquals(0, tracer.getMainThreadMicrosPerFix());
+        assertEquals(0, tracer.getBackgroundMicrosPerFix());
+        assertEquals(1000, tracer.getMaxMainThreadMicros());
+    }
+}
@@ -0,0 +1,222 @@
+package de.dhbw.geofencinglbs.location;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import org.junit.Test;
+
+import java.util.Random;
+
+/**
+ * Unit-Tests für den LocationModeController sowie eine Simulation, die Akku-, Lade- und
+ * Bewegungsverläufe abspielt und die erwartete Anzahl an Standort-Fixes pro Stunde
+ * und die Neustarts der Standort-Updates für jede Policy ausgibt.
+ */
+public class LocationPowerPolicySimulationTest {
+
+    private static final long MINUTE_MS = 60 * 1000;
+    private static final long HOUR_MS = 60 * MINUTE_MS;
+    private static final long DAY_MS = 24 * HOUR_MS;
+
+    @Test
+    public void hysteresis_keepsLowPowerUntilExitThreshold() {
+        HysteresisPowerPolicy policy = new HysteresisPowerPolicy();
+        int mode = policy.selectMode(state(0, 14, false, 2f, 100), LocationPowerPolicy.MODE_BALANCED);
+        assertEquals(LocationPowerPolicy.MODE_LOW_POWER, mode);
+
+        assertEquals(LocationPowerPolicy.MODE_LOW_POWER,
+                policy.selectMode(state(0, 20, false, 2f, 100), mode));
+        assertEquals(LocationPowerPolicy.MODE_HIGH_ACCURACY,
+                policy.selectMode(state(0, 45, false, 2f, 100), mode));
+    }
+
+    @Test
+    public void hysteresis_usesDistanceBands() {
+        HysteresisPowerPolicy policy = new HysteresisPowerPolicy();
+        assertEquals(LocationPowerPolicy.MODE_BALANCED,
+                policy.selectMode(state(0, 80, false, 2f, 400), LocationPowerPolicy.MODE_BALANCED));
+        assertEquals(LocationPowerPolicy.MODE_HIGH_ACCURACY,
+                policy.selectMode(state(0, 80, false, 2f, 400), LocationPowerPolicy.MODE_HIGH_ACCURACY));
+        assertEquals(LocationPowerPolicy.MODE_LOW_POWER,
+                policy.selectMode(state(0, 80, false, 0f, 5000), LocationPowerPolicy.MODE_BALANCED));
+    }
+
+    @Test
+    public void hysteresis_bridgesShortChargerDisconnects() {
+        HysteresisPowerPolicy policy = new HysteresisPowerPolicy();
+        int mode = policy.selectMode(state(0, 80, true, 0f, 5000), LocationPowerPolicy.MODE_BALANCED);
+        assertEquals(LocationPowerPolicy.MODE_HIGH_ACCURACY, mode);
+
+        assertEquals(LocationPowerPolicy.MODE_HIGH_ACCURACY,
+                policy.selectMode(state(MINUTE_MS, 80, false, 0f, 5000), mode));
+        assertEquals(LocationPowerPolicy.MODE_LOW_POWER,
+                policy.selectMode(state(6 * MINUTE_MS, 80, false, 0f, 5000), mode));
+    }
+
+    @Test
+    public void controller_enforcesMinimumDwell() {
+        LocationModeController controller = new LocationModeController(
+                new HysteresisPowerPolicy(), 5 * MINUTE_MS, LocationPowerPolicy.MODE_BALANCED);
+
+        assertTrue(controller.update(state(0, 80, false, 0f, 5000)));
+        assertEquals(LocationPowerPolicy.MODE_LOW_POWER, controller.getMode());
+
+        // Bewegung in Richtung eines Geofence: innerhalb der Mindestverweildauer kein Wechsel
+        assertFalse(controller.update(state(MINUTE_MS, 80, false, 5f, 100)));
+        assertEquals(LocationPowerPolicy.MODE_LOW_POWER, controller.getMode());
+
+        assertTrue(controller.update(state(6 * MINUTE_MS, 80, false, 5f, 100)));
+        assertEquals(LocationPowerPolicy.MODE_HIGH_ACCURACY, controller.getMode());
+        assertEquals(2, controller.getRestartCount());
+    }
+
+    @Test
+    public void controller_allowsImmediateSwitchOnCriticalBattery() {
+        LocationModeController controller = new LocationModeController(
+                new HysteresisPowerPolicy(), 5 * MINUTE_MS, LocationPowerPolicy.MODE_BALANCED);
+        assertTrue(controller.setMode(LocationPowerPolicy.MODE_HIGH_ACCURACY, 0));
+
+        assertTrue(controller.update(state(MINUTE_MS, 8, false, 2f, 100)));
+        assertEquals(LocationPowerPolicy.MODE_LOW_POWER, controller.getMode());
+    }
+
+    @Test
+    public void simulation_reportsFixesAndRestartsPerPolicy() {
+        Trace[] traces = {new BatteryHoverTrace(), new ChargerFlapTrace(), new CommuteTrace()};
+        for (Trace trace : traces) {
+            SimulationResult legacy = simulate(new ThresholdPowerPolicy(), 0, trace);
+            SimulationResult hysteresis = simulate(new HysteresisPowerPolicy(),
+                    LocationModeController.DEFAULT_MIN_DWELL_MS, trace);
+
+            System.out.printf("%-14s threshold: %6.1f fixes/h, %4d restarts | hysteresis: %6.1f fixes/h, %4d restarts%n",
+                    trace.name(), legacy.fixesPerHour(), legacy.restarts,
+                    hysteresis.fixesPerHour(), hysteresis.restarts);
+
+            // Höchstens ein Neustart pro Mindestverweildauer
+            assertTrue(hysteresis.restarts <= DAY_MS / LocationModeController.DEFAULT_MIN_DWELL_MS);
+            if (trace instanceof ChargerFlapTrace) {
+                // Wackelkontakt: die feste Schwelle startet bei jedem Umstecken neu
+                assertTrue(hysteresis.restarts * 10 < legacy.restarts);
+            } else if (trace instanceof CommuteTrace) {
+                // Ohne Ladegerät: weniger Fixes durch Stillstand und Geofence-Abstand
+                assertTrue(hysteresis.fixes < legacy.fixes);
+            }
+        }
+    }
+
+    /**
+     * Spielt einen Tagesverlauf ab. Der nächste Fix folgt jeweils nach dem Intervall
+     * des aktuellen Modus; bei jedem Fix wird der Controller ausgewertet.
+     */
+    private static SimulationResult simulate(LocationPowerPolicy policy, long minDwellMs, Trace trace) {
+        LocationModeController controller = new LocationModeController(
+                policy, minDwellMs, LocationPowerPolicy.MODE_BALANCED);
+        long fixes = 0;
+        long time = 0;
+        while (time < DAY_MS) {
+            fixes++;
+            controller.update(trace.sample(time));
+            time += LocationModeController.getIntervalForMode(controller.getMode());
+        }
+        return new SimulationResult(fixes, controller.getRestartCount());
+    }
+
+    private static LocationPowerState state(long time, float battery, boolean charging, float speed,
+                                            double distance) {
+        return new LocationPowerState(time, battery, charging, speed, distance);
+    }
+
+    private static final class SimulationResult {
+        final long fixes;
+        final int restarts;
+
+        SimulationResult(long fixes, int restarts) {
+            this.fixes = fixes;
+            this.restarts = restarts;
+        }
+
+        double fixesPerHour() {
+            return fixes / 24.0;
+        }
+    }
+
+    /**
+     * Zeitabhängiger Verlauf von Akku, Ladezustand, Geschwindigkeit und Geofence-Abstand.
+     */
+    private interface Trace {
+        String name();
+
+        LocationPowerState sample(long time);
+    }
+
+    /**
+     * Akkustand schwankt durch Messrauschen um die Schwellwerte 15 % und 30 %,
+     * das Gerät bewegt sich regelmäßig an Geofences vorbei.
+     */
+    private static final class BatteryHoverTrace implements Trace {
+        private final Random random = new Random(1);
+
+        @Override
+        public String name() {
+            return "battery-hover";
+        }
+
+        @Override
+        public LocationPowerState sample(long time) {
+            float base = time < DAY_MS / 2 ? 30f : 15f;
+            float battery = base + (random.nextFloat() - 0.5f) * 3f;
+            long minute = time / MINUTE_MS;
+            boolean moving = minute % 30 < 10;
+            double distance = moving ? 100 + (minute % 10) * 80 : 1500;
+            return new LocationPowerState(time, battery, false, moving ? 5f : 0f, distance);
+        }
+    }
+
+    /**
+     * Wackelkontakt am Ladegerät: der Ladezustand wechselt alle ein bis drei Minuten,
+     * nachts bleibt das Gerät getrennt.
+     */
+    private static final class ChargerFlapTrace implements Trace {
+        @Override
+        public String name() {
+            return "charger-flap";
+        }
+
+        @Override
+        public LocationPowerState sample(long time) {
+            long minute = time / MINUTE_MS;
+            boolean charging = time < DAY_MS / 2 && (minute / (1 + (minute / 10) % 3)) % 2 == 0;
+            return new LocationPowerState(time, 25f, charging, 0f, 800);
+        }
+    }
+
+    /**
+     * Arbeitstag: Nacht zuhause innerhalb eines Geofence, Pendeln an Geofences vorbei,
+     * Büro ohne Geofence in der Nähe, abends Laden.
+     */
+    private static final class CommuteTrace implements Trace {
+        @Override
+        public String name() {
+            return "commute";
+        }
+
+        @Override
+        public LocationPowerState sample(long time) {
+            double hour = time / (double) HOUR_MS;
+            float battery = (float) Math.max(20, 95 - hour * 3.5);
+            boolean charging = hour >= 20;
+            if (hour < 7.5) {
+                return new LocationPowerState(time, battery, charging, 0f, -30);
+            } else if (hour < 8.5 || (hour >= 17 && hour < 18)) {
+                double distance = Math.abs(Math.sin(hour * 40)) * 1200;
+                return new LocationPowerState(time, battery, charging, 12f, distance);
+            } else if (hour < 17) {
+                // Kurze Wege im Büro (Geschwindigkeit schwankt um die Bewegungsschwelle)
+                float speed = (time / MINUTE_MS) % 7 == 0 ? 1.2f : 0.3f;
+                return new LocationPowerState(time, battery, charging, speed, 3000);
+            }
+            return new LocationPowerState(time, battery, charging, 0f, -30);
+        }
+    }
+}
@@ -0,0 +1,114 @@
+package de.dhbw.geofencinglbs.location;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+import org.junit.Test;
+
+import java.lang.management.ManagementFactory;
+
+/**
+ * Unit-Tests für die Klassifizierung des Providers sowie eine Messung der Allokationen
+ * pro Fix im Vergleich zum früheren, auf StringBuilder basierenden Text.
+ */
+public class ProviderInfoTest {
+
+    private static final int FIXES = 100_000;
+    private static final String[] PROVIDERS = {"gps", "network", "fused", "passive"};
+
+    @Test
+    public void of_reusesInstances() {
+        ProviderInfo info = ProviderInfo.of("gps", 4.5f, 9);
+        assertSame(info, ProviderInfo.of("gps", 8f, 9));
+        assertEquals(ProviderInfo.Source.GPS, info.getSource());
+        assertEquals(ProviderInfo.AccuracyClass.HIGH, info.getAccuracyClass());
+        assertEquals(9, info.getSatelliteCount());
+
+        assertSame(ProviderInfo.of(null, 500f, ProviderInfo.UNKNOWN_SATELLITES),
+                ProviderInfo.of("passive", 120f, ProviderInfo.UNKNOWN_SATELLITES));
+    }
+
+    @Test
+    public void format_matchesPreviousLabels() {
+        assertEquals("gps (Satellites: 9) [Hochpräzise]", ProviderInfo.of("gps", 4.5f, 9).format("WIFI"));
+        assertEquals("gps (Satellites: unknown) [Gut]",
+                ProviderInfo.of("gps", 20f, ProviderInfo.UNKNOWN_SATELLITES).format("WIFI"));
+        assertEquals("network (WIFI) [Mittel]",
+                ProviderInfo.of("network", 60f, ProviderInfo.UNKNOWN_SATELLITES).format("WIFI"));
+        assertEquals("fused (Hybrid) [Grob]",
+                ProviderInfo.of("fused", 150f, ProviderInfo.UNKNOWN_SATELLITES).format("WIFI"));
+    }
+
+    @Test
+    public void of_handlesUncachedSatelliteCounts() {
+        ProviderInfo info = ProviderInfo.of("gps", 3f, ProviderInfo.MAX_CACHED_SATELLITES + 1);
+        assertEquals(ProviderInfo.MAX_CACHED_SATELLITES + 1, info.getSatelliteCount());
+    }
+
+    @Test
+    public void classification_allocatesNothingPerFix() {
+        // Aufwärmen: JIT und Klasseninitialisierung sollen nicht mitgezählt werden
+        int checksum = classify(FIXES) + legacy(FIXES);
+
+        long before = allocatedBytes();
+        checksum += classify(FIXES);
+        long classifyBytes = allocatedBytes() - before;
+
+        before = allocatedBytes();
+        checksum += legacy(FIXES);
+        long legacyBytes = allocatedBytes() - before;
+
+        System.out.printf("ProviderInfo: %.2f bytes/fix | StringBuilder: %.1f bytes/fix (checksum %d)%n",
+                classifyBytes / (double) FIXES, legacyBytes / (double) FIXES, checksum);
+
+        // Messrauschen der Thread-Statistik zulassen, aber keine Allokation pro Fix
+        assertTrue(classifyBytes < FIXES / 10);
+        assertTrue(legacyBytes > FIXES * 10L);
+    }
+
+    private static int classify(int fixes) {
+        int checksum = 0;
+        for (int i = 0; i < fixes; i++) {
+            ProviderInfo info = ProviderInfo.of(PROVIDERS[i & 3], i % 150, i % 20);
+            checksum += info.getAccuracyClass().ordinal() + info.getSatelliteCount();
+        }
+        return checksum;
+    }
+
+    /**
+     * Nachbildung des früheren analyzeProvider: ein neuer Text pro Fix.
+     */
+    private static int legacy(int fixes) {
+        int checksum = 0;
+        for (int i = 0; i < fixes; i++) {
+            String provider = PROVIDERS[i & 3];
+            float accuracy = i % 150;
+            StringBuilder details = new StringBuilder(provider);
+            if ("gps".equals(provider)) {
+                details.append(" (Satellites: ").append(i % 20).append(")");
+            } else if ("network".equals(provider)) {
+                details.append(" (").append("WIFI").append(")");
+            } else if ("fused".equals(provider)) {
+                details.append(" (Hybrid)");
+            }
+            if (accuracy < 10) {
+                details.append(" [Hochpräzise]");
+            } else if (accuracy < 50) {
+                details.append(" [Gut]");
+            } else if (accuracy < 100) {
+                details.append(" [Mittel]");
+            } else {
+                details.append(" [Grob]");
+            }
+            checksum += details.toString().length();
+        }
+        return checksum;
+    }
+
+    private static long allocatedBytes() {
+        com.sun.management.ThreadMXBean threads =
+                (com.sun.management.ThreadMXBean) ManagementFactory.getThreadMXBean();
+        return threads.getThreadAllocatedBytes(Thread.currentThread().getId());
+    }
+}
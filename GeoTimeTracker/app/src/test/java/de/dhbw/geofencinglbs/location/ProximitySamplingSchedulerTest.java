@@ -0,0 +1,266 @@
+package de.dhbw.geofencinglbs.location;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Unit-Tests für den abstandsabhängigen Abtastplan sowie ein Replay eines Arbeitstages,
+ * das Fixes, GPS-Sekunden pro Stunde und die Erkennungsverzögerung an Geofence-Grenzen
+ * (einschließlich gebündelter Zustellung) mit fester Abtastung vergleicht.
+ */
+public class ProximitySamplingSchedulerTest {
+
+    private static final long SECOND_MS = 1000;
+    private static final long HOUR_MS = 3600 * SECOND_MS;
+    private static final long DAY_MS = 24 * HOUR_MS;
+
+    // Geofences entlang der Strecke: Mittelpunkt und Radius in Metern
+    private static final double[] FENCE_CENTERS = {0, 5000, 12000, 20000};
+    private static final double[] FENCE_RADII = {100, 150, 150, 100};
+
+    // Pendelstrecke: 20 km mit 15 m/s
+    private static final double COMMUTE_DISTANCE = 20000;
+    private static final double COMMUTE_SPEED = 15;
+    private static final long LEAVE_HOME_MS = (long) (7.5 * HOUR_MS);
+    private static final long LEAVE_WORK_MS = 17 * HOUR_MS;
+
+    private final ProximitySamplingScheduler scheduler = new ProximitySamplingScheduler();
+
+    @Test
+    public void schedule_samplesDenselyOnlyNearBoundaries() {
+        ProximitySamplingScheduler.Schedule near = scheduler.schedule(20, 10f, LocationPowerPolicy.MODE_HIGH_ACCURACY);
+        assertEquals(5000, near.getIntervalMs());
+        assertEquals(LocationPowerPolicy.MODE_HIGH_ACCURACY, near.getPriorityMode());
+
+        ProximitySamplingScheduler.Schedule far = scheduler.schedule(10000, 1f, LocationPowerPolicy.MODE_HIGH_ACCURACY);
+        assertEquals(ProximitySamplingScheduler.MAX_INTERVAL_MS, far.getIntervalMs());
+        assertEquals(LocationPowerPolicy.MODE_LOW_POWER, far.getPriorityMode());
+
+        // Unbekannte Geschwindigkeit: 1500 m / 15 m/s / 2 = 50 s -> Stufe 45 s
+        assertEquals(45000, scheduler.schedule(1500, Float.NaN, LocationPowerPolicy.MODE_HIGH_ACCURACY).getIntervalMs());
+    }
+
+    @Test
+    public void schedule_batchesOnlyFarFromBoundaries() {
+        // Nahe der Grenze wird jeder Fix sofort zugestellt
+        assertEquals(0, scheduler.schedule(20, 10f, LocationPowerPolicy.MODE_HIGH_ACCURACY).getMaxUpdateDelayMs());
+        // 100 s bis zur Grenze: 45 s Intervall + 90 s Verzögerung kämen zu spät
+        assertEquals(0, scheduler.schedule(1500, Float.NaN, LocationPowerPolicy.MODE_HIGH_ACCURACY).getMaxUpdateDelayMs());
+
+        ProximitySamplingScheduler.Schedule far = scheduler.schedule(10000, 1f, LocationPowerPolicy.MODE_HIGH_ACCURACY);
+        assertEquals(2 * ProximitySamplingScheduler.MAX_INTERVAL_MS, far.getMaxUpdateDelayMs());
+
+        // Das Mindestintervall des Modus verlängert das Intervall, nicht die Zeit bis zur Grenze
+        assertEquals(0, scheduler.schedule(200, 1f, LocationPowerPolicy.MODE_LOW_POWER).getMaxUpdateDelayMs());
+    }
+
+    @Test
+    public void schedule_respectsModeAsLowerBound() {
+        ProximitySamplingScheduler.Schedule schedule = scheduler.schedule(20, 10f, LocationPowerPolicy.MODE_LOW_POWER);
+        assertEquals(60000, schedule.getIntervalMs());
+        assertEquals(LocationPowerPolicy.MODE_LOW_POWER, schedule.getPriorityMode());
+
+        // Ohne Geofence gilt das längste Intervall
+        assertEquals(ProximitySamplingScheduler.MAX_INTERVAL_MS, scheduler.schedule(Double.POSITIVE_INFINITY, 0f,
+                LocationPowerPolicy.MODE_BALANCED).getIntervalMs());
+    }
+
+    @Test
+    public void shouldApply_lengthensOnlyOnLargeChanges() {
+        ProximitySamplingScheduler.Schedule current = new ProximitySamplingScheduler.Schedule(
+                45000, LocationPowerPolicy.MODE_BALANCED);
+        assertTrue(scheduler.shouldApply(current, new ProximitySamplingScheduler.Schedule(
+                20000, LocationPowerPolicy.MODE_HIGH_ACCURACY)));
+        assertFalse(scheduler.shouldApply(current, new ProximitySamplingScheduler.Schedule(
+                60000, LocationPowerPolicy.MODE_BALANCED)));
+        assertTrue(scheduler.shouldApply(current, new ProximitySamplingScheduler.Schedule(
+                90000, LocationPowerPolicy.MODE_BALANCED)));
+
+        // Ein Wegfall der Bündelung gilt sofort
+        ProximitySamplingScheduler.Schedule batched = new ProximitySamplingScheduler.Schedule(
+                300000, LocationPowerPolicy.MODE_LOW_POWER, 600000);
+        assertTrue(scheduler.shouldApply(batched, new ProximitySamplingScheduler.Schedule(
+                300000, LocationPowerPolicy.MODE_LOW_POWER)));
+    }
+
+    @Test
+    public void replay_commuteDay() {
+        ReplayResult fixed = replay(false, false);
+        ReplayResult proximity = replay(true, false);
+        ReplayResult alwaysBatched = replay(true, true);
+
+        System.out.printf("Fixed 5 s:  %6.1f fixes/h, %d deliveries, GPS %6.1f s/h, %d restarts, max delay %d s, missed %d%n",
+                fixed.fixesPerHour(), fixed.deliveries, fixed.gpsSecondsPerHour(), fixed.restarts,
+                fixed.maxDelayMs / 1000, fixed.missed);
+        System.out.printf("Proximity:  %6.1f fixes/h, %d deliveries, GPS %6.1f s/h, %d restarts, max delay %d s, missed %d%n",
+                proximity.fixesPerHour(), proximity.deliveries, proximity.gpsSecondsPerHour(), proximity.restarts,
+                proximity.maxDelayMs / 1000, proximity.missed);
+        System.out.printf("Batched:    %6.1f fixes/h, %d deliveries, GPS %6.1f s/h, %d restarts, max delay %d s, missed %d%n",
+                alwaysBatched.fixesPerHour(), alwaysBatched.deliveries, alwaysBatched.gpsSecondsPerHour(),
+                alwaysBatched.restarts, alwaysBatched.maxDelayMs / 1000, alwaysBatched.missed);
+
+        assertEquals(0, proximity.missed);
+        // Die Verzögerung wird ab dem Übertritt bis zur Zustellung gemessen
+        assertTrue(proximity.maxDelayMs <= 20 * SECOND_MS);
+        // Ohne Begrenzung der Verzögerung käme der dichte Plan erst nach dem Übertritt zum Tragen
+        assertTrue(alwaysBatched.maxDelayMs > 2 * proximity.maxDelayMs);
+        // Auch im Stillstand innerhalb eines kleinen Geofence bleibt die Abtastung dicht
+        // (Mindestgeschwindigkeit der Schranke), daher nur etwa ein Drittel
+        assertTrue(proximity.gpsOnMs * 2 < fixed.gpsOnMs);
+        assertTrue(proximity.fixes * 2 < fixed.fixes);
+        // Bei Dauerbetrieb des GPS entspricht die Einschaltzeit der Laufzeit
+        assertEquals(3600.0, fixed.gpsSecondsPerHour(), 1.0);
+    }
+
+    /**
+     * Spielt den Tagesverlauf ab. Die Zeitpunkte der Fixes ergeben sich aus dem jeweils
+     * gültigen Plan; an jedem Fix wird der Innen-/Außen-Zustand jedes Geofence geprüft
+     * und mit den tatsächlichen Grenzübertritten verglichen.
+     * <p>
+     * Wie beim FusedLocationProvider werden Fixes bis zur maximalen Verzögerung des Plans
+     * zurückgehalten. Erkannt ist ein Übertritt erst mit der Zustellung; auch der neue Plan
+     * wird erst dann (aus dem neuesten Fix der Zustellung) berechnet.
+     *
+     * @param alwaysBatch Verzögerung immer auf das Doppelte des Intervalls setzen (Vergleich)
+     */
+    private ReplayResult replay(boolean useScheduler, boolean alwaysBatch) {
+        ReplayResult result = new ReplayResult();
+        ProximitySamplingScheduler.Schedule current = null;
+        boolean[] inside = insideStates(0);
+        long[] lastCrossing = new long[FENCE_CENTERS.length];
+        int[] crossings = new int[FENCE_CENTERS.length];
+        int[] detected = new int[FENCE_CENTERS.length];
+
+        long time = 0;
+        long trueTime = 0;
+        boolean[] trueInside = insideStates(0);
+        long batchStart = -1;
+        List<Long> pendingCrossings = new ArrayList<>();
+        while (time < DAY_MS) {
+            // Tatsächliche Grenzübertritte bis zum Fix sekundengenau erfassen
+            for (; trueTime <= time; trueTime += SECOND_MS) {
+                boolean[] state = insideStates(trueTime);
+                for (int i = 0; i < state.length; i++) {
+                    if (state[i] != trueInside[i]) {
+                        lastCrossing[i] = trueTime;
+                        crossings[i]++;
+                    }
+                }
+                trueInside = state;
+            }
+
+            result.fixes++;
+            boolean[] state = insideStates(time);
+            for (int i = 0; i < state.length; i++) {
+                if (state[i] != inside[i]) {
+                    detected[i]++;
+                    pendingCrossings.add(lastCrossing[i]);
+                }
+            }
+            inside = state;
+            if (current != null) {
+                // Mit dem bisherigen Plan aufgenommen
+                result.gpsOnMs += ProximitySamplingScheduler.estimateGpsOnMs(current);
+            }
+
+            // Zurückhalten, solange der nächste Fix noch innerhalb der maximalen Verzögerung liegt
+            if (batchStart < 0) {
+                batchStart = time;
+            }
+            if (current != null && time + current.getIntervalMs() <= batchStart + current.getMaxUpdateDelayMs()) {
+                time += current.getIntervalMs();
+                continue;
+            }
+            long deliveryTime = current != null ? Math.max(time, batchStart + current.getMaxUpdateDelayMs()) : time;
+            result.deliveries++;
+            for (long crossing : pendingCrossings) {
+                result.maxDelayMs = Math.max(result.maxDelayMs, deliveryTime - crossing);
+            }
+            pendingCrossings.clear();
+            batchStart = -1;
+
+            ProximitySamplingScheduler.Schedule next = useScheduler
+                    ? scheduler.schedule(edgeDistance(position(time)), speed(time), LocationPowerPolicy.MODE_HIGH_ACCURACY)
+                    : new ProximitySamplingScheduler.Schedule(5000, LocationPowerPolicy.MODE_HIGH_ACCURACY);
+            if (alwaysBatch) {
+                // Feste Verzögerung unabhängig vom Abstand zur Grenze
+                next = new ProximitySamplingScheduler.Schedule(next.getIntervalMs(), next.getPriorityMode(),
+                        next.getIntervalMs() * ProximitySamplingScheduler.BATCH_FACTOR);
+            }
+            if (!next.equals(current) && scheduler.shouldApply(current, next)) {
+                current = next;
+                result.restarts++;
+            }
+            // Ein neuer Plan gilt frühestens ab der Zustellung
+            time = Math.max(deliveryTime, time + current.getIntervalMs());
+        }
+
+        // Übertritte, bei denen Ein- und Austritt zwischen zwei Fixes liegen, bleiben unerkannt
+        for (int i = 0; i < crossings.length; i++) {
+            result.missed += crossings[i] - detected[i];
+        }
+        return result;
+    }
+
+    private static double position(long time) {
+        if (time < LEAVE_HOME_MS) {
+            return 0;
+        }
+        long commuteMs = (long) (COMMUTE_DISTANCE / COMMUTE_SPEED * 1000);
+        if (time < LEAVE_HOME_MS + commuteMs) {
+            return (time - LEAVE_HOME_MS) / 1000.0 * COMMUTE_SPEED;
+        }
+        if (time < LEAVE_WORK_MS) {
+            return COMMUTE_DISTANCE;
+        }
+        if (time < LEAVE_WORK_MS + commuteMs) {
+            return COMMUTE_DISTANCE - (time - LEAVE_WORK_MS) / 1000.0 * COMMUTE_SPEED;
+        }
+        return 0;
+    }
+
+    private static float speed(long time) {
+        // Geschwindigkeit der letzten Sekunde, wie sie der Fix melden würde
+        return (float) Math.abs(position(time) - position(Math.max(0, time - SECOND_MS)));
+    }
+
+    private static double edgeDistance(double position) {
+        double nearest = Double.POSITIVE_INFINITY;
+        for (int i = 0; i < FENCE_CENTERS.length; i++) {
+            nearest = Math.min(nearest, Math.abs(position - FENCE_CENTERS[i]) - FENCE_RADII[i]);
+        }
+        return nearest;
+    }
+
+    private static boolean[] insideStates(long time) {
+        double position = position(time);
+        boolean[] inside = new boolean[FENCE_CENTERS.length];
+        for (int i = 0; i < FENCE_CENTERS.length; i++) {
+            inside[i] = Math.abs(position - FENCE_CENTERS[i]) <= FENCE_RADII[i];
+        }
+        return inside;
+    }
+
+    private static final class ReplayResult {
+        long fixes;
+        long deliveries;
+        long gpsOnMs;
+        int restarts;
+        long maxDelayMs;
+        int missed;
+
+        double fixesPerHour() {
+            return fixes * (double) HOUR_MS / DAY_MS;
+        }
+
+        double gpsSecondsPerHour() {
+            return gpsOnMs / 1000.0 * HOUR_MS / DAY_MS;
+        }
+    }
+}
@@ -0,0 +1,57 @@
+package de.dhbw.geofencinglbs.ui;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotSame;
+import static org.junit.Assert.assertSame;
+
+import org.junit.Test;
+
+import de.dhbw.geofencinglbs.model.GeofenceEvent;
+
+/**
+ * Unit-Tests für den Zeilen-Cache der Ereignisliste.
+ */
+public class EventRowFormatterTest {
+
+    @Test
+    public void format_cachesRowPerEventId() {
+        EventRowFormatter formatter = new EventRowFormatter();
+        GeofenceEvent event = event(1, 7);
+
+        EventRowFormatter.Row row = formatter.format(event);
+        assertSame(row, formatter.format(event));
+        assertEquals("Zone 7", row.geofenceId);
+        assertEquals("Eintritt", row.eventType);
+        assertEquals("Provider: gps", row.provider);
+        assertEquals(1, formatter.getMissCount());
+        assertEquals(1, formatter.getHitCount());
+    }
+
+    @Test
+    public void format_evictsLeastRecentlyUsedRows() {
+        EventRowFormatter formatter = new EventRowFormatter(2);
+        GeofenceEvent first = event(1, 1);
+        EventRowFormatter.Row firstRow = formatter.format(first);
+        formatter.format(event(2, 1));
+        formatter.format(first);
+        formatter.format(event(3, 1));
+
+        // Ereignis 1 wurde zuletzt verwendet und bleibt erhalten, Ereignis 2 wird verdrängt
+        assertSame(firstRow, formatter.format(first));
+        formatter.format(event(2, 1));
+        assertEquals(4, formatter.getMissCount());
+    }
+
+    @Test
+    public void format_keepsRowsOfDifferentEventsApart() {
+        EventRowFormatter formatter = new EventRowFormatter();
+        assertNotSame(formatter.format(event(1, 1)), formatter.format(event(2, 1)));
+    }
+
+    private static GeofenceEvent event(long id, long geofenceId) {
+        GeofenceEvent event = new GeofenceEvent(geofenceId, GeofenceEvent.TYPE_ENTER, 1700000000000L + id * 60000,
+                49.4875, 8.4660, 12.5f, "gps", 80f, false, "WIFI");
+        event.setId(id);
+        return event;
+    }
+}
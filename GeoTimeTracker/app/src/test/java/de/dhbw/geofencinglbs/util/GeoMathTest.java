@@ -0,0 +1,84 @@
+package de.dhbw.geofencinglbs.util;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import org.junit.Test;
+
+/**
+ * Unit-Tests für die Bounding-Box der Umkreissuche.
+ */
+public class GeoMathTest {
+
+    private static final double LAT = 49.4875;
+    private static final double LON = 8.4660;
+
+    @Test
+    public void boundingBoxes_paddedByRadiusContainsLargeGeofenceCentredOutside() {
+        // Geofence mit 4 km Radius, Mittelpunkt 6 km nördlich: Grenze 2 km entfernt
+        double geofenceLat = LAT + 6000 / GeoMath.METERS_PER_DEGREE_LAT;
+
+        assertFalse(contains(GeoMath.boundingBoxes(LAT, LON, 5000), geofenceLat, LON));
+        assertTrue(contains(GeoMath.boundingBoxes(LAT, LON, 5000 + 4000), geofenceLat, LON));
+    }
+
+    @Test
+    public void boundingBoxes_splitsAtAntimeridian() {
+        double[][] east = GeoMath.boundingBoxes(0, 179.99, 5000);
+        double[][] west = GeoMath.boundingBoxes(0, -179.99, 5000);
+
+        assertEquals(2, east.length);
+        assertEquals(2, west.length);
+        // Ca. 2,2 km entfernt, jenseits des 180. Längengrads
+        assertTrue(contains(east, 0, -179.99));
+        assertTrue(contains(west, 0, 179.99));
+        assertFalse(contains(east, 0, 0));
+    }
+
+    @Test
+    public void boundingBoxes_containsWholeCircle() {
+        double[] latitudes = {0, LAT, -65, 80};
+        for (double latitude : latitudes) {
+            double[][] boxes = GeoMath.boundingBoxes(latitude, LON, 50000);
+            for (int bearing = 0; bearing < 360; bearing += 15) {
+                double[] point = destination(latitude, LON, bearing, 49900);
+                assertTrue("lat " + latitude + ", bearing " + bearing, contains(boxes, point[0], point[1]));
+            }
+        }
+    }
+
+    @Test
+    public void boundingBoxes_nearPoleCoversAllLongitudes() {
+        double[][] boxes = GeoMath.boundingBoxes(89.99, LON, 5000);
+
+        assertEquals(1, boxes.length);
+        assertEquals(-180, boxes[0][2], 0);
+        assertEquals(180, boxes[0][3], 0);
+    }
+
+    private static boolean contains(double[][] boxes, double latitude, double longitude) {
+        for (double[] box : boxes) {
+            if (latitude >= box[0] && latitude <= box[1] && longitude >= box[2] && longitude <= box[3]) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * Zielpunkt nach {@code distanceMeters} in Richtung {@code bearingDegrees} (Kugelmodell).
+     */
+    private static double[] destination(double latitude, double longitude, double bearingDegrees,
+                                        double distanceMeters) {
+        double angular = distanceMeters / GeoMath.EARTH_RADIUS_METERS;
+        double bearing = Math.toRadians(bearingDegrees);
+        double lat1 = Math.toRadians(latitude);
+        double lat2 = Math.asin(Math.sin(lat1) * Math.cos(angular)
+                + Math.cos(lat1) * Math.sin(angular) * Math.cos(bearing));
+        double lon2 = Math.toRadians(longitude) + Math.atan2(
+                Math.sin(bearing) * Math.sin(angular) * Math.cos(lat1),
+                Math.cos(angular) - Math.sin(lat1) * Math.sin(lat2));
+        return new double[]{Math.toDegrees(lat2), Math.toDegrees(lon2)};
+    }
+}
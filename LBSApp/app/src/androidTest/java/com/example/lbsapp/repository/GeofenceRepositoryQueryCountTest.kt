@@ -0,0 +1,86 @@
+package com.example.lbsapp.repository
+
+import androidx.room.Room
+import androidx.test.ext.junit.runners.AndroidJUnit4
+import androidx.test.platform.app.InstrumentationRegistry
+import com.example.lbsapp.database.AppDatabase
+import com.example.lbsapp.database.GeofenceEntity
+import com.example.lbsapp.tracking.VisitLedger
+import kotlinx.coroutines.flow.first
+import kotlinx.coroutines.runBlocking
+import kotlinx.coroutines.withTimeout
+import org.junit.After
+import org.junit.Assert.assertEquals
+import org.junit.Assert.assertNull
+import org.junit.Assert.assertTrue
+import org.junit.Before
+import org.junit.Test
+import org.junit.runner.RunWith
+import java.util.concurrent.Executor
+import java.util.concurrent.atomic.AtomicInteger
+
+/**
+ * Zählt die Abfragen auf `geofences` während einer typischen Navigation (Liste → Details →
+ * Broadcasts → zurück zur Liste). Ohne Änderung darf die Tabelle nur einmal gelesen werden;
+ * eigene Änderungen müssen sofort lesbar sein.
+ */
+@RunWith(AndroidJUnit4::class)
+class GeofenceRepositoryQueryCountTest {
+
+    private lateinit var database: AppDatabase
+    private lateinit var repository: GeofenceRepository
+    private val geofenceQueries = AtomicInteger()
+
+    @Before
+    fun setUp() {
+        val context = InstrumentationRegistry.getInstrumentation().targetContext
+        database = Room.inMemoryDatabaseBuilder(context, AppDatabase::class.java)
+            .setQueryCallback({ sql, _ ->
+                if (sql.contains("FROM geofences")) {
+                    geofenceQueries.incrementAndGet()
+                }
+            }, Executor { it.run() })
+            .build()
+    }
+
+    @After
+    fun tearDown() {
+        database.close()
+    }
+
+    @Test
+    fun navigation_readsGeofencesOnceUntilTableChanges() = runBlocking {
+        val id = database.geofenceDao().insert(
+            GeofenceEntity(name = "Büro", latitude = 47.66, longitude = 9.47, radius = 100f))
+        // Erst danach anlegen, damit das Einfügen keine Invalidierung mehr auslöst
+        repository = GeofenceRepository(database, VisitLedger(database))
+        geofenceQueries.set(0)
+
+        repeat(5) {
+            // Liste
+            assertEquals(1, repository.geofences.first().size)
+            // Details
+            assertEquals("Büro", repository.observeGeofence(id).first()?.name)
+            // Broadcasts für Benachrichtigungen
+            repeat(20) { assertEquals("Büro", repository.getGeofenceName(id)) }
+            // Tracker beim Neustart
+            assertEquals(1, repository.getAllGeofences().size)
+        }
+        assertEquals(1, geofenceQueries.get())
+
+        // Eigene Änderungen sind sofort lesbar, ohne auf die Invalidierung zu warten
+        val newId = repository.addGeofence("Zuhause", 47.65, 9.48, 150f)
+        assertEquals("Zuhause", repository.getGeofenceName(newId))
+        assertEquals(2, repository.getAllGeofences().size)
+        withTimeout(5000) { repository.geofences.first { it.size == 2 } }
+
+        // Trifft die asynchrone Invalidierung erst nach dem Lesen ein, wird höchstens einmal nachgeladen
+        repeat(10) { repository.getGeofenceName(id) }
+        assertTrue("Abfragen: ${geofenceQueries.get()}", geofenceQueries.get() in 2..3)
+
+        // Löschen ist ebenso sofort sichtbar
+        repository.deleteGeofence(repository.getGeofence(newId)!!)
+        assertNull(repository.getGeofenceName(newId))
+        assertEquals(1, repository.getAllGeofences().size)
+    }
+}
@@ -0,0 +1,125 @@
+package com.example.lbsapp.repository
+
+import android.util.Log
+import androidx.room.Room
+import androidx.test.ext.junit.runners.AndroidJUnit4
+import androidx.test.filters.LargeTest
+import androidx.test.platform.app.InstrumentationRegistry
+import com.example.lbsapp.database.AppDatabase
+import com.example.lbsapp.database.GeofenceEntity
+import kotlinx.coroutines.runBlocking
+import org.junit.After
+import org.junit.Assert.assertEquals
+import org.junit.Before
+import org.junit.Test
+import org.junit.runner.RunWith
+import java.time.LocalDate
+import java.time.ZoneId
+import kotlin.random.Random
+
+/**
+ * Benchmark mit 1 Mio. Besuchen (20 Geofences, je ca. 5 Jahre): Tageshistogramm eines Jahres
+ * per SQL-Gruppierung im Vergleich zum Laden aller Besuche und Aufteilen im Speicher.
+ * Die Zeiten werden geloggt (Tag "VisitAnalyticsBenchmark"); geprüft wird nur die Übereinstimmung.
+ */
+@LargeTest
+@RunWith(AndroidJUnit4::class)
+class VisitAnalyticsBenchmark {
+
+    private val zone = ZoneId.of("Europe/Berlin")
+    private val visitCount = 1_000_000
+    private val geofences = 20
+
+    private lateinit var database: AppDatabase
+    private val geofenceIds = mutableListOf<Long>()
+
+    @Before
+    fun setUp() = runBlocking {
+        val context = InstrumentationRegistry.getInstrumentation().targetContext
+        database = Room.inMemoryDatabaseBuilder(context, AppDatabase::class.java).build()
+        repeat(geofences) { i ->
+            geofenceIds.add(database.geofenceDao().insert(
+                GeofenceEntity(name = "Zone $i", latitude = 47.66, longitude = 9.47, radius = 100f)))
+        }
+
+        // Direkt per Statement einfügen, sonst dominiert das Befüllen die Laufzeit
+        val random = Random(42)
+        val start = LocalDate.of(2020, 1, 1).atStartOfDay(zone).toInstant().toEpochMilli()
+        val db = database.openHelper.writableDatabase
+        val statement = db.compileStatement(
+            "INSERT INTO visits (geofenceId, enterTime, exitTime, totalDuration) VALUES (?, ?, ?, ?)")
+        val times = LongArray(geofences) { start }
+        db.beginTransaction()
+        try {
+            for (i in 0 until visitCount) {
+                val g = i % geofences
+                // Im Mittel ca. 30 Besuche pro Tag und Geofence, 1 bis 60 min lang
+                val enter = times[g] + random.nextLong(60_000L, 30 * 60_000L)
+                val exit = enter + random.nextLong(60_000L, 60 * 60_000L)
+                times[g] = exit
+                statement.bindLong(1, geofenceIds[g])
+                statement.bindLong(2, enter)
+                statement.bindLong(3, exit)
+                statement.bindLong(4, exit - enter)
+                statement.executeInsert()
+                statement.clearBindings()
+            }
+            db.setTransactionSuccessful()
+        } finally {
+            db.endTransaction()
+        }
+    }
+
+    @After
+    fun tearDown() {
+        database.close()
+    }
+
+    @Test
+    fun dailyHistogramForOneYear() = runBlocking {
+        val geofenceId = geofenceIds[3]
+        val from = LocalDate.of(2022, 1, 1).atStartOfDay(zone).toInstant().toEpochMilli()
+        val to = LocalDate.of(2023, 1, 1).atStartOfDay(zone).toInstant().toEpochMilli()
+        val analytics = VisitAnalytics(database) { to }
+
+        var started = System.nanoTime()
+        val days = analytics.dwellHistogram(geofenceId, VisitAnalytics.BucketSize.DAY, from, to, zone)
+        val sqlMs = (System.nanoTime() - started) / 1_000_000
+
+        started = System.nanoTime()
+        analytics.dwellHistogram(geofenceId, VisitAnalytics.BucketSize.DAY, from, to, zone)
+        val cachedUs = (System.nanoTime() - started) / 1_000
+
+        // Bisheriger Weg: alle Besuche laden und im Speicher auf Tage verteilen
+        started = System.nanoTime()
+        val inMemory = LongArray(days.size)
+        for (visit in database.visitDao().getAllVisitsForGeofence(geofenceId)) {
+            val enter = maxOf(visit.enterTime, from)
+            val exit = minOf(visit.exitTime!!, to)
+            var day = days.binarySearchBy(enter) { it.start }.let { if (it < 0) -it - 2 else it }
+            var time = enter
+            while (time < exit) {
+                val end = minOf(exit, days[day].end)
+                inMemory[day] += end - time
+                time = end
+                day++
+            }
+        }
+        val inMemoryMs = (System.nanoTime() - started) / 1_000_000
+
+        started = System.nanoTime()
+        val weeks = analytics.dwellHistogram(geofenceId, VisitAnalytics.BucketSize.WEEK, from, to, zone)
+        val weeksMs = (System.nanoTime() - started) / 1_000_000
+        started = System.nanoTime()
+        val hours = analytics.dwellHistogram(geofenceId, VisitAnalytics.BucketSize.HOUR, from, to, zone)
+        val hoursMs = (System.nanoTime() - started) / 1_000_000
+
+        Log.i("VisitAnalyticsBenchmark", "$visitCount Besuche: Tage per SQL $sqlMs ms, aus Cache $cachedUs µs, " +
+                "im Speicher $inMemoryMs ms, Wochen $weeksMs ms, Stunden $hoursMs ms")
+
+        assertEquals(365, days.size)
+        assertEquals(inMemory.toList(), days.map { it.dwellMs })
+        assertEquals(days.sumOf { it.dwellMs }, weeks.sumOf { it.dwellMs })
+        assertEquals(days.sumOf { it.dwellMs }, hours.sumOf { it.dwellMs })
+    }
+}
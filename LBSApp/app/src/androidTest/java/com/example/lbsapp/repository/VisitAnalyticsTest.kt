@@ -0,0 +1,161 @@
+package com.example.lbsapp.repository
+
+import androidx.room.Room
+import androidx.test.ext.junit.runners.AndroidJUnit4
+import androidx.test.platform.app.InstrumentationRegistry
+import com.example.lbsapp.database.AppDatabase
+import com.example.lbsapp.database.GeofenceEntity
+import com.example.lbsapp.database.VisitEntity
+import kotlinx.coroutines.flow.first
+import kotlinx.coroutines.runBlocking
+import kotlinx.coroutines.withTimeout
+import org.junit.After
+import org.junit.Assert.assertEquals
+import org.junit.Assert.assertNotSame
+import org.junit.Assert.assertSame
+import org.junit.Before
+import org.junit.Test
+import org.junit.runner.RunWith
+import java.time.LocalDateTime
+import java.time.ZoneId
+
+/**
+ * Prüft die Aufteilung von Besuchen an Tages-, Wochen- und Stundengrenzen (auch über
+ * Zeitumstellungen) sowie den Cache der Auswertung.
+ */
+@RunWith(AndroidJUnit4::class)
+class VisitAnalyticsTest {
+
+    private val zone = ZoneId.of("Europe/Berlin")
+    private val hour = 3_600_000L
+
+    private lateinit var database: AppDatabase
+    private lateinit var analytics: VisitAnalytics
+    private var geofenceId = 0L
+    private var now = 0L
+
+    @Before
+    fun setUp() = runBlocking {
+        val context = InstrumentationRegistry.getInstrumentation().targetContext
+        database = Room.inMemoryDatabaseBuilder(context, AppDatabase::class.java).build()
+        geofenceId = database.geofenceDao().insert(
+            GeofenceEntity(name = "Büro", latitude = 47.66, longitude = 9.47, radius = 100f))
+        now = at(2025, 1, 1, 0, 0)
+        analytics = VisitAnalytics(database) { now }
+    }
+
+    @After
+    fun tearDown() {
+        database.close()
+    }
+
+    @Test
+    fun day_splitsVisitAcrossMidnight() = runBlocking {
+        visit(at(2024, 3, 5, 22, 0), at(2024, 3, 6, 1, 30))
+
+        val days = analytics.dwellHistogram(geofenceId, VisitAnalytics.BucketSize.DAY,
+            at(2024, 3, 5, 0, 0), at(2024, 3, 7, 0, 0), zone)
+
+        assertEquals(listOf(at(2024, 3, 5, 0, 0), at(2024, 3, 6, 0, 0)), days.map { it.start })
+        assertEquals(listOf(2 * hour, 90 * 60_000L), days.map { it.dwellMs })
+        assertEquals(listOf(1, 1), days.map { it.visitCount })
+    }
+
+    @Test
+    fun week_startsOnMondayAndClipsRange() = runBlocking {
+        // Sonntag 20:00 bis Montag 04:00
+        visit(at(2024, 3, 10, 20, 0), at(2024, 3, 11, 4, 0))
+
+        val weeks = analytics.dwellHistogram(geofenceId, VisitAnalytics.BucketSize.WEEK,
+            at(2024, 3, 10, 22, 0), at(2024, 3, 18, 0, 0), zone)
+
+        assertEquals(listOf(at(2024, 3, 4, 0, 0), at(2024, 3, 11, 0, 0)), weeks.map { it.start })
+        assertEquals(listOf(2 * hour, 4 * hour), weeks.map { it.dwellMs })
+    }
+
+    @Test
+    fun day_countsDaylightSavingDaysWithRealLength() = runBlocking {
+        // 31.03.2024: Uhr springt um 02:00 auf 03:00, der Tag hat 23 Stunden
+        visit(at(2024, 3, 30, 12, 0), at(2024, 4, 1, 12, 0))
+
+        val days = analytics.dwellHistogram(geofenceId, VisitAnalytics.BucketSize.DAY,
+            at(2024, 3, 30, 0, 0), at(2024, 4, 2, 0, 0), zone)
+
+        assertEquals(listOf(12 * hour, 23 * hour, 12 * hour), days.map { it.dwellMs })
+        assertEquals(23 * hour, days[1].end - days[1].start)
+        // Der Besuch über die Umstellung zählt trotz geteilter Abfrage nur einmal
+        assertEquals(listOf(1, 1, 1), days.map { it.visitCount })
+    }
+
+    @Test
+    fun hour_mergesRepeatedHourWhenClockIsSetBack() = runBlocking {
+        // 27.10.2024: 03:00 wird wieder 02:00, die lokale Stunde 02 dauert zwei Stunden
+        visit(at(2024, 10, 27, 1, 30), at(2024, 10, 27, 3, 30))
+
+        val hours = analytics.dwellHistogram(geofenceId, VisitAnalytics.BucketSize.HOUR,
+            at(2024, 10, 27, 1, 0), at(2024, 10, 27, 4, 0), zone)
+
+        assertEquals(3, hours.size)
+        assertEquals(listOf(hour / 2, 2 * hour, hour / 2), hours.map { it.dwellMs })
+        assertEquals(2 * hour, hours[1].end - hours[1].start)
+        assertEquals(listOf(1, 1, 1), hours.map { it.visitCount })
+    }
+
+    @Test
+    fun openVisit_countsUntilNow() = runBlocking {
+        now = at(2024, 3, 5, 10, 0)
+        database.visitDao().insert(VisitEntity(geofenceId = geofenceId, enterTime = at(2024, 3, 5, 8, 0)))
+
+        val days = analytics.dwellHistogram(geofenceId, VisitAnalytics.BucketSize.DAY,
+            at(2024, 3, 5, 0, 0), at(2024, 3, 6, 0, 0), zone)
+
+        assertEquals(2 * hour, days.single().dwellMs)
+    }
+
+    @Test
+    fun cache_isInvalidatedByVisitWrites() = runBlocking {
+        visit(at(2024, 3, 5, 8, 0), at(2024, 3, 5, 9, 0))
+        val from = at(2024, 3, 4, 0, 0)
+        val to = at(2024, 3, 11, 0, 0)
+
+        val first = analytics.dwellHistogram(geofenceId, VisitAnalytics.BucketSize.DAY, from, to, zone)
+        assertSame(first, analytics.dwellHistogram(geofenceId, VisitAnalytics.BucketSize.DAY, from, to, zone))
+
+        visit(at(2024, 3, 6, 8, 0), at(2024, 3, 6, 10, 0))
+        val updated = withTimeout(5000) {
+            analytics.observeDwellHistogram(geofenceId, VisitAnalytics.BucketSize.DAY, from, to, zone)
+                .first { days -> days.sumOf { it.dwellMs } == 3 * hour }
+        }
+        assertNotSame(first, updated)
+        assertEquals(2 * hour, updated[2].dwellMs)
+    }
+
+    @Test
+    fun observe_reemitsLiveRangeWhileVisitIsOpen() = runBlocking {
+        now = at(2024, 3, 5, 10, 0)
+        database.visitDao().insert(VisitEntity(geofenceId = geofenceId, enterTime = at(2024, 3, 5, 8, 0)))
+        val live = VisitAnalytics(database, liveTtlMs = 50) { now }
+
+        // Ohne Schreibzugriff: jede Neuberechnung sieht eine Stunde mehr
+        val dwell = mutableListOf<Long>()
+        withTimeout(5000) {
+            live.observeDwellHistogram(geofenceId, VisitAnalytics.BucketSize.DAY,
+                at(2024, 3, 5, 0, 0), at(2024, 3, 6, 0, 0), zone)
+                .first { days ->
+                    dwell += days.single().dwellMs
+                    now += hour
+                    dwell.size == 3
+                }
+        }
+        assertEquals(listOf(2 * hour, 3 * hour, 4 * hour), dwell)
+    }
+
+    private suspend fun visit(enter: Long, exit: Long) {
+        database.visitDao().insert(
+            VisitEntity(geofenceId = geofenceId, enterTime = enter, exitTime = exit, totalDuration = exit - enter))
+    }
+
+    private fun at(year: Int, month: Int, day: Int, hour: Int, minute: Int): Long {
+        return LocalDateTime.of(year, month, day, hour, minute).atZone(zone).toInstant().toEpochMilli()
+    }
+}
@@ -0,0 +1,138 @@
+package com.example.lbsapp.tracking
+
+import androidx.room.Room
+import androidx.test.ext.junit.runners.AndroidJUnit4
+import androidx.test.platform.app.InstrumentationRegistry
+import com.example.lbsapp.database.AppDatabase
+import com.example.lbsapp.database.GeofenceEntity
+import com.example.lbsapp.database.VisitEntity
+import kotlinx.coroutines.Deferred
+import kotlinx.coroutines.Dispatchers
+import kotlinx.coroutines.async
+import kotlinx.coroutines.awaitAll
+import kotlinx.coroutines.runBlocking
+import org.junit.After
+import org.junit.Assert.assertEquals
+import org.junit.Assert.assertTrue
+import org.junit.Before
+import org.junit.Test
+import org.junit.runner.RunWith
+import java.util.concurrent.atomic.AtomicLong
+import kotlin.random.Random
+
+/**
+ * Stresstest für das Besuchsbuch: Tausende verschränkte ENTER/EXIT-Übergänge aus parallelen
+ * Coroutines (wie bei gleichzeitig zugestellten Broadcasts) dürfen keine doppelten offenen
+ * Besuche erzeugen und keinen Austritt verlieren.
+ */
+@RunWith(AndroidJUnit4::class)
+class VisitLedgerStressTest {
+
+    private lateinit var database: AppDatabase
+    private lateinit var ledger: VisitLedger
+    private val time = AtomicLong(1_000_000)
+
+    @Before
+    fun setUp() {
+        val context = InstrumentationRegistry.getInstrumentation().targetContext
+        database = Room.inMemoryDatabaseBuilder(context, AppDatabase::class.java).build()
+        ledger = VisitLedger(database) { time.addAndGet(1000) }
+    }
+
+    @After
+    fun tearDown() {
+        database.close()
+    }
+
+    @Test
+    fun interleavedTransitions_leaveAtMostOneOpenVisitPerGeofence() = runBlocking {
+        val geofenceIds = (1..16).map { i ->
+            database.geofenceDao().insert(GeofenceEntity(name = "Zone $i", latitude = 47.66, longitude = 9.47, radius = 100f))
+        }
+
+        // 8 Produzenten mit je 500 Übergängen, zufällig über alle Geofences verteilt
+        val outcomes = (0 until 8).map { producer ->
+            async(Dispatchers.Default) {
+                val random = Random(producer)
+                val results = mutableListOf<Deferred<VisitLedger.Outcome>>()
+                repeat(500) {
+                    val type = if (random.nextBoolean()) VisitLedger.TransitionType.ENTER else VisitLedger.TransitionType.EXIT
+                    results.add(ledger.submit(geofenceIds[random.nextInt(geofenceIds.size)], type))
+                }
+                results.awaitAll()
+            }
+        }.awaitAll().flatten()
+        assertEquals(4000, outcomes.size)
+
+        val visitDao = database.visitDao()
+        var totalVisits = 0
+        var closedVisits = 0
+        for (geofenceId in geofenceIds) {
+            val open = visitDao.getActiveVisitsForGeofence(geofenceId)
+            assertTrue("Doppelte offene Besuche für Geofence $geofenceId: ${open.size}", open.size <= 1)
+
+            val visits = visitDao.getAllVisitsForGeofence(geofenceId)
+            totalVisits += visits.size
+            closedVisits += visits.count { it.exitTime != null }
+            for (visit in visits) {
+                if (visit.exitTime != null) {
+                    assertEquals(visit.exitTime - visit.enterTime, visit.totalDuration)
+                    assertTrue(visit.totalDuration!! >= 0)
+                }
+            }
+        }
+
+        // Jeder angewendete Eintritt ergibt genau einen Besuch, jeder angewendete Austritt schließt genau einen
+        val appliedEnters = outcomes.count { it.type == VisitLedger.TransitionType.ENTER && it.applied }
+        val appliedExits = outcomes.count { it.type == VisitLedger.TransitionType.EXIT && it.applied }
+        assertEquals(appliedEnters, totalVisits)
+        assertEquals(appliedExits, closedVisits)
+        assertTrue(appliedEnters > 0 && appliedExits > 0)
+    }
+
+    @Test
+    fun burstOfEnters_createsSingleVisit() = runBlocking {
+        val geofenceId = database.geofenceDao().insert(
+            GeofenceEntity(name = "Büro", latitude = 47.66, longitude = 9.47, radius = 100f))
+
+        val outcomes = (0 until 1000).map {
+            async(Dispatchers.Default) { ledger.enter(geofenceId) }
+        }.awaitAll()
+
+        assertEquals(1, outcomes.count { it.applied })
+        assertEquals(1, database.visitDao().getActiveVisitsForGeofence(geofenceId).size)
+
+        // Ein Austritt schließt den Besuch, weitere Austritte ändern nichts
+        val exits = (0 until 100).map {
+            async(Dispatchers.Default) { ledger.exit(geofenceId) }
+        }.awaitAll()
+        assertEquals(1, exits.count { it.applied })
+        assertEquals(0, database.visitDao().getActiveVisitsForGeofence(geofenceId).size)
+    }
+
+    @Test
+    fun warmUp_closesStaleDuplicatesAndKeepsNewestOpen() = runBlocking {
+        val geofenceDao = database.geofenceDao()
+        val visitDao = database.visitDao()
+        val geofenceId = geofenceDao.insert(GeofenceEntity(name = "Büro", latitude = 47.66, longitude = 9.47, radius = 100f))
+        // Altlasten aus Wettläufen vor dem Besuchsbuch: drei offene Besuche
+        visitDao.insert(VisitEntity(geofenceId = geofenceId, enterTime = 1000))
+        visitDao.insert(VisitEntity(geofenceId = geofenceId, enterTime = 2000))
+        val newest = visitDao.insert(VisitEntity(geofenceId = geofenceId, enterTime = 3000))
+        // Viele andere offene Besuche dürfen den Austritt nicht beeinflussen
+        repeat(200) { i ->
+            val otherId = geofenceDao.insert(GeofenceEntity(name = "Zone $i", latitude = 47.0, longitude = 9.0, radius = 50f))
+            visitDao.insert(VisitEntity(geofenceId = otherId, enterTime = 500))
+        }
+
+        val restarted = VisitLedger(database) { 10_000 }
+        val exit = restarted.exit(geofenceId)
+
+        assertTrue(exit.applied)
+        assertEquals(newest, exit.visitId)
+        assertEquals(7000L, exit.duration)
+        val visits = visitDao.getAllVisitsForGeofence(geofenceId)
+        assertEquals(listOf(2000L, 3000L, 10_000L), visits.map { it.exitTime })
+        assertEquals(200, visitDao.getActiveVisits().size)
+    }
+}
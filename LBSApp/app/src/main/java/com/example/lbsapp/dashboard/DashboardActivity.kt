@@ -62,6 +62,7 @@ class DashboardActivity : AppCompatActivity() {
                 TrackingMode.GPS -> binding.gpsRadioButton.isChecked = true
                 TrackingMode.FUSED_LOCATION -> binding.fusedLocationRadioButton.isChecked = true
                 TrackingMode.GEOFENCING -> binding.geofencingRadioButton.isChecked = true
+                TrackingMode.FUSION -> binding.fusionRadioButton.isChecked = true
             }
         }
 
@@ -106,6 +107,7 @@ class DashboardActivity : AppCompatActivity() {
                 R.id.gpsRadioButton -> trackingManager.setTrackingMode(TrackingMode.GPS)
                 R.id.fusedLocationRadioButton -> trackingManager.setTrackingMode(TrackingMode.FUSED_LOCATION)
                 R.id.geofencingRadioButton -> trackingManager.setTrackingMode(TrackingMode.GEOFENCING)
+                R.id.fusionRadioButton -> trackingManager.setTrackingMode(TrackingMode.FUSION)
             }
 
             // Wenn wir den Modus wechseln, überprüfen wir, ob wir neue Berechtigungen benötigen
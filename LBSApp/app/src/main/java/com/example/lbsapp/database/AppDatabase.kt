@@ -6,10 +6,12 @@ import android.content.Context
 import androidx.room.Database
 import androidx.room.Room
 import androidx.room.RoomDatabase
+import androidx.room.migration.Migration
+import androidx.sqlite.db.SupportSQLiteDatabase
 
 @Database(
     entities = [GeofenceEntity::class, VisitEntity::class],
-    version = 1,
+    version = 3,
     exportSchema = false // Verhindert die Schema-Export-Warnung
 )
 abstract class AppDatabase : RoomDatabase() {
@@ -20,13 +22,30 @@ abstract class AppDatabase : RoomDatabase() {
         @Volatile
         private var INSTANCE: AppDatabase? = null
 
+        // Version 2: Index auf visits(geofenceId, exitTime) ersetzt den Index auf geofenceId
+        val MIGRATION_1_2 = object : Migration(1, 2) {
+            override fun migrate(db: SupportSQLiteDatabase) {
+                db.execSQL("DROP INDEX IF EXISTS index_visits_geofenceId")
+                db.execSQL("CREATE INDEX IF NOT EXISTS index_visits_geofenceId_exitTime ON visits (geofenceId, exitTime)")
+            }
+        }
+
+        // Version 3: abdeckender Index für die Auswertung nach Eintrittszeit
+        val MIGRATION_2_3 = object : Migration(2, 3) {
+            override fun migrate(db: SupportSQLiteDatabase) {
+                db.execSQL("CREATE INDEX IF NOT EXISTS index_visits_geofenceId_enterTime_exitTime ON visits (geofenceId, enterTime, exitTime)")
+            }
+        }
+
         fun getDatabase(context: Context): AppDatabase {
             return INSTANCE ?: synchronized(this) {
                 val instance = Room.databaseBuilder(
                     context.applicationContext,
                     AppDatabase::class.java,
                     "lbs_app_database"
-                ).build()
+                )
+                    .addMigrations(MIGRATION_1_2, MIGRATION_2_3)
+                    .build()
                 INSTANCE = instance
                 instance
             }
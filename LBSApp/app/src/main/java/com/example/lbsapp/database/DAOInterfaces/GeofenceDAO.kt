@@ -1,6 +1,5 @@
 package com.example.lbsapp.database
 
-import androidx.lifecycle.LiveData
 import androidx.room.Dao
 import androidx.room.Delete
 import androidx.room.Insert
@@ -12,7 +11,7 @@ interface GeofenceDao {
     suspend fun insert(geofence: GeofenceEntity): Long
 
     @Query("SELECT * FROM geofences")
-    fun getAllGeofences(): LiveData<List<GeofenceEntity>>
+    suspend fun getAllGeofencesList(): List<GeofenceEntity>
 
     @Query("SELECT * FROM geofences WHERE id = :id")
     suspend fun getGeofenceById(id: Long): GeofenceEntity?
@@ -1,10 +1,10 @@
 package com.example.lbsapp.database
 
-import androidx.lifecycle.LiveData
 import androidx.room.Dao
 import androidx.room.Insert
 import androidx.room.Query
 import androidx.room.Update
+import kotlinx.coroutines.flow.Flow
 
 @Dao
 interface VisitDao {
@@ -15,7 +15,10 @@ interface VisitDao {
     suspend fun update(visit: VisitEntity)
 
     @Query("SELECT * FROM visits WHERE geofenceId = :geofenceId ORDER BY enterTime DESC")
-    fun getVisitsForGeofence(geofenceId: Long): LiveData<List<VisitEntity>>
+    fun observeVisitsForGeofence(geofenceId: Long): Flow<List<VisitEntity>>
+
+    @Query("SELECT * FROM visits WHERE geofenceId = :geofenceId ORDER BY enterTime")
+    suspend fun getAllVisitsForGeofence(geofenceId: Long): List<VisitEntity>
 
     @Query("SELECT * FROM visits WHERE exitTime IS NULL")
     suspend fun getActiveVisits(): List<VisitEntity>
@@ -25,4 +28,57 @@ interface VisitDao {
 
     @Query("SELECT SUM(totalDuration) FROM visits WHERE geofenceId = :geofenceId AND totalDuration IS NOT NULL")
     suspend fun getTotalDurationForGeofence(geofenceId: Long): Long?
-}
\ No newline at end of file
+
+    /**
+     * Aufenthaltsdauer je Zeitfenster für Histogramme, gruppiert in SQL statt im Speicher.
+     *
+     * Fenster-Nummer = (Zeitpunkt + shift) / bucketMs, also lokale Fenster bei festem UTC-Offset
+     * in [shift]. Besuche werden auf [from, to) beschnitten und per rekursivem CTE an jeder
+     * Fenstergrenze geteilt (z.B. über Mitternacht). Offene Besuche zählen bis [now].
+     * Mit [carryOver] werden Besuche, die vor [from] begonnen haben, im ersten Fenster nicht
+     * erneut gezählt (Fortsetzung eines vorherigen Teilbereichs).
+     */
+    @Query("""
+        WITH RECURSIVE parts(bucket, partStart, visitEnd, counted) AS (
+            SELECT (MAX(enterTime, :from) + :shift) / :bucketMs,
+                   MAX(enterTime, :from),
+                   MIN(COALESCE(exitTime, :now), :to),
+                   CASE WHEN enterTime < :from AND :carryOver THEN 0 ELSE 1 END
+            FROM visits
+            WHERE geofenceId = :geofenceId AND enterTime < :to AND COALESCE(exitTime, :now) > :from
+            UNION ALL
+            SELECT bucket + 1, (bucket + 1) * :bucketMs - :shift, visitEnd, 1
+            FROM parts
+            WHERE (bucket + 1) * :bucketMs - :shift < visitEnd
+        )
+        SELECT bucket,
+               SUM(MIN(visitEnd, (bucket + 1) * :bucketMs - :shift) - partStart) AS dwellMs,
+               SUM(counted) AS visitCount
+        FROM parts
+        WHERE visitEnd > partStart
+        GROUP BY bucket
+        ORDER BY bucket
+    """)
+    suspend fun getDwellBuckets(
+        geofenceId: Long,
+        from: Long,
+        to: Long,
+        now: Long,
+        bucketMs: Long,
+        shift: Long,
+        carryOver: Boolean
+    ): List<DwellBucketRow>
+
+    // Schließt einen offenen Besuch; 0, wenn er nicht (mehr) offen ist
+    @Query("UPDATE visits SET exitTime = :exitTime, totalDuration = :exitTime - enterTime WHERE id = :visitId AND exitTime IS NULL")
+    suspend fun closeVisit(visitId: Long, exitTime: Long): Int
+}
+
+/**
+ * Ergebniszeile von [VisitDao.getDwellBuckets].
+ */
+data class DwellBucketRow(
+    val bucket: Long,
+    val dwellMs: Long,
+    val visitCount: Int
+)
\ No newline at end of file
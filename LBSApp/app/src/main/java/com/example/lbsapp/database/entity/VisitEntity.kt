@@ -10,7 +10,12 @@ import androidx.room.*
         childColumns = ["geofenceId"],
         onDelete = ForeignKey.CASCADE
     )],
-    indices = [Index("geofenceId")] // Füge einen Index für die Fremdschlüssel-Spalte hinzu (behebt die Warnung)
+    // (geofenceId, exitTime): Fremdschlüssel und Suche nach offenen Besuchen (exitTime IS NULL)
+    // (geofenceId, enterTime, exitTime): deckt die Zeitbereichs-Auswertungen ohne Tabellenzugriff ab
+    indices = [
+        Index(value = ["geofenceId", "exitTime"]),
+        Index(value = ["geofenceId", "enterTime", "exitTime"])
+    ]
 )
 data class VisitEntity(
     @PrimaryKey(autoGenerate = true) val id: Long = 0,
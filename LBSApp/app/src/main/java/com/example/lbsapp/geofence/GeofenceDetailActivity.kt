@@ -10,6 +10,11 @@ import androidx.recyclerview.widget.LinearLayoutManager
 import com.example.lbsapp.R
 import com.example.lbsapp.database.VisitEntity
 import com.example.lbsapp.databinding.ActivityGeofenceDetailsBinding
+import com.example.lbsapp.repository.VisitAnalytics
+import java.time.Instant
+import java.time.ZoneId
+import java.time.format.TextStyle
+import java.util.Locale
 
 class GeofenceDetailsActivity : AppCompatActivity() {
 
@@ -55,6 +60,10 @@ class GeofenceDetailsActivity : AppCompatActivity() {
             updateSummary(visits)
         }
 
+        viewModel.lastWeek.observe(this) { days ->
+            updateWeekTrend(days)
+        }
+
         // Back button
         binding.backButton.setOnClickListener {
             onBackPressed()
@@ -79,6 +88,15 @@ class GeofenceDetailsActivity : AppCompatActivity() {
         binding.averageTimeTextView.text = "Durchschnittliche Zeit: ${formatDuration(averageTime)}"
     }
 
+    private fun updateWeekTrend(days: List<VisitAnalytics.DwellBucket>) {
+        val zone = ZoneId.systemDefault()
+        binding.weekTrendTextView.text = "Letzte 7 Tage: " + days.joinToString(" · ") { day ->
+            val weekday = Instant.ofEpochMilli(day.start).atZone(zone).dayOfWeek
+                .getDisplayName(TextStyle.SHORT, Locale.getDefault())
+            "$weekday ${formatDuration(day.dwellMs)}"
+        }
+    }
+
     private fun formatDuration(durationMs: Long): String {
         val seconds = durationMs / 1000
         val minutes = seconds / 60
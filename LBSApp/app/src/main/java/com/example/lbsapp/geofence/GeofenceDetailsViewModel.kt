@@ -4,18 +4,31 @@ import android.app.Application
 import androidx.lifecycle.AndroidViewModel
 import androidx.lifecycle.ViewModel
 import androidx.lifecycle.ViewModelProvider
-import androidx.lifecycle.liveData
-import com.example.lbsapp.geofence.GeofenceRepository
+import androidx.lifecycle.asLiveData
+import com.example.lbsapp.repository.GeofenceRepository
+import com.example.lbsapp.repository.VisitAnalytics
+import java.time.LocalDate
+import java.time.ZoneId
 
 class GeofenceDetailsViewModel(application: Application, private val geofenceId: Long) : AndroidViewModel(application) {
 
-    private val repository = GeofenceRepository(application)
+    // App-weites Repository: der Geofence kommt aus dem Cache, nicht aus einer neuen Abfrage
+    private val repository = GeofenceRepository.getInstance(application)
 
-    val geofence = liveData {
-        emit(repository.geofenceDao.getGeofenceById(geofenceId))
-    }
+    val geofence = repository.observeGeofence(geofenceId).asLiveData()
+
+    val visits = repository.observeVisitsForGeofence(geofenceId).asLiveData()
 
-    val visits = repository.getVisitsForGeofence(geofenceId)
+    // Aufenthalt je Tag der letzten 7 Tage (inkl. heute), in SQL gruppiert
+    val lastWeek = run {
+        val zone = ZoneId.systemDefault()
+        val today = LocalDate.now(zone)
+        val from = today.minusDays(6).atStartOfDay(zone).toInstant().toEpochMilli()
+        val to = today.plusDays(1).atStartOfDay(zone).toInstant().toEpochMilli()
+        VisitAnalytics.getInstance(application)
+            .observeDwellHistogram(geofenceId, VisitAnalytics.BucketSize.DAY, from, to, zone)
+            .asLiveData()
+    }
 }
 
 class GeofenceDetailsViewModelFactory(
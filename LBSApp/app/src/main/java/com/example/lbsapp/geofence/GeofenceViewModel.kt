@@ -3,6 +3,7 @@ package com.example.lbsapp.geofence
 import android.app.Application
 import androidx.lifecycle.AndroidViewModel
 import androidx.lifecycle.LiveData
+import androidx.lifecycle.asLiveData
 import androidx.lifecycle.viewModelScope
 import com.example.lbsapp.database.GeofenceEntity
 import com.example.lbsapp.repository.GeofenceRepository
@@ -10,9 +11,9 @@ import kotlinx.coroutines.launch
 
 class GeofenceViewModel(application: Application) : AndroidViewModel(application) {
 
-    private val repository = GeofenceRepository(application)
+    private val repository = GeofenceRepository.getInstance(application)
 
-    val allGeofences: LiveData<List<GeofenceEntity>> = repository.allGeofences
+    val allGeofences: LiveData<List<GeofenceEntity>> = repository.geofences.asLiveData()
 
     fun addGeofence(name: String, latitude: Double, longitude: Double, radius: Float) {
         viewModelScope.launch {
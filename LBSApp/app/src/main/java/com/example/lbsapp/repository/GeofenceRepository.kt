@@ -1,24 +1,140 @@
 package com.example.lbsapp.repository
 
-import android.app.Application
+import android.content.Context
 import android.util.Log
-import androidx.lifecycle.LiveData
+import androidx.room.InvalidationTracker
 import com.example.lbsapp.database.AppDatabase
 import com.example.lbsapp.database.GeofenceEntity
 import com.example.lbsapp.database.VisitEntity
+import com.example.lbsapp.tracking.VisitLedger
+import kotlinx.coroutines.CoroutineScope
+import kotlinx.coroutines.Dispatchers
+import kotlinx.coroutines.SupervisorJob
+import kotlinx.coroutines.flow.Flow
+import kotlinx.coroutines.flow.MutableStateFlow
+import kotlinx.coroutines.flow.distinctUntilChanged
+import kotlinx.coroutines.flow.filterNotNull
+import kotlinx.coroutines.flow.map
+import kotlinx.coroutines.flow.onSubscription
+import kotlinx.coroutines.launch
+import kotlinx.coroutines.sync.Mutex
+import kotlinx.coroutines.sync.withLock
+
+/**
+ * Einzige Datenschicht der App für Geofences und Besuche (app-weit, eine Instanz).
+ *
+ * Geofences werden einmal gelesen und im Speicher gehalten. Room's InvalidationTracker meldet
+ * Änderungen an der Tabelle `geofences`; erst dann wird neu geladen – sofort, wenn jemand den Flow
+ * beobachtet, sonst beim nächsten Zugriff. Bildschirme, Tracker und Receiver teilen sich so
+ * denselben Stand, statt dieselben Zeilen wiederholt abzufragen. Eigene Schreibzugriffe markieren
+ * den Cache sofort als veraltet, da die Invalidierung asynchron nach der Transaktion eintrifft.
+ *
+ * Besuche werden nur über das [VisitLedger] geschrieben.
+ */
+class GeofenceRepository internal constructor(
+    private val database: AppDatabase,
+    private val ledger: VisitLedger
+) {
+
+    companion object {
+        private const val TAG = "GeofenceRepository"
+
+        @Volatile
+        private var instance: GeofenceRepository? = null
+
+        fun getInstance(context: Context): GeofenceRepository {
+            return instance ?: synchronized(this) {
+                instance ?: GeofenceRepository(
+                    AppDatabase.getDatabase(context.applicationContext),
+                    VisitLedger.getInstance(context)
+                ).also { instance = it }
+            }
+        }
+    }
 
-class GeofenceRepository(application: Application) {
-    private val TAG = "GeofenceRepository"
-    private val database = AppDatabase.getDatabase(application)
     private val geofenceDao = database.geofenceDao()
     private val visitDao = database.visitDao()
+    private val scope = CoroutineScope(SupervisorJob() + Dispatchers.IO)
+
+    // null, solange noch nicht geladen wurde
+    private val cache = MutableStateFlow<List<GeofenceEntity>?>(null)
+    @Volatile
+    private var cacheById: Map<Long, GeofenceEntity> = emptyMap()
+    @Volatile
+    private var stale = true
+    private val loadMutex = Mutex()
+
+    private val invalidationObserver = object : InvalidationTracker.Observer("geofences") {
+        override fun onInvalidated(tables: Set<String>) {
+            stale = true
+            // Aktive Beobachter sofort versorgen, sonst beim nächsten Zugriff laden
+            if (cache.subscriptionCount.value > 0) {
+                scope.launch { ensureLoaded() }
+            }
+        }
+    }
+
+    init {
+        database.invalidationTracker.addObserver(invalidationObserver)
+    }
+
+    /**
+     * Alle Geofences; neue Beobachter erhalten sofort den zwischengespeicherten Stand.
+     */
+    val geofences: Flow<List<GeofenceEntity>> = cache
+        .onSubscription { ensureLoaded() }
+        .filterNotNull()
+
+    fun observeGeofence(geofenceId: Long): Flow<GeofenceEntity?> {
+        return geofences.map { cacheById[geofenceId] }.distinctUntilChanged()
+    }
+
+    fun observeVisitsForGeofence(geofenceId: Long): Flow<List<VisitEntity>> {
+        return visitDao.observeVisitsForGeofence(geofenceId)
+    }
+
+    suspend fun getAllGeofences(): List<GeofenceEntity> {
+        ensureLoaded()
+        return cache.value ?: emptyList()
+    }
+
+    suspend fun getGeofence(geofenceId: Long): GeofenceEntity? {
+        ensureLoaded()
+        return cacheById[geofenceId]
+    }
+
+    suspend fun getGeofenceName(geofenceId: Long): String? {
+        return getGeofence(geofenceId)?.name
+    }
 
-    val allGeofences = geofenceDao.getAllGeofences()
+    private suspend fun ensureLoaded() {
+        if (!stale) {
+            return
+        }
+        loadMutex.withLock {
+            if (!stale) {
+                return
+            }
+            // Vor dem Lesen zurücksetzen: eine Änderung während des Ladens löst erneut ein Laden aus
+            stale = false
+            val geofences = try {
+                geofenceDao.getAllGeofencesList()
+            } catch (e: Exception) {
+                stale = true
+                throw e
+            }
+            cacheById = geofences.associateBy { it.id }
+            cache.value = geofences
+            Log.d(TAG, "Geofences geladen: ${geofences.size}")
+        }
+    }
 
     suspend fun addGeofence(name: String, latitude: Double, longitude: Double, radius: Float): Long {
         Log.d(TAG, "Füge Geofence hinzu: $name an Position $latitude, $longitude mit Radius $radius")
         val geofence = GeofenceEntity(name = name, latitude = latitude, longitude = longitude, radius = radius)
         val id = geofenceDao.insert(geofence)
+        // Lesen direkt nach dem Schreiben darf nicht auf die Invalidierung warten
+        stale = true
         Log.d(TAG, "Geofence erfolgreich hinzugefügt mit ID: $id")
         return id
     }
@@ -26,47 +142,37 @@ class GeofenceRepository(application: Application) {
     suspend fun deleteGeofence(geofence: GeofenceEntity) {
         Log.d(TAG, "Lösche Geofence mit ID: ${geofence.id} und Name: ${geofence.name}")
         geofenceDao.delete(geofence)
+        stale = true
+        ledger.forget(geofence.id)
         Log.d(TAG, "Geofence erfolgreich gelöscht")
     }
 
+    /**
+     * Zeichnet einen Eintritt über das Besuchsbuch auf (kein zweiter offener Besuch).
+     *
+     * @return ID des neuen bzw. bereits offenen Besuchs
+     */
     suspend fun recordEntry(geofenceId: Long): Long {
         Log.d(TAG, "Zeichne Eintritt für Geofence $geofenceId auf")
-        val visit = VisitEntity(geofenceId = geofenceId, enterTime = System.currentTimeMillis())
-        val id = visitDao.insert(visit)
-        Log.d(TAG, "Eintritt erfolgreich aufgezeichnet mit Besuchs-ID: $id")
-        return id
+        val outcome = ledger.enter(geofenceId)
+        Log.d(TAG, "Eintritt aufgezeichnet: ${outcome.applied}, Besuchs-ID: ${outcome.visitId}")
+        return outcome.visitId
     }
 
+    /**
+     * Zeichnet einen Austritt über das Besuchsbuch auf.
+     *
+     * @return false, wenn kein aktiver Besuch existierte
+     */
     suspend fun recordExit(geofenceId: Long): Boolean {
         Log.d(TAG, "Zeichne Austritt für Geofence $geofenceId auf")
-        val activeVisits = visitDao.getActiveVisitsForGeofence(geofenceId)
-        Log.d(TAG, "Aktive Besuche gefunden: ${activeVisits.size}")
-
-        if (activeVisits.isEmpty()) {
+        val outcome = ledger.exit(geofenceId)
+        if (outcome.applied) {
+            Log.d(TAG, "Austritt erfolgreich aufgezeichnet. Dauer: ${formatDuration(outcome.duration ?: 0)}")
+        } else {
             Log.d(TAG, "Kein aktiver Besuch gefunden für Geofence $geofenceId")
-            return false
         }
-
-        // Nimm den neuesten aktiven Besuch
-        val currentVisit = activeVisits[0]
-        Log.d(TAG, "Aktualisiere Besuch mit ID: ${currentVisit.id}")
-
-        val exitTime = System.currentTimeMillis()
-        val duration = exitTime - currentVisit.enterTime
-
-        val updatedVisit = currentVisit.copy(
-            exitTime = exitTime,
-            totalDuration = duration
-        )
-
-        visitDao.update(updatedVisit)
-        Log.d(TAG, "Austritt erfolgreich aufgezeichnet. Dauer: ${formatDuration(duration)}")
-        return true
-    }
-
-    fun getVisitsForGeofence(geofenceId: Long): LiveData<List<VisitEntity>> {
-        Log.d(TAG, "Rufe Besuche für Geofence $geofenceId ab")
-        return visitDao.getVisitsForGeofence(geofenceId)
+        return outcome.applied
     }
 
     suspend fun getTotalTimeInGeofence(geofenceId: Long): Long {
@@ -83,13 +189,6 @@ class GeofenceRepository(application: Application) {
         return visits
     }
 
-    suspend fun getGeofenceName(geofenceId: Long): String? {
-        Log.d(TAG, "Rufe Namen für Geofence $geofenceId ab")
-        val geofence = geofenceDao.getGeofenceById(geofenceId)
-        Log.d(TAG, "Geofence $geofenceId Name: ${geofence?.name}")
-        return geofence?.name
-    }
-
     private fun formatDuration(durationMs: Long): String {
         val seconds = durationMs / 1000
         val minutes = seconds / 60
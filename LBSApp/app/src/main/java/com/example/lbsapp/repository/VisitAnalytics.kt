@@ -0,0 +1,230 @@
+package com.example.lbsapp.repository
+
+import android.content.Context
+import android.util.Log
+import androidx.room.InvalidationTracker
+import com.example.lbsapp.database.AppDatabase
+import kotlinx.coroutines.ExperimentalCoroutinesApi
+import kotlinx.coroutines.delay
+import kotlinx.coroutines.flow.Flow
+import kotlinx.coroutines.flow.MutableStateFlow
+import kotlinx.coroutines.flow.flatMapLatest
+import kotlinx.coroutines.flow.flow
+import kotlinx.coroutines.flow.update
+import java.time.Instant
+import java.time.LocalDateTime
+import java.time.ZoneId
+import java.time.ZoneOffset
+
+/**
+ * Auswertung der Aufenthaltsdauer je Stunde, Tag oder Woche für Histogramme und Trends.
+ *
+ * Die Gruppierung läuft in SQL ([com.example.lbsapp.database.VisitDao.getDwellBuckets]); Besuche
+ * werden an den Fenstergrenzen geteilt, sodass ein Besuch über Mitternacht anteilig auf beide Tage
+ * fällt. Fenster liegen in lokaler Zeit der übergebenen Zone. Da SQL nur mit festem UTC-Offset
+ * rechnen kann, wird der Zeitraum an jeder Zeitumstellung in Teilbereiche zerlegt.
+ *
+ * Ergebnisse werden je (Geofence, Fenstergröße, Zeitraum, Zone) zwischengespeichert und bei jeder
+ * Änderung der Tabelle `visits` verworfen. Reicht ein Zeitraum über die aktuelle Zeit hinaus,
+ * wachsen offene Besuche weiter; solche Ergebnisse gelten nur [liveTtlMs] lang
+ * (Standard [LIVE_TTL_MS]).
+ */
+class VisitAnalytics internal constructor(
+    database: AppDatabase,
+    private val liveTtlMs: Long = LIVE_TTL_MS,
+    private val clock: () -> Long = System::currentTimeMillis
+) {
+
+    companion object {
+        private const val TAG = "VisitAnalytics"
+        const val LIVE_TTL_MS = 60_000L
+        private const val MAX_CACHE_ENTRIES = 32
+
+        @Volatile
+        private var instance: VisitAnalytics? = null
+
+        fun getInstance(context: Context): VisitAnalytics {
+            return instance ?: synchronized(this) {
+                instance ?: VisitAnalytics(AppDatabase.getDatabase(context.applicationContext)).also { instance = it }
+            }
+        }
+    }
+
+    /**
+     * Fenstergröße. Wochen beginnen am Montag ([alignment]: der 1.1.1970 war ein Donnerstag).
+     */
+    enum class BucketSize(val millis: Long, internal val alignment: Long) {
+        HOUR(3_600_000L, 0L),
+        DAY(86_400_000L, 0L),
+        WEEK(7 * 86_400_000L, 3 * 86_400_000L)
+    }
+
+    /**
+     * Ein Fenster des Histogramms.
+     *
+     * @property start Beginn des Fensters (lokale Fenstergrenze als Epoch-Millisekunden)
+     * @property end Ende des Fensters (exklusiv)
+     * @property dwellMs Aufenthaltsdauer innerhalb des Fensters
+     * @property visitCount Anzahl der Besuche, die das Fenster berühren
+     */
+    data class DwellBucket(
+        val start: Long,
+        val end: Long,
+        val dwellMs: Long,
+        val visitCount: Int
+    )
+
+    private data class CacheKey(
+        val geofenceId: Long,
+        val bucketSize: BucketSize,
+        val from: Long,
+        val to: Long,
+        val zone: ZoneId
+    )
+
+    private class CacheEntry(val buckets: List<DwellBucket>, val computedAt: Long, val live: Boolean)
+
+    private val visitDao = database.visitDao()
+
+    // Zugriff nur unter synchronized(cache); LRU in Zugriffsreihenfolge
+    private val cache = object : LinkedHashMap<CacheKey, CacheEntry>(16, 0.75f, true) {
+        override fun removeEldestEntry(eldest: MutableMap.MutableEntry<CacheKey, CacheEntry>?): Boolean {
+            return size > MAX_CACHE_ENTRIES
+        }
+    }
+
+    // Wird bei jeder Änderung an `visits` erhöht; verhindert, dass eine laufende Abfrage veraltete Werte einträgt
+    private val generation = MutableStateFlow(0L)
+
+    private val invalidationObserver = object : InvalidationTracker.Observer("visits") {
+        override fun onInvalidated(tables: Set<String>) {
+            // Leeren und Erhöhen gemeinsam unter der Sperre: sonst könnte eine Abfrage mit der alten
+            // Generation ihr veraltetes Ergebnis zwischen beiden Schritten eintragen
+            synchronized(cache) {
+                cache.clear()
+                generation.update { it + 1 }
+            }
+        }
+    }
+
+    init {
+        database.invalidationTracker.addObserver(invalidationObserver)
+    }
+
+    /**
+     * Aufenthaltsdauer je Fenster im Zeitraum [from, to). Fenster ohne Aufenthalt sind mit 0 enthalten.
+     */
+    suspend fun dwellHistogram(
+        geofenceId: Long,
+        bucketSize: BucketSize,
+        from: Long,
+        to: Long,
+        zone: ZoneId = ZoneId.systemDefault()
+    ): List<DwellBucket> {
+        require(from < to) { "Leerer Zeitraum: $from..$to" }
+        val key = CacheKey(geofenceId, bucketSize, from, to, zone)
+        val now = clock()
+        synchronized(cache) {
+            val cached = cache[key]
+            if (cached != null && (!cached.live || now - cached.computedAt < liveTtlMs)) {
+                return cached.buckets
+            }
+        }
+
+        val startGeneration = generation.value
+        val buckets = query(geofenceId, bucketSize, from, to, zone, now)
+        synchronized(cache) {
+            if (generation.value == startGeneration) {
+                cache[key] = CacheEntry(buckets, now, live = to > now)
+            }
+        }
+        return buckets
+    }
+
+    /**
+     * Wie [dwellHistogram], liefert aber nach jeder Änderung an den Besuchen ein neues Ergebnis.
+     * Reicht der Zeitraum über die aktuelle Zeit hinaus, wird zusätzlich alle [liveTtlMs] neu
+     * berechnet, damit offene Besuche im laufenden Fenster weiter wachsen.
+     */
+    @OptIn(ExperimentalCoroutinesApi::class)
+    fun observeDwellHistogram(
+        geofenceId: Long,
+        bucketSize: BucketSize,
+        from: Long,
+        to: Long,
+        zone: ZoneId = ZoneId.systemDefault()
+    ): Flow<List<DwellBucket>> {
+        return generation.flatMapLatest {
+            flow {
+                while (true) {
+                    emit(dwellHistogram(geofenceId, bucketSize, from, to, zone))
+                    // Abgeschlossener Zeitraum ändert sich nur noch durch Schreibzugriffe
+                    if (to <= clock()) break
+                    delay(liveTtlMs)
+                }
+            }
+        }
+    }
+
+    private suspend fun query(
+        geofenceId: Long,
+        bucketSize: BucketSize,
+        from: Long,
+        to: Long,
+        zone: ZoneId,
+        now: Long
+    ): List<DwellBucket> {
+        val rules = zone.rules
+        val dwell = HashMap<Long, Long>()
+        val counts = HashMap<Long, Int>()
+        var subFrom = from
+        var previousShift: Long? = null
+
+        // Teilbereiche mit konstantem UTC-Offset; die Fenster-Nummer ist in allen Teilbereichen lokal
+        while (subFrom < to) {
+            val instant = Instant.ofEpochMilli(subFrom)
+            val shift = rules.getOffset(instant).totalSeconds * 1000L + bucketSize.alignment
+            val nextTransition = rules.nextTransition(instant)?.instant?.toEpochMilli()
+            val subTo = if (nextTransition == null || nextTransition >= to) to else nextTransition
+            // Setzt sich das letzte Fenster des vorherigen Teilbereichs fort, wurden laufende Besuche dort schon gezählt
+            val carryOver = previousShift != null &&
+                    Math.floorDiv(subFrom - 1 + previousShift, bucketSize.millis) == Math.floorDiv(subFrom + shift, bucketSize.millis)
+
+            for (row in visitDao.getDwellBuckets(geofenceId, subFrom, subTo, now, bucketSize.millis, shift, carryOver)) {
+                dwell[row.bucket] = (dwell[row.bucket] ?: 0L) + row.dwellMs
+                counts[row.bucket] = (counts[row.bucket] ?: 0) + row.visitCount
+            }
+            previousShift = shift
+            subFrom = subTo
+        }
+
+        val firstBucket = bucketOf(from, bucketSize, zone)
+        val lastBucket = bucketOf(to - 1, bucketSize, zone)
+        val result = ArrayList<DwellBucket>((lastBucket - firstBucket + 1).toInt())
+        var start = bucketStart(firstBucket, bucketSize, zone)
+        for (bucket in firstBucket..lastBucket) {
+            val end = bucketStart(bucket + 1, bucketSize, zone)
+            // Übersprungene lokale Stunde (Vorstellung der Uhr) ergibt kein Fenster
+            if (end > start) {
+                result.add(DwellBucket(start, end, dwell[bucket] ?: 0L, counts[bucket] ?: 0))
+            }
+            start = end
+        }
+        Log.d(TAG, "Histogramm für Geofence $geofenceId: ${result.size} Fenster (${bucketSize.name})")
+        return result
+    }
+
+    private fun bucketOf(time: Long, bucketSize: BucketSize, zone: ZoneId): Long {
+        val offset = zone.rules.getOffset(Instant.ofEpochMilli(time)).totalSeconds * 1000L
+        return Math.floorDiv(time + offset + bucketSize.alignment, bucketSize.millis)
+    }
+
+    // Bei doppelt vorkommender lokaler Stunde (Rückstellung) beginnt das Fenster bei der früheren
+    private fun bucketStart(bucket: Long, bucketSize: BucketSize, zone: ZoneId): Long {
+        val localMillis = bucket * bucketSize.millis - bucketSize.alignment
+        return LocalDateTime.ofEpochSecond(Math.floorDiv(localMillis, 1000L), 0, ZoneOffset.UTC)
+            .atZone(zone)
+            .toInstant()
+            .toEpochMilli()
+    }
+}
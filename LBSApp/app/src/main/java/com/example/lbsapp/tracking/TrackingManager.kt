@@ -5,6 +5,7 @@ import androidx.lifecycle.LiveData
 import androidx.lifecycle.MediatorLiveData
 import androidx.lifecycle.MutableLiveData
 import com.example.lbsapp.tracking.base.BaseTracker
+import com.example.lbsapp.tracking.modes.CompositeTracker
 import com.example.lbsapp.tracking.modes.FusedLocationTracker
 import com.example.lbsapp.tracking.modes.GeofencingTracker
 import com.example.lbsapp.tracking.modes.GpsTracker
@@ -30,6 +31,16 @@ class TrackingManager private constructor(private val context: Context) {
     private val gpsTracker = GpsTracker(context)
     private val fusedLocationTracker = FusedLocationTracker(context)
     private val geofencingTracker = GeofencingTracker(context)
+    // Eigene GPS- und Fused-Instanzen, damit die Einzelmodi unverändert bleiben
+    private val compositeTracker = CompositeTracker(context)
+
+    // Tracker je Modus; ein neuer Modus wird nur hier eingetragen
+    private val trackers: Map<TrackingMode, BaseTracker> = mapOf(
+        TrackingMode.GPS to gpsTracker,
+        TrackingMode.FUSED_LOCATION to fusedLocationTracker,
+        TrackingMode.GEOFENCING to geofencingTracker,
+        TrackingMode.FUSION to compositeTracker
+    )
 
     // Der aktuelle aktive Tracker
     private var currentTracker: BaseTracker? = null
@@ -56,17 +67,10 @@ class TrackingManager private constructor(private val context: Context) {
     }
 
     private fun setupLiveDataObservers() {
-        // GPS Tracker
-        _error.addSource(gpsTracker.error) { _error.value = it }
-        _locationData.addSource(gpsTracker.locationData) { if (currentTracker == gpsTracker) _locationData.value = it }
-
-        // Fused Location Tracker
-        _error.addSource(fusedLocationTracker.error) { _error.value = it }
-        _locationData.addSource(fusedLocationTracker.locationData) { if (currentTracker == fusedLocationTracker) _locationData.value = it }
-
-        // Geofencing Tracker
-        _error.addSource(geofencingTracker.error) { _error.value = it }
-        _locationData.addSource(geofencingTracker.locationData) { if (currentTracker == geofencingTracker) _locationData.value = it }
+        for (tracker in trackers.values) {
+            _error.addSource(tracker.error) { _error.value = it }
+            _locationData.addSource(tracker.locationData) { if (currentTracker == tracker) _locationData.value = it }
+        }
     }
 
     /**
@@ -77,12 +81,7 @@ class TrackingManager private constructor(private val context: Context) {
             stopTracking() // Stoppe zuerst, falls bereits aktiv
         }
 
-        currentTracker = when (_currentMode.value) {
-            TrackingMode.GPS -> gpsTracker
-            TrackingMode.FUSED_LOCATION -> fusedLocationTracker
-            TrackingMode.GEOFENCING -> geofencingTracker
-            else -> gpsTracker // Fallback auf GPS
-        }
+        currentTracker = trackers[_currentMode.value] ?: gpsTracker // Fallback auf GPS
 
         currentTracker?.startTracking()
         _isTracking.value = true
@@ -131,12 +130,7 @@ class TrackingManager private constructor(private val context: Context) {
      * Prüft, ob der aktuelle Tracker die nötigen Berechtigungen hat
      */
     fun hasPermissions(): Boolean {
-        return when (_currentMode.value) {
-            TrackingMode.GPS -> gpsTracker.hasPermissions()
-            TrackingMode.FUSED_LOCATION -> fusedLocationTracker.hasPermissions()
-            TrackingMode.GEOFENCING -> geofencingTracker.hasPermissions()
-            else -> false
-        }
+        return trackers[_currentMode.value]?.hasPermissions() ?: false
     }
 
     /**
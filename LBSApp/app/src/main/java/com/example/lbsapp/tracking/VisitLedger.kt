@@ -0,0 +1,194 @@
+package com.example.lbsapp.tracking
+
+import android.content.Context
+import android.util.Log
+import androidx.room.withTransaction
+import com.example.lbsapp.database.AppDatabase
+import com.example.lbsapp.database.VisitEntity
+import kotlinx.coroutines.CompletableDeferred
+import kotlinx.coroutines.CoroutineScope
+import kotlinx.coroutines.Deferred
+import kotlinx.coroutines.Dispatchers
+import kotlinx.coroutines.SupervisorJob
+import kotlinx.coroutines.channels.Channel
+import kotlinx.coroutines.launch
+
+/**
+ * App-weites Besuchsbuch: einziger Schreiber für Eintritte und Austritte.
+ *
+ * Alle Übergänge laufen über einen Kanal, den genau eine Coroutine abarbeitet. Jeder Übergang
+ * wird in einer eigenen Room-Transaktion geprüft und angewendet (offenen Besuch suchen →
+ * anlegen bzw. schließen). Dadurch können gleichzeitige Broadcasts weder doppelte offene
+ * Besuche anlegen noch Austritte verlieren.
+ *
+ * Offene Besuche werden zusätzlich nach Geofence-ID im Speicher gehalten. Die Tabelle wird nur
+ * einmal beim Start gelesen; danach findet ein Übergang den offenen Besuch ohne Abfrage.
+ * Da nur diese Coroutine schreibt, bleibt die Map mit der Datenbank konsistent.
+ */
+class VisitLedger internal constructor(
+    private val database: AppDatabase,
+    private val clock: () -> Long = System::currentTimeMillis
+) {
+
+    companion object {
+        private const val TAG = "VisitLedger"
+
+        @Volatile
+        private var instance: VisitLedger? = null
+
+        fun getInstance(context: Context): VisitLedger {
+            return instance ?: synchronized(this) {
+                instance ?: VisitLedger(AppDatabase.getDatabase(context.applicationContext)).also { instance = it }
+            }
+        }
+    }
+
+    enum class TransitionType { ENTER, EXIT }
+
+    /**
+     * Ergebnis eines angewendeten Übergangs.
+     *
+     * @property applied false, wenn der Übergang nichts geändert hat (bereits drinnen bzw. kein offener Besuch)
+     * @property visitId ID des angelegten bzw. geschlossenen Besuchs (0, wenn nicht angewendet)
+     * @property duration Aufenthaltsdauer des geschlossenen Besuchs in Millisekunden (nur bei EXIT)
+     */
+    data class Outcome(
+        val geofenceId: Long,
+        val type: TransitionType,
+        val applied: Boolean,
+        val visitId: Long = 0,
+        val duration: Long? = null
+    )
+
+    private sealed class Command {
+        class Transition(
+            val geofenceId: Long,
+            val type: TransitionType,
+            val time: Long,
+            val result: CompletableDeferred<Outcome>
+        ) : Command()
+
+        // Geofence gelöscht: offene Besuche wurden per CASCADE entfernt
+        class Forget(val geofenceId: Long) : Command()
+    }
+
+    /**
+     * App-weiter Scope für Arbeit, die einen Broadcast überdauern muss (z.B. nach goAsync()).
+     */
+    val scope = CoroutineScope(SupervisorJob() + Dispatchers.IO)
+
+    private val commands = Channel<Command>(Channel.UNLIMITED)
+
+    // Offener Besuch je Geofence; nur von der Schreib-Coroutine verwendet
+    private val openVisits = HashMap<Long, VisitEntity>()
+    private var warmedUp = false
+
+    init {
+        scope.launch {
+            // Beim Start vorwärmen; schlägt das fehl, folgt ein neuer Versuch beim ersten Übergang
+            try {
+                warmUp()
+            } catch (e: Exception) {
+                Log.e(TAG, "Offene Besuche konnten nicht geladen werden: ${e.message}", e)
+            }
+            for (command in commands) {
+                when (command) {
+                    is Command.Transition -> process(command)
+                    is Command.Forget -> openVisits.remove(command.geofenceId)
+                }
+            }
+        }
+    }
+
+    private suspend fun process(command: Command.Transition) {
+        val outcome = try {
+            if (!warmedUp) {
+                warmUp()
+            }
+            apply(command)
+        } catch (e: Exception) {
+            Log.e(TAG, "Fehler beim Anwenden von ${command.type} für Geofence ${command.geofenceId}: ${e.message}", e)
+            // Nach einem Fehler ist unklar, ob die Transaktion angewendet wurde: Map neu laden
+            warmedUp = false
+            command.result.completeExceptionally(e)
+            return
+        }
+        command.result.complete(outcome)
+    }
+
+    /**
+     * Lädt alle offenen Besuche in die Map. Mehrere offene Besuche je Geofence (Altlasten früherer
+     * Wettläufe) werden dabei bis auf den neuesten zum Eintrittszeitpunkt des Nachfolgers geschlossen.
+     */
+    private suspend fun warmUp() {
+        val visitDao = database.visitDao()
+        database.withTransaction {
+            openVisits.clear()
+            val byGeofence = visitDao.getActiveVisits().groupBy { it.geofenceId }
+            for ((geofenceId, visits) in byGeofence) {
+                val sorted = visits.sortedBy { it.enterTime }
+                for (i in 0 until sorted.size - 1) {
+                    Log.w(TAG, "Schließe doppelten offenen Besuch ${sorted[i].id} für Geofence $geofenceId")
+                    visitDao.closeVisit(sorted[i].id, sorted[i + 1].enterTime)
+                }
+                openVisits[geofenceId] = sorted.last()
+            }
+        }
+        warmedUp = true
+        Log.d(TAG, "Offene Besuche geladen: ${openVisits.size}")
+    }
+
+    /**
+     * Reiht einen Übergang ein. Das Ergebnis liegt vor, sobald die Transaktion abgeschlossen ist.
+     */
+    fun submit(geofenceId: Long, type: TransitionType, time: Long = clock()): Deferred<Outcome> {
+        val result = CompletableDeferred<Outcome>()
+        commands.trySend(Command.Transition(geofenceId, type, time, result))
+        return result
+    }
+
+    /**
+     * Muss nach dem Löschen eines Geofence aufgerufen werden, damit ein späterer Eintritt
+     * nicht an einem per CASCADE gelöschten Besuch scheitert.
+     */
+    fun forget(geofenceId: Long) {
+        commands.trySend(Command.Forget(geofenceId))
+    }
+
+    suspend fun enter(geofenceId: Long): Outcome = submit(geofenceId, TransitionType.ENTER).await()
+
+    suspend fun exit(geofenceId: Long): Outcome = submit(geofenceId, TransitionType.EXIT).await()
+
+    private suspend fun apply(command: Command.Transition): Outcome {
+        val visitDao = database.visitDao()
+        return database.withTransaction {
+            val openVisit = openVisits[command.geofenceId]
+            when (command.type) {
+                TransitionType.ENTER -> {
+                    if (openVisit != null) {
+                        Log.d(TAG, "Eintritt ignoriert, bereits aktiver Besuch für Geofence ${command.geofenceId}")
+                        Outcome(command.geofenceId, command.type, applied = false, visitId = openVisit.id)
+                    } else {
+                        val visit = VisitEntity(geofenceId = command.geofenceId, enterTime = command.time)
+                        val id = visitDao.insert(visit)
+                        openVisits[command.geofenceId] = visit.copy(id = id)
+                        Outcome(command.geofenceId, command.type, applied = true, visitId = id)
+                    }
+                }
+                TransitionType.EXIT -> {
+                    // Austritt nie vor dem Eintritt (z.B. bei verspätet zugestellten Broadcasts)
+                    val exitTime = if (openVisit != null) maxOf(command.time, openVisit.enterTime) else 0L
+                    if (openVisit == null || visitDao.closeVisit(openVisit.id, exitTime) == 0) {
+                        Log.d(TAG, "Austritt ignoriert, kein aktiver Besuch für Geofence ${command.geofenceId}")
+                        openVisits.remove(command.geofenceId)
+                        Outcome(command.geofenceId, command.type, applied = false)
+                    } else {
+                        openVisits.remove(command.geofenceId)
+                        Outcome(command.geofenceId, command.type, applied = true, visitId = openVisit.id,
+                            duration = exitTime - openVisit.enterTime)
+                    }
+                }
+            }
+        }
+    }
+}
@@ -0,0 +1,91 @@
+package com.example.lbsapp.tracking.fusion
+
+/**
+ * Entscheidet, wann GPS neben dem Fused Location Provider laufen muss.
+ *
+ * GPS wird abgeschaltet, sobald [confirmFixes] Fused-Fixes in Folge mindestens [goodAccuracy]
+ * erreichen und GPS seit [minOnMs] läuft. Es wird wieder eingeschaltet, wenn ein Fused-Fix
+ * schlechter als [poorAccuracy] ist oder [fusedTimeoutMs] lang kein Fused-Fix kam.
+ * Der Abstand zwischen beiden Schwellen verhindert ständiges Umschalten.
+ *
+ * Die Einschaltzeit wird mitgezählt ([gpsOnMs]), damit Modi vergleichbar sind.
+ */
+class GpsDutyCycle(
+    private val goodAccuracy: Float = DEFAULT_GOOD_ACCURACY,
+    private val poorAccuracy: Float = DEFAULT_POOR_ACCURACY,
+    private val confirmFixes: Int = 3,
+    private val fusedTimeoutMs: Long = 30_000L,
+    private val minOnMs: Long = 30_000L
+) {
+
+    companion object {
+        const val DEFAULT_GOOD_ACCURACY = 20f
+        const val DEFAULT_POOR_ACCURACY = 35f
+    }
+
+    var gpsOn = false
+        private set
+
+    private var changedAt = 0L
+    private var lastFusedTime = 0L
+    private var goodStreak = 0
+    private var accumulatedOnMs = 0L
+
+    /**
+     * Beginnt mit eingeschaltetem GPS, bis der Fused Provider seine Genauigkeit bewiesen hat.
+     */
+    fun start(now: Long) {
+        goodStreak = 0
+        lastFusedTime = now
+        switch(true, now)
+    }
+
+    fun stop(now: Long) {
+        switch(false, now)
+    }
+
+    /**
+     * @return true, wenn sich der GPS-Zustand dadurch geändert hat
+     */
+    fun onFusedFix(time: Long, accuracy: Float): Boolean {
+        lastFusedTime = time
+        goodStreak = if (accuracy <= goodAccuracy) goodStreak + 1 else 0
+        return if (gpsOn) {
+            goodStreak >= confirmFixes && time - changedAt >= minOnMs && switch(false, time)
+        } else {
+            accuracy > poorAccuracy && switch(true, time)
+        }
+    }
+
+    /**
+     * Regelmäßig aufrufen: schaltet GPS ein, wenn der Fused Provider verstummt ist.
+     *
+     * @return true, wenn sich der GPS-Zustand dadurch geändert hat
+     */
+    fun onTick(now: Long): Boolean {
+        if (!gpsOn && now - lastFusedTime >= fusedTimeoutMs) {
+            goodStreak = 0
+            return switch(true, now)
+        }
+        return false
+    }
+
+    /**
+     * Gesamte GPS-Einschaltzeit bis [now].
+     */
+    fun gpsOnMs(now: Long): Long {
+        return accumulatedOnMs + if (gpsOn) now - changedAt else 0L
+    }
+
+    private fun switch(on: Boolean, now: Long): Boolean {
+        if (gpsOn == on) {
+            return false
+        }
+        if (gpsOn) {
+            accumulatedOnMs += now - changedAt
+        }
+        gpsOn = on
+        changedAt = now
+        return true
+    }
+}
@@ -0,0 +1,178 @@
+package com.example.lbsapp.tracking.fusion
+
+import kotlin.math.cos
+import kotlin.math.hypot
+import kotlin.math.sqrt
+
+/**
+ * Gewichtete Fusion mehrerer Standortquellen zu einem einzigen Schätzwert.
+ *
+ * Ein Kalman-Filter mit konstanter Geschwindigkeit je Achse (lokale Meter um den ersten Fix)
+ * gewichtet jeden Fix nach seiner gemeldeten Genauigkeit: ein GPS-Fix mit 5 m zieht die Schätzung
+ * stark, ein Fused-Fix mit 40 m nur wenig. Zwischen den Fixes wächst die Unsicherheit mit der Zeit,
+ * sodass nach einer GPS-Pause auch gröbere Fixes wieder Gewicht bekommen.
+ *
+ * Fixes, die weit außerhalb der erwarteten Unsicherheit liegen, werden verworfen; nach
+ * [MAX_CONSECUTIVE_REJECTS] Ausreißern in Folge wird neu gestartet (z.B. nach langer Pause).
+ * Die Klasse ist nicht thread-sicher und ohne Android-Abhängigkeiten testbar.
+ */
+class LocationFusion(private val accelerationNoise: Double = DEFAULT_ACCELERATION_NOISE) {
+
+    companion object {
+        /** Standard-Beschleunigungsrauschen in m/s² (Fußgänger bis Stadtverkehr). */
+        const val DEFAULT_ACCELERATION_NOISE = 1.5
+        /** Ausreißer-Schwelle in Standardabweichungen der Innovation. */
+        const val GATE_SIGMA = 4.0
+        const val MAX_CONSECUTIVE_REJECTS = 3
+        /** Nach so langer Pause wird der Filter mit dem nächsten Fix neu gestartet. */
+        const val MAX_GAP_MS = 5 * 60_000L
+
+        private const val METERS_PER_DEGREE_LAT = 110_540.0
+        private const val METERS_PER_DEGREE_LON = 111_320.0
+    }
+
+    enum class Source { GPS, FUSED }
+
+    /**
+     * Ein Fix einer Quelle.
+     *
+     * @property accuracy Genauigkeit in Metern (wie Location.getAccuracy())
+     */
+    data class Fix(
+        val source: Source,
+        val time: Long,
+        val latitude: Double,
+        val longitude: Double,
+        val accuracy: Float
+    )
+
+    /**
+     * Fusionierter Schätzwert.
+     *
+     * @property source Quelle des Fixes, der die Schätzung zuletzt aktualisiert hat
+     */
+    data class Estimate(
+        val time: Long,
+        val latitude: Double,
+        val longitude: Double,
+        val accuracy: Float,
+        val speed: Float,
+        val source: Source
+    )
+
+    private var originLat = 0.0
+    private var originLon = 0.0
+    private var metersPerLon = METERS_PER_DEGREE_LON
+
+    // Zustand je Achse (Position, Geschwindigkeit); die Kovarianz ist für beide Achsen gleich
+    private var x = 0.0
+    private var vx = 0.0
+    private var y = 0.0
+    private var vy = 0.0
+    private var p00 = 0.0
+    private var p01 = 0.0
+    private var p11 = 0.0
+    private var time = 0L
+    private var initialized = false
+    private var consecutiveRejects = 0
+
+    var acceptedCount = 0
+        private set
+    var rejectedCount = 0
+        private set
+
+    /**
+     * Verarbeitet einen Fix.
+     *
+     * @return neuer Schätzwert oder null, wenn der Fix als Ausreißer verworfen wurde
+     */
+    fun update(fix: Fix): Estimate? {
+        val variance = fix.accuracy.toDouble().coerceAtLeast(1.0).let { it * it }
+        if (!initialized || fix.time - time > MAX_GAP_MS) {
+            start(fix, variance)
+            return estimate(fix.source)
+        }
+
+        predict(fix.time)
+        val zx = (fix.longitude - originLon) * metersPerLon
+        val zy = (fix.latitude - originLat) * METERS_PER_DEGREE_LAT
+        val innovationX = zx - x
+        val innovationY = zy - y
+        val s = p00 + variance
+        if (hypot(innovationX, innovationY) > GATE_SIGMA * sqrt(s)) {
+            rejectedCount++
+            if (++consecutiveRejects >= MAX_CONSECUTIVE_REJECTS) {
+                // Mehrere "Ausreißer" in Folge: eher hat sich der Filter verrannt
+                start(fix, variance)
+                return estimate(fix.source)
+            }
+            return null
+        }
+        consecutiveRejects = 0
+        acceptedCount++
+
+        val k0 = p00 / s
+        val k1 = p01 / s
+        x += k0 * innovationX
+        vx += k1 * innovationX
+        y += k0 * innovationY
+        vy += k1 * innovationY
+        p11 -= k1 * p01
+        p01 *= 1 - k0
+        p00 *= 1 - k0
+        return estimate(fix.source)
+    }
+
+    fun reset() {
+        initialized = false
+        consecutiveRejects = 0
+    }
+
+    fun hasEstimate(): Boolean = initialized
+
+    private fun start(fix: Fix, variance: Double) {
+        originLat = fix.latitude
+        originLon = fix.longitude
+        metersPerLon = METERS_PER_DEGREE_LON * cos(Math.toRadians(fix.latitude))
+        x = 0.0
+        y = 0.0
+        vx = 0.0
+        vy = 0.0
+        p00 = variance
+        p01 = 0.0
+        p11 = 25.0 // Anfangsgeschwindigkeit unbekannt (σ = 5 m/s)
+        time = fix.time
+        initialized = true
+        consecutiveRejects = 0
+        acceptedCount++
+    }
+
+    private fun predict(now: Long) {
+        // Leicht verspätete Fixes der anderen Quelle nicht rückwärts vorhersagen
+        val dt = (now - time).coerceAtLeast(0L) / 1000.0
+        if (dt == 0.0) {
+            return
+        }
+        x += vx * dt
+        y += vy * dt
+        val q = accelerationNoise * accelerationNoise
+        val dt2 = dt * dt
+        val newP00 = p00 + 2 * dt * p01 + dt2 * p11 + q * dt2 * dt2 / 4
+        val newP01 = p01 + dt * p11 + q * dt2 * dt / 2
+        p11 += q * dt2
+        p00 = newP00
+        p01 = newP01
+        time = now
+    }
+
+    private fun estimate(source: Source): Estimate {
+        return Estimate(
+            time = time,
+            latitude = originLat + y / METERS_PER_DEGREE_LAT,
+            longitude = originLon + x / metersPerLon,
+            accuracy = sqrt(p00).toFloat(),
+            speed = hypot(vx, vy).toFloat(),
+            source = source
+        )
+    }
+}
@@ -6,5 +6,6 @@ package com.example.lbsapp.tracking.models
 enum class TrackingMode(val displayName: String) {
     GPS("GPS Tracking"),
     FUSED_LOCATION("Fused Location Provider"),
-    GEOFENCING("Geofencing")
+    GEOFENCING("Geofencing"),
+    FUSION("GPS + Fused (Fusion)")
 }
@@ -0,0 +1,155 @@
+package com.example.lbsapp.tracking.modes
+
+import android.content.Context
+import android.location.Location
+import android.os.Handler
+import android.os.Looper
+import android.os.SystemClock
+import android.util.Log
+import com.example.lbsapp.tracking.base.BaseTracker
+import com.example.lbsapp.tracking.fusion.GpsDutyCycle
+import com.example.lbsapp.tracking.fusion.LocationFusion
+import com.google.android.gms.location.LocationRequest
+
+/**
+ * Kombinierter Modus: GPS und Fused Location Provider laufen gleichzeitig, ihre Fixes werden
+ * gewichtet zu einem einzigen Standortstrom fusioniert ([LocationFusion]).
+ *
+ * Der Fused Provider läuft mit ausgewogener Priorität (WLAN/Mobilfunk). GPS wird nur eingeschaltet,
+ * solange dessen Genauigkeit nicht reicht ([GpsDutyCycle]), z.B. im Freien ohne WLAN.
+ * Die Quellen sind austauschbar: jeder [BaseTracker] kann als GPS- oder Fused-Quelle dienen.
+ * Fixes, die vor dem Start der Sitzung aufgenommen wurden (z.B. zwischengespeicherte letzte
+ * Standorte der Quellen), fließen nicht in die Fusion ein.
+ */
+class CompositeTracker(
+    context: Context,
+    private val gpsSource: BaseTracker = GpsTracker(context),
+    private val fusedSource: BaseTracker = FusedLocationTracker(context).apply {
+        setPriority(LocationRequest.PRIORITY_BALANCED_POWER_ACCURACY)
+    },
+    private val dutyCycle: GpsDutyCycle = GpsDutyCycle()
+) : BaseTracker(context) {
+
+    companion object {
+        private const val TAG = "CompositeTracker"
+        private const val TICK_MS = 10_000L
+        // Fixes ohne Genauigkeitsangabe gelten als grob
+        private const val UNKNOWN_ACCURACY = 50f
+    }
+
+    private val fusion = LocationFusion()
+    private val handler = Handler(Looper.getMainLooper())
+    private var lastLocation: Location? = null
+    private var running = false
+    // Beginn der laufenden Sitzung (elapsedRealtime, unabhängig von der Systemuhr)
+    private var sessionStartNanos = 0L
+
+    // Prüft regelmäßig, ob der Fused Provider verstummt ist und GPS wieder gebraucht wird
+    private val tick = object : Runnable {
+        override fun run() {
+            if (!running) {
+                return
+            }
+            if (dutyCycle.onTick(System.currentTimeMillis())) {
+                applyGpsState()
+            }
+            handler.postDelayed(this, TICK_MS)
+        }
+    }
+
+    init {
+        // Die Quellen leben so lange wie dieser Tracker; Fixes werden nur im laufenden Betrieb verarbeitet
+        gpsSource.locationData.observeForever { location ->
+            if (isCurrent(location) && dutyCycle.gpsOn) {
+                onFix(LocationFusion.Source.GPS, location)
+            }
+        }
+        fusedSource.locationData.observeForever { location ->
+            if (isCurrent(location)) {
+                if (dutyCycle.onFusedFix(location.time, accuracyOf(location))) {
+                    applyGpsState()
+                }
+                onFix(LocationFusion.Source.FUSED, location)
+            }
+        }
+        gpsSource.error.observeForever { _error.postValue(it) }
+        fusedSource.error.observeForever { _error.postValue(it) }
+    }
+
+    override fun startTracking() {
+        if (!hasPermissions()) {
+            _error.postValue("Keine Standortberechtigungen")
+            return
+        }
+
+        running = true
+        sessionStartNanos = SystemClock.elapsedRealtimeNanos()
+        fusion.reset()
+        dutyCycle.start(System.currentTimeMillis())
+        fusedSource.startTracking()
+        gpsSource.startTracking()
+        handler.postDelayed(tick, TICK_MS)
+        _isTracking.postValue(true)
+    }
+
+    override fun stopTracking() {
+        running = false
+        handler.removeCallbacks(tick)
+        gpsSource.stopTracking()
+        fusedSource.stopTracking()
+        dutyCycle.stop(System.currentTimeMillis())
+        _isTracking.postValue(false)
+    }
+
+    /**
+     * Letzter fusionierter Standort; die zwischengespeicherten Standorte der Quellen werden
+     * nicht weitergereicht.
+     */
+    override fun getLastLocation(): Location? {
+        return lastLocation
+    }
+
+    override fun hasPermissions(): Boolean {
+        return gpsSource.hasPermissions() && fusedSource.hasPermissions()
+    }
+
+    override fun getModeName(): String {
+        return "GPS + Fused (Fusion)"
+    }
+
+    private fun applyGpsState() {
+        Log.d(TAG, "GPS ${if (dutyCycle.gpsOn) "eingeschaltet" else "ausgeschaltet"}")
+        if (dutyCycle.gpsOn) {
+            gpsSource.startTracking()
+        } else {
+            gpsSource.stopTracking()
+        }
+    }
+
+    private fun onFix(source: LocationFusion.Source, location: Location) {
+        val fix = LocationFusion.Fix(source, location.time, location.latitude, location.longitude, accuracyOf(location))
+        val estimate = fusion.update(fix) ?: return
+
+        val fused = Location("fusion").apply {
+            latitude = estimate.latitude
+            longitude = estimate.longitude
+            accuracy = estimate.accuracy
+            speed = estimate.speed
+            time = estimate.time
+            elapsedRealtimeNanos = location.elapsedRealtimeNanos
+        }
+        lastLocation = fused
+        _locationData.postValue(fused)
+    }
+
+    /**
+     * Nur Fixes der laufenden Sitzung verarbeiten; ältere würden Fusion und GPS-Takt verfälschen.
+     */
+    private fun isCurrent(location: Location): Boolean {
+        return running && location.elapsedRealtimeNanos >= sessionStartNanos
+    }
+
+    private fun accuracyOf(location: Location): Float {
+        return if (location.hasAccuracy()) location.accuracy else UNKNOWN_ACCURACY
+    }
+}
@@ -2,7 +2,6 @@ package com.example.lbsapp.tracking.modes
 
 import com.example.lbsapp.database.GeofenceEntity
 import android.Manifest
-import android.app.Application
 import android.app.PendingIntent
 import android.content.Context
 import android.content.Intent
@@ -16,7 +15,7 @@ import com.google.android.gms.location.*
 import java.util.*
 import androidx.lifecycle.LiveData
 import androidx.lifecycle.MutableLiveData
-import com.example.lbsapp.geofence.GeofenceRepository
+import com.example.lbsapp.repository.GeofenceRepository
 
 /**
  * Implementierung des Trackings mit Geofencing
@@ -194,9 +193,9 @@ class GeofencingTracker(context: Context) : BaseTracker(context) {
         }
     }
 
-    private val repository: GeofenceRepository by lazy{
-        GeofenceRepository((context.applicationContext as Application))
-            }
+    private val repository: GeofenceRepository by lazy {
+        GeofenceRepository.getInstance(context)
+    }
     suspend fun addCustomGeofence(name: String, latitude: Double, longitude: Double, radius: Float): Long {
         val geofenceId = repository.addGeofence(name, latitude, longitude, radius)
 
@@ -246,7 +245,7 @@ class GeofencingTracker(context: Context) : BaseTracker(context) {
         geofenceList.clear()
 
         // Lade alle Geofences aus der Datenbank
-        val geofences = repository.allGeofences.value ?: return
+        val geofences = repository.getAllGeofences()
 
         for (geofence in geofences) {
             val gf = Geofence.Builder()
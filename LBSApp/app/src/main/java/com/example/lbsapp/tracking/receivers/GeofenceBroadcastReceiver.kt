@@ -5,11 +5,11 @@ import android.content.Context
 import android.content.Intent
 import android.util.Log
 import com.example.lbsapp.repository.GeofenceRepository
+import com.example.lbsapp.tracking.VisitLedger
 import com.google.android.gms.location.Geofence
 import com.google.android.gms.location.GeofenceStatusCodes
 import com.google.android.gms.location.GeofencingEvent
-import kotlinx.coroutines.CoroutineScope
-import kotlinx.coroutines.Dispatchers
+import kotlinx.coroutines.Deferred
 import kotlinx.coroutines.launch
 
 class GeofenceBroadcastReceiver : BroadcastReceiver() {
@@ -46,20 +46,27 @@ class GeofenceBroadcastReceiver : BroadcastReceiver() {
         Log.d(TAG, "Geofence-Ereignis erkannt: ${getTransitionString(geofenceTransition)}")
         Log.d(TAG, "Anzahl der auslösenden Geofences: ${triggeringGeofences.size}")
 
-        // Repository für Datenbankoperationen
-        val repository = GeofenceRepository(context.applicationContext as android.app.Application)
+        // Repository für Lesezugriffe; geschrieben wird nur über das Besuchsbuch
+        val repository = GeofenceRepository.getInstance(context)
+        val ledger = VisitLedger.getInstance(context)
 
-        // Verarbeite den Geofencing-Übergang
+        // Übergänge in Reihenfolge einreihen; das Besuchsbuch wendet sie nacheinander an
+        val results = mutableListOf<Deferred<VisitLedger.Outcome>>()
         for (geofence in triggeringGeofences) {
-            val geofenceId = geofence.requestId
-            Log.d(TAG, "Verarbeite Geofence mit ID: $geofenceId und Übergang: ${getTransitionString(geofenceTransition)}")
+            val geofenceId = geofence.requestId.toLongOrNull()
+            Log.d(TAG, "Verarbeite Geofence mit ID: ${geofence.requestId} und Übergang: ${getTransitionString(geofenceTransition)}")
+
+            if (geofenceId == null) {
+                Log.e(TAG, "Geofence-ID konnte nicht in Long umgewandelt werden: ${geofence.requestId}")
+                continue
+            }
 
             when (geofenceTransition) {
                 Geofence.GEOFENCE_TRANSITION_ENTER -> {
-                    processGeofenceEnter(context, geofence, repository)
+                    results.add(ledger.submit(geofenceId, VisitLedger.TransitionType.ENTER))
                 }
                 Geofence.GEOFENCE_TRANSITION_EXIT -> {
-                    processGeofenceExit(context, geofence, repository)
+                    results.add(ledger.submit(geofenceId, VisitLedger.TransitionType.EXIT))
                 }
                 Geofence.GEOFENCE_TRANSITION_DWELL -> {
                     Log.d(TAG, "DWELL-Ereignis für Geofence $geofenceId erkannt")
@@ -69,80 +76,54 @@ class GeofenceBroadcastReceiver : BroadcastReceiver() {
                 }
             }
         }
-    }
-
-    private fun processGeofenceEnter(context: Context, geofence: Geofence, repository: GeofenceRepository) {
-        val geofenceId = geofence.requestId.toLongOrNull()
-
-        if (geofenceId == null) {
-            Log.e(TAG, "Geofence-ID konnte nicht in Long umgewandelt werden: ${geofence.requestId}")
+        if (results.isEmpty()) {
             return
         }
 
-        CoroutineScope(Dispatchers.IO).launch {
-            Log.d(TAG, "Versuche, Eintritt für Geofence $geofenceId zu speichern")
-
+        // Receiver aktiv halten, bis alle Transaktionen abgeschlossen sind
+        val pendingResult = goAsync()
+        ledger.scope.launch {
             try {
-                // Prüfe, ob bereits ein aktiver Besuch existiert
-                val activeVisits = repository.getActiveVisits(geofenceId)
-                Log.d(TAG, "Aktive Besuche für Geofence $geofenceId: ${activeVisits.size}")
-
-                if (activeVisits.isEmpty()) {
-                    // Nur einen neuen Eintrag erstellen, wenn kein aktiver Besuch existiert
-                    val id = repository.recordEntry(geofenceId)
-                    Log.d(TAG, "Eintritt in Geofence $geofenceId erfolgreich aufgezeichnet mit ID: $id")
-
-                    // Benachrichtigung senden
-                    sendNotification(
-                        context,
-                        "Geofence betreten",
-                        "Du hast den Bereich '${getGeofenceName(repository, geofenceId)}' betreten. Die Zeitmessung hat begonnen."
-                    )
-                } else {
-                    Log.d(TAG, "Eintritt ignoriert, bereits aktiver Besuch für Geofence $geofenceId")
+                for (result in results) {
+                    try {
+                        notifyOutcome(context, repository, result.await())
+                    } catch (e: Exception) {
+                        Log.e(TAG, "Fehler beim Aufzeichnen des Übergangs: ${e.message}", e)
+                    }
                 }
-            } catch (e: Exception) {
-                Log.e(TAG, "Fehler beim Aufzeichnen des Eintritts: ${e.message}", e)
+            } finally {
+                pendingResult.finish()
             }
         }
     }
 
-    private fun processGeofenceExit(context: Context, geofence: Geofence, repository: GeofenceRepository) {
-        val geofenceId = geofence.requestId.toLongOrNull()
-
-        if (geofenceId == null) {
-            Log.e(TAG, "Geofence-ID konnte nicht in Long umgewandelt werden: ${geofence.requestId}")
+    private suspend fun notifyOutcome(context: Context, repository: GeofenceRepository, outcome: VisitLedger.Outcome) {
+        val geofenceId = outcome.geofenceId
+        if (!outcome.applied) {
+            Log.d(TAG, "${outcome.type} ignoriert für Geofence $geofenceId (Besuchsstatus unverändert)")
             return
         }
-
-        CoroutineScope(Dispatchers.IO).launch {
-            Log.d(TAG, "Versuche, Austritt für Geofence $geofenceId zu speichern")
-
-            try {
-                // Prüfe, ob ein aktiver Besuch existiert
-                val activeVisits = repository.getActiveVisits(geofenceId)
-                Log.d(TAG, "Aktive Besuche für Geofence $geofenceId: ${activeVisits.size}")
-
-                if (activeVisits.isNotEmpty()) {
-                    // Nur einen Austritt aufzeichnen, wenn ein aktiver Besuch existiert
-                    val success = repository.recordExit(geofenceId)
-                    Log.d(TAG, "Austritt aus Geofence $geofenceId aufgezeichnet: $success")
-
-                    // Aufenthaltszeit abrufen
-                    val totalTime = repository.getTotalTimeInGeofence(geofenceId)
-                    val formattedTime = formatDuration(totalTime)
-
-                    // Benachrichtigung senden
-                    sendNotification(
-                        context,
-                        "Geofence verlassen",
-                        "Du hast den Bereich '${getGeofenceName(repository, geofenceId)}' verlassen. Aufenthaltsdauer: $formattedTime"
-                    )
-                } else {
-                    Log.d(TAG, "Austritt ignoriert, kein aktiver Besuch für Geofence $geofenceId")
-                }
-            } catch (e: Exception) {
-                Log.e(TAG, "Fehler beim Aufzeichnen des Austritts: ${e.message}", e)
+        when (outcome.type) {
+            VisitLedger.TransitionType.ENTER -> {
+                Log.d(TAG, "Eintritt in Geofence $geofenceId erfolgreich aufgezeichnet mit ID: ${outcome.visitId}")
+                sendNotification(
+                    context,
+                    "Geofence betreten",
+                    "Du hast den Bereich '${getGeofenceName(repository, geofenceId)}' betreten. Die Zeitmessung hat begonnen."
+                )
+            }
+            VisitLedger.TransitionType.EXIT -> {
+                Log.d(TAG, "Austritt aus Geofence $geofenceId aufgezeichnet, Dauer: ${formatDuration(outcome.duration ?: 0)}")
+
+                // Aufenthaltszeit abrufen
+                val totalTime = repository.getTotalTimeInGeofence(geofenceId)
+                val formattedTime = formatDuration(totalTime)
+
+                sendNotification(
+                    context,
+                    "Geofence verlassen",
+                    "Du hast den Bereich '${getGeofenceName(repository, geofenceId)}' verlassen. Aufenthaltsdauer: $formattedTime"
+                )
             }
         }
     }
@@ -186,12 +167,12 @@ class GeofenceBroadcastReceiver : BroadcastReceiver() {
     // Nur für Debugging - eine Methode, die manuell aufgerufen werden kann
     fun simulateGeofenceEntry(context: Context, geofenceId: Long) {
         Log.d(TAG, "Simuliere Geofence-Eintritt für ID: $geofenceId")
-        val repository = GeofenceRepository(context.applicationContext as android.app.Application)
+        val ledger = VisitLedger.getInstance(context)
 
-        CoroutineScope(Dispatchers.IO).launch {
+        ledger.scope.launch {
             try {
-                val id = repository.recordEntry(geofenceId)
-                Log.d(TAG, "Simulierter Eintritt für Geofence $geofenceId erfolgreich mit ID: $id")
+                val outcome = ledger.enter(geofenceId)
+                Log.d(TAG, "Simulierter Eintritt für Geofence $geofenceId: ${outcome.applied} (Besuchs-ID: ${outcome.visitId})")
             } catch (e: Exception) {
                 Log.e(TAG, "Fehler beim Simulieren des Eintritts: ${e.message}", e)
             }
@@ -200,12 +181,12 @@ class GeofenceBroadcastReceiver : BroadcastReceiver() {
 
     fun simulateGeofenceExit(context: Context, geofenceId: Long) {
         Log.d(TAG, "Simuliere Geofence-Austritt für ID: $geofenceId")
-        val repository = GeofenceRepository(context.applicationContext as android.app.Application)
+        val ledger = VisitLedger.getInstance(context)
 
-        CoroutineScope(Dispatchers.IO).launch {
+        ledger.scope.launch {
             try {
-                val success = repository.recordExit(geofenceId)
-                Log.d(TAG, "Simulierter Austritt für Geofence $geofenceId: $success")
+                val outcome = ledger.exit(geofenceId)
+                Log.d(TAG, "Simulierter Austritt für Geofence $geofenceId: ${outcome.applied}")
             } catch (e: Exception) {
                 Log.e(TAG, "Fehler beim Simulieren des Austritts: ${e.message}", e)
             }
@@ -17,6 +17,7 @@ import androidx.appcompat.app.AlertDialog
 import androidx.appcompat.app.AppCompatActivity
 import androidx.core.app.ActivityCompat
 import androidx.core.content.ContextCompat
+import androidx.lifecycle.asLiveData
 import androidx.lifecycle.lifecycleScope
 import com.example.lbsapp.R
 import com.example.lbsapp.databinding.ActivityMapsBinding
@@ -186,8 +187,8 @@ class MapsActivity : AppCompatActivity(), OnMapReadyCallback {
     }
 
     private fun showExistingGeofences() {
-        val geofenceRepository = GeofenceRepository(application)
-        geofenceRepository.allGeofences.observe(this) { geofences ->
+        val geofenceRepository = GeofenceRepository.getInstance(application)
+        geofenceRepository.geofences.asLiveData().observe(this) { geofences ->
             // Karte leeren (nur Geofences, nicht den temporären Marker)
             mMap.clear()
             tempMarker = null
@@ -247,7 +248,7 @@ class MapsActivity : AppCompatActivity(), OnMapReadyCallback {
 
                     if (name.isNotBlank()) {
                         // Geofence erstellen
-                        val geofenceRepository = GeofenceRepository(application)
+                        val geofenceRepository = GeofenceRepository.getInstance(application)
                         lifecycleScope.launch {
                             val geofenceId = geofenceRepository.addGeofence(
                                 name,
@@ -0,0 +1,174 @@
+package com.example.lbsapp.tracking.fusion
+
+import com.example.lbsapp.tracking.models.TrackingMode
+import java.util.Random
+import kotlin.math.cos
+import kotlin.math.hypot
+import kotlin.math.sin
+
+/**
+ * Replay-Harness für die Tracking-Modi: eine simulierte Strecke aus Abschnitten mit
+ * unterschiedlicher GPS- und WLAN/Mobilfunk-Genauigkeit wird je Modus abgespielt.
+ * Gemessen werden der Fehler jedes ausgegebenen Standorts gegenüber der wahren Position
+ * und die Zeit, in der GPS eingeschaltet war.
+ *
+ * Modell der Quellen (wie in GpsTracker/FusedLocationTracker konfiguriert):
+ * - GPS liefert alle 5 s einen Fix, der erste kommt [GPS_TIME_TO_FIX_MS] nach dem Einschalten.
+ * - Der Fused Provider liefert alle 10 s; mit hoher Priorität (Modus FUSED_LOCATION) nutzt er
+ *   GPS mit, mit ausgewogener Priorität (im kombinierten Modus) nur WLAN/Mobilfunk.
+ * Das Rauschen je Achse ist Genauigkeit / 1,5 (gemeldete Genauigkeit ≈ 68 %-Radius).
+ * GEOFENCING liefert keinen fortlaufenden Standortstrom und wird nicht abgespielt.
+ */
+class TrackingReplay(private val segments: List<Segment>, private val seed: Long = 1) {
+
+    companion object {
+        const val GPS_INTERVAL_MS = 5_000L
+        const val GPS_TIME_TO_FIX_MS = 8_000L
+        const val FUSED_INTERVAL_MS = 10_000L
+        private const val STEP_MS = 1_000L
+        private const val LAT = 47.66
+        private const val LON = 9.47
+        private const val METERS_PER_DEGREE_LAT = 110_540.0
+        private val METERS_PER_DEGREE_LON = 111_320.0 * cos(Math.toRadians(LAT))
+
+        /**
+         * Stadtrundgang mit Park, Autofahrt und Aufenthalt im Gebäude (eine Stunde).
+         */
+        fun cityRound(): List<Segment> = listOf(
+            Segment("Stadt zu Fuß", 20 * 60, 1.4, 90.0, fusedAccuracy = 12f, gpsAccuracy = 5f),
+            Segment("Park", 15 * 60, 1.2, 30.0, fusedAccuracy = 60f, gpsAccuracy = 4f),
+            Segment("Autofahrt", 10 * 60, 12.0, 160.0, fusedAccuracy = 30f, gpsAccuracy = 5f),
+            Segment("Im Gebäude", 15 * 60, 0.0, 0.0, fusedAccuracy = 10f, gpsAccuracy = 25f)
+        )
+    }
+
+    /**
+     * Abschnitt mit konstanter Geschwindigkeit und Richtung.
+     *
+     * @property headingDeg Richtung in Grad (0 = Nord, 90 = Ost)
+     * @property fusedAccuracy Genauigkeit des Fused Providers ohne GPS (WLAN/Mobilfunk)
+     */
+    data class Segment(
+        val name: String,
+        val durationS: Int,
+        val speedMps: Double,
+        val headingDeg: Double,
+        val fusedAccuracy: Float,
+        val gpsAccuracy: Float
+    )
+
+    data class Result(
+        val mode: TrackingMode,
+        val fixes: Int,
+        val meanErrorM: Double,
+        val p95ErrorM: Double,
+        val gpsOnMs: Long,
+        val durationMs: Long
+    ) {
+        val gpsOnShare: Double get() = gpsOnMs.toDouble() / durationMs
+    }
+
+    private class Truth(val x: Double, val y: Double, val segment: Segment)
+
+    // Wahre Position (Meter östlich/nördlich des Starts) je Sekunde
+    private val truth: List<Truth> = buildList {
+        var x = 0.0
+        var y = 0.0
+        for (segment in segments) {
+            val heading = Math.toRadians(segment.headingDeg)
+            repeat(segment.durationS) {
+                add(Truth(x, y, segment))
+                x += segment.speedMps * sin(heading)
+                y += segment.speedMps * cos(heading)
+            }
+        }
+    }
+
+    private val durationMs = truth.size * STEP_MS
+
+    fun run(mode: TrackingMode): Result {
+        val random = Random(seed)
+        val errors = ArrayList<Double>()
+        var gpsOnMs = durationMs
+
+        when (mode) {
+            TrackingMode.GPS -> {
+                for (time in GPS_TIME_TO_FIX_MS until durationMs step GPS_INTERVAL_MS) {
+                    val fix = fix(LocationFusion.Source.GPS, time, truthAt(time).segment.gpsAccuracy, random)
+                    errors.add(error(fix.time, fix.latitude, fix.longitude))
+                }
+            }
+            TrackingMode.FUSED_LOCATION -> {
+                // Hohe Priorität: der Provider hält GPS an und liefert die bessere der beiden Quellen
+                for (time in FUSED_INTERVAL_MS until durationMs step FUSED_INTERVAL_MS) {
+                    val segment = truthAt(time).segment
+                    val fix = fix(LocationFusion.Source.FUSED, time, minOf(segment.fusedAccuracy, segment.gpsAccuracy), random)
+                    errors.add(error(fix.time, fix.latitude, fix.longitude))
+                }
+            }
+            TrackingMode.FUSION -> gpsOnMs = runFusion(random, errors)
+            TrackingMode.GEOFENCING -> throw IllegalArgumentException("Geofencing liefert keinen Standortstrom")
+        }
+
+        errors.sort()
+        return Result(
+            mode = mode,
+            fixes = errors.size,
+            meanErrorM = errors.average(),
+            p95ErrorM = errors[(errors.size * 0.95).toInt().coerceAtMost(errors.size - 1)],
+            gpsOnMs = gpsOnMs,
+            durationMs = durationMs
+        )
+    }
+
+    // Gleicher Ablauf wie im CompositeTracker, nur mit simulierter Zeit
+    private fun runFusion(random: Random, errors: MutableList<Double>): Long {
+        val fusion = LocationFusion()
+        val dutyCycle = GpsDutyCycle()
+        dutyCycle.start(0)
+        var nextGpsFix = GPS_TIME_TO_FIX_MS
+
+        for (time in 0 until durationMs step STEP_MS) {
+            if (time > 0 && time % FUSED_INTERVAL_MS == 0L) {
+                // Entspricht dem Tick im CompositeTracker
+                val switched = dutyCycle.onTick(time)
+                val fix = fix(LocationFusion.Source.FUSED, time, truthAt(time).segment.fusedAccuracy, random)
+                if (dutyCycle.onFusedFix(time, fix.accuracy) || switched) {
+                    nextGpsFix = time + GPS_TIME_TO_FIX_MS
+                }
+                fusion.update(fix)?.let { errors.add(error(it.time, it.latitude, it.longitude)) }
+            }
+            if (dutyCycle.gpsOn && time >= nextGpsFix) {
+                val fix = fix(LocationFusion.Source.GPS, time, truthAt(time).segment.gpsAccuracy, random)
+                fusion.update(fix)?.let { errors.add(error(it.time, it.latitude, it.longitude)) }
+                nextGpsFix = time + GPS_INTERVAL_MS
+            }
+        }
+        return dutyCycle.gpsOnMs(durationMs)
+    }
+
+    fun report(results: List<Result>): String {
+        val lines = results.map { r ->
+            String.format(java.util.Locale.ROOT, "%-15s %6d %8.1f m %8.1f m %8.0f s %6.0f %%",
+                r.mode.name, r.fixes, r.meanErrorM, r.p95ErrorM, r.gpsOnMs / 1000.0, r.gpsOnShare * 100)
+        }
+        return (listOf(String.format(java.util.Locale.ROOT, "%-15s %6s %10s %10s %10s %8s",
+            "Modus", "Fixes", "Ø Fehler", "P95", "GPS an", "Anteil")) + lines).joinToString("\n")
+    }
+
+    private fun truthAt(time: Long): Truth = truth[(time / STEP_MS).toInt().coerceIn(0, truth.size - 1)]
+
+    private fun fix(source: LocationFusion.Source, time: Long, accuracy: Float, random: Random): LocationFusion.Fix {
+        val position = truthAt(time)
+        val sigma = accuracy / 1.5
+        val x = position.x + random.nextGaussian() * sigma
+        val y = position.y + random.nextGaussian() * sigma
+        return LocationFusion.Fix(source, time, LAT + y / METERS_PER_DEGREE_LAT, LON + x / METERS_PER_DEGREE_LON, accuracy)
+    }
+
+    private fun error(time: Long, latitude: Double, longitude: Double): Double {
+        val position = truthAt(time)
+        return hypot((longitude - LON) * METERS_PER_DEGREE_LON - position.x,
+            (latitude - LAT) * METERS_PER_DEGREE_LAT - position.y)
+    }
+}
@@ -0,0 +1,74 @@
+package com.example.lbsapp.tracking.fusion
+
+import com.example.lbsapp.tracking.models.TrackingMode
+import org.junit.Assert.assertEquals
+import org.junit.Assert.assertFalse
+import org.junit.Assert.assertNull
+import org.junit.Assert.assertTrue
+import org.junit.Test
+
+/**
+ * Vergleicht Genauigkeit und GPS-Einschaltzeit der Modi auf der simulierten Strecke
+ * und prüft die Regeln des GPS-Taktgebers.
+ */
+class TrackingReplayTest {
+
+    @Test
+    fun replay_fusionKeepsAccuracyWithLessGpsTime() {
+        val replay = TrackingReplay(TrackingReplay.cityRound())
+        val results = listOf(TrackingMode.GPS, TrackingMode.FUSED_LOCATION, TrackingMode.FUSION)
+            .associateWith { replay.run(it) }
+        println(replay.report(results.values.toList()))
+
+        val gps = results.getValue(TrackingMode.GPS)
+        val fused = results.getValue(TrackingMode.FUSED_LOCATION)
+        val fusion = results.getValue(TrackingMode.FUSION)
+
+        assertEquals(1.0, gps.gpsOnShare, 0.0)
+        assertTrue("GPS-Anteil ${fusion.gpsOnShare}", fusion.gpsOnShare < 0.6)
+        // Im Gebäude ist GPS schlechter als WLAN, im Park hält die Fusion GPS an
+        assertTrue(fusion.meanErrorM < gps.meanErrorM)
+        assertTrue(fusion.meanErrorM < fused.meanErrorM * 1.5)
+        assertTrue("P95 ${fusion.p95ErrorM}", fusion.p95ErrorM < 25.0)
+        assertTrue(fusion.fixes > fused.fixes)
+    }
+
+    @Test
+    fun dutyCycle_switchesWithHysteresisAndOnSilence() {
+        val dutyCycle = GpsDutyCycle()
+        dutyCycle.start(0)
+
+        // Gute Fused-Fixes schalten GPS erst nach der Mindestlaufzeit ab
+        assertFalse(dutyCycle.onFusedFix(10_000, 12f))
+        assertFalse(dutyCycle.onFusedFix(20_000, 12f))
+        assertTrue(dutyCycle.onFusedFix(30_000, 12f))
+        assertFalse(dutyCycle.gpsOn)
+
+        // Zwischen den Schwellen bleibt GPS aus, erst ein schlechter Fix schaltet es ein
+        assertFalse(dutyCycle.onFusedFix(40_000, 30f))
+        assertTrue(dutyCycle.onFusedFix(50_000, 60f))
+        assertTrue(dutyCycle.gpsOn)
+        assertEquals(40_000, dutyCycle.gpsOnMs(60_000))
+
+        // Verstummt der Fused Provider, wird GPS wieder gebraucht
+        repeat(3) { i -> dutyCycle.onFusedFix(90_000L + i * 10_000, 10f) }
+        assertFalse(dutyCycle.gpsOn)
+        assertFalse(dutyCycle.onTick(130_000))
+        assertTrue(dutyCycle.onTick(140_000))
+        assertTrue(dutyCycle.gpsOn)
+    }
+
+    @Test
+    fun fusion_weightsByAccuracyAndRejectsJumps() {
+        val fusion = LocationFusion()
+        fusion.update(LocationFusion.Fix(LocationFusion.Source.FUSED, 0, 47.66, 9.47, 40f))
+        // Ein genauer GPS-Fix 20 m nördlich zieht die Schätzung fast vollständig zu sich
+        val estimate = fusion.update(LocationFusion.Fix(LocationFusion.Source.GPS, 1_000, 47.66 + 20 / 110_540.0, 9.47, 4f))!!
+        assertTrue((estimate.latitude - 47.66) * 110_540.0 > 18.0)
+        assertTrue(estimate.accuracy < 4.5f)
+
+        // Ein Sprung um 2 km eine Sekunde später ist ein Ausreißer
+        assertNull(fusion.update(LocationFusion.Fix(LocationFusion.Source.FUSED, 2_000, 47.68, 9.47, 20f)))
+        assertEquals(1, fusion.rejectedCount)
+    }
+}